@@ -0,0 +1,128 @@
+package cn.zzs.spring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.aspectj.lang.reflect.PerClauseKind;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.aspectj.AspectJProxyUtils;
+import org.springframework.aop.aspectj.SimpleAspectInstanceFactory;
+import org.springframework.aop.aspectj.annotation.AspectJAdvisorFactory;
+import org.springframework.aop.aspectj.annotation.AspectMetadata;
+import org.springframework.aop.aspectj.annotation.ReflectiveAspectJAdvisorFactory;
+import org.springframework.aop.aspectj.annotation.SingletonMetadataAwareAspectInstanceFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * 可以在多个 AspectJProxyFactory 之间共享的 Advisor 缓存。
+ * <p>AspectJProxyFactory.addAspect 每次都会为切面类重新创建 Advisor，切点表达式需要重新解析，
+ * 并且要遍历目标类的所有方法判断切面能否应用到目标类上。这里对单例切面：
+ * <p>1. 每个切面类只创建一次 Advisor，创建时就完成切点表达式的解析，之后所有代理共用同一个 AspectJExpressionPointcut，
+ * 方法匹配的结果（ShadowMatch）也随之共享；
+ * <p>2. 按（切面类，目标类）缓存能够应用到目标类上的 Advisor，类级别的匹配只做一次。
+ * <p>非单例切面（perthis、pertarget 等）不缓存。
+ * <p>缓存不会阻止切面类和目标类被卸载：切面的 Advisor 通过 ClassValue 挂在切面类上，目标类只作为弱引用的 key。
+ * @author zzs
+ * @date 2026年10月19日 上午12:12:36
+ */
+public class AspectJAdvisorCache {
+
+    private static final AspectJAdvisorCache SHARED_INSTANCE = new AspectJAdvisorCache();
+
+    private final AspectJAdvisorFactory advisorFactory = new ReflectiveAspectJAdvisorFactory();
+
+    /** 切面类对应的 Advisor，清空缓存时整个替换 */
+    private volatile ClassValue<AspectAdvisors> advisorsByAspect = newAdvisorsByAspect();
+
+
+    /**
+     * 获取进程内共享的缓存
+     */
+    public static AspectJAdvisorCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * 获取能够应用到目标类上的 Advisor，已经排好序，并在需要时加上 ExposeInvocationInterceptor
+     * @param aspectClass 切面类
+     * @param targetClass 目标类
+     * @return 不可修改的 Advisor 列表，非单例切面返回 null
+     */
+    @Nullable
+    public List<Advisor> getAdvisors(Class<?> aspectClass, Class<?> targetClass) {
+        AspectAdvisors aspectAdvisors = advisorsByAspect.get(aspectClass);
+        if(aspectAdvisors.advisors == null) {
+            return null;
+        }
+        return aspectAdvisors.advisorsByTarget.computeIfAbsent(targetClass, key -> {
+            // 和 AspectJProxyFactory.addAdvisorsFromAspectInstanceFactory 一致
+            List<Advisor> advisors = new ArrayList<>(AopUtils.findAdvisorsThatCanApply(aspectAdvisors.advisors, targetClass));
+            AspectJProxyUtils.makeAdvisorChainAspectJCapableIfNecessary(advisors);
+            AnnotationAwareOrderComparator.sort(advisors);
+            return Collections.unmodifiableList(advisors);
+        });
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        advisorsByAspect = newAdvisorsByAspect();
+    }
+
+    private ClassValue<AspectAdvisors> newAdvisorsByAspect() {
+        return new ClassValue<AspectAdvisors>() {
+
+            @Override
+            protected AspectAdvisors computeValue(Class<?> aspectClass) {
+                return new AspectAdvisors(createAdvisors(aspectClass));
+            }
+        };
+    }
+
+    @Nullable
+    private List<Advisor> createAdvisors(Class<?> aspectClass) {
+        String aspectName = aspectClass.getName();
+        AspectMetadata am = new AspectMetadata(aspectClass, aspectName);
+        if(!am.getAjType().isAspect()) {
+            throw new IllegalArgumentException("Class [" + aspectClass.getName() + "] is not a valid aspect type");
+        }
+        if(am.getAjType().getPerClause().getKind() != PerClauseKind.SINGLETON) {
+            return null;
+        }
+        Object aspectInstance = new SimpleAspectInstanceFactory(aspectClass).getAspectInstance();
+        List<Advisor> advisors = advisorFactory.getAdvisors(new SingletonMetadataAwareAspectInstanceFactory(aspectInstance, aspectName));
+        // 提前解析切点表达式
+        for(Advisor advisor : advisors) {
+            if(advisor instanceof PointcutAdvisor) {
+                ((PointcutAdvisor)advisor).getPointcut().getClassFilter();
+            }
+        }
+        return Collections.unmodifiableList(advisors);
+    }
+
+    /**
+     * 一个切面类的 Advisor，以及按目标类缓存的能够应用的 Advisor
+     */
+    private static final class AspectAdvisors {
+
+        /** 非单例切面为 null */
+        @Nullable
+        final List<Advisor> advisors;
+
+        /** 目标类为弱引用，能够应用的 Advisor 只引用切面，不引用目标类 */
+        final Map<Class<?>, List<Advisor>> advisorsByTarget = new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+
+        AspectAdvisors(@Nullable List<Advisor> advisors) {
+            super();
+            this.advisors = advisors;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.lang.Nullable;
+
+/**
+ * 只有副作用的 Advice，例如打印日志、审计、统计，由 AsyncAdviceInterceptor 放到其他线程执行，不会阻塞调用方。
+ * <p>执行时目标方法可能已经执行完毕，也无法影响目标方法的执行和返回值。
+ * @author zzs
+ * @date 2026年10月19日 上午12:40:18
+ */
+public interface AsyncAdvice extends Advice {
+
+    /**
+     * 执行 Advice
+     * @param method 被调用的方法
+     * @param args 方法参数的副本
+     * @param target 目标对象
+     */
+    void execute(Method method, Object[] args, @Nullable Object target) throws Throwable;
+}
@@ -0,0 +1,153 @@
+package cn.zzs.spring;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 执行 AsyncAdvice 的线程池，队列有界，队列满了之后按照 OverflowPolicy 处理。
+ * <p>线程为守护线程，不会阻止 JVM 退出。
+ * @author zzs
+ * @date 2026年10月19日 上午12:40:18
+ */
+public class AsyncAdviceExecutor {
+
+    /**
+     * 队列满了之后的处理方式
+     */
+    public enum OverflowPolicy {
+        /** 阻塞调用方，直到队列有空位 */
+        BLOCK,
+        /** 在调用方线程中直接执行 */
+        CALLER_RUNS,
+        /** 丢弃新提交的任务 */
+        DROP_NEWEST,
+        /** 丢弃队列中最早的任务，再提交新任务 */
+        DROP_OLDEST
+    }
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final LongAdder submittedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+
+    public AsyncAdviceExecutor(int threads, int queueCapacity, OverflowPolicy overflowPolicy) {
+        super();
+        this.overflowPolicy = overflowPolicy;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new AdviceThreadFactory(), new OverflowHandler());
+        // BLOCK 直接往队列里放任务，需要先启动所有线程
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * 提交任务
+     * @param task 任务
+     */
+    public void execute(Runnable task) {
+        submittedCount.increment();
+        executor.execute(task);
+    }
+
+    /**
+     * 关闭线程池，队列中已有的任务会继续执行
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 等待线程池关闭
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 是否在超时前关闭
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    private class OverflowHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if(executor.isShutdown()) {
+                droppedCount.increment();
+                return;
+            }
+            BlockingQueue<Runnable> queue = executor.getQueue();
+            switch(overflowPolicy) {
+                case BLOCK:
+                    try {
+                        queue.put(task);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for advice queue", e);
+                    }
+                    break;
+                case CALLER_RUNS:
+                    task.run();
+                    break;
+                case DROP_NEWEST:
+                    droppedCount.increment();
+                    break;
+                case DROP_OLDEST:
+                    if(queue.poll() != null) {
+                        droppedCount.increment();
+                    }
+                    if(!queue.offer(task)) {
+                        droppedCount.increment();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+            }
+        }
+    }
+
+    private static class AdviceThreadFactory implements ThreadFactory {
+
+        private final int poolNumber = POOL_COUNTER.incrementAndGet();
+
+        private final AtomicInteger threadCounter = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "async-advice-" + poolNumber + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 将 AsyncAdvice 提交到 AsyncAdviceExecutor 后直接执行下一个 Advice，目标方法的耗时不再包含 Advice 的耗时。
+ * <p>方法参数会复制一份（浅拷贝）再交给 Advice，Advice 抛出的异常只打印日志，不会影响调用方。
+ * @author zzs
+ * @date 2026年10月19日 上午12:40:18
+ */
+public class AsyncAdviceInterceptor implements MethodInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncAdviceInterceptor.class);
+
+    private final AsyncAdvice advice;
+
+    private final AsyncAdviceExecutor executor;
+
+    private final LongAdder failedCount = new LongAdder();
+
+
+    public AsyncAdviceInterceptor(AsyncAdvice advice, AsyncAdviceExecutor executor) {
+        super();
+        this.advice = advice;
+        this.executor = executor;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Object[] args = invocation.getArguments().clone();
+        Object target = invocation.getThis();
+        executor.execute(() -> {
+            try {
+                advice.execute(method, args, target);
+            } catch(Throwable ex) {
+                failedCount.increment();
+                LOGGER.warn("Async advice failed for method {}", method, ex);
+            }
+        });
+        return invocation.proceed();
+    }
+
+    /**
+     * Advice 执行失败的次数
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+}
@@ -0,0 +1,58 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+
+/**
+ * 缓存方法返回值的 Advisor，只匹配 {@link CachingInterceptor} 中配置的读方法和写方法，其他方法不经过拦截器。
+ * 可以添加到 ProxyFactory 或者 AspectJProxyFactory。
+ * <pre>
+ * CachingAdvisor advisor = new CachingAdvisor();
+ * advisor.getInterceptor().setCachedMethodNames("get");
+ * advisor.getInterceptor().setInvalidatingMethodNames("save");
+ * proxyFactory.addAdvisor(advisor);
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午10:34:52
+ */
+public class CachingAdvisor extends DefaultPointcutAdvisor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CachingInterceptor interceptor;
+
+
+    public CachingAdvisor() {
+        this(new CachingInterceptor());
+    }
+
+    public CachingAdvisor(CachingInterceptor interceptor) {
+        super(new CachingPointcut(interceptor), interceptor);
+        this.interceptor = interceptor;
+    }
+
+    public CachingInterceptor getInterceptor() {
+        return interceptor;
+    }
+
+    /**
+     * 匹配读方法和写方法，方法名在创建代理前设置好
+     */
+    private static final class CachingPointcut extends StaticMethodMatcherPointcut {
+
+        private final CachingInterceptor interceptor;
+
+
+        CachingPointcut(CachingInterceptor interceptor) {
+            super();
+            this.interceptor = interceptor;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return interceptor.isCachedMethod(method) || interceptor.isInvalidatingMethod(method);
+        }
+    }
+}
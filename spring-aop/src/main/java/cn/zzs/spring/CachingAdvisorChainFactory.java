@@ -0,0 +1,152 @@
+package cn.zzs.spring;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AdvisorChainFactory;
+import org.springframework.aop.framework.DefaultAdvisorChainFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * 可以在多个代理配置之间共享的 AdvisorChainFactory，按（方法，目标类，Advisor）缓存拦截器链。
+ * <p>AdvisedSupport 只在自己内部按方法缓存拦截器链，每个新的代理配置都要重新匹配一遍。
+ * Advisor 相同（例如来自 AspectJAdvisorCache）的代理配置可以直接复用已经匹配好的拦截器链，
+ * 类级别和方法级别的匹配都只在第一次时进行，不需要 setPreFiltered(true)。
+ * <p>拦截器链通过 ClassValue 挂在目标类（没有目标类时为方法的声明类）上，不会阻止类被卸载。缓存数量超过上限时整体清空。
+ * @author zzs
+ * @date 2026年10月19日 上午12:12:36
+ */
+public class CachingAdvisorChainFactory implements AdvisorChainFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 默认的缓存上限 */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final CachingAdvisorChainFactory SHARED_INSTANCE = new CachingAdvisorChainFactory(DEFAULT_MAX_SIZE);
+
+    private final AdvisorChainFactory delegate = new DefaultAdvisorChainFactory();
+
+    private final int maxSize;
+
+    /** 目标类对应的拦截器链，清空缓存时整个替换 */
+    private transient volatile ClassValue<ConcurrentMap<ChainKey, List<Object>>> chains = newChains();
+
+    private final transient AtomicInteger size = new AtomicInteger();
+
+
+    public CachingAdvisorChainFactory(int maxSize) {
+        super();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 获取进程内共享的 AdvisorChainFactory
+     */
+    public static CachingAdvisorChainFactory getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    @Override
+    public List<Object> getInterceptorsAndDynamicInterceptionAdvice(Advised config, Method method, @Nullable Class<?> targetClass) {
+        ChainKey key = new ChainKey(method, targetClass, config.getAdvisors(), config.isPreFiltered());
+        ConcurrentMap<ChainKey, List<Object>> targetChains = chains.get(targetClass != null ? targetClass : method.getDeclaringClass());
+        List<Object> chain = targetChains.get(key);
+        if(chain == null) {
+            if(size.get() >= maxSize) {
+                clear();
+                targetChains = chains.get(targetClass != null ? targetClass : method.getDeclaringClass());
+            }
+            chain = Collections.unmodifiableList(delegate.getInterceptorsAndDynamicInterceptionAdvice(config, method, targetClass));
+            List<Object> existing = targetChains.putIfAbsent(key, chain);
+            if(existing != null) {
+                chain = existing;
+            } else {
+                size.incrementAndGet();
+            }
+        }
+        return chain;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        chains = newChains();
+        size.set(0);
+    }
+
+    private static ClassValue<ConcurrentMap<ChainKey, List<Object>>> newChains() {
+        return new ClassValue<ConcurrentMap<ChainKey, List<Object>>>() {
+
+            @Override
+            protected ConcurrentMap<ChainKey, List<Object>> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>(16);
+            }
+        };
+    }
+
+    /**
+     * 缓存不参与序列化，反序列化时创建新的实例
+     */
+    private Object readResolve() {
+        return new CachingAdvisorChainFactory(maxSize);
+    }
+
+    private static final class ChainKey {
+
+        private final Method method;
+
+        @Nullable
+        private final Class<?> targetClass;
+
+        private final Advisor[] advisors;
+
+        private final boolean preFiltered;
+
+        private final int hashCode;
+
+
+        ChainKey(Method method, @Nullable Class<?> targetClass, Advisor[] advisors, boolean preFiltered) {
+            super();
+            this.method = method;
+            this.targetClass = targetClass;
+            this.advisors = advisors;
+            this.preFiltered = preFiltered;
+            int hashCode = method.hashCode();
+            hashCode = 31 * hashCode + (targetClass == null ? 0 : targetClass.hashCode());
+            hashCode = 31 * hashCode + Arrays.hashCode(advisors);
+            this.hashCode = 31 * hashCode + (preFiltered ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof ChainKey)) {
+                return false;
+            }
+            ChainKey otherKey = (ChainKey)other;
+            return method.equals(otherKey.method) && targetClass == otherKey.targetClass
+                    && preFiltered == otherKey.preFiltered && Arrays.equals(advisors, otherKey.advisors);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
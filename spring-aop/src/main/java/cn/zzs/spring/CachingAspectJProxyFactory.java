@@ -0,0 +1,52 @@
+package cn.zzs.spring;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.List;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 使用共享缓存的 AspectJProxyFactory：切面的 Advisor 来自 AspectJAdvisorCache，拦截器链来自 CachingAdvisorChainFactory。
+ * <p>大量创建同一个切面的代理时，切点表达式只解析一次，类级别的匹配和方法级别的匹配也只进行一次。
+ * @author zzs
+ * @date 2026年10月19日 上午12:12:36
+ */
+public class CachingAspectJProxyFactory extends AspectJProxyFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    /** AspectJAdvisorCache 不能序列化，反序列化后使用共享的缓存 */
+    private transient AspectJAdvisorCache advisorCache;
+
+
+    public CachingAspectJProxyFactory() {
+        this(AspectJAdvisorCache.getSharedInstance(), CachingAdvisorChainFactory.getSharedInstance());
+    }
+
+    public CachingAspectJProxyFactory(AspectJAdvisorCache advisorCache, CachingAdvisorChainFactory advisorChainFactory) {
+        super();
+        this.advisorCache = advisorCache;
+        setAdvisorChainFactory(advisorChainFactory);
+    }
+
+    @Override
+    public void addAspect(Class<?> aspectClass) {
+        Class<?> targetClass = getTargetClass();
+        Assert.state(targetClass != null, "Unresolvable target class");
+        List<Advisor> advisors = advisorCache.getAdvisors(aspectClass, targetClass);
+        if(advisors == null) {
+            // 非单例切面
+            super.addAspect(aspectClass);
+            return;
+        }
+        addAdvisors(advisors);
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        this.advisorCache = AspectJAdvisorCache.getSharedInstance();
+    }
+}
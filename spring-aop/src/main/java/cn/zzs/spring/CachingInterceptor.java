@@ -0,0 +1,195 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * 缓存方法返回值的拦截器：读方法（例如 get）按目标对象和参数缓存返回值，写方法（例如 save）执行完后清空所有缓存。
+ * 方法名支持 "get*"、"*ById" 这样的简单匹配。每个读方法一个 {@link MemoizingCache}，缓存命中时不调用目标方法。
+ * <pre>
+ * CachingInterceptor interceptor = new CachingInterceptor();
+ * interceptor.setCachedMethodNames("get", "find*");
+ * interceptor.setInvalidatingMethodNames("save", "update", "delete");
+ * proxyFactory.addAdvice(interceptor);
+ * </pre>
+ * 参数在缓存时会复制一份数组，但不会复制参数对象，作为参数的对象在调用后不应该再修改。
+ * @author zzs
+ * @date 2026年10月19日 上午10:21:36
+ */
+public class CachingInterceptor implements MethodInterceptor {
+
+    private final ConcurrentMap<Method, MemoizingCache<MethodCacheKey, Object>> caches = new ConcurrentHashMap<>(16);
+
+    private volatile Set<String> cachedMethodNames = Collections.emptySet();
+
+    private volatile Set<String> invalidatingMethodNames = Collections.emptySet();
+
+    private int maximumSize = 1000;
+
+    private long ttlMillis = 0;
+
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if(isCachedMethod(method)) {
+            MethodCacheKey key = new MethodCacheKey(invocation.getThis(), invocation.getArguments());
+            return getCache(method).get(key, invocation::proceed);
+        }
+        if(isInvalidatingMethod(method)) {
+            try {
+                return invocation.proceed();
+            } finally {
+                invalidateAll();
+            }
+        }
+        return invocation.proceed();
+    }
+
+    /**
+     * 方法的返回值是否缓存
+     */
+    public boolean isCachedMethod(Method method) {
+        return method.getReturnType() != void.class && matches(cachedMethodNames, method.getName());
+    }
+
+    /**
+     * 方法执行后是否清空缓存
+     */
+    public boolean isInvalidatingMethod(Method method) {
+        return matches(invalidatingMethodNames, method.getName());
+    }
+
+    /**
+     * 获取方法的缓存
+     * @param method 方法，JDK 动态代理时为接口中的方法
+     * @return 缓存
+     */
+    public MemoizingCache<MethodCacheKey, Object> getCache(Method method) {
+        MemoizingCache<MethodCacheKey, Object> cache = caches.get(method);
+        if(cache == null) {
+            cache = caches.computeIfAbsent(method, key -> new MemoizingCache<>(maximumSize, ttlMillis, TimeUnit.MILLISECONDS));
+        }
+        return cache;
+    }
+
+    /**
+     * 清空所有方法的缓存
+     */
+    public void invalidateAll() {
+        for(MemoizingCache<MethodCacheKey, Object> cache : caches.values()) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 设置返回值需要缓存的方法名，返回 void 的方法不会缓存
+     */
+    public void setCachedMethodNames(String... names) {
+        this.cachedMethodNames = new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    public Collection<String> getCachedMethodNames() {
+        return Collections.unmodifiableSet(cachedMethodNames);
+    }
+
+    /**
+     * 设置执行后清空缓存的方法名
+     */
+    public void setInvalidatingMethodNames(String... names) {
+        this.invalidatingMethodNames = new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    public Collection<String> getInvalidatingMethodNames() {
+        return Collections.unmodifiableSet(invalidatingMethodNames);
+    }
+
+    /**
+     * 设置每个方法最多缓存的数量，默认 1000，只对之后创建的缓存生效
+     */
+    public void setMaximumSize(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "Maximum size must be greater than 0");
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 设置缓存写入后的过期时间，默认不过期，只对之后创建的缓存生效
+     */
+    public void setTimeToLive(long ttl, TimeUnit unit) {
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    public long getTimeToLiveMillis() {
+        return ttlMillis;
+    }
+
+    private static boolean matches(Set<String> patterns, String methodName) {
+        for(String pattern : patterns) {
+            if(PatternMatchUtils.simpleMatch(pattern, methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存的 key：目标对象（按引用比较）和参数
+     */
+    public static final class MethodCacheKey {
+
+        @Nullable
+        private final Object target;
+
+        private final Object[] arguments;
+
+        private final int hashCode;
+
+
+        MethodCacheKey(@Nullable Object target, Object[] arguments) {
+            super();
+            this.target = target;
+            this.arguments = arguments.clone();
+            this.hashCode = 31 * System.identityHashCode(target) + Arrays.deepHashCode(this.arguments);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof MethodCacheKey)) {
+                return false;
+            }
+            MethodCacheKey otherKey = (MethodCacheKey)other;
+            return target == otherKey.target && Arrays.deepEquals(arguments, otherKey.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.deepToString(arguments);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 方法签名的常量，由 CallSiteAdvisor 为每个方法创建一次，替代每次调用都要创建的 JoinPoint 和 Signature。
+ * @author zzs
+ * @date 2026年10月19日 上午12:58:04
+ */
+public final class CallSite {
+
+    private final Method method;
+
+    private final String declaringTypeName;
+
+    private final String methodName;
+
+    private final String shortString;
+
+
+    CallSite(Method method) {
+        super();
+        this.method = method;
+        this.declaringTypeName = method.getDeclaringClass().getSimpleName();
+        this.methodName = method.getName();
+        this.shortString = declaringTypeName + "." + methodName + "(..)";
+    }
+
+    /**
+     * 延迟格式化方法参数，只有调用 toString 时才会格式化，适合作为日志参数
+     * @param args 方法参数
+     * @return 调用 toString 时返回格式化后的参数
+     */
+    public static Object lazyFormat(Object[] args) {
+        return new Object() {
+
+            @Override
+            public String toString() {
+                return Arrays.deepToString(args);
+            }
+        };
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * 声明方法的类的简单类名，同 JoinPoint.getSignature().getDeclaringType().getSimpleName()
+     */
+    public String getDeclaringTypeName() {
+        return declaringTypeName;
+    }
+
+    /**
+     * 方法名，同 JoinPoint.getSignature().getName()
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    @Override
+    public String toString() {
+        return shortString;
+    }
+}
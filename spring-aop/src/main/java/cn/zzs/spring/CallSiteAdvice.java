@@ -0,0 +1,21 @@
+package cn.zzs.spring;
+
+import org.aopalliance.aop.Advice;
+import org.springframework.lang.Nullable;
+
+/**
+ * 轻量级的前置通知，和使用 JoinPoint 参数的 @Before 方法作用相同，但不需要创建 JoinPoint：
+ * 方法签名为缓存的 CallSite 常量，方法参数直接传入，不会复制。
+ * @author zzs
+ * @date 2026年10月19日 上午12:58:04
+ */
+public interface CallSiteAdvice extends Advice {
+
+    /**
+     * 在目标方法之前执行
+     * @param callSite 方法签名
+     * @param args 方法参数，没有复制，不要修改
+     * @param target 目标对象
+     */
+    void before(CallSite callSite, Object[] args, @Nullable Object target) throws Throwable;
+}
@@ -0,0 +1,66 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+
+/**
+ * 使用 AspectJ 表达式作为切点、CallSiteAdvice 作为通知的 Advisor。
+ * CallSite 缓存在 Advisor 中，只包含切点匹配到的方法，随 Advisor 一起回收
+ * @author zzs
+ * @date 2026年10月19日 上午12:58:04
+ */
+public class CallSiteAdvisor extends DefaultPointcutAdvisor {
+
+    private static final long serialVersionUID = 1L;
+
+
+    /**
+     * @param expression AspectJ 表达式，例如 execution(* cn.zzs.spring.UserService+.*(..))
+     * @param advice 前置通知
+     */
+    public CallSiteAdvisor(String expression, CallSiteAdvice advice) {
+        super(createPointcut(expression), new CallSiteInterceptor(advice));
+    }
+
+    private static AspectJExpressionPointcut createPointcut(String expression) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(expression);
+        return pointcut;
+    }
+
+    /**
+     * 执行 CallSiteAdvice 后继续执行拦截器链，MethodInvocation.getArguments() 返回的是参数数组本身，不会复制
+     */
+    private static class CallSiteInterceptor implements MethodInterceptor {
+
+        private final CallSiteAdvice advice;
+
+        private final ConcurrentMap<Method, CallSite> callSites = new ConcurrentHashMap<>(16);
+
+
+        CallSiteInterceptor(CallSiteAdvice advice) {
+            super();
+            this.advice = advice;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            advice.before(getCallSite(invocation.getMethod()), invocation.getArguments(), invocation.getThis());
+            return invocation.proceed();
+        }
+
+        private CallSite getCallSite(Method method) {
+            CallSite callSite = callSites.get(method);
+            if(callSite == null) {
+                callSite = callSites.computeIfAbsent(method, CallSite::new);
+            }
+            return callSite;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package cn.zzs.spring;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import cn.zzs.spring.ScopedContext.Slot;
+
+/**
+ * 上下文作用域：bean 属于当前的 {@link ScopedContext}（例如一次请求），同一个上下文中拿到的是同一个 bean，
+ * 交给其他线程执行的任务只要带上上下文，拿到的也是同一个 bean，不依赖线程。
+ * <p>每个 beanName 第一次使用时分配一个槽位，bean 按槽位存放在上下文的数组中。槽位由每个 ContextScope 自己从 0 开始分配，
+ * 上下文中每个作用域有自己的数组，多个 beanFactory 的 bean 放在同一个上下文中也不会冲突。
+ * 移除 bean 之后，如果没有其他上下文中还有这个 bean，就释放它的槽位，之后分配给其他 bean，数组不会一直变长。
+ * 通过 {@link #createScopedProxy(String)} 创建的代理直接持有槽位，每次调用只需要读取当前上下文和一次数组访问，不需要查 map，
+ * 槽位被释放后重新获取。
+ * <pre>
+ * ContextScope scope = new ContextScope(beanFactory);
+ * beanFactory.registerScope(ContextScope.SCOPE_CONTEXT, scope);
+ * beanDefinition.setScope(ContextScope.SCOPE_CONTEXT);
+ * User user = (User)scope.createScopedProxy("user");
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午8:21:44
+ */
+public class ContextScope implements Scope {
+
+    public static final String SCOPE_CONTEXT = "context";
+
+    private final ConfigurableBeanFactory beanFactory;
+
+    private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<>(16);
+
+    /** 以下字段只在持有 slots 的锁时访问 */
+    private int nextIndex;
+
+    /** 已经释放、可以重新分配的位置 */
+    private final Deque<Integer> freeIndexes = new ArrayDeque<>();
+
+
+    /**
+     * @param beanFactory 注册这个作用域的 beanFactory，代理通过它创建 bean
+     */
+    public ContextScope(ConfigurableBeanFactory beanFactory) {
+        super();
+        this.beanFactory = beanFactory;
+    }
+
+    /**
+     * 获取 beanName 对应的槽位位置，第一次获取时分配
+     * @param name beanName
+     * @return 槽位在上下文数组中的位置
+     */
+    public int getSlot(String name) {
+        return slot(name).getIndex();
+    }
+
+    private Slot slot(String name) {
+        Slot slot = slots.get(name);
+        if(slot != null) {
+            return slot;
+        }
+        synchronized(slots) {
+            slot = slots.get(name);
+            if(slot == null) {
+                Integer index = freeIndexes.poll();
+                slot = new Slot(this, index != null ? index : nextIndex++);
+                slots.put(name, slot);
+            }
+            return slot;
+        }
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        ScopedContext context = currentContext();
+        while(true) {
+            Object bean = context.get(slot(name), objectFactory);
+            if(bean != null) {
+                return bean;
+            }
+            // 槽位刚刚被释放，重新分配
+        }
+    }
+
+    /**
+     * 移除 bean，同时移除它的销毁回调，和其他 Scope 一样由调用方负责销毁。
+     * 没有其他上下文中还有这个 bean 时释放它的槽位
+     */
+    @Override
+    @Nullable
+    public Object remove(String name) {
+        Slot slot = slots.get(name);
+        if(slot == null) {
+            return null;
+        }
+        ScopedContext context = ScopedContext.current();
+        Object bean = context == null ? null : context.remove(slot);
+        synchronized(slots) {
+            if(slots.get(name) == slot && slot.tryRelease()) {
+                slots.remove(name);
+                freeIndexes.push(slot.getIndex());
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        currentContext().registerDestructionCallback(slot(name), callback);
+    }
+
+    @Override
+    @Nullable
+    public Object resolveContextualObject(String key) {
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public String getConversationId() {
+        ScopedContext context = ScopedContext.current();
+        return context == null ? null : context.getId();
+    }
+
+    /**
+     * 创建代理，每次调用方法时使用当前上下文中的 bean。bean 的类型有接口时代理接口，否则代理类
+     * @param beanName 这个作用域中的 beanName
+     * @return 代理
+     */
+    public Object createScopedProxy(String beanName) {
+        Class<?> beanType = beanFactory.getType(beanName);
+        if(beanType == null) {
+            throw new IllegalStateException("Cannot determine type of scoped bean '" + beanName + "'");
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTargetSource(new ContextScopedTargetSource(beanName, beanType));
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(beanType, beanFactory.getBeanClassLoader());
+        if(interfaces.length == 0) {
+            proxyFactory.setProxyTargetClass(true);
+        } else {
+            proxyFactory.setInterfaces(interfaces);
+        }
+        return proxyFactory.getProxy(beanFactory.getBeanClassLoader());
+    }
+
+    private static ScopedContext currentContext() {
+        ScopedContext context = ScopedContext.current();
+        if(context == null) {
+            throw new IllegalStateException("No scoped context bound to the current thread");
+        }
+        return context;
+    }
+
+    /**
+     * 先按槽位读取当前上下文中已经创建的 bean，没有时再通过 beanFactory 创建。槽位被释放后重新获取
+     */
+    private final class ContextScopedTargetSource implements TargetSource {
+
+        private final String beanName;
+
+        private volatile Slot slot;
+
+        private final Class<?> beanType;
+
+
+        ContextScopedTargetSource(String beanName, Class<?> beanType) {
+            super();
+            this.beanName = beanName;
+            this.slot = slot(beanName);
+            this.beanType = beanType;
+        }
+
+        @Override
+        public Class<?> getTargetClass() {
+            return beanType;
+        }
+
+        @Override
+        public boolean isStatic() {
+            return false;
+        }
+
+        @Override
+        public Object getTarget() {
+            ScopedContext context = ScopedContext.current();
+            Slot slot = this.slot;
+            if(slot.isReleased()) {
+                slot = slot(beanName);
+                this.slot = slot;
+            }
+            Object bean = context == null ? null : context.getIfPresent(slot);
+            return bean != null ? bean : beanFactory.getBean(beanName);
+        }
+
+        @Override
+        public void releaseTarget(Object target) {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package cn.zzs.spring;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+
+import org.springframework.aop.SpringProxy;
+import org.springframework.aop.framework.AdvisedSupport;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.AopProxy;
+import org.springframework.aop.framework.AopProxyFactory;
+import org.springframework.aop.framework.DefaultAopProxyFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * 创建代理时为每个方法算好拦截器链的 AopProxyFactory，通过 ProxyCreatorSupport.setAopProxyFactory 使用。
+ * <p>默认的 JdkDynamicAopProxy 和 CglibAopProxy 每次调用都要根据 Method 查找拦截器链，并通过反射调用目标方法。
+ * 这里在创建代理时就为每个方法确定拦截器链，调用时直接执行，目标方法通过 MethodHandle 调用，没有拦截器的方法直接调用目标对象。
+ * <p>拦截器链在创建代理时确定，之后对代理配置的修改（例如添加 Advice）不会影响已经创建的代理，相当于 frozen。
+ * 需要暴露代理对象（exposeProxy）时，由于 AopContext 无法在外部设置，交给 DefaultAopProxyFactory 处理。
+ * <p>CGLIB 代理类缓存在 ProxyClassCache 中，默认使用进程内共享的缓存。
+ * @author zzs
+ * @date 2026年10月18日 下午11:05:42
+ */
+public class FixedChainAopProxyFactory implements AopProxyFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AopProxyFactory defaultAopProxyFactory = new DefaultAopProxyFactory();
+
+    @Nullable
+    private transient ProxyClassCache proxyClassCache;
+
+
+    /**
+     * 设置代理类缓存，不设置时使用进程内共享的缓存
+     * @param proxyClassCache 代理类缓存
+     */
+    public void setProxyClassCache(@Nullable ProxyClassCache proxyClassCache) {
+        this.proxyClassCache = proxyClassCache;
+    }
+
+    public ProxyClassCache getProxyClassCache() {
+        return proxyClassCache != null ? proxyClassCache : ProxyClassCache.getSharedInstance();
+    }
+
+    @Override
+    public AopProxy createAopProxy(AdvisedSupport config) throws AopConfigException {
+        if(config.isExposeProxy()) {
+            return defaultAopProxyFactory.createAopProxy(config);
+        }
+        // 和 DefaultAopProxyFactory 一样选择 JDK 动态代理或者 CGLIB
+        if(config.isOptimize() || config.isProxyTargetClass() || hasNoUserSuppliedProxyInterfaces(config)) {
+            Class<?> targetClass = config.getTargetClass();
+            if(targetClass == null) {
+                throw new AopConfigException("TargetSource cannot determine target class: Either an interface or a target is required for proxy creation.");
+            }
+            if(targetClass.isInterface() || Proxy.isProxyClass(targetClass)) {
+                return new FixedChainJdkAopProxy(config);
+            }
+            return new FixedChainCglibAopProxy(config, getProxyClassCache());
+        }
+        return new FixedChainJdkAopProxy(config);
+    }
+
+    private boolean hasNoUserSuppliedProxyInterfaces(AdvisedSupport config) {
+        Class<?>[] interfaces = config.getProxiedInterfaces();
+        return interfaces.length == 0 || interfaces.length == 1 && SpringProxy.class.isAssignableFrom(interfaces[0]);
+    }
+}
@@ -0,0 +1,362 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AdvisedSupport;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.AopProxy;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.asm.ClassReader;
+import org.springframework.cglib.core.ClassNameReader;
+import org.springframework.cglib.core.DefaultGeneratorStrategy;
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.proxy.Callback;
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Dispatcher;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.Factory;
+import org.springframework.cglib.proxy.MethodInterceptor;
+import org.springframework.cglib.proxy.MethodProxy;
+import org.springframework.cglib.proxy.NoOp;
+import org.springframework.lang.Nullable;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 基于 CGLIB 的 AopProxy，创建时为每个方法算好拦截器链，并通过 CallbackFilter 为每个有拦截器的方法分配一个单独的 Callback。
+ * <p>没有拦截器的 public 方法使用 Dispatcher，生成的代理类直接调用目标对象的方法，不经过任何拦截器。
+ * 非 public 的方法 Dispatcher 生成的代码调用不到目标对象，和 CglibAopProxy 一样通过空的拦截器链调用目标对象。
+ * <p>和 ObjenesisCglibAopProxy 一样通过 Objenesis 创建代理对象，不会调用被代理类的构造方法。
+ * <p>代理类不使用 CGLIB 自带的缓存，而是按目标类、接口和每个方法的 Callback 分布缓存在 ProxyClassCache 中，
+ * 目标类和接口都是 public、并且目标类没有包级私有方法时，代理类定义在单独的类加载器中，以便被淘汰后可以卸载。
+ * @author zzs
+ * @date 2026年10月18日 下午11:05:42
+ */
+class FixedChainCglibAopProxy implements AopProxy {
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private static final int DISPATCH_TARGET = 0;
+
+    private static final int DISPATCH_ADVISED = 1;
+
+    private static final int INVOKE_EQUALS = 2;
+
+    private static final int INVOKE_HASHCODE = 3;
+
+    private static final int NO_OVERRIDE = 4;
+
+    private final AdvisedSupport advised;
+
+    private final ProxyClassCache proxyClassCache;
+
+    private final Class<?> rootClass;
+
+    private final Class<?>[] proxiedInterfaces;
+
+    /** 方法对应的 Callback 下标 */
+    private final Map<Method, Integer> callbackIndexes = new HashMap<>();
+
+    /** 按 Enhancer.getMethods 的顺序记录每个方法的 Callback 下标，不代理的方法为 -1，作为代理类缓存 key 的一部分 */
+    private final int[] callbackLayout;
+
+    private final List<Callback> callbacks = new ArrayList<>();
+
+
+    FixedChainCglibAopProxy(AdvisedSupport advised, ProxyClassCache proxyClassCache) {
+        super();
+        this.advised = advised;
+        this.proxyClassCache = proxyClassCache;
+        this.rootClass = advised.getTargetClass();
+        if(rootClass == null) {
+            throw new AopConfigException("Target class must be available for creating a CGLIB proxy");
+        }
+        this.proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(advised);
+
+        callbacks.add(new TargetDispatcher(advised));
+        callbacks.add(new AdvisedDispatcher(advised));
+        callbacks.add(new EqualsInterceptor(advised));
+        callbacks.add(new HashCodeInterceptor(advised));
+        callbacks.add(NoOp.INSTANCE);
+        boolean staticTarget = advised.getTargetSource().isStatic();
+        List<Method> methods = new ArrayList<>();
+        Enhancer.getMethods(rootClass, proxiedInterfaces, methods);
+        for(Method method : methods) {
+            int modifiers = method.getModifiers();
+            if(callbackIndexes.containsKey(method) || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || Modifier.isPrivate(modifiers)) {
+                continue;
+            }
+            if(method.getDeclaringClass() == Object.class && !Modifier.isPublic(modifiers)) {
+                // finalize、clone 不代理
+                callbackIndexes.put(method, NO_OVERRIDE);
+            } else if(!advised.isOpaque() && method.getDeclaringClass().isInterface() && method.getDeclaringClass().isAssignableFrom(Advised.class)) {
+                callbackIndexes.put(method, DISPATCH_ADVISED);
+            } else if(AopUtils.isEqualsMethod(method)) {
+                callbackIndexes.put(method, INVOKE_EQUALS);
+            } else if(AopUtils.isHashCodeMethod(method)) {
+                callbackIndexes.put(method, INVOKE_HASHCODE);
+            } else {
+                FixedInterceptorChain chain = new FixedInterceptorChain(advised, method);
+                // 返回目标对象本身的方法需要替换成代理对象，不能直接分派
+                if(!chain.isAdvised() && staticTarget && Modifier.isPublic(modifiers) && !method.getReturnType().isAssignableFrom(rootClass)) {
+                    callbackIndexes.put(method, DISPATCH_TARGET);
+                } else {
+                    callbackIndexes.put(method, callbacks.size());
+                    callbacks.add(new FixedChainInterceptor(chain));
+                }
+            }
+        }
+        this.callbackLayout = new int[methods.size()];
+        for(int i = 0; i < callbackLayout.length; i++) {
+            callbackLayout[i] = callbackIndexes.getOrDefault(methods.get(i), -1);
+        }
+    }
+
+    @Override
+    public Object getProxy() {
+        return getProxy(null);
+    }
+
+    @Override
+    public Object getProxy(@Nullable ClassLoader classLoader) {
+        ClassLoader parentClassLoader = classLoader != null ? classLoader : rootClass.getClassLoader();
+        Class<?>[] callbackTypes = new Class<?>[callbacks.size()];
+        for(int i = 0; i < callbackTypes.length; i++) {
+            callbackTypes[i] = callbacks.get(i).getClass();
+        }
+        ProxyClassCache.Key key = new ProxyClassCache.Key(parentClassLoader, rootClass, proxiedInterfaces, callbackLayout, callbackTypes);
+        Class<?> proxyClass = proxyClassCache.getProxyClass(key, () -> createProxyClass(parentClassLoader, callbackTypes));
+
+        Object proxy;
+        if(OBJENESIS.isWorthTrying()) {
+            proxy = OBJENESIS.newInstance(proxyClass, true);
+        } else {
+            try {
+                proxy = ReflectionUtils.accessibleConstructor(proxyClass).newInstance();
+            } catch(Throwable ex) {
+                throw new AopConfigException("Unable to instantiate proxy using Objenesis, and regular proxy instantiation via default constructor fails as well", ex);
+            }
+        }
+        ((Factory)proxy).setCallbacks(callbacks.toArray(new Callback[0]));
+        return proxy;
+    }
+
+    private Class<?> createProxyClass(@Nullable ClassLoader parentClassLoader, Class<?>[] callbackTypes) {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(rootClass);
+        enhancer.setInterfaces(proxiedInterfaces);
+        enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+        enhancer.setCallbackFilter(new FixedChainCallbackFilter(callbackIndexes));
+        enhancer.setCallbackTypes(callbackTypes);
+        enhancer.setUseCache(false);
+        if(isUnloadable()) {
+            // 生成的代理类通过 attemptLoad 从单独的类加载器中加载
+            enhancer.setClassLoader(new ProxyClassLoader(parentClassLoader, enhancer));
+            enhancer.setAttemptLoad(true);
+        } else if(parentClassLoader != null) {
+            enhancer.setClassLoader(parentClassLoader);
+        }
+        return enhancer.createClass();
+    }
+
+    /**
+     * 目标类和接口都是 public 时，代理类才能定义在其他类加载器中。
+     * <p>其他类加载器中的代理类和目标类不在同一个运行时包，覆盖不了目标类及其父类的包级私有方法，这些方法上的拦截器会失效，
+     * 所以有包级私有方法时也只能定义在原来的类加载器中。
+     */
+    private boolean isUnloadable() {
+        if(!Modifier.isPublic(rootClass.getModifiers())) {
+            return false;
+        }
+        for(Class<?> proxiedInterface : proxiedInterfaces) {
+            if(!Modifier.isPublic(proxiedInterface.getModifiers())) {
+                return false;
+            }
+        }
+        for(Class<?> type = rootClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for(Method method : type.getDeclaredMethods()) {
+                int modifiers = method.getModifiers();
+                if(!Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers) && !Modifier.isPrivate(modifiers)
+                        && !Modifier.isFinal(modifiers) && !Modifier.isStatic(modifiers)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只用来定义一个代理类的类加载器。
+     * <p>Enhancer 开启 attemptLoad 后，确定代理类名后会先尝试从类加载器中加载，这时候才生成字节码并定义在当前类加载器中。
+     */
+    private static class ProxyClassLoader extends ClassLoader {
+
+        @Nullable
+        private Enhancer enhancer;
+
+
+        ProxyClassLoader(@Nullable ClassLoader parent, Enhancer enhancer) {
+            super(parent);
+            this.enhancer = enhancer;
+        }
+
+        @Override
+        protected synchronized Class<?> findClass(String name) throws ClassNotFoundException {
+            if(enhancer == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] b;
+            try {
+                b = DefaultGeneratorStrategy.INSTANCE.generate(enhancer);
+            } catch(Exception ex) {
+                throw new ClassNotFoundException(name, ex);
+            }
+            if(!name.equals(ClassNameReader.getClassName(new ClassReader(b)))) {
+                throw new ClassNotFoundException(name);
+            }
+            // 代理类定义后不再需要 Enhancer，避免类加载器一直引用代理配置
+            enhancer = null;
+            return defineClass(name, b, 0, b.length, getClass().getProtectionDomain());
+        }
+    }
+
+    /**
+     * 根据创建代理时算好的下标选择 Callback。下标只和方法是否有拦截器有关，拦截器相同分布的代理可以共用同一个代理类。
+     */
+    private static class FixedChainCallbackFilter implements CallbackFilter {
+
+        private final Map<Method, Integer> callbackIndexes;
+
+
+        FixedChainCallbackFilter(Map<Method, Integer> callbackIndexes) {
+            super();
+            this.callbackIndexes = callbackIndexes;
+        }
+
+        @Override
+        public int accept(Method method) {
+            Integer index = callbackIndexes.get(method);
+            return index == null ? DISPATCH_TARGET : index;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || other instanceof FixedChainCallbackFilter && callbackIndexes.equals(((FixedChainCallbackFilter)other).callbackIndexes);
+        }
+
+        @Override
+        public int hashCode() {
+            return callbackIndexes.hashCode();
+        }
+    }
+
+    /**
+     * 有拦截器的方法，或者需要处理返回值的方法，执行算好的拦截器链
+     */
+    private static class FixedChainInterceptor implements MethodInterceptor {
+
+        private final FixedInterceptorChain chain;
+
+
+        FixedChainInterceptor(FixedInterceptorChain chain) {
+            super();
+            this.chain = chain;
+        }
+
+        @Override
+        @Nullable
+        public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+            return chain.invoke(proxy, args);
+        }
+    }
+
+    /**
+     * 没有拦截器的方法直接分派到目标对象
+     */
+    private static class TargetDispatcher implements Dispatcher {
+
+        private final AdvisedSupport advised;
+
+
+        TargetDispatcher(AdvisedSupport advised) {
+            super();
+            this.advised = advised;
+        }
+
+        @Override
+        public Object loadObject() throws Exception {
+            return advised.getTargetSource().getTarget();
+        }
+    }
+
+    /**
+     * Advised 的方法分派到配置对象
+     */
+    private static class AdvisedDispatcher implements Dispatcher {
+
+        private final AdvisedSupport advised;
+
+
+        AdvisedDispatcher(AdvisedSupport advised) {
+            super();
+            this.advised = advised;
+        }
+
+        @Override
+        public Object loadObject() {
+            return advised;
+        }
+    }
+
+    /**
+     * 和 CglibAopProxy.EqualsInterceptor 一致：代理配置相同的代理对象相等
+     */
+    private static class EqualsInterceptor implements MethodInterceptor {
+
+        private final AdvisedSupport advised;
+
+
+        EqualsInterceptor(AdvisedSupport advised) {
+            super();
+            this.advised = advised;
+        }
+
+        @Override
+        public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) {
+            Object other = args[0];
+            if(proxy == other) {
+                return true;
+            }
+            if(other instanceof Factory) {
+                Callback callback = ((Factory)other).getCallback(INVOKE_EQUALS);
+                if(callback instanceof EqualsInterceptor) {
+                    return AopProxyUtils.equalsInProxy(advised, ((EqualsInterceptor)callback).advised);
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class HashCodeInterceptor implements MethodInterceptor {
+
+        private final AdvisedSupport advised;
+
+
+        HashCodeInterceptor(AdvisedSupport advised) {
+            super();
+            this.advised = advised;
+        }
+
+        @Override
+        public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) {
+            return FixedChainCglibAopProxy.class.hashCode() * 13 + advised.getTargetSource().hashCode();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AdvisedSupport;
+import org.springframework.aop.framework.AopProxy;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * 基于 JDK 动态代理的 AopProxy，创建时为每个接口方法算好拦截器链
+ * @author zzs
+ * @date 2026年10月18日 下午11:05:42
+ */
+class FixedChainJdkAopProxy implements AopProxy, InvocationHandler {
+
+    private final AdvisedSupport advised;
+
+    private final Class<?>[] proxiedInterfaces;
+
+    private final Map<Method, FixedInterceptorChain> chains = new HashMap<>();
+
+
+    FixedChainJdkAopProxy(AdvisedSupport advised) {
+        super();
+        this.advised = advised;
+        Class<?>[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(advised);
+        if(!advised.isInterfaceProxied(DecoratingProxy.class)) {
+            proxiedInterfaces = ObjectUtils.addObjectToArray(proxiedInterfaces, DecoratingProxy.class);
+        }
+        this.proxiedInterfaces = proxiedInterfaces;
+        boolean equalsDefined = false;
+        boolean hashCodeDefined = false;
+        for(Class<?> proxiedInterface : proxiedInterfaces) {
+            for(Method method : proxiedInterface.getMethods()) {
+                equalsDefined |= AopUtils.isEqualsMethod(method);
+                hashCodeDefined |= AopUtils.isHashCodeMethod(method);
+                if(!isOpaqueMethod(method)) {
+                    chains.put(method, new FixedInterceptorChain(advised, method));
+                }
+            }
+        }
+        // JDK 动态代理调用 equals、hashCode、toString 时传入的是 Object 的方法，接口中没有声明 equals、hashCode 时由代理自己处理
+        Method equalsMethod = ClassUtils.getMethod(Object.class, "equals", Object.class);
+        Method hashCodeMethod = ClassUtils.getMethod(Object.class, "hashCode");
+        Method toStringMethod = ClassUtils.getMethod(Object.class, "toString");
+        if(equalsDefined) {
+            chains.put(equalsMethod, new FixedInterceptorChain(advised, equalsMethod));
+        }
+        if(hashCodeDefined) {
+            chains.put(hashCodeMethod, new FixedInterceptorChain(advised, hashCodeMethod));
+        }
+        chains.put(toStringMethod, new FixedInterceptorChain(advised, toStringMethod));
+    }
+
+    @Override
+    public Object getProxy() {
+        return getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    @Override
+    public Object getProxy(@Nullable ClassLoader classLoader) {
+        return Proxy.newProxyInstance(classLoader, proxiedInterfaces, this);
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        FixedInterceptorChain chain = chains.get(method);
+        if(chain != null) {
+            return chain.invoke(proxy, args);
+        }
+        if(AopUtils.isEqualsMethod(method)) {
+            return equals(args[0]);
+        }
+        if(AopUtils.isHashCodeMethod(method)) {
+            return hashCode();
+        }
+        if(method.getDeclaringClass() == DecoratingProxy.class) {
+            return AopProxyUtils.ultimateTargetClass(advised);
+        }
+        // Advised 的方法直接调用配置对象
+        return AopUtils.invokeJoinpointUsingReflection(advised, method, args);
+    }
+
+    /**
+     * Advised、DecoratingProxy 的方法不会进入拦截器链
+     */
+    private boolean isOpaqueMethod(Method method) {
+        return method.getDeclaringClass() == DecoratingProxy.class
+                || !advised.isOpaque() && method.getDeclaringClass().isInterface() && method.getDeclaringClass().isAssignableFrom(Advised.class);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+        if(other == this) {
+            return true;
+        }
+        if(other == null) {
+            return false;
+        }
+        FixedChainJdkAopProxy otherProxy;
+        if(other instanceof FixedChainJdkAopProxy) {
+            otherProxy = (FixedChainJdkAopProxy)other;
+        } else if(Proxy.isProxyClass(other.getClass()) && Proxy.getInvocationHandler(other) instanceof FixedChainJdkAopProxy) {
+            otherProxy = (FixedChainJdkAopProxy)Proxy.getInvocationHandler(other);
+        } else {
+            return false;
+        }
+        return AopProxyUtils.equalsInProxy(advised, otherProxy.advised);
+    }
+
+    @Override
+    public int hashCode() {
+        return FixedChainJdkAopProxy.class.hashCode() * 13 + advised.getTargetSource().hashCode();
+    }
+}
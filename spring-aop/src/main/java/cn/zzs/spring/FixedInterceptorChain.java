@@ -0,0 +1,129 @@
+package cn.zzs.spring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.RawTargetAccess;
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.AdvisedSupport;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 在创建代理时为一个方法提前算好的拦截器链。
+ * <p>调用时不再根据 Method 查找拦截器链，目标方法通过 MethodHandle 调用，不再走反射。
+ * 没有拦截器的方法直接调用目标方法，不会创建 MethodInvocation。
+ * @author zzs
+ * @date 2026年10月18日 下午11:05:42
+ */
+final class FixedInterceptorChain {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Method method;
+
+    private final Class<?> targetClass;
+
+    private final TargetSource targetSource;
+
+    /** MethodInterceptor 或者 InterceptorAndDynamicMethodMatcher */
+    private final List<Object> interceptors;
+
+    /** 目标方法，类型为 (Object,Object[])Object */
+    private final MethodHandle targetMethod;
+
+
+    FixedInterceptorChain(AdvisedSupport advised, Method method) {
+        super();
+        this.method = method;
+        this.targetClass = advised.getTargetClass();
+        this.targetSource = advised.getTargetSource();
+        this.interceptors = Arrays.asList(advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass).toArray());
+        this.targetMethod = unreflect(method);
+    }
+
+    /**
+     * 是否有拦截器
+     */
+    boolean isAdvised() {
+        return !interceptors.isEmpty();
+    }
+
+    /**
+     * 执行拦截器链
+     * @param proxy 代理对象
+     * @param args 方法参数
+     * @return 方法返回值
+     */
+    @Nullable
+    Object invoke(Object proxy, @Nullable Object[] args) throws Throwable {
+        Object target = targetSource.getTarget();
+        try {
+            Object retVal;
+            if(interceptors.isEmpty()) {
+                retVal = (Object)targetMethod.invokeExact(target, args);
+            } else {
+                retVal = new FixedChainMethodInvocation(proxy, target, method, args, targetClass, interceptors, targetMethod).proceed();
+            }
+            return processReturnValue(proxy, target, retVal);
+        } finally {
+            if(target != null && !targetSource.isStatic()) {
+                targetSource.releaseTarget(target);
+            }
+        }
+    }
+
+    /**
+     * 和 JdkDynamicAopProxy、CglibAopProxy 一致：方法返回目标对象本身时替换成代理对象
+     */
+    @Nullable
+    private Object processReturnValue(Object proxy, @Nullable Object target, @Nullable Object retVal) {
+        Class<?> returnType = method.getReturnType();
+        if(retVal != null && retVal == target && returnType != Object.class && returnType.isInstance(proxy)
+                && !RawTargetAccess.class.isAssignableFrom(method.getDeclaringClass())) {
+            return proxy;
+        }
+        if(retVal == null && returnType != Void.TYPE && returnType.isPrimitive()) {
+            throw new AopInvocationException("Null return value from advice does not match primitive return type for: " + method);
+        }
+        return retVal;
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            return LOOKUP.unreflect(method)
+                    .asType(MethodType.genericMethodType(method.getParameterCount() + 1))
+                    .asSpreader(Object[].class, method.getParameterCount());
+        } catch(IllegalAccessException e) {
+            throw new IllegalStateException("Could not access method " + method, e);
+        }
+    }
+
+    /**
+     * 拦截器链执行完后，通过 MethodHandle 调用目标方法
+     */
+    private static class FixedChainMethodInvocation extends ReflectiveMethodInvocation {
+
+        private final MethodHandle targetMethod;
+
+
+        FixedChainMethodInvocation(Object proxy, @Nullable Object target, Method method, @Nullable Object[] arguments,
+                @Nullable Class<?> targetClass, List<Object> interceptors, MethodHandle targetMethod) {
+            super(proxy, target, method, arguments, targetClass, interceptors);
+            this.targetMethod = targetMethod;
+        }
+
+        @Override
+        @Nullable
+        protected Object invokeJoinpoint() throws Throwable {
+            return (Object)targetMethod.invokeExact(this.target, this.arguments);
+        }
+    }
+}
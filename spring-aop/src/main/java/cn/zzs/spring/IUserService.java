@@ -2,6 +2,10 @@ package cn.zzs.spring;
 
 public interface IUserService {
     
+    User get(String id);
+    
+    void save(User user);
+    
     void save();
 
     void delete();
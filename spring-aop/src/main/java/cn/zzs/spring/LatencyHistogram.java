@@ -0,0 +1,161 @@
+package cn.zzs.spring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图，和 HdrHistogram 一样按对数分段、段内线性分桶：每个 2 的幂区间分成 64 个桶，相对误差不超过 1/64。
+ * 记录一次耗时只需要一次 AtomicLongArray 自增和几次 CAS，不分配对象，可以在每次方法调用时记录。
+ * <p>可以记录 0 到 2^40 纳秒（大约 18 分钟），超出的耗时按最大值记录。
+ * @author zzs
+ * @date 2026年10月19日 上午9:02:26
+ */
+public final class LatencyHistogram {
+
+    /** 每个 2 的幂区间分成 2^(SUB_BUCKET_BITS - 1) 个桶 */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    private static final int MAX_VALUE_BITS = 40;
+
+    /** 可以记录的最大耗时，单位纳秒 */
+    public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时，单位纳秒
+     */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while(value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * 清空记录，和记录同时进行时，快照中可能包含一部分清空前的数据
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * 获取当前数据的快照
+     */
+    public Snapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long totalCount = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++) {
+            snapshotCounts[i] = counts.get(i);
+            totalCount += snapshotCounts[i];
+        }
+        return new Snapshot(snapshotCounts, totalCount, totalNanos.get(), maxNanos.get());
+    }
+
+    static int indexOf(long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int)value;
+        }
+        // 保留最高的 SUB_BUCKET_BITS 位
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF_COUNT + (int)(value >>> shift);
+    }
+
+    /**
+     * 桶中的最大值
+     */
+    static long highestValueAt(int index) {
+        if(index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图的快照，单位纳秒
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long totalCount;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+
+        Snapshot(long[] counts, long totalCount, long totalNanos, long maxNanos) {
+            super();
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return totalCount;
+        }
+
+        public long getMax() {
+            return maxNanos;
+        }
+
+        public double getMean() {
+            return totalCount == 0 ? 0 : (double)totalNanos / totalCount;
+        }
+
+        /**
+         * 获取百分位数，返回所在桶的最大值，不超过记录到的最大值
+         * @param percentile 百分位，例如 99.9
+         * @return 耗时，单位纳秒，没有记录时返回 0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if(totalCount == 0) {
+                return 0;
+            }
+            long countAtPercentile = Math.max(1, (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+            long count = 0;
+            for(int i = 0; i < counts.length; i++) {
+                count += counts[i];
+                if(count >= countAtPercentile) {
+                    return Math.min(highestValueAt(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, p999=%.1fus, max=%.1fus", totalCount,
+                    getMean() / 1000, micros(getValueAtPercentile(50)), micros(getValueAtPercentile(90)), micros(getValueAtPercentile(99)),
+                    micros(getValueAtPercentile(99.9)), micros(maxNanos));
+        }
+
+        private static double micros(long nanos) {
+            return (double)nanos / TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+}
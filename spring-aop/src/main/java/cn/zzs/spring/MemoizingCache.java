@@ -0,0 +1,465 @@
+package cn.zzs.spring;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * 有界、带过期时间的缓存，按 W-TinyLFU 的方式淘汰：
+ * <p>1. 新加入的数据先放入占容量 1% 的窗口区（LRU），从窗口区淘汰的数据作为候选，和主区（LRU）中最久没有使用的数据比较访问频率，
+ * 频率高的留在主区。访问频率由 4 位计数器的 Count-Min Sketch 估算，计数总数达到容量的 10 倍时全部减半，使旧的热点逐渐冷却。
+ * <p>2. 读取不加锁，直接读 ConcurrentHashMap；更新访问顺序和频率时只尝试加锁，拿不到锁就跳过，和 Caffeine 丢弃读缓冲一样，只影响淘汰的精度。
+ * <p>3. 同一个 key 同时只有一个线程加载，其他线程等待这次加载的结果，避免缓存失效时大量请求同时打到后端。
+ * 加载期间发生了失效操作时，加载结果只返回给调用方，不放入缓存。加载过程中又获取同一个 key 时抛出异常，而不是等待自己永远不会完成的加载。
+ * <p>值可以为 null，null 同样会被缓存。
+ * @author zzs
+ * @date 2026年10月19日 上午10:05:41
+ * @param <K> key
+ * @param <V> value
+ */
+public final class MemoizingCache<K, V> {
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final int maximumSize;
+
+    private final long ttlNanos;
+
+    private final int windowMaximumSize;
+
+    private final ConcurrentMap<K, Node<K>> data = new ConcurrentHashMap<>(16);
+
+    private final ConcurrentMap<K, LoadingFuture> loading = new ConcurrentHashMap<>(16);
+
+    /** 以下字段只在持有 evictionLock 时访问 */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final Node<K> window = Node.sentinel();
+
+    private final Node<K> main = Node.sentinel();
+
+    private int windowSize;
+
+    private int mainSize;
+
+    private final FrequencySketch sketch;
+
+    /** 每次失效加一，只在持有 evictionLock 时修改，放入缓存时在锁内和加载前的值比较，不一致时不放入缓存 */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * @param maximumSize 最多缓存的数量
+     * @param ttl 写入后的过期时间，小于等于 0 时不过期
+     * @param unit 时间单位
+     */
+    public MemoizingCache(int maximumSize, long ttl, TimeUnit unit) {
+        super();
+        Assert.isTrue(maximumSize > 0, "Maximum size must be greater than 0");
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl <= 0 ? 0 : unit.toNanos(ttl);
+        this.windowMaximumSize = Math.max(1, maximumSize / 100);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 获取缓存的值，没有时通过 loader 加载，同一个 key 同时只加载一次
+     * @param key key
+     * @param loader 加载
+     * @return 值
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public V get(K key, Loader<? extends V> loader) throws Throwable {
+        Node<K> node = data.get(key);
+        if(node != null) {
+            if(!node.isExpired(System.nanoTime())) {
+                hitCount.increment();
+                afterRead(node);
+                return (V)unmask(node.value);
+            }
+            remove(key, node);
+        }
+        missCount.increment();
+
+        LoadingFuture future = new LoadingFuture();
+        LoadingFuture existing = loading.putIfAbsent(key, future);
+        if(existing != null) {
+            if(existing.loadingThread == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load of key " + key);
+            }
+            try {
+                return (V)unmask(existing.join());
+            } catch(CompletionException e) {
+                throw e.getCause();
+            }
+        }
+        long invalidationsBeforeLoad = invalidations.get();
+        try {
+            // 上一次加载可能在第一次读取之后放入缓存并移除了 future，这时直接使用它的结果
+            node = data.get(key);
+            if(node != null && !node.isExpired(System.nanoTime())) {
+                afterRead(node);
+                future.complete(node.value);
+                return (V)unmask(node.value);
+            }
+            Object value = mask(loader.load());
+            put(key, value, invalidationsBeforeLoad);
+            future.complete(value);
+            return (V)unmask(value);
+        } catch(Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 获取缓存的值，不会加载
+     * @return 值，不存在或者已经过期时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public V getIfPresent(K key) {
+        Node<K> node = data.get(key);
+        if(node == null || node.isExpired(System.nanoTime())) {
+            return null;
+        }
+        afterRead(node);
+        return (V)unmask(node.value);
+    }
+
+    /**
+     * 移除一个 key
+     */
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            // 之后的调用不再等待失效前开始的加载
+            loading.remove(key);
+            Node<K> node = data.get(key);
+            if(node != null) {
+                remove(key, node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 移除所有 key
+     */
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            loading.clear();
+            data.clear();
+            while(window.next != window) {
+                window.next.unlink();
+            }
+            while(main.next != main) {
+                main.next.unlink();
+            }
+            windowSize = 0;
+            mainSize = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void afterRead(Node<K> node) {
+        // 拿不到锁时跳过，不阻塞读取
+        if(!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(node.key);
+            if(node.isLinked()) {
+                node.unlink();
+                node.linkLast(node.inWindow ? window : main);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 放入缓存，加载期间发生了失效操作时不放入。失效操作在同一个锁内计数，检查之后不会再有失效操作插进来
+     * @param invalidationsBeforeLoad 加载前的失效次数
+     */
+    private void put(K key, Object value, long invalidationsBeforeLoad) {
+        Node<K> node = new Node<>(key, value, ttlNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + ttlNanos);
+        evictionLock.lock();
+        try {
+            if(invalidations.get() != invalidationsBeforeLoad) {
+                return;
+            }
+            sketch.increment(key);
+            Node<K> previous = data.put(key, node);
+            if(previous != null) {
+                unlink(previous);
+            }
+            node.inWindow = true;
+            node.linkLast(window);
+            windowSize++;
+            evictIfNecessary();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(K key, Node<K> node) {
+        evictionLock.lock();
+        try {
+            if(data.remove(key, node)) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 窗口区满了，把最久没有使用的数据移到主区；主区满了，候选和主区中最久没有使用的数据按访问频率淘汰一个
+     */
+    private void evictIfNecessary() {
+        while(windowSize > windowMaximumSize) {
+            Node<K> candidate = window.next;
+            candidate.unlink();
+            windowSize--;
+            candidate.inWindow = false;
+            candidate.linkLast(main);
+            mainSize++;
+            if(windowSize + mainSize <= maximumSize) {
+                continue;
+            }
+            Node<K> victim = main.next;
+            long now = System.nanoTime();
+            if(victim != candidate && !victim.isExpired(now) && (candidate.isExpired(now) || sketch.frequency(candidate.key) <= sketch.frequency(victim.key))) {
+                // 候选的访问频率不高于主区中的数据，不接纳候选
+                victim = candidate;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Node<K> node) {
+        unlink(node);
+        data.remove(node.key, node);
+        evictionCount.increment();
+    }
+
+    private void unlink(Node<K> node) {
+        if(!node.isLinked()) {
+            return;
+        }
+        node.unlink();
+        if(node.inWindow) {
+            windowSize--;
+        } else {
+            mainSize--;
+        }
+    }
+
+    private static Object mask(@Nullable Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    @Nullable
+    private static Object unmask(Object value) {
+        return value == NULL_VALUE ? null : value;
+    }
+
+    /**
+     * 加载缓存的值
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+
+        @Nullable
+        V load() throws Throwable;
+    }
+
+    /**
+     * 正在进行的加载，记录加载的线程，用来发现同一个线程在加载过程中又加载同一个 key
+     */
+    private static final class LoadingFuture extends CompletableFuture<Object> {
+
+        final Thread loadingThread = Thread.currentThread();
+    }
+
+    /**
+     * 缓存的数据，同时是 LRU 双向链表的节点，链表只在持有 evictionLock 时修改
+     */
+    private static final class Node<K> {
+
+        @Nullable
+        final K key;
+
+        final Object value;
+
+        final long expiresAtNanos;
+
+        boolean inWindow;
+
+        @Nullable
+        Node<K> prev;
+
+        @Nullable
+        Node<K> next;
+
+
+        Node(@Nullable K key, Object value, long expiresAtNanos) {
+            super();
+            this.key = key;
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        static <K> Node<K> sentinel() {
+            Node<K> sentinel = new Node<>(null, NULL_VALUE, Long.MAX_VALUE);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0 && expiresAtNanos != Long.MAX_VALUE;
+        }
+
+        boolean isLinked() {
+            return prev != null;
+        }
+
+        void linkLast(Node<K> sentinel) {
+            Node<K> last = sentinel.prev;
+            prev = last;
+            next = sentinel;
+            last.next = this;
+            sentinel.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    /**
+     * 4 位计数器的 Count-Min Sketch，每个 long 存放 16 个计数器，只在持有 evictionLock 时访问
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+
+        private final int tableMask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+
+        FrequencySketch(int maximumSize) {
+            super();
+            int size = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+            this.table = new long[size];
+            this.tableMask = size - 1;
+            this.sampleSize = 10 * Math.max(maximumSize, 16);
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for(int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, (int)((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for(int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = offsetOf(hash, i);
+                if(((table[index] >>> offset) & 0xfL) < 15) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if(added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        /**
+         * 所有计数器减半
+         */
+        private void reset() {
+            for(int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int)h & tableMask;
+        }
+
+        /** 每个 long 中的 16 个计数器，第 i 个哈希函数使用其中的第 (hash 的第 i 组 2 位) * 4 + i 个 */
+        private static int offsetOf(int hash, int i) {
+            return ((((hash >>> (i << 3)) & 3) << 2) + i) << 2;
+        }
+
+        private static int spread(int hash) {
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
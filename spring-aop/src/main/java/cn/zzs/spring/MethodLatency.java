@@ -0,0 +1,84 @@
+package cn.zzs.spring;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 一个方法的耗时统计，单位纳秒，在 JMX 中显示为 CompositeData
+ * @author zzs
+ * @date 2026年10月19日 上午9:16:33
+ */
+public class MethodLatency {
+
+    private final String method;
+
+    private final long count;
+
+    private final double mean;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long p999;
+
+    private final long max;
+
+
+    @ConstructorProperties({"method", "count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public MethodLatency(String method, long count, double mean, long p50, long p90, long p99, long p999, long max) {
+        super();
+        this.method = method;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    static MethodLatency of(String method, LatencyHistogram.Snapshot snapshot) {
+        return new MethodLatency(method, snapshot.getCount(), snapshot.getMean(), snapshot.getValueAtPercentile(50),
+                snapshot.getValueAtPercentile(90), snapshot.getValueAtPercentile(99), snapshot.getValueAtPercentile(99.9), snapshot.getMax());
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodLatency [method=" + method + ", count=" + count + ", mean=" + mean + ", p50=" + p50 + ", p90=" + p90 + ", p99=" + p99
+                + ", p999=" + p999 + ", max=" + max + "]";
+    }
+}
@@ -0,0 +1,55 @@
+package cn.zzs.spring;
+
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+
+/**
+ * 记录方法耗时的 Advisor，切点可以是 AspectJ 表达式或者任意 Pointcut，通知为 {@link MethodLatencyInterceptor}
+ * @author zzs
+ * @date 2026年10月19日 上午9:31:45
+ */
+public class MethodLatencyAdvisor extends DefaultPointcutAdvisor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MethodLatencyInterceptor interceptor;
+
+
+    /**
+     * 记录所有方法的耗时
+     */
+    public MethodLatencyAdvisor() {
+        this(Pointcut.TRUE);
+    }
+
+    /**
+     * @param expression AspectJ 表达式，例如 execution(* cn.zzs.spring.UserService+.*(..))
+     */
+    public MethodLatencyAdvisor(String expression) {
+        this(createPointcut(expression));
+    }
+
+    public MethodLatencyAdvisor(Pointcut pointcut) {
+        this(pointcut, new MethodLatencyInterceptor());
+    }
+
+    /**
+     * @param pointcut 切点
+     * @param interceptor 多个 Advisor 可以共用一个拦截器，耗时记录在一起
+     */
+    public MethodLatencyAdvisor(Pointcut pointcut, MethodLatencyInterceptor interceptor) {
+        super(pointcut, interceptor);
+        this.interceptor = interceptor;
+    }
+
+    public MethodLatencyInterceptor getInterceptor() {
+        return interceptor;
+    }
+
+    private static AspectJExpressionPointcut createPointcut(String expression) {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(expression);
+        return pointcut;
+    }
+}
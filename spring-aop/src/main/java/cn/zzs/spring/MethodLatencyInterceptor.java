@@ -0,0 +1,153 @@
+package cn.zzs.spring;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.lang.Nullable;
+
+/**
+ * 记录每个方法耗时的拦截器，每个方法一个 {@link LatencyHistogram}，方法抛出异常时同样记录。
+ * 已经调用过的方法记录一次耗时只需要一次 ConcurrentHashMap.get 和直方图的原子操作，不分配对象。
+ * <p>耗时统计可以通过 {@link #registerMBean(String)} 注册到 JMX，也可以通过 {@link #dump(String)} 写入文件。
+ * <pre>
+ * MethodLatencyInterceptor interceptor = new MethodLatencyInterceptor();
+ * proxyFactory.addAdvice(interceptor);
+ * interceptor.registerMBean("cn.zzs.spring:type=MethodLatency,name=userService");
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午9:20:07
+ */
+public class MethodLatencyInterceptor implements MethodInterceptor, MethodLatencyMXBean {
+
+    private final ConcurrentMap<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>(16);
+
+    @Nullable
+    private volatile ObjectName objectName;
+
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        LatencyHistogram histogram = getHistogram(invocation.getMethod());
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 获取方法的耗时直方图
+     * @param method 方法，JDK 动态代理时为接口中的方法
+     * @return 直方图
+     */
+    public LatencyHistogram getHistogram(Method method) {
+        LatencyHistogram histogram = histograms.get(method);
+        if(histogram == null) {
+            histogram = histograms.computeIfAbsent(method, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * 获取方法的耗时快照
+     * @param method 方法
+     * @return 快照，方法还没有被调用过时返回 null
+     */
+    @Nullable
+    public LatencyHistogram.Snapshot getSnapshot(Method method) {
+        LatencyHistogram histogram = histograms.get(method);
+        return histogram == null ? null : histogram.snapshot();
+    }
+
+    @Override
+    public List<MethodLatency> getLatencies() {
+        List<MethodLatency> latencies = new ArrayList<>(histograms.size());
+        for(Map.Entry<Method, LatencyHistogram> entry : histograms.entrySet()) {
+            latencies.add(MethodLatency.of(getMethodName(entry.getKey()), entry.getValue().snapshot()));
+        }
+        latencies.sort(Comparator.comparing(MethodLatency::getMethod));
+        return Collections.unmodifiableList(latencies);
+    }
+
+    @Override
+    public void reset() {
+        for(LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * 把所有方法的耗时统计写入文件，单位微秒，每个方法一行。
+     * 不放在 MXBean 接口中，避免通过 JMX 在服务器上写任意路径的文件
+     * @param path 文件路径
+     */
+    public void dump(String path) throws IOException {
+        try(Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            writer.write(String.format("%-40s %10s %12s %12s %12s %12s %12s %12s%n", "method", "count", "mean(us)", "p50(us)", "p90(us)", "p99(us)",
+                    "p999(us)", "max(us)"));
+            for(MethodLatency latency : getLatencies()) {
+                writer.write(String.format("%-40s %10d %12.1f %12.1f %12.1f %12.1f %12.1f %12.1f%n", latency.getMethod(), latency.getCount(),
+                        latency.getMean() / 1000, latency.getP50() / 1000.0, latency.getP90() / 1000.0, latency.getP99() / 1000.0,
+                        latency.getP999() / 1000.0, latency.getMax() / 1000.0));
+            }
+        }
+    }
+
+    /**
+     * 注册到平台 MBeanServer
+     * @param name ObjectName，例如 cn.zzs.spring:type=MethodLatency,name=userService
+     */
+    public void registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * 从平台 MBeanServer 中注销
+     */
+    public void unregisterMBean() throws JMException {
+        ObjectName objectName = this.objectName;
+        if(objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * 方法的显示名称，例如 IUserService.save()，重载的方法通过参数类型区分
+     */
+    private static String getMethodName(Method method) {
+        StringBuilder name = new StringBuilder(method.getDeclaringClass().getSimpleName()).append('.').append(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for(int i = 0; i < parameterTypes.length; i++) {
+            if(i > 0) {
+                name.append(", ");
+            }
+            name.append(parameterTypes[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
+}
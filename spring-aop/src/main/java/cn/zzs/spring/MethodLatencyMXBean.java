@@ -0,0 +1,21 @@
+package cn.zzs.spring;
+
+import java.util.List;
+
+/**
+ * 通过 JMX 查看 {@link MethodLatencyInterceptor} 记录的方法耗时
+ * @author zzs
+ * @date 2026年10月19日 上午9:14:50
+ */
+public interface MethodLatencyMXBean {
+
+    /**
+     * 获取每个方法的耗时统计
+     */
+    List<MethodLatency> getLatencies();
+
+    /**
+     * 清空所有记录
+     */
+    void reset();
+}
@@ -0,0 +1,307 @@
+package cn.zzs.spring;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * 有界的代理类缓存，按 LRU 淘汰。
+ * <p>CGLIB 自带的缓存没有上限，不同的代理配置（目标类、接口、每个方法的拦截器分布）都会生成新的代理类并一直保留。
+ * 这里由 FixedChainCglibAopProxy 生成缓存 key，缓存满了之后淘汰最久没有使用的代理类。
+ * 代理类定义在单独的类加载器中，淘汰后只要没有代理对象还在使用，代理类就可以和类加载器一起被卸载。
+ * <p>缓存不会阻止类加载器被卸载：key 通过弱引用持有类加载器、目标类和接口，代理类通过软引用持有，
+ * 被回收后对应的缓存项在之后访问缓存时清除。
+ * <p>同一个 key 同时只生成一次代理类，其他线程等待生成的结果。定义在父类加载器中的代理类无法卸载，重复生成会一直占用 metaspace。
+ * <p>同时统计命中次数、未命中次数、淘汰次数以及生成代理类的总耗时。
+ * @author zzs
+ * @date 2026年10月18日 下午11:52:10
+ */
+public class ProxyClassCache {
+
+    /** 默认的缓存大小 */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final ProxyClassCache SHARED_INSTANCE = new ProxyClassCache(DEFAULT_MAX_SIZE);
+
+    private final int maxSize;
+
+    /** 按访问顺序排列，只在持有锁时访问 */
+    private final Map<Key, ProxyClassReference> proxyClasses;
+
+    /** 正在生成的代理类，computeIfAbsent 保证同一个 key 只生成一次 */
+    private final ConcurrentMap<Key, Class<?>> generatingProxyClasses = new ConcurrentHashMap<>(16);
+
+    private final ReferenceQueue<Object> staleReferences = new ReferenceQueue<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder generationTimeNanos = new LongAdder();
+
+
+    public ProxyClassCache(int maxSize) {
+        super();
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        this.maxSize = maxSize;
+        this.proxyClasses = new LinkedHashMap<Key, ProxyClassReference>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ProxyClassReference> eldest) {
+                if(size() > ProxyClassCache.this.maxSize) {
+                    evictionCount.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取进程内共享的缓存
+     */
+    public static ProxyClassCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * 获取代理类，没有缓存时生成
+     * @param key 缓存 key
+     * @param generator 生成代理类
+     * @return 代理类
+     */
+    public Class<?> getProxyClass(Key key, Supplier<Class<?>> generator) {
+        Class<?> proxyClass = getIfPresent(key);
+        if(proxyClass != null) {
+            hitCount.increment();
+            return proxyClass;
+        }
+        // 生成代理类比较慢，不在缓存的锁内进行；同一个 key 的其他线程在 computeIfAbsent 中等待
+        boolean[] generated = new boolean[1];
+        proxyClass = generatingProxyClasses.computeIfAbsent(key, k -> {
+            // 另一个线程可能刚刚生成完，已经放入缓存并从 generatingProxyClasses 中移除
+            Class<?> cached = getIfPresent(k);
+            if(cached != null) {
+                return cached;
+            }
+            generated[0] = true;
+            long start = System.nanoTime();
+            Class<?> newProxyClass = generator.get();
+            generationTimeNanos.add(System.nanoTime() - start);
+            return newProxyClass;
+        });
+        if(generated[0]) {
+            missCount.increment();
+            synchronized(proxyClasses) {
+                proxyClasses.put(key, new ProxyClassReference(key, proxyClass, staleReferences));
+            }
+            generatingProxyClasses.remove(key, proxyClass);
+        } else {
+            hitCount.increment();
+        }
+        return proxyClass;
+    }
+
+    @Nullable
+    private Class<?> getIfPresent(Key key) {
+        synchronized(proxyClasses) {
+            expungeStaleEntries();
+            ProxyClassReference reference = proxyClasses.get(key);
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * 清除类加载器、目标类或者代理类已经被回收的缓存项，需要持有锁
+     */
+    private void expungeStaleEntries() {
+        Reference<?> reference;
+        while((reference = staleReferences.poll()) != null) {
+            Key key = reference instanceof KeyReference ? ((KeyReference)reference).key : ((ProxyClassReference)reference).key;
+            ProxyClassReference current = proxyClasses.get(key);
+            if(current != null && (current == reference || key.isStale())) {
+                proxyClasses.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，已经创建的代理对象不受影响
+     */
+    public void clear() {
+        synchronized(proxyClasses) {
+            proxyClasses.clear();
+        }
+    }
+
+    public int size() {
+        synchronized(proxyClasses) {
+            expungeStaleEntries();
+            return proxyClasses.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getGenerationTimeNanos() {
+        return generationTimeNanos.sum();
+    }
+
+    /**
+     * 缓存 key：父类加载器、目标类、接口、每个方法的 Callback 下标以及 Callback 类型。
+     * 类加载器、目标类和接口通过弱引用持有，方法只按下标记录，不持有 Method
+     */
+    public static final class Key {
+
+        @Nullable
+        private final WeakReference<ClassLoader> classLoader;
+
+        private final WeakReference<Class<?>> rootClass;
+
+        private final WeakReference<?>[] interfaces;
+
+        private final int[] callbackLayout;
+
+        private final Class<?>[] callbackTypes;
+
+        private final int hashCode;
+
+
+        /**
+         * @param classLoader 代理类的父类加载器
+         * @param rootClass 目标类
+         * @param interfaces 代理的接口
+         * @param callbackLayout 按 Enhancer.getMethods 的顺序，每个方法使用的 Callback 下标
+         * @param callbackTypes Callback 的类型，只能是 spring-aop 和 CGLIB 中的类
+         */
+        public Key(@Nullable ClassLoader classLoader, Class<?> rootClass, Class<?>[] interfaces, int[] callbackLayout, Class<?>[] callbackTypes) {
+            super();
+            this.classLoader = classLoader == null ? null : new WeakReference<>(classLoader);
+            this.rootClass = new WeakReference<>(rootClass);
+            this.interfaces = new WeakReference<?>[interfaces.length];
+            int hash = System.identityHashCode(classLoader) * 31 + System.identityHashCode(rootClass);
+            for(int i = 0; i < interfaces.length; i++) {
+                this.interfaces[i] = new WeakReference<>(interfaces[i]);
+                hash = hash * 31 + System.identityHashCode(interfaces[i]);
+            }
+            this.callbackLayout = callbackLayout.clone();
+            this.callbackTypes = callbackTypes.clone();
+            this.hashCode = (hash * 31 + Arrays.hashCode(callbackLayout)) * 31 + Arrays.hashCode(callbackTypes);
+        }
+
+        /**
+         * 类加载器、目标类或者接口已经被回收
+         */
+        boolean isStale() {
+            if(classLoader != null && classLoader.get() == null || rootClass.get() == null) {
+                return true;
+            }
+            for(WeakReference<?> interfaceReference : interfaces) {
+                if(interfaceReference.get() == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key)other;
+            if(hashCode != otherKey.hashCode || isStale() || otherKey.isStale() || !sameReferent(classLoader, otherKey.classLoader)
+                    || rootClass.get() != otherKey.rootClass.get() || interfaces.length != otherKey.interfaces.length) {
+                return false;
+            }
+            for(int i = 0; i < interfaces.length; i++) {
+                if(interfaces[i].get() != otherKey.interfaces[i].get()) {
+                    return false;
+                }
+            }
+            return Arrays.equals(callbackLayout, otherKey.callbackLayout) && Arrays.equals(callbackTypes, otherKey.callbackTypes);
+        }
+
+        private static boolean sameReferent(@Nullable WeakReference<?> reference, @Nullable WeakReference<?> otherReference) {
+            return reference == null ? otherReference == null : otherReference != null && reference.get() == otherReference.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * 软引用持有代理类，内存不足时可以被回收。
+     * 同时为 key 中的类加载器、目标类和接口注册弱引用，被回收后通过 ReferenceQueue 找到缓存项
+     */
+    private static final class ProxyClassReference extends SoftReference<Class<?>> {
+
+        private final Key key;
+
+        /** 只用来保持弱引用本身可达，否则弱引用不会进入 ReferenceQueue */
+        private final KeyReference[] keyReferences;
+
+
+        ProxyClassReference(Key key, Class<?> proxyClass, ReferenceQueue<Object> queue) {
+            super(proxyClass, queue);
+            this.key = key;
+            List<KeyReference> references = new ArrayList<>(key.interfaces.length + 2);
+            if(key.classLoader != null) {
+                references.add(new KeyReference(key.classLoader.get(), key, queue));
+            }
+            references.add(new KeyReference(key.rootClass.get(), key, queue));
+            for(WeakReference<?> interfaceReference : key.interfaces) {
+                references.add(new KeyReference(interfaceReference.get(), key, queue));
+            }
+            this.keyReferences = references.toArray(new KeyReference[0]);
+        }
+    }
+
+    private static final class KeyReference extends WeakReference<Object> {
+
+        private final Key key;
+
+
+        KeyReference(@Nullable Object referent, Key key, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.key = key;
+        }
+    }
+}
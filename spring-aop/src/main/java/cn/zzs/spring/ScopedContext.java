@@ -0,0 +1,492 @@
+package cn.zzs.spring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link ContextScope} 中 bean 所在的上下文，例如一次请求。bean 保存在上下文对象中，而不是保存在线程中。
+ * <p>和 ScopedValue 一样，上下文只在 {@link #run(Runnable)}、{@link #call(Callable)} 执行期间绑定到当前线程，执行完成后恢复，
+ * 线程上只保留一个引用，不会像 ThreadLocal&lt;Map&gt; 那样每个线程一份 bean。交给其他线程执行的任务通过 {@link #wrap(Runnable)}
+ * 或者 {@link #propagating(Executor)} 带上当前的上下文，多个线程看到的是同一个上下文中的 bean。
+ * <p>bean 按 {@link ContextScope} 分配的 {@link Slot} 存放在数组中，每个作用域一个数组，获取时不需要查 map。
+ * 创建 bean 时不持有上下文的锁，先在槽位中放一个占位，同一个上下文中同时获取这个 bean 的其他线程等待它创建完成，
+ * 获取其他 bean 的线程不受影响。
+ * <pre>
+ * ScopedContext context = ScopedContext.open();
+ * try {
+ *     context.run(() -&gt; handleRequest());
+ * } finally {
+ *     context.close();
+ * }
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午8:05:37
+ */
+public final class ScopedContext implements AutoCloseable {
+
+    /** 只在 run/call 期间设置，运行 Java 21 以上时可以换成 ScopedValue */
+    private static final ThreadLocal<ScopedContext> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+
+    /** 每个作用域一组，通常只有一个 */
+    private volatile ScopeBeans[] scopeBeans = new ScopeBeans[0];
+
+    /** 槽位到它的销毁回调，按注册的顺序排列 */
+    private final Map<Slot, Runnable> destructionCallbacks = new LinkedHashMap<>(8);
+
+    private volatile boolean closed = false;
+
+
+    private ScopedContext(String id) {
+        super();
+        this.id = id;
+    }
+
+    /**
+     * 创建一个新的上下文
+     */
+    public static ScopedContext open() {
+        return new ScopedContext(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 获取当前线程正在执行的上下文
+     * @return 上下文，不在上下文中执行时返回 null
+     */
+    @Nullable
+    public static ScopedContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 包装任务，在其他线程中执行时使用当前的上下文
+     * @param task 任务
+     * @return 不在上下文中执行时返回原来的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        ScopedContext context = current();
+        return context == null ? task : () -> context.run(task);
+    }
+
+    /**
+     * 包装任务，在其他线程中执行时使用当前的上下文
+     * @param task 任务
+     * @return 不在上下文中执行时返回原来的任务
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        ScopedContext context = current();
+        return context == null ? task : () -> context.call(task);
+    }
+
+    /**
+     * 包装线程池，提交的任务都使用提交时的上下文
+     * @param executor 线程池
+     * @return 包装后的线程池
+     */
+    public static Executor propagating(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 在这个上下文中执行任务，执行完成后恢复原来的上下文
+     * @param task 任务
+     */
+    public void run(Runnable task) {
+        ScopedContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 在这个上下文中执行任务，执行完成后恢复原来的上下文
+     * @param task 任务
+     * @return 任务的结果
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        ScopedContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(@Nullable ScopedContext previous) {
+        if(previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 获取槽位中已经创建的 bean
+     * @param slot 槽位
+     * @return bean，还没有创建或者正在创建时返回 null
+     */
+    @Nullable
+    public Object getIfPresent(Slot slot) {
+        ScopeBeans scopeBeans = findScopeBeans(slot.owner);
+        if(scopeBeans == null) {
+            return null;
+        }
+        Object bean = scopeBeans.get(slot);
+        return bean instanceof Creation ? null : bean;
+    }
+
+    /**
+     * 获取槽位中的 bean，没有时创建。同一个上下文中的多个线程同时获取时只创建一次，创建时不持有上下文的锁
+     * @param slot 槽位
+     * @param objectFactory 创建 bean
+     * @return bean，槽位已经被释放时返回 null，需要重新分配槽位后再获取
+     */
+    @Nullable
+    public Object get(Slot slot, ObjectFactory<?> objectFactory) {
+        Object bean = getIfPresent(slot);
+        if(bean != null) {
+            return bean;
+        }
+        while(true) {
+            Creation creation;
+            boolean creating = false;
+            synchronized(this) {
+                checkOpen();
+                ScopeBeans scopeBeans = getScopeBeans(slot.owner);
+                Object current = scopeBeans.get(slot);
+                if(current instanceof Creation) {
+                    creation = (Creation)current;
+                } else if(current != null) {
+                    return current;
+                } else if(!slot.acquire()) {
+                    return null;
+                } else {
+                    creation = new Creation();
+                    scopeBeans.set(slot, creation);
+                    creating = true;
+                }
+            }
+            if(creating) {
+                return create(slot, objectFactory, creation);
+            }
+            if(creation.creator == Thread.currentThread()) {
+                // 创建时又获取自己，交给 beanFactory 报告循环依赖
+                return objectFactory.getObject();
+            }
+            bean = creation.await();
+            if(bean != null) {
+                return bean;
+            }
+            // 创建失败，或者创建期间被移除，重新获取
+        }
+    }
+
+    /**
+     * 在锁外创建 bean，重新检查占位仍然在槽位中后再放入
+     */
+    private Object create(Slot slot, ObjectFactory<?> objectFactory, Creation creation) {
+        Object bean = null;
+        try {
+            bean = objectFactory.getObject();
+            return bean;
+        } finally {
+            synchronized(this) {
+                ScopeBeans scopeBeans = findScopeBeans(slot.owner);
+                // 关闭或者移除时已经清空了占位并释放了槽位
+                if(scopeBeans != null && scopeBeans.get(slot) == creation) {
+                    if(bean != null) {
+                        scopeBeans.set(slot, bean);
+                    } else {
+                        scopeBeans.clear(slot);
+                        slot.releaseHolder();
+                    }
+                }
+            }
+            creation.complete(bean);
+        }
+    }
+
+    /**
+     * 移除槽位中的 bean 以及它的销毁回调，关闭上下文时不再执行
+     * @param slot 槽位
+     * @return 移除的 bean，没有时返回 null
+     */
+    @Nullable
+    public synchronized Object remove(Slot slot) {
+        destructionCallbacks.remove(slot);
+        ScopeBeans scopeBeans = findScopeBeans(slot.owner);
+        Object bean = scopeBeans == null ? null : scopeBeans.clear(slot);
+        if(bean != null) {
+            slot.releaseHolder();
+        }
+        return bean instanceof Creation ? null : bean;
+    }
+
+    /**
+     * 注册关闭上下文时执行的回调，同一个槽位只保留最后注册的回调
+     * @param slot 槽位
+     * @param callback 回调
+     */
+    public synchronized void registerDestructionCallback(Slot slot, Runnable callback) {
+        checkOpen();
+        destructionCallbacks.remove(slot);
+        destructionCallbacks.put(slot, callback);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 关闭上下文，按注册的相反顺序执行销毁回调，清空所有 bean
+     */
+    @Override
+    public void close() {
+        List<Runnable> callbacks;
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            callbacks = new ArrayList<>(destructionCallbacks.values());
+            destructionCallbacks.clear();
+            for(ScopeBeans beans : scopeBeans) {
+                beans.clearAll();
+            }
+            scopeBeans = new ScopeBeans[0];
+        }
+        RuntimeException failure = null;
+        for(int i = callbacks.size() - 1; i >= 0; i--) {
+            try {
+                callbacks.get(i).run();
+            } catch(RuntimeException e) {
+                if(failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new IllegalStateException("Scoped context " + id + " is already closed");
+        }
+    }
+
+    @Nullable
+    private ScopeBeans findScopeBeans(Object owner) {
+        for(ScopeBeans beans : scopeBeans) {
+            if(beans.owner == owner) {
+                return beans;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取作用域的 bean，没有时创建，需要持有锁
+     */
+    private ScopeBeans getScopeBeans(Object owner) {
+        ScopeBeans beans = findScopeBeans(owner);
+        if(beans == null) {
+            beans = new ScopeBeans(owner);
+            ScopeBeans[] grown = Arrays.copyOf(scopeBeans, scopeBeans.length + 1);
+            grown[scopeBeans.length] = beans;
+            scopeBeans = grown;
+        }
+        return beans;
+    }
+
+    /**
+     * 上下文中存放 bean 的位置，由 {@link ContextScope} 分配，同一个作用域（owner）的槽位从 0 开始连续分配。
+     * 记录有多少个上下文的这个位置上放了 bean，没有时作用域可以释放它，之后分配给其他 bean
+     */
+    public static final class Slot {
+
+        private final Object owner;
+
+        private final int index;
+
+        /** 这个槽位上放了 bean（包括正在创建）的上下文数量，释放后为 -1 */
+        private final AtomicInteger holders = new AtomicInteger();
+
+
+        public Slot(Object owner, int index) {
+            super();
+            this.owner = owner;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * 没有上下文放了 bean 时释放，释放后不能再放入 bean
+         * @return 是否释放成功
+         */
+        public boolean tryRelease() {
+            return holders.compareAndSet(0, -1);
+        }
+
+        public boolean isReleased() {
+            return holders.get() < 0;
+        }
+
+        private boolean acquire() {
+            while(true) {
+                int current = holders.get();
+                if(current < 0) {
+                    return false;
+                }
+                if(holders.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseHolder() {
+            holders.decrementAndGet();
+        }
+    }
+
+    /**
+     * 一个作用域在这个上下文中的 bean，按槽位存放。写入只在持有上下文的锁时进行。
+     * 同时记录每个位置对应的槽位，位置被释放又分配给其他 bean 后，拿着旧槽位读取不到新的 bean
+     */
+    private static final class ScopeBeans {
+
+        final Object owner;
+
+        private volatile AtomicReferenceArray<Object> beans = new AtomicReferenceArray<>(8);
+
+        /** 和 beans 对应，关闭上下文时释放 */
+        private volatile Slot[] slots = new Slot[8];
+
+
+        ScopeBeans(Object owner) {
+            super();
+            this.owner = owner;
+        }
+
+        /**
+         * 先读取 bean 再读取槽位，能读到 bean 时也能读到写入 bean 之前记录的槽位
+         */
+        @Nullable
+        Object get(Slot slot) {
+            AtomicReferenceArray<Object> beans = this.beans;
+            if(slot.index >= beans.length()) {
+                return null;
+            }
+            Object bean = beans.get(slot.index);
+            Slot[] slots = this.slots;
+            return bean != null && slot.index < slots.length && slots[slot.index] == slot ? bean : null;
+        }
+
+        void set(Slot slot, Object bean) {
+            ensureCapacity(slot.index + 1);
+            slots[slot.index] = slot;
+            beans.set(slot.index, bean);
+        }
+
+        @Nullable
+        Object clear(Slot slot) {
+            if(slot.index >= slots.length || slots[slot.index] != slot) {
+                return null;
+            }
+            slots[slot.index] = null;
+            return beans.getAndSet(slot.index, null);
+        }
+
+        /**
+         * 清空所有 bean，释放它们的槽位
+         */
+        void clearAll() {
+            for(int i = 0; i < slots.length; i++) {
+                if(slots[i] != null) {
+                    slots[i].releaseHolder();
+                    slots[i] = null;
+                }
+            }
+            beans = new AtomicReferenceArray<>(0);
+        }
+
+        private void ensureCapacity(int capacity) {
+            AtomicReferenceArray<Object> beans = this.beans;
+            if(capacity <= beans.length()) {
+                return;
+            }
+            AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(Math.max(capacity, beans.length() * 2));
+            for(int i = 0; i < beans.length(); i++) {
+                grown.set(i, beans.get(i));
+            }
+            this.slots = Arrays.copyOf(slots, grown.length());
+            this.beans = grown;
+        }
+    }
+
+    /**
+     * 槽位中正在创建的 bean 的占位，其他线程等待创建完成
+     */
+    private static final class Creation {
+
+        final Thread creator = Thread.currentThread();
+
+        private boolean done;
+
+        @Nullable
+        private Object bean;
+
+
+        synchronized void complete(@Nullable Object bean) {
+            this.bean = bean;
+            this.done = true;
+            notifyAll();
+        }
+
+        /**
+         * 等待创建完成，等待时被中断不会停止等待，只恢复中断标记
+         * @return bean，创建失败时返回 null
+         */
+        @Nullable
+        synchronized Object await() {
+            boolean interrupted = false;
+            while(!done) {
+                try {
+                    wait();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package cn.zzs.spring;
+
+public class User {
+
+    private String name;
+
+    private Integer age;
+
+    public User() {
+        super();
+    }
+
+    public User(String name, Integer age) {
+        super();
+        this.name = name;
+        this.age = age;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+    }
+
+    @Override
+    public String toString() {
+        return "User [name=" + name + ", age=" + age + "]";
+    }
+}
@@ -2,6 +2,15 @@ package cn.zzs.spring;
 
 public class UserService implements IUserService {
 
+    public User get(String id) {
+        System.out.println("查询用户");
+        return new User("zzs001", 18);
+    }
+    
+    public void save(User user) {
+        System.out.println("保存用户：" + user);
+    }
+    
     public void save() {
         System.out.println("增加用户");
     }
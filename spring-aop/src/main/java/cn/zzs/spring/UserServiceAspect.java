@@ -11,11 +11,13 @@ import org.slf4j.LoggerFactory;
 
 
 @Aspect
-public class UserServiceAspect {
+public class UserServiceAspect implements CallSiteAdvice {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(UserServiceAspect.class);
     
-    @Pointcut("execution(* cn.zzs.spring.UserService+.*(..)))")
+    public static final String POINTCUT_EXPRESSION = "execution(* cn.zzs.spring.UserService+.*(..))";
+    
+    @Pointcut(POINTCUT_EXPRESSION)
     public void genericPointCut() {
 
     }
@@ -23,9 +25,24 @@ public class UserServiceAspect {
     @Before(value = "genericPointCut()")
     public void printRequest(JoinPoint joinPoint) throws InterruptedException {
         TimeUnit.SECONDS.sleep(1);
-        LOGGER.info("call {}_{} with args:{}", 
-                joinPoint.getSignature().getDeclaringType().getSimpleName(), 
-                joinPoint.getSignature().getName(), 
-                joinPoint.getArgs());
+        if(LOGGER.isInfoEnabled()) {
+            LOGGER.info("call {}_{} with args:{}", 
+                    joinPoint.getSignature().getDeclaringType().getSimpleName(), 
+                    joinPoint.getSignature().getName(), 
+                    joinPoint.getArgs());
+        }
     }  
+    
+    /**
+     * 同 printRequest，通过 CallSiteAdvisor 使用，不需要创建 JoinPoint，也不会复制方法参数
+     */
+    @Override
+    public void before(CallSite callSite, Object[] args, Object target) {
+        if(LOGGER.isInfoEnabled()) {
+            LOGGER.info("call {}_{} with args:{}", 
+                    callSite.getDeclaringTypeName(), 
+                    callSite.getMethodName(), 
+                    CallSite.lazyFormat(args));
+        }
+    }
 }
@@ -1,7 +1,18 @@
 package cn.zzs.spring;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.SerializationUtils;
 
 /**
  * 测试AspectJProxyFactory
@@ -31,4 +42,97 @@ public class AspectJProxyFactoryTest {
         userController.update();
         userController.find();
     }
+    
+    
+    /**
+     * 使用共享缓存的AspectJProxyFactory：同一个切面的Advisor和拦截器链在多个代理之间共享，不需要设置preFiltered
+     * @author zzs
+     * @date 2026年10月19日 上午12:12:36 void
+     */
+    @Test
+    public void test02() {
+        AspectJAdvisorCache advisorCache = new AspectJAdvisorCache();
+        CachingAdvisorChainFactory advisorChainFactory = new CachingAdvisorChainFactory(CachingAdvisorChainFactory.DEFAULT_MAX_SIZE);
+        
+        CachingAspectJProxyFactory proxyFactory = new CachingAspectJProxyFactory(advisorCache, advisorChainFactory);
+        proxyFactory.setTarget(new UserService());
+        proxyFactory.addAspect(UserServiceAspect.class);
+        UserService userController = (UserService)proxyFactory.getProxy();
+        userController.save();
+        
+        CachingAspectJProxyFactory proxyFactory2 = new CachingAspectJProxyFactory(advisorCache, advisorChainFactory);
+        proxyFactory2.setTarget(new UserService());
+        proxyFactory2.addAspect(UserServiceAspect.class);
+        UserService userController2 = (UserService)proxyFactory2.getProxy();
+        userController2.save();
+        
+        // Advisor是同一个对象，save方法的拦截器链只匹配了一次
+        assertArrayEquals(proxyFactory.getAdvisors(), proxyFactory2.getAdvisors());
+        assertSame(proxyFactory.getAdvisors()[1], proxyFactory2.getAdvisors()[1]);
+        assertEquals(1, advisorChainFactory.size());
+        
+        // 反序列化后使用共享的Advisor缓存
+        CachingAspectJProxyFactory proxyFactory3 = new CachingAspectJProxyFactory(advisorCache, advisorChainFactory);
+        proxyFactory3.setTargetClass(UserService.class);
+        proxyFactory3 = (CachingAspectJProxyFactory)SerializationUtils.deserialize(SerializationUtils.serialize(proxyFactory3));
+        proxyFactory3.addAspect(UserServiceAspect.class);
+        assertSame(AspectJAdvisorCache.getSharedInstance().getAdvisors(UserServiceAspect.class, UserService.class).get(1), proxyFactory3.getAdvisors()[1]);
+    }
+    
+    
+    /**
+     * 使用CallSiteAdvisor代替@Before方法：方法签名是缓存的常量，方法参数不会复制
+     * @author zzs
+     * @date 2026年10月19日 上午12:58:04 void
+     */
+    @Test
+    public void test03() {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(new UserService());
+        
+        // 添加UserServiceAspect
+        proxyFactory.addAdvisor(new CallSiteAdvisor(UserServiceAspect.POINTCUT_EXPRESSION, new UserServiceAspect()));
+        
+        // 记录CallSite
+        List<CallSite> callSites = new ArrayList<>();
+        proxyFactory.addAdvisor(new CallSiteAdvisor(UserServiceAspect.POINTCUT_EXPRESSION, (callSite, args, target) -> callSites.add(callSite)));
+        
+        UserService userController = (UserService)proxyFactory.getProxy();
+        
+        userController.save();
+        userController.save();
+        userController.delete();
+        
+        assertEquals(3, callSites.size());
+        assertSame(callSites.get(0), callSites.get(1));
+        assertEquals("UserService", callSites.get(2).getDeclaringTypeName());
+        assertEquals("delete", callSites.get(2).getMethodName());
+        assertEquals("[zzs001, 18]", CallSite.lazyFormat(new Object[]{"zzs001", 18}).toString());
+    }
+    
+    
+    /**
+     * CachingAdvisor和Aspect一起使用：缓存命中时不再执行Aspect的通知
+     * @author zzs
+     * @date 2026年10月19日 上午11:02:27 void
+     */
+    @Test
+    public void test04() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory();
+        proxyFactory.setTarget(new UserService());
+        
+        CachingAdvisor advisor = new CachingAdvisor();
+        advisor.getInterceptor().setCachedMethodNames("get");
+        advisor.getInterceptor().setInvalidatingMethodNames("save");
+        proxyFactory.addAdvisor(advisor);
+        proxyFactory.addAspect(UserServiceAspect.class);
+        
+        UserService userController = (UserService)proxyFactory.getProxy();
+        User user = userController.get("zzs001");
+        assertSame(user, userController.get("zzs001"));
+        
+        userController.save(user);
+        assertNotSame(user, userController.get("zzs001"));
+        assertEquals(2, advisor.getInterceptor().getCache(ReflectionUtils.findMethod(UserService.class, "get", String.class)).getMissCount());
+    }
 }
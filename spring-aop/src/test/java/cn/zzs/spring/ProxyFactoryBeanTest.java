@@ -1,6 +1,19 @@
 package cn.zzs.spring;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -8,6 +21,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.framework.ProxyFactoryBean;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 
@@ -56,4 +72,267 @@ public class ProxyFactoryBeanTest {
         IUserService userController2 = (IUserService)proxyFactory.getObject();
         System.err.println(userController == userController2);
     }
+    
+    
+    /**
+     * 拦截器分布不同的代理类超过缓存大小时会被淘汰；多个线程同时未命中同一个 key 时只生成一次
+     * @author zzs
+     * @date 2026年10月18日 下午11:52:10 void
+     */
+    @Test
+    public void testProxyClassCache() {
+        // 注册bean
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("userService", 
+                BeanDefinitionBuilder.rootBeanDefinition(UserService.class).setScope(BeanDefinition.SCOPE_PROTOTYPE).getBeanDefinition());
+        
+        ProxyClassCache proxyClassCache = new ProxyClassCache(1);
+        FixedChainAopProxyFactory aopProxyFactory = new FixedChainAopProxyFactory();
+        aopProxyFactory.setProxyClassCache(proxyClassCache);
+        
+        ProxyFactoryBean proxyFactory = new ProxyFactoryBean();
+        proxyFactory.setAopProxyFactory(aopProxyFactory);
+        proxyFactory.setBeanFactory(beanFactory);
+        proxyFactory.setTargetName("userService");
+        proxyFactory.setProxyTargetClass(true);
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new MethodInterceptor() {
+            
+            public Object invoke(MethodInvocation invocation) throws Throwable {
+                LOGGER.info("打印{}方法的日志", invocation.getMethod().getName());
+                return invocation.proceed();
+            }
+        });
+        advisor.setMappedName("save");
+        proxyFactory.addAdvisor(advisor);
+        proxyFactory.setSingleton(false);
+        
+        for(int i = 0; i < 10; i++) {
+            IUserService userController = (IUserService)proxyFactory.getObject();
+            userController.save();
+            // 代理类定义在单独的类加载器中，被淘汰后可以卸载
+            assertNotSame(UserService.class.getClassLoader(), userController.getClass().getClassLoader());
+        }
+        assertEquals(1, proxyClassCache.getMissCount());
+        assertEquals(9, proxyClassCache.getHitCount());
+        
+        // 拦截的方法不同，需要生成新的代理类，淘汰原来的代理类
+        advisor.setMappedName("delete");
+        ((IUserService)proxyFactory.getObject()).delete();
+        assertEquals(2, proxyClassCache.getMissCount());
+        assertEquals(1, proxyClassCache.getEvictionCount());
+        assertEquals(1, proxyClassCache.size());
+        
+        // 多个线程同时未命中时，代理类只生成一次
+        ProxyClassCache.Key key = new ProxyClassCache.Key(UserService.class.getClassLoader(), UserService.class, new Class<?>[0], new int[0], new Class<?>[0]);
+        AtomicInteger generations = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[8];
+            for(int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> proxyClassCache.getProxyClass(key, () -> {
+                    generations.incrementAndGet();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(100);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return UserService.class;
+                }), executorService);
+            }
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(1, generations.get());
+        assertEquals(3, proxyClassCache.getMissCount());
+        assertEquals(16, proxyClassCache.getHitCount());
+    }
+    
+    /**
+     * 上下文作用域：同一个上下文中拿到同一个 user，交给其他线程执行的任务带上上下文后拿到的也是同一个，不同的上下文互不影响。
+     * 代理按槽位从当前上下文中获取 user，上下文之外调用时失败，关闭上下文时执行销毁回调，移除的 bean 不再执行销毁回调。
+     * 两个 beanFactory 的作用域各自从 0 开始分配槽位，共用一个上下文时不会冲突。
+     * @author zzs
+     * @date 2026年10月19日 上午8:36:12 void
+     */
+    @Test
+    public void testContextScope() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ContextScope scope = new ContextScope(beanFactory);
+        beanFactory.registerScope(ContextScope.SCOPE_CONTEXT, scope);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .setScope(ContextScope.SCOPE_CONTEXT)
+                .addPropertyValue("name", "zzs001")
+                .getBeanDefinition());
+        User user = (User)scope.createScopedProxy("user");
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Executor propagatingExecutor = ScopedContext.propagating(executor);
+        ScopedContext context1 = ScopedContext.open();
+        ScopedContext context2 = ScopedContext.open();
+        try {
+            AtomicInteger destroyed = new AtomicInteger();
+            User user1 = context1.call(() -> {
+                user.setAge(18);
+                scope.registerDestructionCallback("user", destroyed::incrementAndGet);
+                // 交给其他线程执行
+                CompletableFuture<Integer> age = CompletableFuture.supplyAsync(user::getAge, propagatingExecutor);
+                assertEquals(Integer.valueOf(18), age.get());
+                return (User)beanFactory.getBean("user");
+            });
+            User user2 = context2.call(() -> {
+                assertNull(user.getAge());
+                return (User)beanFactory.getBean("user");
+            });
+            assertNotSame(user1, user2);
+            assertEquals(Integer.valueOf(18), user1.getAge());
+            assertSame(user1, context1.call(() -> beanFactory.getBean("user")));
+            assertNull(ScopedContext.current());
+            
+            // 上下文之外
+            try {
+                user.getName();
+                fail();
+            } catch(BeanCreationException e) {
+                LOGGER.info("上下文之外获取user失败：{}", e.getMessage());
+            }
+            
+            // 另一个beanFactory中的作用域，admin和user的槽位位置相同，但是在上下文中分开存放
+            DefaultListableBeanFactory otherBeanFactory = new DefaultListableBeanFactory();
+            ContextScope otherScope = new ContextScope(otherBeanFactory);
+            otherBeanFactory.registerScope(ContextScope.SCOPE_CONTEXT, otherScope);
+            otherBeanFactory.registerBeanDefinition("admin", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                    .setScope(ContextScope.SCOPE_CONTEXT)
+                    .getBeanDefinition());
+            assertEquals(0, scope.getSlot("user"));
+            assertEquals(0, otherScope.getSlot("admin"));
+            AtomicInteger removedDestroyed = new AtomicInteger();
+            context1.call(() -> {
+                assertNotSame(user1, otherBeanFactory.getBean("admin"));
+                assertSame(user1, beanFactory.getBean("user"));
+                otherScope.registerDestructionCallback("admin", removedDestroyed::incrementAndGet);
+                return otherScope.remove("admin");
+            });
+            
+            context1.close();
+            assertEquals(1, destroyed.get());
+            assertEquals(0, removedDestroyed.get());
+        } finally {
+            context1.close();
+            context2.close();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 移除 bean 之后，没有其他上下文中还有这个 bean 时释放槽位，之后分配给其他 bean，代理持有的槽位被释放后重新获取。
+     * @author zzs
+     * @date 2026年10月19日 上午8:40:25 void
+     */
+    @Test
+    public void testContextScopeSlotReuse() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ContextScope scope = new ContextScope(beanFactory);
+        beanFactory.registerScope(ContextScope.SCOPE_CONTEXT, scope);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .setScope(ContextScope.SCOPE_CONTEXT)
+                .addPropertyValue("name", "zzs001")
+                .getBeanDefinition());
+        beanFactory.registerBeanDefinition("admin", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .setScope(ContextScope.SCOPE_CONTEXT)
+                .addPropertyValue("name", "admin")
+                .getBeanDefinition());
+        User user = (User)scope.createScopedProxy("user");
+        assertEquals(0, scope.getSlot("user"));
+
+        ScopedContext context1 = ScopedContext.open();
+        ScopedContext context2 = ScopedContext.open();
+        ScopedContext context3 = ScopedContext.open();
+        try {
+            Object user1 = context1.call(() -> beanFactory.getBean("user"));
+            Object user2 = context2.call(() -> beanFactory.getBean("user"));
+
+            // context2中还有user，不释放槽位
+            assertSame(user1, context1.call(() -> scope.remove("user")));
+            assertEquals(0, scope.getSlot("user"));
+            assertSame(user2, context2.call(() -> beanFactory.getBean("user")));
+
+            // 所有上下文都移除之后释放，位置分配给admin
+            assertSame(user2, context2.call(() -> scope.remove("user")));
+            assertEquals(0, scope.getSlot("admin"));
+            context3.call(() -> {
+                Object admin = beanFactory.getBean("admin");
+                assertEquals("admin", ((User)admin).getName());
+                // 代理重新获取槽位，拿到的是user而不是admin
+                assertEquals("zzs001", user.getName());
+                assertNotSame(admin, beanFactory.getBean("user"));
+                return null;
+            });
+            assertEquals(1, scope.getSlot("user"));
+        } finally {
+            context1.close();
+            context2.close();
+            context3.close();
+        }
+    }
+
+    /**
+     * 创建 bean 时不持有上下文的锁：创建 admin 时等待其他线程在同一个上下文中获取 user，不会死锁。
+     * 同一个上下文中多个线程同时获取同一个 bean 时只创建一次。
+     * @author zzs
+     * @date 2026年10月19日 上午8:43:51 void
+     */
+    @Test
+    public void testContextScopeConcurrentCreation() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ContextScope scope = new ContextScope(beanFactory);
+        beanFactory.registerScope(ContextScope.SCOPE_CONTEXT, scope);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Executor propagatingExecutor = ScopedContext.propagating(executor);
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.genericBeanDefinition(User.class, () -> {
+            created.incrementAndGet();
+            creating.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new User("zzs001", 18);
+        }).setScope(ContextScope.SCOPE_CONTEXT).getBeanDefinition());
+        beanFactory.registerBeanDefinition("admin", BeanDefinitionBuilder.genericBeanDefinition(User.class, () -> {
+            CompletableFuture<Object> user = CompletableFuture.supplyAsync(() -> beanFactory.getBean("user"), propagatingExecutor);
+            try {
+                assertEquals("zzs001", ((User)user.get(5, TimeUnit.SECONDS)).getName());
+            } catch(Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return new User("admin", 30);
+        }).setScope(ContextScope.SCOPE_CONTEXT).getBeanDefinition());
+
+        ScopedContext context = ScopedContext.open();
+        try {
+            context.call(() -> {
+                // 两个线程同时获取user，只创建一次
+                CompletableFuture<Object> user1 = CompletableFuture.supplyAsync(() -> beanFactory.getBean("user"), propagatingExecutor);
+                assertTrue(creating.await(5, TimeUnit.SECONDS));
+                CompletableFuture<Object> user2 = CompletableFuture.supplyAsync(() -> beanFactory.getBean("user"), propagatingExecutor);
+                release.countDown();
+                assertSame(user1.get(5, TimeUnit.SECONDS), user2.get(5, TimeUnit.SECONDS));
+                assertEquals(1, created.get());
+
+                // 创建admin时在其他线程中获取user
+                scope.remove("user");
+                User admin = (User)beanFactory.getBean("admin");
+                assertEquals("admin", admin.getName());
+                assertEquals(2, created.get());
+                return null;
+            });
+        } finally {
+            context.close();
+            executor.shutdown();
+        }
+    }
 }
@@ -1,13 +1,39 @@
 package cn.zzs.spring;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.Advised;
 import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+import org.springframework.core.DecoratingProxy;
 
 /**
  * 测试ProxyFactory
@@ -29,17 +55,9 @@ public class ProxyFactoryTest {
         // 设置被代理的对象
         proxyFactory.setTarget(new UserService());
         
-        // 添加第一个Advice
-        proxyFactory.addAdvice(new MethodInterceptor() {
-            
-            public Object invoke(MethodInvocation invocation) throws Throwable {
-                TimeUnit.SECONDS.sleep(1);
-                
-                LOGGER.info("打印{}方法的日志", invocation.getMethod().getName());
-                // 执行下一个Advice
-                return invocation.proceed();
-            }
-        });
+        // 添加第一个Advice：记录每个方法的耗时
+        MethodLatencyInterceptor latencyInterceptor = new MethodLatencyInterceptor();
+        proxyFactory.addAdvice(latencyInterceptor);
         
         // 添加第二个Advice······
         
@@ -48,11 +66,18 @@ public class ProxyFactoryTest {
         userController.delete();
         userController.update();
         userController.find();
+        
+        List<MethodLatency> latencies = latencyInterceptor.getLatencies();
+        assertEquals(4, latencies.size());
+        for(MethodLatency latency : latencies) {
+            assertEquals(1, latency.getCount());
+            LOGGER.info("{}", latency);
+        }
     }
     
     
     @Test
-    public void testJdkProxy() {
+    public void testJdkProxy() throws Exception {
         
         // 设置输出代理类到指定路径   使用启动参数才有效
         //System.getProperties().put("sun.misc.ProxyGenerator.saveGeneratedFiles", "true"); 
@@ -65,21 +90,513 @@ public class ProxyFactoryTest {
         // 设置代理接口
         proxyFactory.setInterfaces(IUserService.class);
         
-        // 添加Advice
-        proxyFactory.addAdvice(new MethodInterceptor() {
+        // 添加Advisor：记录IUserService中方法的耗时
+        MethodLatencyAdvisor latencyAdvisor = new MethodLatencyAdvisor("execution(* cn.zzs.spring.IUserService+.*(..))");
+        proxyFactory.addAdvisor(latencyAdvisor);
+        IUserService userController = (IUserService)proxyFactory.getProxy();
+        
+        for(int i = 0; i < 100; i++) {
+            userController.save();
+            userController.delete();
+            userController.update();
+            userController.find();
+        }
+        
+        // JDK动态代理拿到的是接口中的方法
+        LatencyHistogram.Snapshot snapshot = latencyAdvisor.getInterceptor().getSnapshot(IUserService.class.getMethod("save"));
+        assertEquals(100, snapshot.getCount());
+        assertTrue(snapshot.getValueAtPercentile(99) <= snapshot.getMax());
+        LOGGER.info("IUserService.save()：{}", snapshot);
+        
+        // 通过JMX查看
+        MethodLatencyInterceptor latencyInterceptor = latencyAdvisor.getInterceptor();
+        latencyInterceptor.registerMBean("cn.zzs.spring:type=MethodLatency,name=userService");
+        try {
+            CompositeData[] latencies = (CompositeData[])ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName("cn.zzs.spring:type=MethodLatency,name=userService"), "Latencies");
+            assertEquals(4, latencies.length);
+            assertEquals("IUserService.delete()", latencies[0].get("method"));
+            assertEquals(100L, latencies[0].get("count"));
+        } finally {
+            latencyInterceptor.unregisterMBean();
+        }
+        
+        // 写入文件
+        Path dumpFile = Files.createTempFile("method-latency", ".txt");
+        try {
+            latencyInterceptor.dump(dumpFile.toString());
+            List<String> lines = Files.readAllLines(dumpFile);
+            assertEquals(5, lines.size());
+            assertTrue(lines.get(4).startsWith("IUserService.update()"));
+        } finally {
+            Files.delete(dumpFile);
+        }
+    }
+    
+    
+    /**
+     * 直方图按对数分段、段内线性分桶，百分位数的相对误差不超过1/64
+     * @author zzs
+     * @date 2026年10月19日 上午9:40:12 void
+     */
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(5_000_500, snapshot.getMean(), 0.1);
+        assertEquals(5_000_000, snapshot.getValueAtPercentile(50), 5_000_000 / 64);
+        assertEquals(9_900_000, snapshot.getValueAtPercentile(99), 9_900_000 / 64);
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+        
+        // 超出范围的值按最大值记录
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.snapshot().getMax());
+        
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+    
+    
+    /**
+     * 创建代理时算好每个方法的拦截器链：只有 save 方法有拦截器，其他方法直接调用目标对象
+     * @author zzs
+     * @date 2026年10月18日 下午11:38:21 void
+     */
+    @Test
+    public void testFixedChainCglibProxy() {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setAopProxyFactory(new FixedChainAopProxyFactory());
+        proxyFactory.setTarget(new UserService());
+        
+        // 只拦截save方法
+        AtomicInteger count = new AtomicInteger();
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new MethodInterceptor() {
             
             public Object invoke(MethodInvocation invocation) throws Throwable {
-                TimeUnit.SECONDS.sleep(1);
-                
+                count.incrementAndGet();
                 LOGGER.info("打印{}方法的日志", invocation.getMethod().getName());
                 return invocation.proceed();
             }
         });
+        advisor.setMappedName("save");
+        proxyFactory.addAdvisor(advisor);
+        
+        UserService userController = (UserService)proxyFactory.getProxy();
+        assertTrue(AopUtils.isCglibProxy(userController));
+        userController.save();
+        userController.delete();
+        userController.update();
+        userController.find();
+        assertEquals(1, count.get());
+        
+        // 代理配置相同的代理对象相等
+        assertEquals(userController, proxyFactory.getProxy());
+        assertEquals(1, ((Advised)userController).getAdvisors().length);
+    }
+    
+    
+    /**
+     * 同 testFixedChainCglibProxy，使用JDK动态代理
+     * @author zzs
+     * @date 2026年10月18日 下午11:38:21 void
+     */
+    @Test
+    public void testFixedChainJdkProxy() {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setAopProxyFactory(new FixedChainAopProxyFactory());
+        proxyFactory.setTarget(new UserService());
+        proxyFactory.setInterfaces(IUserService.class);
+        
+        AtomicInteger count = new AtomicInteger();
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new MethodInterceptor() {
+            
+            public Object invoke(MethodInvocation invocation) throws Throwable {
+                count.incrementAndGet();
+                LOGGER.info("打印{}方法的日志", invocation.getMethod().getName());
+                return invocation.proceed();
+            }
+        });
+        advisor.setMappedName("save");
+        proxyFactory.addAdvisor(advisor);
+        
+        IUserService userController = (IUserService)proxyFactory.getProxy();
+        assertTrue(AopUtils.isJdkDynamicProxy(userController));
+        userController.save();
+        userController.delete();
+        userController.update();
+        userController.find();
+        assertEquals(1, count.get());
+        
+        assertEquals(userController, proxyFactory.getProxy());
+        assertEquals(UserService.class, ((DecoratingProxy)userController).getDecoratedClass());
+    }
+    
+    
+    /**
+     * 没有拦截器的 protected 方法不能直接分派，和有拦截器的方法一样通过目标对象调用
+     * @author zzs
+     * @date 2026年10月19日 下午3:12:40 void
+     */
+    @Test
+    public void testFixedChainCglibProxyProtectedMethod() {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setAopProxyFactory(new FixedChainAopProxyFactory());
+        proxyFactory.setTarget(new ProtectedService("real"));
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new MethodInterceptor() {
+            
+            public Object invoke(MethodInvocation invocation) throws Throwable {
+                return invocation.proceed();
+            }
+        });
+        advisor.setMappedName("probe");
+        proxyFactory.addAdvisor(advisor);
+        
+        ProtectedService proxy = (ProtectedService)proxyFactory.getProxy();
+        assertTrue(AopUtils.isCglibProxy(proxy));
+        assertEquals("helper:real", proxy.helper());
+        assertEquals("helper:real", proxy.probe());
+    }
+    
+    
+    /**
+     * 有包级私有方法的类，代理类必须和目标类在同一个类加载器中，否则代理类覆盖不了包级私有方法，方法上的拦截器会失效
+     * @author zzs
+     * @date 2026年10月19日 下午3:12:40 void
+     */
+    @Test
+    public void testFixedChainCglibProxyPackagePrivateMethod() {
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setAopProxyFactory(new FixedChainAopProxyFactory());
+        proxyFactory.setTarget(new PackagePrivateService("real"));
+        AtomicInteger count = new AtomicInteger();
+        NameMatchMethodPointcutAdvisor advisor = new NameMatchMethodPointcutAdvisor(new MethodInterceptor() {
+            
+            public Object invoke(MethodInvocation invocation) throws Throwable {
+                count.incrementAndGet();
+                return invocation.proceed();
+            }
+        });
+        advisor.setMappedName("pkg");
+        proxyFactory.addAdvisor(advisor);
+        
+        PackagePrivateService proxy = (PackagePrivateService)proxyFactory.getProxy();
+        assertSame(PackagePrivateService.class.getClassLoader(), proxy.getClass().getClassLoader());
+        assertEquals("pkg:real", proxy.pkg());
+        assertEquals(1, count.get());
+    }
+    
+    
+    /**
+     * 打印日志的Advice放到其他线程执行，调用方不需要等待Advice执行完
+     * @author zzs
+     * @date 2026年10月19日 上午12:40:18 void
+     */
+    @Test
+    public void testAsyncAdvice() throws InterruptedException {
+        AsyncAdviceExecutor executor = new AsyncAdviceExecutor(1, 16, AsyncAdviceExecutor.OverflowPolicy.BLOCK);
+        
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(new UserService());
+        proxyFactory.setInterfaces(IUserService.class);
+        
+        // 添加Advice
+        CountDownLatch latch = new CountDownLatch(4);
+        proxyFactory.addAdvice(new AsyncAdviceInterceptor(new AsyncAdvice() {
+            
+            public void execute(Method method, Object[] args, Object target) throws Throwable {
+                TimeUnit.MILLISECONDS.sleep(200);
+                
+                LOGGER.info("打印{}方法的日志", method.getName());
+                latch.countDown();
+            }
+        }, executor));
+        IUserService userController = (IUserService)proxyFactory.getProxy();
+        
+        long start = System.nanoTime();
+        userController.save();
+        userController.delete();
+        userController.update();
+        userController.find();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+        
+        // Advice最终都会执行
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(4, executor.getSubmittedCount());
+        executor.shutdown();
+    }
+    
+    
+    /**
+     * 队列满了之后丢弃新提交的Advice
+     * @author zzs
+     * @date 2026年10月19日 上午12:40:18 void
+     */
+    @Test
+    public void testAsyncAdviceDropNewest() throws InterruptedException {
+        AsyncAdviceExecutor executor = new AsyncAdviceExecutor(1, 1, AsyncAdviceExecutor.OverflowPolicy.DROP_NEWEST);
+        
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(new UserService());
+        proxyFactory.setInterfaces(IUserService.class);
+        
+        // 第一个Advice阻塞线程，第二个Advice在队列中，之后的Advice都会被丢弃
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        proxyFactory.addAdvice(new AsyncAdviceInterceptor(new AsyncAdvice() {
+            
+            public void execute(Method method, Object[] args, Object target) throws Throwable {
+                started.countDown();
+                blocker.await();
+            }
+        }, executor));
         IUserService userController = (IUserService)proxyFactory.getProxy();
         
         userController.save();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
         userController.delete();
         userController.update();
         userController.find();
+        assertEquals(2, executor.getDroppedCount());
+        
+        blocker.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getCompletedCount());
+    }
+    
+    
+    /**
+     * 缓存get方法的返回值，save方法执行后缓存失效
+     * @author zzs
+     * @date 2026年10月19日 上午10:42:18 void
+     */
+    @Test
+    public void testCachingAdvisor() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(new UserService() {
+            
+            @Override
+            public User get(String id) {
+                count.incrementAndGet();
+                return super.get(id);
+            }
+        });
+        proxyFactory.setInterfaces(IUserService.class);
+        
+        CachingAdvisor advisor = new CachingAdvisor();
+        advisor.getInterceptor().setCachedMethodNames("get");
+        advisor.getInterceptor().setInvalidatingMethodNames("save", "update", "delete");
+        proxyFactory.addAdvisor(advisor);
+        IUserService userController = (IUserService)proxyFactory.getProxy();
+        
+        // 相同参数只调用一次目标方法
+        User user = userController.get("zzs001");
+        assertSame(user, userController.get("zzs001"));
+        assertEquals(1, count.get());
+        userController.get("zzs002");
+        assertEquals(2, count.get());
+        
+        // 写方法执行后重新调用目标方法
+        userController.save(user);
+        assertNotSame(user, userController.get("zzs001"));
+        assertEquals(3, count.get());
+        
+        // 其他方法不匹配切点
+        assertFalse(advisor.getPointcut().getMethodMatcher().matches(IUserService.class.getMethod("find"), UserService.class));
+    }
+    
+    
+    /**
+     * 多个线程同时查询同一个key时只调用一次目标方法，过期后重新调用
+     * @author zzs
+     * @date 2026年10月19日 上午10:48:06 void
+     */
+    @Test
+    public void testCachingSingleFlight() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(new UserService() {
+            
+            @Override
+            public User get(String id) {
+                count.incrementAndGet();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(200);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new User(id, 18);
+            }
+        });
+        CachingInterceptor interceptor = new CachingInterceptor();
+        interceptor.setCachedMethodNames("get");
+        interceptor.setTimeToLive(500, TimeUnit.MILLISECONDS);
+        proxyFactory.addAdvice(interceptor);
+        IUserService userController = (IUserService)proxyFactory.getProxy();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<User>> futures = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> userController.get("zzs001")));
+            }
+            User user = futures.get(0).get(5, TimeUnit.SECONDS);
+            for(Future<User> future : futures) {
+                assertSame(user, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, count.get());
+        } finally {
+            executor.shutdown();
+        }
+        
+        // 过期
+        TimeUnit.MILLISECONDS.sleep(600);
+        userController.get("zzs001");
+        assertEquals(2, count.get());
+    }
+    
+    
+    /**
+     * 多个线程同时获取同一个key时只加载一次：上一次加载已经放入缓存并移除了加载中的记录后，才开始加载的线程直接使用缓存的值
+     * @author zzs
+     * @date 2026年10月19日 上午10:51:17 void
+     */
+    @Test
+    public void testMemoizingCacheSingleLoad() throws Exception {
+        MemoizingCache<String, String> cache = new MemoizingCache<>(100, 0, TimeUnit.MILLISECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for(int round = 0; round < 200; round++) {
+                cache.invalidate("zzs001");
+                AtomicInteger loads = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<String>> futures = new ArrayList<>();
+                for(int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            return cache.get("zzs001", () -> "zzs001-" + loads.incrementAndGet());
+                        } catch(Throwable e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+                }
+                start.countDown();
+                for(Future<String> future : futures) {
+                    assertEquals("zzs001-1", future.get(5, TimeUnit.SECONDS));
+                }
+                assertEquals(1, loads.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    
+    /**
+     * 超出容量时按访问频率淘汰：经常访问的key不会被只访问一次的key挤出去。
+     * 加载期间失效的结果不放入缓存，加载过程中又获取同一个key时报错而不是一直等待
+     * @author zzs
+     * @date 2026年10月19日 上午10:53:40 void
+     */
+    @Test
+    public void testMemoizingCacheEviction() throws Throwable {
+        MemoizingCache<String, String> cache = new MemoizingCache<>(100, 0, TimeUnit.MILLISECONDS);
+        for(int i = 0; i < 100; i++) {
+            String key = "hot" + i;
+            for(int j = 0; j < 5; j++) {
+                cache.get(key, () -> key);
+            }
+        }
+        for(int i = 0; i < 1000; i++) {
+            String key = "cold" + i;
+            cache.get(key, () -> key);
+        }
+        assertTrue(cache.size() <= 100);
+        assertEquals(1000, cache.getEvictionCount());
+        
+        int hotCount = 0;
+        for(int i = 0; i < 100; i++) {
+            if(cache.getIfPresent("hot" + i) != null) {
+                hotCount++;
+            }
+        }
+        assertTrue(hotCount >= 90);
+        
+        // null同样会被缓存
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("null", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        cache.get("null", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        assertEquals(1, loads.get());
+        
+        // 加载期间失效，结果只返回给调用方
+        assertEquals("loaded", cache.get("invalidated", () -> {
+            cache.invalidate("invalidated");
+            return "loaded";
+        }));
+        assertNull(cache.getIfPresent("invalidated"));
+        
+        // 加载过程中又获取同一个key
+        try {
+            cache.get("recursive", () -> cache.get("recursive", () -> "inner"));
+            fail();
+        } catch(IllegalStateException e) {
+            LOGGER.info("重复加载失败：{}", e.getMessage());
+        }
+        assertNull(cache.getIfPresent("recursive"));
+        assertEquals("loaded", cache.get("recursive", () -> "loaded"));
+        
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+    
+    
+    /**
+     * 有 protected 方法的类，字段只有通过构造方法创建的目标对象才有值
+     */
+    public static class ProtectedService {
+        
+        private final String name;
+        
+        public ProtectedService(String name) {
+            this.name = name;
+        }
+        
+        public String probe() {
+            return helper();
+        }
+        
+        protected String helper() {
+            return "helper:" + name;
+        }
+    }
+    
+    
+    /**
+     * 有包级私有方法的类，字段只有通过构造方法创建的目标对象才有值
+     */
+    public static class PackagePrivateService {
+        
+        private final String name;
+        
+        public PackagePrivateService(String name) {
+            this.name = name;
+        }
+        
+        String pkg() {
+            return "pkg:" + name;
+        }
     }
 }
@@ -0,0 +1,266 @@
+package cn.zzs.spring;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * 记录 {@link OptimizedListableBeanFactory} 创建每个 bean 时各个阶段的耗时：
+ * 创建（createBean 整体）、实例化、属性装配、每个后置处理器和初始化方法。
+ * <p>运行环境支持 JFR 时，每个阶段同时发出一个 {@link BeanPhaseEvent} JFR 事件；也可以通过 {@link #writeReport(Writer)} 导出 CSV 格式的启动报告。
+ * <p>创建耗时包含了创建依赖 bean 的时间，自身耗时（self）减去了在当前线程中嵌套创建其他 bean 的时间，排查启动慢的 bean 时以自身耗时为准。
+ * <pre>
+ * BeanCreationInstrumentation instrumentation = new BeanCreationInstrumentation();
+ * beanFactory.setInstrumentation(instrumentation);
+ * beanFactory.preInstantiateSingletons();
+ * instrumentation.writeReport(writer);
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午3:05:21
+ */
+public class BeanCreationInstrumentation {
+
+    /**
+     * bean 创建的阶段
+     */
+    public enum Phase {
+        /** createBean 整体，包括下面所有阶段 */
+        CREATE,
+        /** 实例化 */
+        INSTANTIATE,
+        /** 属性装配，包括 InstantiationAwareBeanPostProcessor */
+        POPULATE,
+        /** 单个后置处理器 */
+        POST_PROCESS,
+        /** afterPropertiesSet 和自定义初始化方法 */
+        INIT
+    }
+
+    private static final String REPORT_HEADER = "beanName,count,totalMillis,selfMillis,instantiateMillis,populateMillis,postProcessMillis,initMillis,postProcessors";
+
+    private final ConcurrentMap<String, BeanTimings> timings = new ConcurrentHashMap<>(256);
+
+    /** 当前线程正在创建的 bean，每一层记录嵌套创建其他 bean 的耗时 */
+    private final ThreadLocal<Deque<long[]>> creationStack = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final BeanPhaseEvents events;
+
+
+    public BeanCreationInstrumentation() {
+        this(BeanPhaseEvents.load());
+    }
+
+    BeanCreationInstrumentation(BeanPhaseEvents events) {
+        super();
+        this.events = events;
+    }
+
+
+    /**
+     * 开始一个阶段
+     * @param beanName beanName
+     * @param phase 阶段
+     * @param postProcessor 后置处理器，只有 POST_PROCESS 阶段需要
+     * @return 需要传给 {@link #end(BeanPhase)} 的阶段
+     */
+    BeanPhase begin(String beanName, Phase phase, @Nullable Object postProcessor) {
+        String postProcessorName = postProcessor == null ? null : postProcessor.getClass().getName();
+        if(phase == Phase.CREATE) {
+            creationStack.get().push(new long[1]);
+        }
+        return new BeanPhase(beanName, phase, postProcessorName, events.begin(beanName, phase, postProcessorName));
+    }
+
+    /**
+     * 结束一个阶段，记录耗时并提交事件
+     * @param event {@link #begin(String, Phase, Object)} 返回的阶段
+     */
+    void end(BeanPhase event) {
+        long elapsed = System.nanoTime() - event.startNanos;
+        events.end(event.event);
+        BeanTimings beanTimings = timings.computeIfAbsent(event.beanName, BeanTimings::new);
+        switch(event.phase) {
+            case CREATE:
+                Deque<long[]> stack = creationStack.get();
+                long nested = stack.pop()[0];
+                if(!stack.isEmpty()) {
+                    stack.peek()[0] += elapsed;
+                } else {
+                    creationStack.remove();
+                }
+                beanTimings.count.increment();
+                beanTimings.totalNanos.add(elapsed);
+                beanTimings.selfNanos.add(elapsed - nested);
+                break;
+            case INSTANTIATE:
+                beanTimings.instantiateNanos.add(elapsed);
+                break;
+            case POPULATE:
+                beanTimings.populateNanos.add(elapsed);
+                break;
+            case POST_PROCESS:
+                beanTimings.postProcessNanos.add(elapsed);
+                beanTimings.postProcessors.computeIfAbsent(event.postProcessor, key -> new LongAdder()).add(elapsed);
+                break;
+            case INIT:
+                beanTimings.initNanos.add(elapsed);
+                break;
+            default:
+                throw new IllegalStateException("Unknown phase " + event.phase);
+        }
+    }
+
+    /**
+     * 获取所有 bean 的耗时，按自身耗时从大到小排序
+     */
+    public List<BeanTimings> getBeanTimings() {
+        List<BeanTimings> result = new ArrayList<>(timings.values());
+        result.sort(Comparator.comparingLong(BeanTimings::getSelfNanos).reversed());
+        return result;
+    }
+
+    /**
+     * 获取某个 bean 的耗时
+     * @return 耗时，没有创建过时返回 null
+     */
+    @Nullable
+    public BeanTimings getBeanTimings(String beanName) {
+        return timings.get(beanName);
+    }
+
+    /**
+     * 以 CSV 格式导出启动报告，按自身耗时从大到小排序，后置处理器的耗时以 类名=毫秒 的形式用分号隔开
+     * @param writer 输出
+     */
+    public void writeReport(Writer writer) throws IOException {
+        writer.write(REPORT_HEADER);
+        writer.write('\n');
+        for(BeanTimings beanTimings : getBeanTimings()) {
+            writer.write(beanTimings.toReportLine());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * 清空已经记录的耗时
+     */
+    public void reset() {
+        timings.clear();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * 一个 bean 累计的耗时，原型 bean 会累计多次创建
+     */
+    public static final class BeanTimings {
+
+        private final String beanName;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAdder selfNanos = new LongAdder();
+
+        private final LongAdder instantiateNanos = new LongAdder();
+
+        private final LongAdder populateNanos = new LongAdder();
+
+        private final LongAdder postProcessNanos = new LongAdder();
+
+        private final LongAdder initNanos = new LongAdder();
+
+        private final ConcurrentMap<String, LongAdder> postProcessors = new ConcurrentHashMap<>(8);
+
+
+        BeanTimings(String beanName) {
+            super();
+            this.beanName = beanName;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        /**
+         * 创建次数
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getSelfNanos() {
+            return selfNanos.sum();
+        }
+
+        public long getInstantiateNanos() {
+            return instantiateNanos.sum();
+        }
+
+        public long getPopulateNanos() {
+            return populateNanos.sum();
+        }
+
+        public long getPostProcessNanos() {
+            return postProcessNanos.sum();
+        }
+
+        public long getInitNanos() {
+            return initNanos.sum();
+        }
+
+        /**
+         * 每个后置处理器的耗时，key 为后置处理器的类名
+         */
+        public Map<String, Long> getPostProcessorNanos() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            postProcessors.forEach((name, nanos) -> result.put(name, nanos.sum()));
+            return Collections.unmodifiableMap(result);
+        }
+
+        String toReportLine() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(beanName).append(',')
+                    .append(getCount()).append(',')
+                    .append(millis(getTotalNanos())).append(',')
+                    .append(millis(getSelfNanos())).append(',')
+                    .append(millis(getInstantiateNanos())).append(',')
+                    .append(millis(getPopulateNanos())).append(',')
+                    .append(millis(getPostProcessNanos())).append(',')
+                    .append(millis(getInitNanos())).append(',');
+            String separator = "";
+            for(Map.Entry<String, Long> entry : getPostProcessorNanos().entrySet()) {
+                builder.append(separator).append(entry.getKey()).append('=').append(millis(entry.getValue()));
+                separator = ";";
+            }
+            return builder.toString();
+        }
+
+        @Override
+        public String toString() {
+            return toReportLine();
+        }
+    }
+}
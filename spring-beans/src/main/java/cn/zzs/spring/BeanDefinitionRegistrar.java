@@ -0,0 +1,18 @@
+package cn.zzs.spring;
+
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+
+/**
+ * 注册 beanDefinition 的代码。构建时由 BeanDefinitionSnapshot 调用，生成 beanDefinition 快照。
+ * <p>实现类需要有无参构造方法。
+ * @author zzs
+ * @date 2026年10月18日 下午10:02:36
+ */
+public interface BeanDefinitionRegistrar {
+
+    /**
+     * 注册 beanDefinition
+     * @param registry 注册中心
+     */
+    void registerBeanDefinitions(BeanDefinitionRegistry registry);
+}
@@ -0,0 +1,746 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * beanDefinition 快照，在构建时生成，启动时加载。
+ * <p>生成快照时，会把 beanDefinition 合并成 RootBeanDefinition，并提前完成以下工作：
+ * <p>1. 推断构造方法：构造方法自动装配时，选出可以满足的构造方法以及每个参数对应的 beanName；
+ * <p>2. 自动装配：byName 和 byType 自动装配的属性，提前找到对应的 beanName，改成属性引用；
+ * <p>3. 类型转换：字符串形式的属性值，按照属性的类型提前转换好。
+ * <p>加载快照时，通过内存映射读取文件，直接注册 RootBeanDefinition，已经推断好的构造方法通过 instanceSupplier 调用，
+ * 不再需要反射推断构造方法和查找自动装配的候选 bean。加载时只解析 beanClassName、scope、标记位等简单的字段，
+ * 构造方法、构造参数和属性值在第一次使用这个 beanDefinition 时才从内存映射中解析，没有用到的 bean 不会加载相关的类。
+ * <p>快照假定 beanDefinition 在构建后不会再变化，只支持简单的属性值（字符串、基本类型、bean 引用），
+ * 不支持方法注入、内部 bean、集合、attribute 和 qualifier，生成快照时遇到会直接报错。手动注册的单例不会写入快照。
+ * <p>构建时通过 mvn process-classes -Psnapshot 调用本类的 main 方法生成快照，写入 classpath 中的 {@link #DEFAULT_LOCATION}。
+ * 启动时通过 {@link #loadOrRegister(BeanDefinitionRegistrar, DefaultListableBeanFactory)} 注册 beanDefinition，
+ * 有同一个 registrar 生成的快照时加载快照，否则调用 registrar 注册。
+ * @author zzs
+ * @date 2026年10月18日 下午10:02:36
+ */
+public final class BeanDefinitionSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BeanDefinitionSnapshot.class);
+
+    /** 快照文件默认的位置 */
+    public static final String DEFAULT_LOCATION = "META-INF/bean-definitions.snapshot";
+
+    private static final int MAGIC = 0x5A5A5342;
+
+    private static final int VERSION = 3;
+
+    private static final int FLAG_PRIMARY = 1;
+
+    private static final int FLAG_LAZY_INIT = 1 << 1;
+
+    private static final int FLAG_AUTOWIRE_CANDIDATE = 1 << 2;
+
+    private static final int FLAG_NON_PUBLIC_ACCESS_ALLOWED = 1 << 3;
+
+    private static final int FLAG_LENIENT_CONSTRUCTOR_RESOLUTION = 1 << 4;
+
+    private static final int FLAG_SYNTHETIC = 1 << 5;
+
+    private static final int FLAG_ENFORCE_INIT_METHOD = 1 << 6;
+
+    private static final int FLAG_ENFORCE_DESTROY_METHOD = 1 << 7;
+
+    private static final byte VALUE_NULL = 0;
+
+    private static final byte VALUE_STRING = 1;
+
+    private static final byte VALUE_INT = 2;
+
+    private static final byte VALUE_LONG = 3;
+
+    private static final byte VALUE_BOOLEAN = 4;
+
+    private static final byte VALUE_DOUBLE = 5;
+
+    private static final byte VALUE_REFERENCE = 6;
+
+    /** 构造方法没有提前推断 */
+    private static final int UNRESOLVED_CONSTRUCTOR = -1;
+
+
+    private BeanDefinitionSnapshot() {
+        super();
+    }
+
+    /**
+     * 生成快照
+     * @param args 第一个参数为 BeanDefinitionRegistrar 的实现类，第二个参数为快照文件的路径
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length != 2) {
+            throw new IllegalArgumentException("Usage: BeanDefinitionSnapshot <registrarClassName> <outputFile>");
+        }
+        Class<?> registrarClass = ClassUtils.forName(args[0], ClassUtils.getDefaultClassLoader());
+        BeanDefinitionRegistrar registrar = (BeanDefinitionRegistrar)BeanUtils.instantiateClass(registrarClass);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        registrar.registerBeanDefinitions(beanFactory);
+
+        Path file = Paths.get(args[1]).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        int count = write(beanFactory, file, registrarClass.getName());
+        LOGGER.info("Wrote {} bean definitions from {} to {}", count, registrarClass.getName(), file);
+    }
+
+    /**
+     * 将 beanFactory 中注册的 beanDefinition 写入快照，抽象的 beanDefinition 只用于合并，不会写入
+     * @param beanFactory beanFactory
+     * @param file 快照文件
+     * @return 写入的 beanDefinition 数量
+     * @throws IOException 写文件失败
+     */
+    public static int write(DefaultListableBeanFactory beanFactory, Path file) throws IOException {
+        return write(beanFactory, file, null);
+    }
+
+    /**
+     * 将 beanFactory 中注册的 beanDefinition 写入快照，并记录是哪个 registrar 注册的
+     * @param registrarClassName 注册 beanDefinition 的 BeanDefinitionRegistrar，启动时只有同一个 registrar 才会加载这个快照
+     */
+    public static int write(DefaultListableBeanFactory beanFactory, Path file, @Nullable String registrarClassName) throws IOException {
+        List<String> beanNames = new ArrayList<>();
+        for(String beanName : beanFactory.getBeanDefinitionNames()) {
+            if(!beanFactory.getMergedBeanDefinition(beanName).isAbstract()) {
+                beanNames.add(beanName);
+            }
+        }
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, registrarClassName);
+            out.writeInt(beanNames.size());
+            for(String beanName : beanNames) {
+                writeBeanDefinition(out, beanFactory, beanName, (RootBeanDefinition)beanFactory.getMergedBeanDefinition(beanName));
+            }
+        }
+        return beanNames.size();
+    }
+
+    /**
+     * 通过内存映射读取快照，并将其中的 beanDefinition 注册到 beanFactory
+     * @param file 快照文件
+     * @param beanFactory beanFactory
+     * @return 注册的 beanDefinition 数量
+     * @throws IOException 读文件失败
+     */
+    public static int load(Path file, DefaultListableBeanFactory beanFactory) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(buffer, file);
+            return readBeanDefinitions(buffer, beanFactory);
+        }
+    }
+
+    /**
+     * 启动时注册 beanDefinition：classpath 中的 {@link #DEFAULT_LOCATION} 是同一个 registrar 生成的快照时加载快照，否则调用 registrar 注册。
+     * 快照在文件系统中时通过内存映射读取，在 jar 中时读入内存
+     * @param registrar 注册 beanDefinition 的代码
+     * @param beanFactory beanFactory
+     * @return 是否从快照中加载
+     * @throws IOException 读快照失败
+     */
+    public static boolean loadOrRegister(BeanDefinitionRegistrar registrar, DefaultListableBeanFactory beanFactory) throws IOException {
+        ClassLoader classLoader = beanFactory.getBeanClassLoader() != null ? beanFactory.getBeanClassLoader() : ClassUtils.getDefaultClassLoader();
+        URL url = classLoader == null ? ClassLoader.getSystemResource(DEFAULT_LOCATION) : classLoader.getResource(DEFAULT_LOCATION);
+        if(url == null) {
+            registrar.registerBeanDefinitions(beanFactory);
+            return false;
+        }
+        if(ResourceUtils.isFileURL(url)) {
+            Path file;
+            try {
+                file = Paths.get(ResourceUtils.toURI(url));
+            } catch(URISyntaxException e) {
+                throw new IOException("Invalid bean definition snapshot location: " + url, e);
+            }
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return loadOrRegister(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), url, registrar, beanFactory);
+            }
+        }
+        try(InputStream in = url.openStream()) {
+            return loadOrRegister(ByteBuffer.wrap(StreamUtils.copyToByteArray(in)), url, registrar, beanFactory);
+        }
+    }
+
+    private static boolean loadOrRegister(ByteBuffer buffer, Object source, BeanDefinitionRegistrar registrar, DefaultListableBeanFactory beanFactory) {
+        // 旧版本生成的快照不报错，直接调用 registrar
+        if(buffer.remaining() >= 8 && buffer.getInt(0) == MAGIC && buffer.getInt(4) != VERSION) {
+            LOGGER.debug("Ignoring bean definition snapshot {} of version {}", source, buffer.getInt(4));
+            registrar.registerBeanDefinitions(beanFactory);
+            return false;
+        }
+        String registrarClassName = readHeader(buffer, source);
+        if(!registrar.getClass().getName().equals(registrarClassName)) {
+            LOGGER.debug("Ignoring bean definition snapshot {} written by {}", source, registrarClassName);
+            registrar.registerBeanDefinitions(beanFactory);
+            return false;
+        }
+        readBeanDefinitions(buffer, beanFactory);
+        return true;
+    }
+
+    /**
+     * 校验文件头
+     * @return 生成快照的 registrar，未知时返回 null
+     */
+    @Nullable
+    private static String readHeader(ByteBuffer buffer, Object source) {
+        if(buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a bean definition snapshot: " + source);
+        }
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IllegalStateException("Unsupported bean definition snapshot version " + version + ": " + source);
+        }
+        return readString(buffer);
+    }
+
+    private static int readBeanDefinitions(ByteBuffer buffer, DefaultListableBeanFactory beanFactory) {
+        int count = buffer.getInt();
+        // beanDefinition 在第一次使用时才解析，可能在多个线程中同时解析
+        ConcurrentMap<Class<?>, BeanMethodHandles> methodHandlesCache = new ConcurrentHashMap<>();
+        for(int i = 0; i < count; i++) {
+            String beanName = readString(buffer);
+            beanFactory.registerBeanDefinition(beanName, readBeanDefinition(buffer, beanFactory, beanName, methodHandlesCache));
+        }
+        return count;
+    }
+
+    private static void writeBeanDefinition(DataOutputStream out, DefaultListableBeanFactory beanFactory, String beanName, RootBeanDefinition bd) throws IOException {
+        if(bd.hasMethodOverrides() || bd.getInstanceSupplier() != null) {
+            throw new IllegalStateException("Bean '" + beanName + "' uses method overrides or an instance supplier, which a snapshot cannot hold");
+        }
+        if(bd.attributeNames().length > 0 || !bd.getQualifiers().isEmpty()) {
+            throw new IllegalStateException("Bean '" + beanName + "' has attributes or qualifiers, which a snapshot cannot hold");
+        }
+        Class<?> beanClass = resolveBeanClass(beanFactory, beanName, bd);
+
+        // 自动装配的属性提前找到对应的 beanName，改成属性引用
+        MutablePropertyValues propertyValues = new MutablePropertyValues(bd.getPropertyValues());
+        int autowireMode = bd.getResolvedAutowireMode();
+        if(beanClass != null && (autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME || autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE)) {
+            resolveAutowiredProperties(beanFactory, beanName, beanClass, autowireMode, propertyValues);
+            autowireMode = AutowireCapableBeanFactory.AUTOWIRE_NO;
+        }
+
+        writeString(out, beanName);
+        writeString(out, bd.getBeanClassName());
+        writeString(out, bd.getScope());
+        int flags = 0;
+        flags |= bd.isPrimary() ? FLAG_PRIMARY : 0;
+        flags |= bd.isLazyInit() ? FLAG_LAZY_INIT : 0;
+        flags |= bd.isAutowireCandidate() ? FLAG_AUTOWIRE_CANDIDATE : 0;
+        flags |= bd.isNonPublicAccessAllowed() ? FLAG_NON_PUBLIC_ACCESS_ALLOWED : 0;
+        flags |= bd.isLenientConstructorResolution() ? FLAG_LENIENT_CONSTRUCTOR_RESOLUTION : 0;
+        flags |= bd.isSynthetic() ? FLAG_SYNTHETIC : 0;
+        flags |= bd.isEnforceInitMethod() ? FLAG_ENFORCE_INIT_METHOD : 0;
+        flags |= bd.isEnforceDestroyMethod() ? FLAG_ENFORCE_DESTROY_METHOD : 0;
+        out.writeByte(flags);
+        out.writeByte(autowireMode);
+        out.writeInt(bd.getRole());
+        out.writeInt(bd.getDependencyCheck());
+        writeString(out, bd.getDescription());
+        writeString(out, bd.getInitMethodName());
+        writeString(out, bd.getDestroyMethodName());
+        writeString(out, bd.getFactoryBeanName());
+        writeString(out, bd.getFactoryMethodName());
+        String[] dependsOn = bd.getDependsOn();
+        writeStrings(out, dependsOn == null ? new String[0] : dependsOn);
+
+        // 构造方法、构造参数和属性值写成一段带长度的数据，加载时先跳过，第一次使用时再解析
+        ByteArrayOutputStream lazyBytes = new ByteArrayOutputStream();
+        DataOutputStream lazyOut = new DataOutputStream(lazyBytes);
+        writeInstantiation(lazyOut, beanFactory, beanName, bd, beanClass, autowireMode, propertyValues);
+        lazyOut.flush();
+        out.writeInt(lazyBytes.size());
+        lazyBytes.writeTo(out);
+    }
+
+    private static void writeInstantiation(DataOutputStream out, DefaultListableBeanFactory beanFactory, String beanName, RootBeanDefinition bd,
+            @Nullable Class<?> beanClass, int autowireMode, MutablePropertyValues propertyValues) throws IOException {
+        // 推断好的构造方法：参数类型以及对应的 beanName
+        Constructor<?> constructor = null;
+        String[] constructorDependencies = null;
+        if(beanClass != null && bd.getFactoryMethodName() == null && !bd.hasConstructorArgumentValues()) {
+            if(autowireMode == AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR) {
+                for(Constructor<?> candidate : sortConstructors(beanClass.getDeclaredConstructors())) {
+                    if(!bd.isNonPublicAccessAllowed() && !Modifier.isPublic(candidate.getModifiers())) {
+                        continue;
+                    }
+                    constructorDependencies = resolveConstructorDependencies(beanFactory, beanName, candidate);
+                    if(constructorDependencies != null) {
+                        constructor = candidate;
+                        break;
+                    }
+                }
+            } else {
+                constructor = ClassUtils.getConstructorIfAvailable(beanClass);
+                constructorDependencies = new String[0];
+            }
+        }
+        if(constructor == null) {
+            out.writeInt(UNRESOLVED_CONSTRUCTOR);
+        } else {
+            out.writeInt(constructor.getParameterCount());
+            for(int i = 0; i < constructor.getParameterCount(); i++) {
+                writeString(out, constructor.getParameterTypes()[i].getName());
+                writeString(out, constructorDependencies[i]);
+            }
+        }
+
+        // 手动指定的构造参数
+        ConstructorArgumentValues constructorArgumentValues = bd.getConstructorArgumentValues();
+        out.writeInt(constructorArgumentValues.getIndexedArgumentValues().size());
+        for(Map.Entry<Integer, ValueHolder> entry : constructorArgumentValues.getIndexedArgumentValues().entrySet()) {
+            out.writeInt(entry.getKey());
+            writeValueHolder(out, beanName, entry.getValue());
+        }
+        out.writeInt(constructorArgumentValues.getGenericArgumentValues().size());
+        for(ValueHolder valueHolder : constructorArgumentValues.getGenericArgumentValues()) {
+            writeValueHolder(out, beanName, valueHolder);
+        }
+
+        // 属性值，字符串按属性类型提前转换好
+        SimpleTypeConverter typeConverter = new SimpleTypeConverter();
+        out.writeInt(propertyValues.size());
+        for(PropertyValue pv : propertyValues.getPropertyValueList()) {
+            writeString(out, pv.getName());
+            Object value = pv.getValue();
+            PropertyDescriptor propertyDescriptor = beanClass == null ? null : BeanUtils.getPropertyDescriptor(beanClass, pv.getName());
+            String stringValue = value instanceof TypedStringValue && !((TypedStringValue)value).hasTargetType() ? ((TypedStringValue)value).getValue()
+                    : value instanceof String ? (String)value : null;
+            if(stringValue != null && propertyDescriptor != null && isSnapshotType(propertyDescriptor.getPropertyType())) {
+                value = typeConverter.convertIfNecessary(stringValue, propertyDescriptor.getPropertyType());
+            }
+            writeValue(out, beanName, value);
+        }
+    }
+
+    private static RootBeanDefinition readBeanDefinition(ByteBuffer buffer, DefaultListableBeanFactory beanFactory, String beanName,
+            ConcurrentMap<Class<?>, BeanMethodHandles> methodHandlesCache) {
+        SnapshotBeanDefinition bd = new SnapshotBeanDefinition(beanFactory, beanName, methodHandlesCache);
+        bd.setBeanClassName(readString(buffer));
+        bd.setScope(readString(buffer));
+        int flags = buffer.get() & 0xFF;
+        bd.setPrimary((flags & FLAG_PRIMARY) != 0);
+        bd.setLazyInit((flags & FLAG_LAZY_INIT) != 0);
+        bd.setAutowireCandidate((flags & FLAG_AUTOWIRE_CANDIDATE) != 0);
+        bd.setNonPublicAccessAllowed((flags & FLAG_NON_PUBLIC_ACCESS_ALLOWED) != 0);
+        bd.setLenientConstructorResolution((flags & FLAG_LENIENT_CONSTRUCTOR_RESOLUTION) != 0);
+        bd.setSynthetic((flags & FLAG_SYNTHETIC) != 0);
+        bd.setEnforceInitMethod((flags & FLAG_ENFORCE_INIT_METHOD) != 0);
+        bd.setEnforceDestroyMethod((flags & FLAG_ENFORCE_DESTROY_METHOD) != 0);
+        bd.setAutowireMode(buffer.get());
+        bd.setRole(buffer.getInt());
+        bd.setDependencyCheck(buffer.getInt());
+        bd.setDescription(readString(buffer));
+        bd.setInitMethodName(readString(buffer));
+        bd.setDestroyMethodName(readString(buffer));
+        bd.setFactoryBeanName(readString(buffer));
+        bd.setFactoryMethodName(readString(buffer));
+        String[] dependsOn = readStrings(buffer);
+        if(dependsOn.length > 0) {
+            bd.setDependsOn(dependsOn);
+        }
+
+        int length = buffer.getInt();
+        bd.instantiation = buffer.slice();
+        // 转成 Buffer 调用，Java 8 的 ByteBuffer 没有返回 ByteBuffer 的 position(int)
+        ((Buffer)buffer).position(buffer.position() + length);
+        return bd;
+    }
+
+    /**
+     * 和 AbstractAutowireCapableBeanFactory.unsatisfiedNonSimpleProperties 一致：有 setter、没有手动赋值、不是简单类型的属性需要自动装配
+     */
+    private static void resolveAutowiredProperties(DefaultListableBeanFactory beanFactory, String beanName, Class<?> beanClass, int autowireMode,
+            MutablePropertyValues propertyValues) {
+        for(PropertyDescriptor propertyDescriptor : BeanUtils.getPropertyDescriptors(beanClass)) {
+            String propertyName = propertyDescriptor.getName();
+            if(propertyDescriptor.getWriteMethod() == null || propertyValues.contains(propertyName)
+                    || BeanUtils.isSimpleProperty(propertyDescriptor.getPropertyType())) {
+                continue;
+            }
+            String dependency = null;
+            if(autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME) {
+                dependency = !propertyName.equals(beanName) && beanFactory.containsBean(propertyName) ? propertyName : null;
+            } else if(propertyDescriptor.getPropertyType() != Object.class) {
+                dependency = resolveAutowireCandidate(beanFactory, beanName, propertyDescriptor.getPropertyType());
+            }
+            if(dependency != null) {
+                propertyValues.add(propertyName, new RuntimeBeanReference(dependency));
+            }
+        }
+    }
+
+    /**
+     * 构造方法的每个参数都能找到唯一的候选 bean 时，返回对应的 beanName，否则返回 null
+     */
+    @Nullable
+    private static String[] resolveConstructorDependencies(DefaultListableBeanFactory beanFactory, String beanName, Constructor<?> constructor) {
+        String[] dependencies = new String[constructor.getParameterCount()];
+        for(int i = 0; i < dependencies.length; i++) {
+            dependencies[i] = resolveAutowireCandidate(beanFactory, beanName, constructor.getParameterTypes()[i]);
+            if(dependencies[i] == null) {
+                return null;
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * 排除自己以及 autowireCandidate 为 false 的 bean 后，只有一个候选或者有且只有一个 primary 的候选时返回，否则返回 null
+     */
+    @Nullable
+    private static String resolveAutowireCandidate(DefaultListableBeanFactory beanFactory, String beanName, Class<?> type) {
+        List<String> candidates = new ArrayList<>();
+        for(String candidate : beanFactory.getBeanNamesForType(type, true, false)) {
+            if(!candidate.equals(beanName) && (!beanFactory.containsBeanDefinition(candidate) || beanFactory.getMergedBeanDefinition(candidate).isAutowireCandidate())) {
+                candidates.add(candidate);
+            }
+        }
+        if(candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        String primaryCandidate = null;
+        for(String candidate : candidates) {
+            if(beanFactory.containsBeanDefinition(candidate) && beanFactory.getMergedBeanDefinition(candidate).isPrimary()) {
+                if(primaryCandidate != null) {
+                    return null;
+                }
+                primaryCandidate = candidate;
+            }
+        }
+        return primaryCandidate;
+    }
+
+    /**
+     * 和 AutowireUtils.sortConstructors 一致：public 的在前，参数多的在前
+     */
+    private static Constructor<?>[] sortConstructors(Constructor<?>[] constructors) {
+        Arrays.sort(constructors, Comparator.<Constructor<?>, Boolean>comparing(constructor -> !Modifier.isPublic(constructor.getModifiers()))
+                .thenComparing(Comparator.<Constructor<?>>comparingInt(Constructor::getParameterCount).reversed()));
+        return constructors;
+    }
+
+    @Nullable
+    private static Class<?> resolveBeanClass(DefaultListableBeanFactory beanFactory, String beanName, RootBeanDefinition bd) {
+        if(bd.hasBeanClass()) {
+            return bd.getBeanClass();
+        }
+        return bd.getBeanClassName() == null ? null : forName(beanFactory, bd.getBeanClassName());
+    }
+
+    private static Class<?> forName(DefaultListableBeanFactory beanFactory, String className) {
+        try {
+            return ClassUtils.forName(className, beanFactory.getBeanClassLoader());
+        } catch(ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("Could not load class [" + className + "]", e);
+        }
+    }
+
+    /**
+     * 属性类型为这些类型时，字符串形式的属性值可以提前转换
+     */
+    private static boolean isSnapshotType(Class<?> type) {
+        Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+        return wrapperType == String.class || wrapperType == Integer.class || wrapperType == Long.class
+                || wrapperType == Boolean.class || wrapperType == Double.class;
+    }
+
+    private static void writeValueHolder(DataOutputStream out, String beanName, ValueHolder valueHolder) throws IOException {
+        writeString(out, valueHolder.getType());
+        writeString(out, valueHolder.getName());
+        writeValue(out, beanName, valueHolder.getValue());
+    }
+
+    private static ValueHolder readValueHolder(ByteBuffer buffer) {
+        String type = readString(buffer);
+        String name = readString(buffer);
+        return new ValueHolder(readValue(buffer), type, name);
+    }
+
+    private static void writeValue(DataOutputStream out, String beanName, @Nullable Object value) throws IOException {
+        if(value instanceof TypedStringValue && !((TypedStringValue)value).hasTargetType()) {
+            value = ((TypedStringValue)value).getValue();
+        }
+        if(value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if(value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, (String)value);
+        } else if(value instanceof Integer) {
+            out.writeByte(VALUE_INT);
+            out.writeInt((Integer)value);
+        } else if(value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long)value);
+        } else if(value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if(value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double)value);
+        } else if(value instanceof RuntimeBeanReference) {
+            out.writeByte(VALUE_REFERENCE);
+            writeString(out, ((RuntimeBeanReference)value).getBeanName());
+        } else {
+            throw new IllegalStateException("Bean '" + beanName + "' has a value of type [" + value.getClass().getName() + "], which a snapshot cannot hold");
+        }
+    }
+
+    @Nullable
+    private static Object readValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch(type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(buffer);
+            case VALUE_INT:
+                return buffer.getInt();
+            case VALUE_LONG:
+                return buffer.getLong();
+            case VALUE_BOOLEAN:
+                return buffer.get() != 0;
+            case VALUE_DOUBLE:
+                return buffer.getDouble();
+            case VALUE_REFERENCE:
+                return new RuntimeBeanReference(readString(buffer));
+            default:
+                throw new IllegalStateException("Corrupted bean definition snapshot, unknown value type " + type);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for(String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = readString(buffer);
+        }
+        return values;
+    }
+
+    /**
+     * 字符串写成长度 + UTF-8 字节，null 的长度为 -1
+     */
+    private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 从快照中加载的 beanDefinition，构造方法、构造参数和属性值在第一次访问时才解析
+     */
+    @SuppressWarnings("serial")
+    private static class SnapshotBeanDefinition extends RootBeanDefinition {
+
+        private final DefaultListableBeanFactory beanFactory;
+
+        private final String beanName;
+
+        private final ConcurrentMap<Class<?>, BeanMethodHandles> methodHandlesCache;
+
+        /** 还没有解析的数据，解析后置为 null */
+        @Nullable
+        private volatile ByteBuffer instantiation;
+
+
+        SnapshotBeanDefinition(DefaultListableBeanFactory beanFactory, String beanName, ConcurrentMap<Class<?>, BeanMethodHandles> methodHandlesCache) {
+            super();
+            this.beanFactory = beanFactory;
+            this.beanName = beanName;
+            this.methodHandlesCache = methodHandlesCache;
+        }
+
+        @Override
+        @Nullable
+        public Supplier<?> getInstanceSupplier() {
+            decode();
+            return super.getInstanceSupplier();
+        }
+
+        @Override
+        public ConstructorArgumentValues getConstructorArgumentValues() {
+            decode();
+            return super.getConstructorArgumentValues();
+        }
+
+        @Override
+        public boolean hasConstructorArgumentValues() {
+            decode();
+            return super.hasConstructorArgumentValues();
+        }
+
+        @Override
+        public MutablePropertyValues getPropertyValues() {
+            decode();
+            return super.getPropertyValues();
+        }
+
+        @Override
+        public boolean hasPropertyValues() {
+            decode();
+            return super.hasPropertyValues();
+        }
+
+        private void decode() {
+            if(instantiation == null) {
+                return;
+            }
+            synchronized(this) {
+                ByteBuffer buffer = instantiation;
+                if(buffer != null) {
+                    readInstantiation(buffer);
+                    instantiation = null;
+                }
+            }
+        }
+
+        private void readInstantiation(ByteBuffer buffer) {
+            int parameterCount = buffer.getInt();
+            if(parameterCount != UNRESOLVED_CONSTRUCTOR) {
+                Class<?> beanClass = forName(beanFactory, getBeanClassName());
+                Class<?>[] parameterTypes = new Class<?>[parameterCount];
+                String[] dependencies = new String[parameterCount];
+                for(int i = 0; i < parameterCount; i++) {
+                    parameterTypes[i] = forName(beanFactory, readString(buffer));
+                    dependencies[i] = readString(buffer);
+                }
+                Constructor<?> constructor;
+                try {
+                    constructor = beanClass.getDeclaredConstructor(parameterTypes);
+                } catch(NoSuchMethodException e) {
+                    throw new IllegalStateException("Bean definition snapshot is out of date, constructor not found for bean '" + beanName + "'", e);
+                }
+                MethodHandle constructorHandle = methodHandlesCache.computeIfAbsent(beanClass, BeanMethodHandles::new).getConstructor(constructor);
+                setInstanceSupplier(new ConstructorInstanceSupplier(beanFactory, beanName, constructorHandle, dependencies));
+            }
+
+            ConstructorArgumentValues constructorArgumentValues = super.getConstructorArgumentValues();
+            int indexedArgumentCount = buffer.getInt();
+            for(int i = 0; i < indexedArgumentCount; i++) {
+                constructorArgumentValues.addIndexedArgumentValue(buffer.getInt(), readValueHolder(buffer));
+            }
+            int genericArgumentCount = buffer.getInt();
+            for(int i = 0; i < genericArgumentCount; i++) {
+                constructorArgumentValues.addGenericArgumentValue(readValueHolder(buffer));
+            }
+
+            MutablePropertyValues propertyValues = super.getPropertyValues();
+            int propertyCount = buffer.getInt();
+            for(int i = 0; i < propertyCount; i++) {
+                propertyValues.add(readString(buffer), readValue(buffer));
+            }
+        }
+    }
+
+    /**
+     * 使用快照中推断好的构造方法创建 bean，构造参数通过 beanName 直接获取
+     */
+    private static class ConstructorInstanceSupplier implements Supplier<Object> {
+
+        private final DefaultListableBeanFactory beanFactory;
+
+        private final String beanName;
+
+        private final MethodHandle constructor;
+
+        private final String[] dependencies;
+
+
+        ConstructorInstanceSupplier(DefaultListableBeanFactory beanFactory, String beanName, MethodHandle constructor, String[] dependencies) {
+            super();
+            this.beanFactory = beanFactory;
+            this.beanName = beanName;
+            this.constructor = constructor;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public Object get() {
+            Object[] args = new Object[dependencies.length];
+            for(int i = 0; i < dependencies.length; i++) {
+                args[i] = beanFactory.getBean(dependencies[i]);
+                beanFactory.registerDependentBean(dependencies[i], beanName);
+            }
+            try {
+                return (Object)constructor.invokeExact(args);
+            } catch(Throwable ex) {
+                throw new BeanCreationException(beanName, "Constructor threw exception", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.lang.Nullable;
+
+/**
+ * 根据已注册的 beanDefinition 推算出来的 bean 依赖图。
+ * <p>依赖来源包括：dependsOn、factoryBeanName、属性和构造参数中的 bean 引用（包括内部 bean 和集合中的引用），
+ * 以及自动装配（byName、byType、constructor）可能用到的候选 bean。自动装配的依赖是按照 setter 和构造方法推算的，只会多不会少。
+ * <p>依赖分为两种：必须先创建完成的强依赖（dependsOn、factoryBean、构造参数），以及可以通过提前暴露的引用解决的属性依赖。
+ * <p>构建时会使用 Tarjan 算法计算强连通分量，按依赖在前的顺序排列，包含多个 bean 的强连通分量就是循环依赖。
+ * @author zzs
+ * @date 2026年10月18日 下午7:48:03
+ */
+public final class BeanDependencyGraph {
+
+    private final String[] beanNames;
+
+    private final Map<String, Integer> ids;
+
+    /** 每个 bean 依赖的 bean */
+    private final int[][] dependencies;
+
+    /** 和 dependencies 一一对应，是否强依赖 */
+    private final boolean[][] hardDependencies;
+
+    /** 强连通分量，依赖在前 */
+    private final int[][] components;
+
+    private final int[] componentOf;
+
+
+    private BeanDependencyGraph(String[] beanNames, Map<String, Integer> ids, int[][] dependencies, boolean[][] hardDependencies) {
+        super();
+        this.beanNames = beanNames;
+        this.ids = ids;
+        this.dependencies = dependencies;
+        this.hardDependencies = hardDependencies;
+        this.componentOf = new int[beanNames.length];
+        this.components = computeComponents();
+    }
+
+    /**
+     * bean 的数量
+     */
+    public int size() {
+        return beanNames.length;
+    }
+
+    /**
+     * 获取 bean 在依赖图中的 id
+     * @return id，不存在时返回 -1
+     */
+    public int getId(String beanName) {
+        Integer id = ids.get(beanName);
+        return id == null ? -1 : id;
+    }
+
+    public String getBeanName(int id) {
+        return beanNames[id];
+    }
+
+    /**
+     * 获取 bean 依赖的 bean
+     * @param beanName beanName
+     * @return 依赖的 beanName
+     */
+    public List<String> getDependencies(String beanName) {
+        int id = getId(beanName);
+        if(id < 0) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>(dependencies[id].length);
+        for(int dependency : dependencies[id]) {
+            result.add(beanNames[dependency]);
+        }
+        return result;
+    }
+
+    /**
+     * 是否强依赖，即 dependency 必须在 beanName 之前创建完成
+     */
+    public boolean isHardDependency(String beanName, String dependency) {
+        int id = getId(beanName);
+        int dependencyId = getId(dependency);
+        if(id < 0 || dependencyId < 0) {
+            return false;
+        }
+        for(int i = 0; i < dependencies[id].length; i++) {
+            if(dependencies[id][i] == dependencyId) {
+                return hardDependencies[id][i];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取所有循环依赖，每个元素是一个强连通分量中的 beanName
+     */
+    public List<List<String>> getCycles() {
+        List<List<String>> cycles = new ArrayList<>();
+        for(int[] component : components) {
+            if(component.length > 1) {
+                List<String> cycle = new ArrayList<>(component.length);
+                for(int id : component) {
+                    cycle.add(beanNames[id]);
+                }
+                cycles.add(cycle);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * bean 是否处于循环依赖中
+     */
+    public boolean isInCycle(String beanName) {
+        int id = getId(beanName);
+        return id >= 0 && components[componentOf[id]].length > 1;
+    }
+
+    /**
+     * 强连通分量，依赖在前
+     */
+    int[][] getComponents() {
+        return components;
+    }
+
+    /**
+     * 获取 bean 所在的强连通分量的下标
+     */
+    int getComponentOf(int id) {
+        return componentOf[id];
+    }
+
+    int[] getDependencies(int id) {
+        return dependencies[id];
+    }
+
+    boolean[] getHardDependencies(int id) {
+        return hardDependencies[id];
+    }
+
+    /**
+     * 非递归的 Tarjan 算法。强连通分量在其依赖的强连通分量都输出之后才会输出，所以结果天然是依赖在前的顺序
+     */
+    private int[][] computeComponents() {
+        int n = beanNames.length;
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callStack = new int[n];
+        int[] edgeCursor = new int[n];
+        int counter = 0;
+        List<int[]> result = new ArrayList<>();
+
+        for(int root = 0; root < n; root++) {
+            if(index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while(depth > 0) {
+                int node = callStack[depth - 1];
+                if(edgeCursor[node] < dependencies[node].length) {
+                    int next = dependencies[node][edgeCursor[node]++];
+                    if(index[next] < 0) {
+                        index[next] = lowLink[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callStack[depth++] = next;
+                    } else if(onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+                depth--;
+                if(depth > 0) {
+                    int parent = callStack[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if(lowLink[node] == index[node]) {
+                    int end = stackSize;
+                    do {
+                        onStack[stack[--stackSize]] = false;
+                    } while(stack[stackSize] != node);
+                    int[] component = Arrays.copyOfRange(stack, stackSize, end);
+                    // 保持注册顺序
+                    Arrays.sort(component);
+                    for(int member : component) {
+                        componentOf[member] = result.size();
+                    }
+                    result.add(component);
+                }
+            }
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    /**
+     * 根据 beanFactory 中已注册的 beanDefinition 构建依赖图
+     * @param beanFactory beanFactory
+     * @return 依赖图
+     */
+    public static BeanDependencyGraph build(DefaultListableBeanFactory beanFactory) {
+        return build(beanFactory, BeanTypeIndex.build(beanFactory));
+    }
+
+    /**
+     * 根据 beanFactory 中已注册的 beanDefinition 构建依赖图，byType 和构造方法自动装配的候选 bean 从类型索引中获取，
+     * 不再为每个属性调用一次 getBeanNamesForType 遍历所有 beanDefinition
+     * @param beanFactory beanFactory
+     * @param typeIndex 根据同一个 beanFactory 构建的类型索引
+     * @return 依赖图
+     */
+    public static BeanDependencyGraph build(DefaultListableBeanFactory beanFactory, BeanTypeIndex typeIndex) {
+        String[] beanNames = beanFactory.getBeanDefinitionNames();
+        Map<String, Integer> ids = new HashMap<>(beanNames.length * 2);
+        for(int i = 0; i < beanNames.length; i++) {
+            ids.put(beanNames[i], i);
+        }
+        int[][] dependencies = new int[beanNames.length][];
+        boolean[][] hardDependencies = new boolean[beanNames.length][];
+        for(int i = 0; i < beanNames.length; i++) {
+            // 依赖的 id 到是否强依赖，同一个依赖只要有一处是强依赖就是强依赖
+            Map<Integer, Boolean> collector = new LinkedHashMap<>();
+            new DependencyCollector(beanFactory, typeIndex, ids, i, collector).collect(beanFactory.getMergedBeanDefinition(beanNames[i]));
+            dependencies[i] = new int[collector.size()];
+            hardDependencies[i] = new boolean[collector.size()];
+            int j = 0;
+            for(Map.Entry<Integer, Boolean> entry : collector.entrySet()) {
+                dependencies[i][j] = entry.getKey();
+                hardDependencies[i][j] = entry.getValue();
+                j++;
+            }
+        }
+        return new BeanDependencyGraph(beanNames, ids, dependencies, hardDependencies);
+    }
+
+    /**
+     * 收集一个 beanDefinition 的依赖
+     */
+    private static class DependencyCollector {
+
+        private final DefaultListableBeanFactory beanFactory;
+
+        private final BeanTypeIndex typeIndex;
+
+        private final Map<String, Integer> ids;
+
+        private final int self;
+
+        private final Map<Integer, Boolean> collector;
+
+
+        DependencyCollector(DefaultListableBeanFactory beanFactory, BeanTypeIndex typeIndex, Map<String, Integer> ids, int self,
+                Map<Integer, Boolean> collector) {
+            super();
+            this.beanFactory = beanFactory;
+            this.typeIndex = typeIndex;
+            this.ids = ids;
+            this.self = self;
+            this.collector = collector;
+        }
+
+        void collect(BeanDefinition beanDefinition) {
+            if(beanDefinition.getDependsOn() != null) {
+                for(String dependsOn : beanDefinition.getDependsOn()) {
+                    add(dependsOn, true);
+                }
+            }
+            if(beanDefinition.getFactoryBeanName() != null) {
+                add(beanDefinition.getFactoryBeanName(), true);
+            }
+            for(ValueHolder valueHolder : beanDefinition.getConstructorArgumentValues().getIndexedArgumentValues().values()) {
+                collectValue(valueHolder.getValue(), true);
+            }
+            for(ValueHolder valueHolder : beanDefinition.getConstructorArgumentValues().getGenericArgumentValues()) {
+                collectValue(valueHolder.getValue(), true);
+            }
+            for(PropertyValue propertyValue : beanDefinition.getPropertyValues().getPropertyValues()) {
+                collectValue(propertyValue.getValue(), false);
+            }
+            if(beanDefinition instanceof AbstractBeanDefinition) {
+                collectAutowired((AbstractBeanDefinition)beanDefinition);
+            }
+        }
+
+        private void collectValue(@Nullable Object value, boolean hard) {
+            if(value instanceof RuntimeBeanReference) {
+                add(((RuntimeBeanReference)value).getBeanName(), hard);
+            } else if(value instanceof BeanDefinitionHolder) {
+                // 内部 bean 在外部 bean 装配时创建，它的依赖都算作外部 bean 的依赖
+                collect(((BeanDefinitionHolder)value).getBeanDefinition());
+            } else if(value instanceof BeanDefinition) {
+                collect((BeanDefinition)value);
+            } else if(value instanceof Collection) {
+                for(Object element : (Collection<?>)value) {
+                    collectValue(element, hard);
+                }
+            } else if(value instanceof Map) {
+                for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                    collectValue(entry.getKey(), hard);
+                    collectValue(entry.getValue(), hard);
+                }
+            } else if(value instanceof Object[]) {
+                for(Object element : (Object[])value) {
+                    collectValue(element, hard);
+                }
+            }
+        }
+
+        private void collectAutowired(AbstractBeanDefinition beanDefinition) {
+            int autowireMode = beanDefinition.getResolvedAutowireMode();
+            if(autowireMode == AbstractBeanDefinition.AUTOWIRE_NO) {
+                return;
+            }
+            Class<?> beanClass = resolveBeanClass(beanDefinition);
+            if(beanClass == null) {
+                return;
+            }
+            if(autowireMode == AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR) {
+                // 不知道最终会选中哪个构造方法，所以把所有构造方法的参数都算上
+                for(java.lang.reflect.Constructor<?> constructor : beanClass.getDeclaredConstructors()) {
+                    for(int i = 0; i < constructor.getParameterCount(); i++) {
+                        addCandidates(ResolvableType.forConstructorParameter(constructor, i), true);
+                    }
+                }
+                return;
+            }
+            for(PropertyDescriptor propertyDescriptor : BeanUtils.getPropertyDescriptors(beanClass)) {
+                if(propertyDescriptor.getWriteMethod() == null || BeanUtils.isSimpleProperty(propertyDescriptor.getPropertyType())
+                        || beanDefinition.getPropertyValues().contains(propertyDescriptor.getName())) {
+                    continue;
+                }
+                if(autowireMode == AbstractBeanDefinition.AUTOWIRE_BY_NAME) {
+                    add(propertyDescriptor.getName(), false);
+                } else if(autowireMode == AbstractBeanDefinition.AUTOWIRE_BY_TYPE && Object.class != propertyDescriptor.getPropertyType()) {
+                    addCandidates(ResolvableType.forMethodParameter(new MethodParameter(propertyDescriptor.getWriteMethod(), 0)), false);
+                }
+            }
+        }
+
+        private void addCandidates(ResolvableType type, boolean hard) {
+            Class<?> candidateType = type.isArray() ? type.getComponentType().resolve()
+                    : type.asCollection() != ResolvableType.NONE ? type.asCollection().resolveGeneric(0)
+                    : type.asMap() != ResolvableType.NONE ? type.asMap().resolveGeneric(1)
+                    : type.resolve();
+            if(candidateType == null || Object.class == candidateType || BeanUtils.isSimpleProperty(candidateType)) {
+                return;
+            }
+            for(String candidate : typeIndex.getCandidateNames(candidateType)) {
+                add(candidate, hard);
+            }
+        }
+
+        @Nullable
+        private Class<?> resolveBeanClass(AbstractBeanDefinition beanDefinition) {
+            if(beanDefinition.hasBeanClass()) {
+                return beanDefinition.getBeanClass();
+            }
+            if(beanDefinition.getBeanClassName() == null) {
+                return null;
+            }
+            try {
+                return beanDefinition.resolveBeanClass(beanFactory.getBeanClassLoader());
+            } catch(ClassNotFoundException | LinkageError e) {
+                return null;
+            }
+        }
+
+        private void add(String beanName, boolean hard) {
+            String canonicalName = beanFactory.canonicalName(BeanFactoryUtils.transformedBeanName(beanName));
+            Integer id = ids.get(canonicalName);
+            if(id == null || id == self) {
+                return;
+            }
+            collector.merge(id, hard, Boolean::logicalOr);
+        }
+    }
+}
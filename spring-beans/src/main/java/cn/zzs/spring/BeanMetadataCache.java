@@ -0,0 +1,276 @@
+package cn.zzs.spring;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * 可以被多个 beanFactory 共用的类元数据缓存：排好序的构造方法、构造方法和方法的参数名、构造方法/setter/初始化方法的 MethodHandle。
+ * 同一个类在不同的 beanFactory 中只解析一次，适合为每个租户创建一个 beanFactory 的场景。
+ * <p>缓存基于 ClassValue，元数据的生命周期跟随类本身，类卸载时自动释放，不会因为缓存而导致类加载器泄漏。
+ * 超过最大数量时按加入的先后顺序淘汰，也可以按类或者类加载器主动淘汰。数量和命中统计是近似值。
+ * <p>属性描述符（PropertyDescriptor）已经由 Spring 的 CachedIntrospectionResults 在进程内共享，这里不再缓存。
+ * <pre>
+ * beanFactory.setMetadataCache(BeanMetadataCache.getSharedInstance());
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午5:31:20
+ */
+public final class BeanMetadataCache implements ParameterNameDiscoverer {
+
+    /** 默认最多缓存的类的数量 */
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private static final BeanMetadataCache SHARED_INSTANCE = new BeanMetadataCache(DEFAULT_MAXIMUM_SIZE);
+
+    /** 和 AutowireUtils.sortConstructors 一致：public 的在前，参数多的在前 */
+    private static final Comparator<Constructor<?>> CONSTRUCTOR_ORDER = (c1, c2) -> {
+        int result = Boolean.compare(Modifier.isPublic(c2.getModifiers()), Modifier.isPublic(c1.getModifiers()));
+        return result != 0 ? result : Integer.compare(c2.getParameterCount(), c1.getParameterCount());
+    };
+
+    private final int maximumSize;
+
+    private final ClassValue<ClassMetadata> metadata = new ClassValue<ClassMetadata>() {
+
+        @Override
+        protected ClassMetadata computeValue(Class<?> type) {
+            misses.increment();
+            ClassMetadata classMetadata = new ClassMetadata(type);
+            track(type);
+            return classMetadata;
+        }
+    };
+
+    /** 已缓存的类，按加入的先后顺序，用来淘汰 */
+    private final Queue<WeakReference<Class<?>>> cachedTypes = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * @param maximumSize 最多缓存的类的数量
+     */
+    public BeanMetadataCache(int maximumSize) {
+        super();
+        Assert.isTrue(maximumSize > 0, "Maximum size must be greater than 0");
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * 获取进程内共享的缓存，最多缓存 {@link #DEFAULT_MAXIMUM_SIZE} 个类
+     */
+    public static BeanMetadataCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * 获取排好序的构造方法，和 ConstructorResolver 中的候选构造方法一致
+     * @param type bean 的类型
+     * @param nonPublicAccessAllowed 是否包括非 public 的构造方法
+     * @return 构造方法，每次返回新的数组，调用方可以修改
+     */
+    public Constructor<?>[] getConstructors(Class<?> type, boolean nonPublicAccessAllowed) {
+        return get(type).getConstructors(nonPublicAccessAllowed).clone();
+    }
+
+    /**
+     * 获取类对应的 MethodHandle
+     * @param type bean 的类型
+     * @return MethodHandle
+     */
+    public BeanMethodHandles getMethodHandles(Class<?> type) {
+        return get(type).getMethodHandles();
+    }
+
+    @Override
+    @Nullable
+    public String[] getParameterNames(Method method) {
+        return get(method.getDeclaringClass()).getParameterNameDiscoverer().getParameterNames(method);
+    }
+
+    @Override
+    @Nullable
+    public String[] getParameterNames(Constructor<?> ctor) {
+        return get(ctor.getDeclaringClass()).getParameterNameDiscoverer().getParameterNames(ctor);
+    }
+
+    /**
+     * 淘汰一个类的元数据
+     * @param type 类
+     */
+    public void evict(Class<?> type) {
+        if(cachedTypes.removeIf(reference -> reference.get() == type)) {
+            metadata.remove(type);
+            size.decrementAndGet();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 淘汰某个类加载器加载的所有类的元数据，例如租户下线时
+     * @param classLoader 类加载器
+     */
+    public void evict(ClassLoader classLoader) {
+        evictIf(type -> type.getClassLoader() == classLoader);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        evictIf(type -> true);
+    }
+
+    /**
+     * 缓存的类的数量
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private ClassMetadata get(Class<?> type) {
+        requests.increment();
+        return metadata.get(type);
+    }
+
+    private void track(Class<?> type) {
+        cachedTypes.add(new WeakReference<>(type));
+        if(size.incrementAndGet() <= maximumSize) {
+            return;
+        }
+        while(size.get() > maximumSize) {
+            WeakReference<Class<?>> oldest = cachedTypes.poll();
+            if(oldest == null) {
+                return;
+            }
+            size.decrementAndGet();
+            Class<?> evicted = oldest.get();
+            // 已经卸载的类，ClassValue 中的元数据已经随类释放
+            if(evicted != null) {
+                metadata.remove(evicted);
+                evictions.increment();
+            }
+        }
+    }
+
+    private void evictIf(Predicate<Class<?>> predicate) {
+        Iterator<WeakReference<Class<?>>> iterator = cachedTypes.iterator();
+        while(iterator.hasNext()) {
+            Class<?> type = iterator.next().get();
+            if(type == null || predicate.test(type)) {
+                iterator.remove();
+                size.decrementAndGet();
+                if(type != null) {
+                    metadata.remove(type);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个类的元数据，都在第一次使用时解析
+     */
+    private static final class ClassMetadata {
+
+        private final Class<?> type;
+
+        @Nullable
+        private volatile Constructor<?>[] declaredConstructors;
+
+        @Nullable
+        private volatile Constructor<?>[] publicConstructors;
+
+        @Nullable
+        private volatile BeanMethodHandles methodHandles;
+
+        /** 每个类一个，LocalVariableTableParameterNameDiscoverer 内部按类缓存，这样它的缓存也随类释放 */
+        @Nullable
+        private volatile ParameterNameDiscoverer parameterNameDiscoverer;
+
+
+        ClassMetadata(Class<?> type) {
+            super();
+            this.type = type;
+        }
+
+        Constructor<?>[] getConstructors(boolean nonPublicAccessAllowed) {
+            Constructor<?>[] constructors = nonPublicAccessAllowed ? declaredConstructors : publicConstructors;
+            if(constructors == null) {
+                constructors = nonPublicAccessAllowed ? type.getDeclaredConstructors() : type.getConstructors();
+                Arrays.sort(constructors, CONSTRUCTOR_ORDER);
+                if(nonPublicAccessAllowed) {
+                    declaredConstructors = constructors;
+                } else {
+                    publicConstructors = constructors;
+                }
+            }
+            return constructors;
+        }
+
+        BeanMethodHandles getMethodHandles() {
+            BeanMethodHandles methodHandles = this.methodHandles;
+            if(methodHandles == null) {
+                synchronized(this) {
+                    methodHandles = this.methodHandles;
+                    if(methodHandles == null) {
+                        methodHandles = new BeanMethodHandles(type);
+                        this.methodHandles = methodHandles;
+                    }
+                }
+            }
+            return methodHandles;
+        }
+
+        ParameterNameDiscoverer getParameterNameDiscoverer() {
+            ParameterNameDiscoverer parameterNameDiscoverer = this.parameterNameDiscoverer;
+            if(parameterNameDiscoverer == null) {
+                synchronized(this) {
+                    parameterNameDiscoverer = this.parameterNameDiscoverer;
+                    if(parameterNameDiscoverer == null) {
+                        parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+                        this.parameterNameDiscoverer = parameterNameDiscoverer;
+                    }
+                }
+            }
+            return parameterNameDiscoverer;
+        }
+    }
+}
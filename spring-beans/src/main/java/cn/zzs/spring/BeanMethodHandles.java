@@ -0,0 +1,170 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 一个类的构造方法、getter/setter 方法和初始化方法对应的 MethodHandle，第一次使用时创建并缓存。
+ * <p>所有 MethodHandle 都已经转换成 Object 参数的通用形式，不需要返回值的 setter 和初始化方法转换成 void 返回值，
+ * 调用时使用 invokeExact，不再经过反射的参数检查和访问检查。
+ * @author zzs
+ * @date 2026年10月18日 下午9:05:17
+ */
+public final class BeanMethodHandles {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<?> beanClass;
+
+    private final ConcurrentMap<Constructor<?>, MethodHandle> constructors = new ConcurrentHashMap<>(4);
+
+    private final ConcurrentMap<String, Optional<PropertySetter>> setters = new ConcurrentHashMap<>(16);
+
+    private final ConcurrentMap<String, Optional<MethodHandle>> getters = new ConcurrentHashMap<>(16);
+
+    private final ConcurrentMap<String, Optional<MethodHandle>> initMethods = new ConcurrentHashMap<>(2);
+
+
+    public BeanMethodHandles(Class<?> beanClass) {
+        super();
+        this.beanClass = beanClass;
+    }
+
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 获取构造方法对应的 MethodHandle，类型为 (Object[])Object
+     * @param constructor 构造方法
+     * @return MethodHandle
+     */
+    public MethodHandle getConstructor(Constructor<?> constructor) {
+        return constructors.computeIfAbsent(constructor, key -> {
+            ReflectionUtils.makeAccessible(key);
+            try {
+                return LOOKUP.unreflectConstructor(key)
+                        .asType(MethodType.genericMethodType(key.getParameterCount()))
+                        .asSpreader(Object[].class, key.getParameterCount());
+            } catch(IllegalAccessException e) {
+                throw new IllegalStateException("Could not access constructor " + key, e);
+            }
+        });
+    }
+
+    /**
+     * 获取属性对应的 setter
+     * @param propertyName 属性名，不支持嵌套属性
+     * @return setter，没有可写的 setter 时返回 null
+     */
+    @Nullable
+    public PropertySetter getSetter(String propertyName) {
+        return setters.computeIfAbsent(propertyName, key -> {
+            PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(beanClass, key);
+            if(propertyDescriptor == null || propertyDescriptor.getWriteMethod() == null) {
+                return Optional.empty();
+            }
+            Method writeMethod = propertyDescriptor.getWriteMethod();
+            return Optional.of(new PropertySetter(writeMethod.getParameterTypes()[0], unreflectVoid(writeMethod)));
+        }).orElse(null);
+    }
+
+    /**
+     * 获取属性对应的 getter，类型为 (Object)Object
+     * @param propertyName 属性名，不支持嵌套属性
+     * @return getter，没有可读的 getter 时返回 null
+     */
+    @Nullable
+    public MethodHandle getGetter(String propertyName) {
+        return getters.computeIfAbsent(propertyName, key -> {
+            PropertyDescriptor propertyDescriptor = BeanUtils.getPropertyDescriptor(beanClass, key);
+            if(propertyDescriptor == null || propertyDescriptor.getReadMethod() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(unreflect(propertyDescriptor.getReadMethod()));
+        }).orElse(null);
+    }
+
+    /**
+     * 获取初始化方法对应的 MethodHandle，类型为 (Object)void，查找方式和 AbstractAutowireCapableBeanFactory.invokeCustomInitMethod 一致
+     * @param initMethodName 初始化方法名
+     * @param nonPublicAccessAllowed 是否允许非 public 方法
+     * @return MethodHandle，找不到方法时返回 null
+     */
+    @Nullable
+    public MethodHandle getInitMethod(String initMethodName, boolean nonPublicAccessAllowed) {
+        String key = nonPublicAccessAllowed ? initMethodName : "public:" + initMethodName;
+        return initMethods.computeIfAbsent(key, k -> {
+            Method initMethod = nonPublicAccessAllowed ? BeanUtils.findMethod(beanClass, initMethodName)
+                    : ClassUtils.getMethodIfAvailable(beanClass, initMethodName);
+            if(initMethod == null) {
+                return Optional.empty();
+            }
+            return Optional.of(unreflectVoid(ClassUtils.getInterfaceMethodIfPossible(initMethod)));
+        }).orElse(null);
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        return unreflectRaw(method).asType(MethodType.genericMethodType(method.getParameterCount() + 1));
+    }
+
+    /**
+     * 转换成 void 返回值的通用形式，有返回值的方法会丢弃返回值
+     */
+    private static MethodHandle unreflectVoid(Method method) {
+        return unreflectRaw(method).asType(MethodType.genericMethodType(method.getParameterCount() + 1).changeReturnType(void.class));
+    }
+
+    private static MethodHandle unreflectRaw(Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            return LOOKUP.unreflect(method);
+        } catch(IllegalAccessException e) {
+            throw new IllegalStateException("Could not access method " + method, e);
+        }
+    }
+
+    /**
+     * 属性的 setter，MethodHandle 类型为 (Object,Object)void
+     */
+    public static final class PropertySetter {
+
+        private final Class<?> propertyType;
+
+        private final MethodHandle handle;
+
+
+        PropertySetter(Class<?> propertyType, MethodHandle handle) {
+            super();
+            this.propertyType = propertyType;
+            this.handle = handle;
+        }
+
+        public Class<?> getPropertyType() {
+            return propertyType;
+        }
+
+        /**
+         * 值是否可以直接设置，不需要类型转换
+         */
+        public boolean isAssignable(@Nullable Object value) {
+            return ClassUtils.isAssignableValue(propertyType, value);
+        }
+
+        public void invoke(Object bean, @Nullable Object value) throws Throwable {
+            handle.invokeExact(bean, value);
+        }
+    }
+}
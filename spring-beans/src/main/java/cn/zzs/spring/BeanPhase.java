@@ -0,0 +1,37 @@
+package cn.zzs.spring;
+
+import org.springframework.lang.Nullable;
+
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+
+/**
+ * bean 创建过程中正在记录的一个阶段，由 {@link BeanCreationInstrumentation#begin(String, Phase, Object)} 创建。
+ * @author zzs
+ * @date 2026年10月19日 上午3:05:21
+ */
+final class BeanPhase {
+
+    final String beanName;
+
+    final Phase phase;
+
+    /** 后置处理器的类名，只有 POST_PROCESS 阶段有 */
+    @Nullable
+    final String postProcessor;
+
+    final long startNanos;
+
+    /** BeanPhaseEvents 返回的事件，没有 JFR 时为 null */
+    @Nullable
+    final Object event;
+
+
+    BeanPhase(String beanName, Phase phase, @Nullable String postProcessor, @Nullable Object event) {
+        super();
+        this.beanName = beanName;
+        this.phase = phase;
+        this.postProcessor = postProcessor;
+        this.event = event;
+        this.startNanos = System.nanoTime();
+    }
+}
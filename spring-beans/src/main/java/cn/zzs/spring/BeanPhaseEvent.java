@@ -0,0 +1,40 @@
+package cn.zzs.spring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+
+/**
+ * bean 创建过程中某个阶段的 JFR 事件，由 {@link JfrBeanPhaseEvents} 发出。
+ * <p>没有开启 JFR 录制时 shouldCommit 返回 false，不会提交。开启方式：-XX:StartFlightRecording，或者 jcmd pid JFR.start。
+ * @author zzs
+ * @date 2026年10月19日 上午3:05:21
+ */
+@Name("cn.zzs.spring.BeanPhase")
+@Label("Bean Creation Phase")
+@Category({"Spring", "Beans"})
+@Description("Time spent in one phase of creating a bean: create, instantiate, populate, post-process or init")
+@StackTrace(false)
+class BeanPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Bean Name")
+    String beanName;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Post Processor")
+    String postProcessor;
+
+
+    BeanPhaseEvent(String beanName, Phase phase, String postProcessor) {
+        super();
+        this.beanName = beanName;
+        this.phase = phase.name();
+        this.postProcessor = postProcessor;
+    }
+}
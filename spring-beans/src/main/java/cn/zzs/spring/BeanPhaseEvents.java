@@ -0,0 +1,53 @@
+package cn.zzs.spring;
+
+import org.springframework.lang.Nullable;
+
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+
+/**
+ * 发出 bean 创建阶段的事件。JFR 的 API 不属于 Java 8，这里通过反射加载 {@link JfrBeanPhaseEvents}，
+ * 运行环境中没有 jdk.jfr 时使用不发出任何事件的实现。
+ * @author zzs
+ * @date 2026年10月19日 上午3:05:21
+ */
+interface BeanPhaseEvents {
+
+    /** 不发出任何事件 */
+    BeanPhaseEvents NO_OP = new BeanPhaseEvents() {
+
+        @Override
+        @Nullable
+        public Object begin(String beanName, Phase phase, @Nullable String postProcessor) {
+            return null;
+        }
+
+        @Override
+        public void end(@Nullable Object event) {
+        }
+    };
+
+    /**
+     * 开始一个阶段
+     * @return 需要传给 {@link #end(Object)} 的事件
+     */
+    @Nullable
+    Object begin(String beanName, Phase phase, @Nullable String postProcessor);
+
+    /**
+     * 结束一个阶段并提交事件
+     */
+    void end(@Nullable Object event);
+
+    /**
+     * 有 jdk.jfr 时返回发出 JFR 事件的实现，否则返回 {@link #NO_OP}
+     */
+    static BeanPhaseEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event", false, BeanPhaseEvents.class.getClassLoader());
+            return (BeanPhaseEvents)Class.forName("cn.zzs.spring.JfrBeanPhaseEvents", true, BeanPhaseEvents.class.getClassLoader())
+                    .getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException | LinkageError e) {
+            return NO_OP;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 为每个 bean 预先算好每个阶段需要调用的后置处理器，包括实例化前后、推断构造方法、合并 beanDefinition 的后置处理、
+ * 提前暴露的引用、属性装配以及初始化前后：
+ * <p>1. 处理器的类没有重写某个阶段的方法（只用了接口的 default 方法）时，这个阶段跳过它；
+ * <p>2. {@link SelectiveBeanPostProcessor#appliesTo(Class, String)} 返回 false 时，所有阶段都跳过它。
+ * <p>结果按（beanName，bean 的类型）缓存，并且只对同一组后置处理器有效：工厂中的后置处理器和缓存时的不是同一组对象时整体重新计算，
+ * beanDefinition 变化时移除对应的 beanName。
+ * @author zzs
+ * @date 2026年10月19日 上午2:10:45
+ */
+final class BeanPostProcessorFilter {
+
+    private static final int BEFORE_INSTANTIATION = 1;
+
+    private static final int AFTER_INSTANTIATION = 1 << 1;
+
+    private static final int PROPERTIES = 1 << 2;
+
+    private static final int BEFORE_INITIALIZATION = 1 << 3;
+
+    private static final int AFTER_INITIALIZATION = 1 << 4;
+
+    /** 只重写了已经废弃的 postProcessPropertyValues */
+    private static final int LEGACY_PROPERTY_VALUES = 1 << 5;
+
+    private static final int DETERMINE_CONSTRUCTORS = 1 << 6;
+
+    private static final int MERGED_BEAN_DEFINITION = 1 << 7;
+
+    private static final int EARLY_REFERENCE = 1 << 8;
+
+    /** 处理器的类到它重写了的阶段 */
+    private final ConcurrentMap<Class<?>, Integer> overriddenPhases = new ConcurrentHashMap<>(32);
+
+    /** 当前缓存对应的后置处理器和缓存的结果，后置处理器变化时整个替换 */
+    private volatile Generation generation = new Generation(new BeanPostProcessor[0]);
+
+    private final boolean selective;
+
+
+    /**
+     * @param selective 是否按照 {@link SelectiveBeanPostProcessor#appliesTo(Class, String)} 过滤，为 false 时只跳过没有重写的阶段
+     */
+    BeanPostProcessorFilter(boolean selective) {
+        super();
+        this.selective = selective;
+    }
+
+    /**
+     * 获取对 bean 生效的后置处理器
+     * @param beanName beanName
+     * @param beanType bean 的类型
+     * @param processors 工厂中所有的后置处理器
+     * @param cacheable 是否缓存，内部 bean 等没有 beanDefinition 的 bean 不缓存
+     * @return 每个阶段需要调用的后置处理器
+     */
+    ApplicableBeanPostProcessors get(String beanName, Class<?> beanType, List<BeanPostProcessor> processors, boolean cacheable) {
+        Class<?> userType = ClassUtils.getUserClass(beanType);
+        Generation generation = this.generation;
+        if(!generation.matches(processors)) {
+            generation = new Generation(processors.toArray(new BeanPostProcessor[0]));
+            this.generation = generation;
+        }
+        // 同一个 beanName 也可能是不同的类型，例如 FactoryBean 和它创建的对象
+        Map<Class<?>, ApplicableBeanPostProcessors> byType = generation.cache.get(beanName);
+        ApplicableBeanPostProcessors applicable = byType != null ? byType.get(userType) : null;
+        if(applicable != null) {
+            return applicable;
+        }
+        applicable = resolve(beanName, userType, generation.processors);
+        if(cacheable) {
+            generation.cache.computeIfAbsent(beanName, key -> new ConcurrentHashMap<>(4)).put(userType, applicable);
+        }
+        return applicable;
+    }
+
+    void clear() {
+        generation = new Generation(new BeanPostProcessor[0]);
+    }
+
+    void remove(String beanName) {
+        generation.cache.remove(beanName);
+    }
+
+    private ApplicableBeanPostProcessors resolve(String beanName, Class<?> beanType, BeanPostProcessor[] processors) {
+        List<InstantiationAwareBeanPostProcessor> beforeInstantiation = new ArrayList<>();
+        List<SmartInstantiationAwareBeanPostProcessor> determineConstructors = new ArrayList<>();
+        List<MergedBeanDefinitionPostProcessor> mergedBeanDefinition = new ArrayList<>();
+        List<SmartInstantiationAwareBeanPostProcessor> earlyReference = new ArrayList<>();
+        List<InstantiationAwareBeanPostProcessor> afterInstantiation = new ArrayList<>();
+        List<InstantiationAwareBeanPostProcessor> properties = new ArrayList<>();
+        List<BeanPostProcessor> beforeInitialization = new ArrayList<>();
+        List<BeanPostProcessor> afterInitialization = new ArrayList<>();
+        boolean legacyPropertyValues = false;
+        for(BeanPostProcessor processor : processors) {
+            if(selective && processor instanceof SelectiveBeanPostProcessor && !((SelectiveBeanPostProcessor)processor).appliesTo(beanType, beanName)) {
+                continue;
+            }
+            int phases = overriddenPhases.computeIfAbsent(processor.getClass(), BeanPostProcessorFilter::findOverriddenPhases);
+            if(processor instanceof InstantiationAwareBeanPostProcessor) {
+                InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor)processor;
+                if((phases & BEFORE_INSTANTIATION) != 0) {
+                    beforeInstantiation.add(ibp);
+                }
+                if((phases & AFTER_INSTANTIATION) != 0) {
+                    afterInstantiation.add(ibp);
+                }
+                if((phases & PROPERTIES) != 0) {
+                    properties.add(ibp);
+                }
+                legacyPropertyValues |= (phases & LEGACY_PROPERTY_VALUES) != 0;
+            }
+            if(processor instanceof SmartInstantiationAwareBeanPostProcessor) {
+                SmartInstantiationAwareBeanPostProcessor sibp = (SmartInstantiationAwareBeanPostProcessor)processor;
+                if((phases & DETERMINE_CONSTRUCTORS) != 0) {
+                    determineConstructors.add(sibp);
+                }
+                if((phases & EARLY_REFERENCE) != 0) {
+                    earlyReference.add(sibp);
+                }
+            }
+            if(processor instanceof MergedBeanDefinitionPostProcessor && (phases & MERGED_BEAN_DEFINITION) != 0) {
+                mergedBeanDefinition.add((MergedBeanDefinitionPostProcessor)processor);
+            }
+            if((phases & BEFORE_INITIALIZATION) != 0) {
+                beforeInitialization.add(processor);
+            }
+            if((phases & AFTER_INITIALIZATION) != 0) {
+                afterInitialization.add(processor);
+            }
+        }
+        return new ApplicableBeanPostProcessors(legacyPropertyValues,
+                beforeInstantiation.toArray(new InstantiationAwareBeanPostProcessor[0]),
+                determineConstructors.toArray(new SmartInstantiationAwareBeanPostProcessor[0]),
+                mergedBeanDefinition.toArray(new MergedBeanDefinitionPostProcessor[0]),
+                earlyReference.toArray(new SmartInstantiationAwareBeanPostProcessor[0]),
+                afterInstantiation.toArray(new InstantiationAwareBeanPostProcessor[0]),
+                properties.toArray(new InstantiationAwareBeanPostProcessor[0]),
+                beforeInitialization.toArray(new BeanPostProcessor[0]),
+                afterInitialization.toArray(new BeanPostProcessor[0]));
+    }
+
+    private static int findOverriddenPhases(Class<?> processorClass) {
+        int phases = 0;
+        if(isOverridden(processorClass, "postProcessBeforeInstantiation", Class.class, String.class)) {
+            phases |= BEFORE_INSTANTIATION;
+        }
+        if(isOverridden(processorClass, "determineCandidateConstructors", Class.class, String.class)) {
+            phases |= DETERMINE_CONSTRUCTORS;
+        }
+        if(isOverridden(processorClass, "postProcessMergedBeanDefinition", RootBeanDefinition.class, Class.class, String.class)) {
+            phases |= MERGED_BEAN_DEFINITION;
+        }
+        if(isOverridden(processorClass, "getEarlyBeanReference", Object.class, String.class)) {
+            phases |= EARLY_REFERENCE;
+        }
+        if(isOverridden(processorClass, "postProcessAfterInstantiation", Object.class, String.class)) {
+            phases |= AFTER_INSTANTIATION;
+        }
+        // postProcessProperties 返回 null 时 Spring 会继续调用 postProcessPropertyValues，接口和 InstantiationAwareBeanPostProcessorAdapter 中的实现都原样返回属性；
+        // 只重写了 postProcessPropertyValues 的处理器单独标记
+        if(isOverridden(processorClass, "postProcessProperties", PropertyValues.class, Object.class, String.class)) {
+            phases |= PROPERTIES;
+        } else if(isOverridden(processorClass, "postProcessPropertyValues", PropertyValues.class, PropertyDescriptor[].class, Object.class, String.class)) {
+            phases |= PROPERTIES | LEGACY_PROPERTY_VALUES;
+        }
+        if(isOverridden(processorClass, "postProcessBeforeInitialization", Object.class, String.class)) {
+            phases |= BEFORE_INITIALIZATION;
+        }
+        if(isOverridden(processorClass, "postProcessAfterInitialization", Object.class, String.class)) {
+            phases |= AFTER_INITIALIZATION;
+        }
+        return phases;
+    }
+
+    /**
+     * 方法是否由类（包括父类）实现，而不是接口的 default 方法或者 InstantiationAwareBeanPostProcessorAdapter 中的空实现
+     */
+    private static boolean isOverridden(Class<?> processorClass, String methodName, Class<?>... parameterTypes) {
+        Method method = ReflectionUtils.findMethod(processorClass, methodName, parameterTypes);
+        return method != null && !method.getDeclaringClass().isInterface() && method.getDeclaringClass() != InstantiationAwareBeanPostProcessorAdapter.class;
+    }
+
+    /**
+     * 一组后置处理器以及按它们计算出的结果
+     */
+    private static final class Generation {
+
+        final BeanPostProcessor[] processors;
+
+        final ConcurrentMap<String, Map<Class<?>, ApplicableBeanPostProcessors>> cache = new ConcurrentHashMap<>(256);
+
+
+        Generation(BeanPostProcessor[] processors) {
+            super();
+            this.processors = processors;
+        }
+
+        /**
+         * 工厂中的后置处理器是否还是同一组对象
+         */
+        boolean matches(List<BeanPostProcessor> current) {
+            if(current.size() != processors.length) {
+                return false;
+            }
+            int i = 0;
+            for(BeanPostProcessor processor : current) {
+                if(i >= processors.length || processor != processors[i++]) {
+                    return false;
+                }
+            }
+            return i == processors.length;
+        }
+    }
+
+    /**
+     * 对某个 bean 生效的后置处理器，按阶段分开
+     */
+    static final class ApplicableBeanPostProcessors {
+
+        /** 有后置处理器只重写了已经废弃的 postProcessPropertyValues，属性装配交给 AbstractAutowireCapableBeanFactory.populateBean */
+        final boolean legacyPropertyValues;
+
+        final InstantiationAwareBeanPostProcessor[] beforeInstantiation;
+
+        final SmartInstantiationAwareBeanPostProcessor[] determineConstructors;
+
+        final MergedBeanDefinitionPostProcessor[] mergedBeanDefinition;
+
+        final SmartInstantiationAwareBeanPostProcessor[] earlyReference;
+
+        final InstantiationAwareBeanPostProcessor[] afterInstantiation;
+
+        final InstantiationAwareBeanPostProcessor[] properties;
+
+        final BeanPostProcessor[] beforeInitialization;
+
+        final BeanPostProcessor[] afterInitialization;
+
+
+        ApplicableBeanPostProcessors(boolean legacyPropertyValues, InstantiationAwareBeanPostProcessor[] beforeInstantiation,
+                SmartInstantiationAwareBeanPostProcessor[] determineConstructors, MergedBeanDefinitionPostProcessor[] mergedBeanDefinition,
+                SmartInstantiationAwareBeanPostProcessor[] earlyReference, InstantiationAwareBeanPostProcessor[] afterInstantiation,
+                InstantiationAwareBeanPostProcessor[] properties, BeanPostProcessor[] beforeInitialization, BeanPostProcessor[] afterInitialization) {
+            super();
+            this.legacyPropertyValues = legacyPropertyValues;
+            this.beforeInstantiation = beforeInstantiation;
+            this.determineConstructors = determineConstructors;
+            this.mergedBeanDefinition = mergedBeanDefinition;
+            this.earlyReference = earlyReference;
+            this.afterInstantiation = afterInstantiation;
+            this.properties = properties;
+            this.beforeInitialization = beforeInitialization;
+            this.afterInitialization = afterInitialization;
+        }
+    }
+}
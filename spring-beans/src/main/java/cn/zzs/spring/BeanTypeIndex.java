@@ -0,0 +1,187 @@
+package cn.zzs.spring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * beanType 到 beanName 的索引，在 beanFactory 冻结配置时一次性构建。
+ * <p>索引中包含 bean 的类型、所有父类以及所有接口，例如 UserService 同时会索引到 IUserService 和 Object 下。
+ * <p>对于每个类型，索引记录了候选的 beanName（已按 autowireCandidate 过滤），以及能够直接确定的 beanName：
+ * 只有一个候选，或者有且只有一个 primary 的候选。其他情况（没有 primary 或者多个 primary）交回给 beanFactory 原来的逻辑处理。
+ * <p>不创建 bean 就推断不出类型的 bean（例如没有声明泛型的 factoryBean）可能匹配任何类型，不放入索引，单独记录下来。
+ * 存在这样的 bean 时不直接确定 beanName，全部交回给原来的逻辑处理。
+ * @author zzs
+ * @date 2026年10月18日 下午6:35:12
+ */
+public final class BeanTypeIndex {
+
+    private final Map<Class<?>, String[]> candidateNamesByType;
+
+    private final Map<Class<?>, String> resolvedNameByType;
+
+    /** 推断不出类型的 beanName */
+    private final String[] unresolvedNames;
+
+
+    private BeanTypeIndex(Map<Class<?>, String[]> candidateNamesByType, Map<Class<?>, String> resolvedNameByType, String[] unresolvedNames) {
+        super();
+        this.candidateNamesByType = candidateNamesByType;
+        this.resolvedNameByType = resolvedNameByType;
+        this.unresolvedNames = unresolvedNames;
+    }
+
+    /**
+     * 获取指定类型的候选 beanName，不包括推断不出类型的 bean
+     * @param type bean类型
+     * @return 候选 beanName，没有时返回空数组
+     */
+    public String[] getCandidateNames(Class<?> type) {
+        String[] candidateNames = candidateNamesByType.get(type);
+        return candidateNames == null ? new String[0] : candidateNames.clone();
+    }
+
+    /**
+     * 获取指定类型可以直接确定的 beanName
+     * @param type bean类型
+     * @return 唯一的候选或者 primary 候选，无法确定或者存在推断不出类型的 bean 时返回 null
+     */
+    @Nullable
+    public String getResolvedName(Class<?> type) {
+        return unresolvedNames.length == 0 ? resolvedNameByType.get(type) : null;
+    }
+
+    /**
+     * 获取不创建 bean 就推断不出类型的 beanName
+     * @return beanName，没有时返回空数组
+     */
+    public String[] getUnresolvedNames() {
+        return unresolvedNames.clone();
+    }
+
+    /**
+     * 索引的类型数量
+     */
+    public int size() {
+        return candidateNamesByType.size();
+    }
+
+    /**
+     * 根据 beanFactory 中已注册的 beanDefinition 和手动注册的单例构建索引
+     * @param beanFactory beanFactory
+     * @return 构建好的索引
+     */
+    public static BeanTypeIndex build(DefaultListableBeanFactory beanFactory) {
+        Map<Class<?>, List<String>> namesByType = new HashMap<>();
+        List<String> unresolvedNames = new ArrayList<>();
+        Set<String> beanNames = new LinkedHashSet<>();
+        Collections.addAll(beanNames, beanFactory.getBeanDefinitionNames());
+        Collections.addAll(beanNames, beanFactory.getSingletonNames());
+
+        for(String beanName : beanNames) {
+            if(beanFactory.containsBeanDefinition(beanName) && beanFactory.getMergedBeanDefinition(beanName).isAbstract()) {
+                continue;
+            }
+            // factoryBean 的话，这里拿到的是 getObject() 返回的对象类型，只根据 beanDefinition 推断，不会为此创建 factoryBean
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if(beanType != null) {
+                beanType = ClassUtils.getUserClass(beanType);
+                addType(namesByType, beanType, null, beanName);
+            } else {
+                unresolvedNames.add(beanName);
+            }
+            // 和 doGetBeanNamesForType 一致，只有 getObject() 返回的对象类型不匹配时才匹配 factoryBean 本身，需要通过 &+beanName 获取
+            if(beanFactory.isFactoryBean(beanName)) {
+                String factoryBeanName = BeanFactory.FACTORY_BEAN_PREFIX + beanName;
+                Class<?> factoryBeanType = beanFactory.getType(factoryBeanName, false);
+                if(factoryBeanType != null) {
+                    addType(namesByType, factoryBeanType, beanType, factoryBeanName);
+                }
+            }
+        }
+
+        Map<Class<?>, String[]> candidateNamesByType = new HashMap<>(namesByType.size() * 2);
+        Map<Class<?>, String> resolvedNameByType = new HashMap<>(namesByType.size() * 2);
+        for(Map.Entry<Class<?>, List<String>> entry : namesByType.entrySet()) {
+            String[] candidateNames = filterAutowireCandidates(beanFactory, entry.getValue());
+            candidateNamesByType.put(entry.getKey(), candidateNames);
+            String resolvedName = resolveName(beanFactory, candidateNames);
+            if(resolvedName != null) {
+                resolvedNameByType.put(entry.getKey(), resolvedName);
+            }
+        }
+        return new BeanTypeIndex(candidateNamesByType, resolvedNameByType, unresolvedNames.toArray(new String[0]));
+    }
+
+    /**
+     * @param excludedType 不索引这个类型能够赋值给的类型，为 null 时全部索引
+     */
+    private static void addType(Map<Class<?>, List<String>> namesByType, Class<?> beanType, @Nullable Class<?> excludedType, String beanName) {
+        for(Class<?> type = beanType; type != null; type = type.getSuperclass()) {
+            addName(namesByType, type, excludedType, beanName);
+        }
+        for(Class<?> interfaceType : ClassUtils.getAllInterfacesForClassAsSet(beanType)) {
+            addName(namesByType, interfaceType, excludedType, beanName);
+        }
+    }
+
+    private static void addName(Map<Class<?>, List<String>> namesByType, Class<?> type, @Nullable Class<?> excludedType, String beanName) {
+        if(excludedType == null || !type.isAssignableFrom(excludedType)) {
+            namesByType.computeIfAbsent(type, key -> new ArrayList<>(1)).add(beanName);
+        }
+    }
+
+    /**
+     * 和 DefaultListableBeanFactory.resolveNamedBean 一致：多个候选时只保留 autowireCandidate，全部被过滤时保留原来的候选
+     */
+    private static String[] filterAutowireCandidates(DefaultListableBeanFactory beanFactory, List<String> beanNames) {
+        if(beanNames.size() > 1) {
+            List<String> autowireCandidates = new ArrayList<>(beanNames.size());
+            for(String beanName : beanNames) {
+                String localName = BeanFactoryUtils.transformedBeanName(beanName);
+                if(!beanFactory.containsBeanDefinition(localName) || beanFactory.getBeanDefinition(localName).isAutowireCandidate()) {
+                    autowireCandidates.add(beanName);
+                }
+            }
+            if(!autowireCandidates.isEmpty()) {
+                return autowireCandidates.toArray(new String[0]);
+            }
+        }
+        return beanNames.toArray(new String[0]);
+    }
+
+    /**
+     * 只有一个候选时直接返回；多个候选时，有且只有一个 primary 的 beanDefinition 才返回
+     */
+    @Nullable
+    private static String resolveName(DefaultListableBeanFactory beanFactory, String[] candidateNames) {
+        if(candidateNames.length == 1) {
+            return candidateNames[0];
+        }
+        String primaryName = null;
+        for(String beanName : candidateNames) {
+            String localName = BeanFactoryUtils.transformedBeanName(beanName);
+            if(beanFactory.containsBeanDefinition(localName)) {
+                BeanDefinition beanDefinition = beanFactory.getMergedBeanDefinition(localName);
+                if(beanDefinition.isPrimary()) {
+                    if(primaryName != null) {
+                        return null;
+                    }
+                    primaryName = beanName;
+                }
+            }
+        }
+        return primaryName;
+    }
+}
@@ -0,0 +1,202 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * 按照 (源类型, 目标类型) 精确匹配转换器的 TypeConverter，替代在 TypeConverterSupport 中逐个 instanceof 判断的写法。
+ * <p>值已经是目标类型时不转换；找到匹配的转换器时直接调用；其他情况交给 SimpleTypeConverter 原来的逻辑（PropertyEditor、ConversionService）。
+ * <p>开启 {@link #setFieldCopyFallback(boolean)} 后，原来的逻辑也无法转换的两个 JavaBean 类型之间（例如 User 转 UserVO），
+ * 自动生成 {@link FieldCopyMapper} 复制同名属性。这个转换不检查语义，只在原来的逻辑失败后才尝试，默认关闭。
+ * <p>查找注册的转换器只需要一次哈希查找；自动生成的转换器按类型对缓存，无法生成的结果也会缓存。
+ * <pre>
+ * ClassPairTypeConverter typeConverter = new ClassPairTypeConverter();
+ * typeConverter.addConverter(User.class, UserVO.class, user -&gt; ...);
+ * beanFactory.setTypeConverter(typeConverter);
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午2:39:50
+ */
+public class ClassPairTypeConverter extends SimpleTypeConverter {
+
+    /** 没有转换器时的占位，ConcurrentHashMap 中不能放 null */
+    private static final Converter<Object, Object> NO_CONVERTER = source -> null;
+
+    private final ConcurrentMap<ClassPair, Converter<Object, Object>> converters = new ConcurrentHashMap<>(32);
+
+    /** 自动生成的复制同名属性的转换器，无法生成时为 NO_CONVERTER */
+    private final ConcurrentMap<ClassPair, Converter<Object, Object>> fieldCopyConverters = new ConcurrentHashMap<>(32);
+
+    private volatile boolean fieldCopyFallback = false;
+
+
+    /**
+     * 注册转换器，源类型必须和值的类型完全一致，不匹配子类
+     * @param sourceType 源类型
+     * @param targetType 目标类型
+     * @param converter 转换器
+     */
+    @SuppressWarnings("unchecked")
+    public <S, T> void addConverter(Class<S> sourceType, Class<T> targetType, Converter<? super S, ? extends T> converter) {
+        Assert.notNull(converter, "Converter must not be null");
+        converters.put(new ClassPair(sourceType, targetType), (Converter<Object, Object>)converter);
+    }
+
+    /**
+     * 注册复制同名属性的转换器，和自动生成的一样，只是在注册时就创建好
+     * @param sourceType 源类型
+     * @param targetType 目标类型
+     * @throws IllegalArgumentException 两个类型之间没有可以复制的属性
+     */
+    public <S, T> void addFieldCopyConverter(Class<S> sourceType, Class<T> targetType) {
+        FieldCopyMapper<S, T> mapper = FieldCopyMapper.create(sourceType, targetType);
+        Assert.notNull(mapper, () -> "No copyable properties from " + sourceType.getName() + " to " + targetType.getName());
+        addConverter(sourceType, targetType, mapper);
+    }
+
+    /**
+     * 设置没有注册转换器、原来的逻辑也无法转换时，是否自动生成复制同名属性的转换器，默认关闭
+     * @param fieldCopyFallback 是否开启
+     */
+    public void setFieldCopyFallback(boolean fieldCopyFallback) {
+        this.fieldCopyFallback = fieldCopyFallback;
+        fieldCopyConverters.clear();
+    }
+
+    public boolean isFieldCopyFallback() {
+        return fieldCopyFallback;
+    }
+
+    @Override
+    @Nullable
+    public <T> T convertIfNecessary(@Nullable Object value, @Nullable Class<T> requiredType, @Nullable TypeDescriptor typeDescriptor)
+            throws TypeMismatchException {
+        Converter<Object, Object> converter = getConverter(value, requiredType);
+        if(converter == null) {
+            return convertWithFallback(value, requiredType, () -> super.convertIfNecessary(value, requiredType, typeDescriptor));
+        }
+        return convert(converter, value, requiredType);
+    }
+
+    @Override
+    @Nullable
+    public <T> T convertIfNecessary(@Nullable Object value, @Nullable Class<T> requiredType, @Nullable MethodParameter methodParam)
+            throws TypeMismatchException {
+        Converter<Object, Object> converter = getConverter(value, requiredType);
+        if(converter == null) {
+            return convertWithFallback(value, requiredType, () -> super.convertIfNecessary(value, requiredType, methodParam));
+        }
+        return convert(converter, value, requiredType);
+    }
+
+    @Override
+    @Nullable
+    public <T> T convertIfNecessary(@Nullable Object value, @Nullable Class<T> requiredType, @Nullable Field field) throws TypeMismatchException {
+        Converter<Object, Object> converter = getConverter(value, requiredType);
+        if(converter == null) {
+            return convertWithFallback(value, requiredType, () -> super.convertIfNecessary(value, requiredType, field));
+        }
+        return convert(converter, value, requiredType);
+    }
+
+    /**
+     * 获取值和目标类型对应的注册的转换器
+     * @return 转换器，不需要转换或者没有注册转换器时返回 null
+     */
+    @Nullable
+    private Converter<Object, Object> getConverter(@Nullable Object value, @Nullable Class<?> requiredType) {
+        if(value == null || requiredType == null || requiredType.isInstance(value)) {
+            return null;
+        }
+        return converters.get(new ClassPair(value.getClass(), requiredType));
+    }
+
+    /**
+     * 先交给原来的逻辑转换，失败后再尝试复制同名属性
+     */
+    @Nullable
+    private <T> T convertWithFallback(@Nullable Object value, @Nullable Class<T> requiredType, Supplier<T> defaultConversion) {
+        try {
+            return defaultConversion.get();
+        } catch(TypeMismatchException ex) {
+            if(!fieldCopyFallback || value == null || requiredType == null) {
+                throw ex;
+            }
+            Converter<Object, Object> converter = fieldCopyConverters.computeIfAbsent(new ClassPair(value.getClass(), requiredType), this::createFieldCopyConverter);
+            if(converter == NO_CONVERTER) {
+                throw ex;
+            }
+            return convert(converter, value, requiredType);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Converter<Object, Object> createFieldCopyConverter(ClassPair classPair) {
+        if(!isJavaBean(classPair.sourceType) || !isJavaBean(classPair.targetType)) {
+            return NO_CONVERTER;
+        }
+        FieldCopyMapper<?, ?> mapper = FieldCopyMapper.create(classPair.sourceType, classPair.targetType);
+        return mapper != null ? (Converter<Object, Object>)mapper : NO_CONVERTER;
+    }
+
+    /**
+     * 排除简单类型、数组、集合等有专门转换逻辑的类型
+     */
+    private static boolean isJavaBean(Class<?> type) {
+        return !BeanUtils.isSimpleValueType(type) && !type.isArray() && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)
+                && !type.getName().startsWith("java.");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T convert(Converter<Object, Object> converter, Object value, Class<T> requiredType) {
+        try {
+            return (T)converter.convert(value);
+        } catch(RuntimeException ex) {
+            throw new TypeMismatchException(value, requiredType, ex);
+        }
+    }
+
+    private static final class ClassPair {
+
+        private final Class<?> sourceType;
+
+        private final Class<?> targetType;
+
+
+        ClassPair(Class<?> sourceType, Class<?> targetType) {
+            super();
+            this.sourceType = sourceType;
+            this.targetType = targetType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof ClassPair)) {
+                return false;
+            }
+            ClassPair otherPair = (ClassPair)other;
+            return sourceType == otherPair.sourceType && targetType == otherPair.targetType;
+        }
+
+        @Override
+        public int hashCode() {
+            return sourceType.hashCode() * 31 + targetType.hashCode();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import cn.zzs.spring.BeanMethodHandles.PropertySetter;
+
+/**
+ * 通过无参构造方法创建目标对象，再把源对象中同名、类型兼容的属性复制过去，例如 User 转 UserVO。
+ * <p>创建时就确定好需要复制的属性以及对应的 getter/setter MethodHandle，转换时不再查找属性，也不经过反射。
+ * @author zzs
+ * @date 2026年10月19日 上午2:39:50
+ */
+public final class FieldCopyMapper<S, T> implements Converter<S, T> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<S> sourceType;
+
+    private final Class<T> targetType;
+
+    private final MethodHandle constructor;
+
+    private final MethodHandle[] getters;
+
+    private final PropertySetter[] setters;
+
+    private final String[] propertyNames;
+
+
+    private FieldCopyMapper(Class<S> sourceType, Class<T> targetType, MethodHandle constructor, MethodHandle[] getters, PropertySetter[] setters,
+            String[] propertyNames) {
+        super();
+        this.sourceType = sourceType;
+        this.targetType = targetType;
+        this.constructor = constructor;
+        this.getters = getters;
+        this.setters = setters;
+        this.propertyNames = propertyNames;
+    }
+
+    /**
+     * 创建 mapper
+     * @param sourceType 源类型
+     * @param targetType 目标类型
+     * @return mapper，目标类型是抽象类、没有 public 的无参构造方法或者两个类型没有可以复制的属性时返回 null
+     */
+    @Nullable
+    public static <S, T> FieldCopyMapper<S, T> create(Class<S> sourceType, Class<T> targetType) {
+        Constructor<T> targetConstructor = ClassUtils.getConstructorIfAvailable(targetType);
+        if(targetConstructor == null || Modifier.isAbstract(targetType.getModifiers())) {
+            return null;
+        }
+        BeanMethodHandles sourceHandles = new BeanMethodHandles(sourceType);
+        BeanMethodHandles targetHandles = new BeanMethodHandles(targetType);
+        List<MethodHandle> getters = new ArrayList<>();
+        List<PropertySetter> setters = new ArrayList<>();
+        List<String> propertyNames = new ArrayList<>();
+        for(PropertyDescriptor targetProperty : BeanUtils.getPropertyDescriptors(targetType)) {
+            if(targetProperty.getWriteMethod() == null) {
+                continue;
+            }
+            PropertyDescriptor sourceProperty = BeanUtils.getPropertyDescriptor(sourceType, targetProperty.getName());
+            if(sourceProperty == null || sourceProperty.getReadMethod() == null
+                    || !ClassUtils.isAssignable(targetProperty.getPropertyType(), sourceProperty.getPropertyType())) {
+                continue;
+            }
+            getters.add(sourceHandles.getGetter(targetProperty.getName()));
+            setters.add(targetHandles.getSetter(targetProperty.getName()));
+            propertyNames.add(targetProperty.getName());
+        }
+        if(propertyNames.isEmpty()) {
+            return null;
+        }
+        return new FieldCopyMapper<>(sourceType, targetType, targetHandles.getConstructor(targetConstructor), getters.toArray(new MethodHandle[0]),
+                setters.toArray(new PropertySetter[0]), propertyNames.toArray(new String[0]));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T convert(S source) {
+        T target;
+        try {
+            target = (T)(Object)constructor.invokeExact(NO_ARGS);
+        } catch(Throwable ex) {
+            throw new IllegalStateException("Could not instantiate " + targetType.getName(), ex);
+        }
+        for(int i = 0; i < getters.length; i++) {
+            try {
+                Object value = (Object)getters[i].invokeExact((Object)source);
+                // 包装类型的 null 不能设置到基本类型的属性上，保留目标对象的默认值
+                if(value != null || !setters[i].getPropertyType().isPrimitive()) {
+                    setters[i].invoke(target, value);
+                }
+            } catch(Throwable ex) {
+                throw new IllegalStateException("Could not copy property '" + propertyNames[i] + "' from " + sourceType.getName() + " to "
+                        + targetType.getName(), ex);
+            }
+        }
+        return target;
+    }
+
+    public Class<S> getSourceType() {
+        return sourceType;
+    }
+
+    public Class<T> getTargetType() {
+        return targetType;
+    }
+
+    /**
+     * 需要复制的属性名
+     */
+    public String[] getPropertyNames() {
+        return propertyNames.clone();
+    }
+}
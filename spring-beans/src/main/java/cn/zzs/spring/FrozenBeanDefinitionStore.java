@@ -0,0 +1,284 @@
+package cn.zzs.spring;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.lang.Nullable;
+
+/**
+ * 冻结配置后的 beanDefinition 存储，在 beanFactory 冻结配置时一次性构建，构建后不再修改。
+ * <p>每个 beanName 对应一个 int 类型的 id，beanName 到 id 通过开放寻址的数组查找，不再经过 ConcurrentHashMap。
+ * 构建时把合并结果中的常用数据按 id 展开到数组中，之后从数组读取：
+ * <p>1. 压缩成一个 int 的标志：抽象、单例、原型、延迟加载、primary、autowireCandidate，以及解析好的自动装配模式；
+ * <p>2. 解析好的 bean 类型和作用域名称；
+ * <p>3. 所有 bean 的属性名和属性值依次放在两个数组中，按 id 记录起始位置，属性名会被 intern。属性值和 beanDefinition 中的是同一个对象，
+ * 构建之后 beanDefinition 中的属性再有变化（例如被 MergedBeanDefinitionPostProcessor 修改）不会反映到存储中。
+ * <p>创建 bean 仍然需要完整的 RootBeanDefinition，所以合并好的 RootBeanDefinition 同样按 id 保留，并且会一直使用，
+ * 创建 bean 时不再像 AbstractBeanFactory.markBeanAsCreated 那样标记过期并重新合并。
+ * RootBeanDefinition 中 Spring 自己的缓存字段（解析好的构造方法、属性值等）仍然会在创建 bean 时写入。
+ * @author zzs
+ * @date 2026年10月19日 上午4:40:17
+ */
+public final class FrozenBeanDefinitionStore {
+
+    private static final int FLAG_ABSTRACT = 1;
+
+    private static final int FLAG_SINGLETON = 1 << 1;
+
+    private static final int FLAG_PROTOTYPE = 1 << 2;
+
+    private static final int FLAG_LAZY_INIT = 1 << 3;
+
+    private static final int FLAG_PRIMARY = 1 << 4;
+
+    private static final int FLAG_AUTOWIRE_CANDIDATE = 1 << 5;
+
+    /** 自动装配模式放在标志的高位 */
+    private static final int AUTOWIRE_MODE_SHIFT = 8;
+
+    private final String[] beanNames;
+
+    /** 开放寻址的哈希表，存放 id + 1，0 表示空位 */
+    private final int[] table;
+
+    private final RootBeanDefinition[] mergedBeanDefinitions;
+
+    private final int[] flags;
+
+    /** 解析好的 bean 类型，没有声明或者加载不到时为 null */
+    private final Class<?>[] beanClasses;
+
+    private final String[] scopes;
+
+    /** 第 id 个 bean 的属性在 propertyNames、propertyValues 中的范围是 [propertyOffsets[id], propertyOffsets[id + 1]) */
+    private final int[] propertyOffsets;
+
+    private final String[] propertyNames;
+
+    private final Object[] propertyValues;
+
+
+    private FrozenBeanDefinitionStore(String[] beanNames, int[] table, RootBeanDefinition[] mergedBeanDefinitions, int[] flags,
+            Class<?>[] beanClasses, String[] scopes, int[] propertyOffsets, String[] propertyNames, Object[] propertyValues) {
+        super();
+        this.beanNames = beanNames;
+        this.table = table;
+        this.mergedBeanDefinitions = mergedBeanDefinitions;
+        this.flags = flags;
+        this.beanClasses = beanClasses;
+        this.scopes = scopes;
+        this.propertyOffsets = propertyOffsets;
+        this.propertyNames = propertyNames;
+        this.propertyValues = propertyValues;
+    }
+
+    /**
+     * bean 的数量
+     */
+    public int size() {
+        return beanNames.length;
+    }
+
+    /**
+     * 获取 beanName 对应的 id
+     * @return id，不存在时返回 -1
+     */
+    public int getId(String beanName) {
+        int mask = table.length - 1;
+        for(int slot = hash(beanName) & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if(entry == 0) {
+                return -1;
+            }
+            if(beanNames[entry - 1].equals(beanName)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public String getBeanName(int id) {
+        return beanNames[id];
+    }
+
+    public RootBeanDefinition getMergedBeanDefinition(int id) {
+        return mergedBeanDefinitions[id];
+    }
+
+    /**
+     * 获取合并好的 beanDefinition
+     * @return 合并好的 beanDefinition，不存在时返回 null
+     */
+    @Nullable
+    public RootBeanDefinition getMergedBeanDefinition(String beanName) {
+        int id = getId(beanName);
+        return id < 0 ? null : mergedBeanDefinitions[id];
+    }
+
+    public boolean isAbstract(int id) {
+        return (flags[id] & FLAG_ABSTRACT) != 0;
+    }
+
+    public boolean isSingleton(int id) {
+        return (flags[id] & FLAG_SINGLETON) != 0;
+    }
+
+    public boolean isPrototype(int id) {
+        return (flags[id] & FLAG_PROTOTYPE) != 0;
+    }
+
+    public boolean isLazyInit(int id) {
+        return (flags[id] & FLAG_LAZY_INIT) != 0;
+    }
+
+    public boolean isPrimary(int id) {
+        return (flags[id] & FLAG_PRIMARY) != 0;
+    }
+
+    public boolean isAutowireCandidate(int id) {
+        return (flags[id] & FLAG_AUTOWIRE_CANDIDATE) != 0;
+    }
+
+    /**
+     * 获取解析好的自动装配模式，AUTOWIRE_AUTODETECT 已经按构造方法解析成具体的模式
+     */
+    public int getResolvedAutowireMode(int id) {
+        return flags[id] >>> AUTOWIRE_MODE_SHIFT;
+    }
+
+    /**
+     * 获取解析好的 bean 类型
+     * @return bean 类型，没有声明（例如工厂方法创建的 bean）或者加载不到时返回 null
+     */
+    @Nullable
+    public Class<?> getBeanClass(int id) {
+        return beanClasses[id];
+    }
+
+    /**
+     * 获取作用域名称，默认作用域返回 singleton
+     */
+    public String getScope(int id) {
+        return scopes[id];
+    }
+
+    /**
+     * 是否需要在预实例化时创建：非抽象、非延迟加载的单例
+     */
+    public boolean isEagerSingleton(int id) {
+        return (flags[id] & (FLAG_ABSTRACT | FLAG_SINGLETON | FLAG_LAZY_INIT)) == FLAG_SINGLETON;
+    }
+
+    /**
+     * 获取 bean 的属性数量
+     */
+    public int getPropertyCount(int id) {
+        return propertyOffsets[id + 1] - propertyOffsets[id];
+    }
+
+    /**
+     * 获取 bean 的属性名，按 beanDefinition 中的顺序
+     * @param id bean 的 id
+     * @return 属性名
+     */
+    public String[] getPropertyNames(int id) {
+        int from = propertyOffsets[id];
+        String[] result = new String[propertyOffsets[id + 1] - from];
+        System.arraycopy(propertyNames, from, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * 获取 bean 的属性值，和 beanDefinition 中的一样原样返回，{@link TypedStringValue} 中的目标类型不会丢失
+     * @param beanName beanName
+     * @param propertyName 属性名
+     * @return 属性值，bean 或者属性不存在时返回 null
+     */
+    @Nullable
+    public Object getPropertyValue(String beanName, String propertyName) {
+        int id = getId(beanName);
+        if(id < 0) {
+            return null;
+        }
+        for(int i = propertyOffsets[id], end = propertyOffsets[id + 1]; i < end; i++) {
+            if(propertyNames[i].equals(propertyName)) {
+                return propertyValues[i];
+            }
+        }
+        return null;
+    }
+
+    private static int hash(String beanName) {
+        int h = beanName.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 根据 beanFactory 中已注册的 beanDefinition 构建存储，所有 beanDefinition 都会在这时合并
+     * @param beanFactory beanFactory
+     * @return 构建好的存储
+     */
+    public static FrozenBeanDefinitionStore build(DefaultListableBeanFactory beanFactory) {
+        String[] beanNames = beanFactory.getBeanDefinitionNames();
+        // 装载因子不超过 0.5
+        int[] table = new int[Integer.highestOneBit(Math.max(beanNames.length, 1) * 2 - 1) << 1];
+        int mask = table.length - 1;
+        RootBeanDefinition[] mergedBeanDefinitions = new RootBeanDefinition[beanNames.length];
+        int[] flags = new int[beanNames.length];
+        Class<?>[] beanClasses = new Class<?>[beanNames.length];
+        String[] scopes = new String[beanNames.length];
+        int[] propertyOffsets = new int[beanNames.length + 1];
+        for(int id = 0; id < beanNames.length; id++) {
+            int slot = hash(beanNames[id]) & mask;
+            while(table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+
+            RootBeanDefinition mbd = (RootBeanDefinition)beanFactory.getMergedBeanDefinition(beanNames[id]);
+            mergedBeanDefinitions[id] = mbd;
+            flags[id] = (mbd.isAbstract() ? FLAG_ABSTRACT : 0)
+                    | (mbd.isSingleton() ? FLAG_SINGLETON : 0)
+                    | (mbd.isPrototype() ? FLAG_PROTOTYPE : 0)
+                    | (mbd.isLazyInit() ? FLAG_LAZY_INIT : 0)
+                    | (mbd.isPrimary() ? FLAG_PRIMARY : 0)
+                    | (mbd.isAutowireCandidate() ? FLAG_AUTOWIRE_CANDIDATE : 0)
+                    | (mbd.getResolvedAutowireMode() << AUTOWIRE_MODE_SHIFT);
+            beanClasses[id] = resolveBeanClass(beanFactory, mbd);
+            scopes[id] = mbd.isSingleton() ? BeanDefinition.SCOPE_SINGLETON : mbd.getScope();
+            propertyOffsets[id + 1] = propertyOffsets[id] + mbd.getPropertyValues().size();
+        }
+
+        String[] propertyNames = new String[propertyOffsets[beanNames.length]];
+        Object[] propertyValues = new Object[propertyNames.length];
+        for(int id = 0; id < beanNames.length; id++) {
+            int index = propertyOffsets[id];
+            for(PropertyValue propertyValue : mergedBeanDefinitions[id].getPropertyValues().getPropertyValues()) {
+                propertyNames[index] = propertyValue.getName().intern();
+                propertyValues[index] = propertyValue.getValue();
+                index++;
+            }
+        }
+        return new FrozenBeanDefinitionStore(beanNames, table, mergedBeanDefinitions, flags, beanClasses, scopes, propertyOffsets,
+                propertyNames, propertyValues);
+    }
+
+    /**
+     * 和创建 bean 时一样用 beanFactory 的类加载器加载 bean 类型，结果会记录到 beanDefinition 中。加载不到时返回 null，留到创建 bean 时再报错
+     */
+    @Nullable
+    private static Class<?> resolveBeanClass(DefaultListableBeanFactory beanFactory, RootBeanDefinition mbd) {
+        if(mbd.hasBeanClass()) {
+            return mbd.getBeanClass();
+        }
+        if(mbd.getBeanClassName() == null || mbd.isAbstract()) {
+            return null;
+        }
+        try {
+            return mbd.resolveBeanClass(beanFactory.getBeanClassLoader());
+        } catch(ClassNotFoundException | LinkageError ex) {
+            return null;
+        }
+    }
+}
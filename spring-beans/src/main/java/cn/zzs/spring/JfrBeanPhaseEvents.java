@@ -0,0 +1,29 @@
+package cn.zzs.spring;
+
+import org.springframework.lang.Nullable;
+
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+
+/**
+ * 发出 {@link BeanPhaseEvent} JFR 事件，只通过 {@link BeanPhaseEvents#load()} 反射加载，其他类不能直接引用。
+ * @author zzs
+ * @date 2026年10月19日 上午3:05:21
+ */
+final class JfrBeanPhaseEvents implements BeanPhaseEvents {
+
+    @Override
+    public Object begin(String beanName, Phase phase, @Nullable String postProcessor) {
+        BeanPhaseEvent event = new BeanPhaseEvent(beanName, phase, postProcessor);
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end(@Nullable Object event) {
+        BeanPhaseEvent phaseEvent = (BeanPhaseEvent)event;
+        phaseEvent.end();
+        if(phaseEvent.shouldCommit()) {
+            phaseEvent.commit();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.proxy.Callback;
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.Factory;
+import org.springframework.cglib.proxy.MethodInterceptor;
+import org.springframework.cglib.proxy.MethodProxy;
+import org.springframework.cglib.proxy.NoOp;
+import org.springframework.lang.Nullable;
+import org.springframework.objenesis.SpringObjenesis;
+
+/**
+ * 创建延迟解析的代理：注入时只注入一个 cglib 生成的代理，第一次调用方法时才创建真正的依赖，之后直接调用目标对象。
+ * <p>代理通过 Objenesis 实例化，不会调用被代理类的构造方法。解析完成后只需要读一次 volatile 字段，通过 MethodProxy 调用目标对象，不经过反射。
+ * <p>解析时不持有任何锁：getBean 内部会获取 beanFactory 的单例锁，持有代理的锁再去获取单例锁，和正在创建单例、又调用了代理的线程互相等待就会死锁。
+ * 多个线程同时第一次调用时可能都会解析，单例只会创建一次，拿到的是同一个对象。
+ * @author zzs
+ * @date 2026年10月19日 上午3:41:08
+ */
+final class LazyResolutionProxies {
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private static final int INTERCEPT = 0;
+
+    private static final int NO_OVERRIDE = 1;
+
+
+    private LazyResolutionProxies() {
+    }
+
+    /**
+     * 判断类型能否生成延迟解析的代理
+     * @param type 依赖的类型
+     * @return 接口，或者有非 private 构造方法的非 final 类
+     */
+    static boolean isProxyable(Class<?> type) {
+        if(type.isInterface()) {
+            return true;
+        }
+        if(type.isPrimitive() || type.isArray() || Modifier.isFinal(type.getModifiers())) {
+            return false;
+        }
+        for(Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if(!Modifier.isPrivate(constructor.getModifiers())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 创建延迟解析的代理
+     * @param type 依赖的类型
+     * @param classLoader 加载代理类的类加载器
+     * @param resolver 第一次调用方法时执行，返回真正的依赖
+     * @return 代理，类型不能代理时返回 null
+     */
+    @Nullable
+    static Object create(Class<?> type, @Nullable ClassLoader classLoader, Supplier<Object> resolver) {
+        if(!isProxyable(type)) {
+            return null;
+        }
+        Enhancer enhancer = new Enhancer();
+        if(type.isInterface()) {
+            enhancer.setInterfaces(new Class<?>[]{type});
+        } else {
+            enhancer.setSuperclass(type);
+        }
+        enhancer.setClassLoader(classLoader);
+        enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+        enhancer.setUseFactory(true);
+        enhancer.setCallbackFilter(LazyResolutionCallbackFilter.INSTANCE);
+        enhancer.setCallbackTypes(new Class<?>[]{LazyResolutionInterceptor.class, NoOp.class});
+        Class<?> proxyClass = enhancer.createClass();
+        Factory proxy = (Factory)OBJENESIS.newInstance(proxyClass);
+        proxy.setCallbacks(new Callback[]{new LazyResolutionInterceptor(resolver), NoOp.INSTANCE});
+        return proxy;
+    }
+
+    /**
+     * 判断是否为延迟解析的代理
+     */
+    static boolean isLazyResolutionProxy(@Nullable Object bean) {
+        return bean instanceof Factory && ((Factory)bean).getCallback(INTERCEPT) instanceof LazyResolutionInterceptor;
+    }
+
+    /**
+     * 获取代理的目标对象
+     * @param proxy 延迟解析的代理
+     * @return 目标对象，还没有解析时返回 null，不会触发解析
+     */
+    @Nullable
+    static Object getResolvedTarget(Object proxy) {
+        return ((LazyResolutionInterceptor)((Factory)proxy).getCallback(INTERCEPT)).target;
+    }
+
+    /**
+     * finalize 和 clone 不拦截，避免被回收或者复制时触发解析
+     */
+    private static final class LazyResolutionCallbackFilter implements CallbackFilter {
+
+        static final LazyResolutionCallbackFilter INSTANCE = new LazyResolutionCallbackFilter();
+
+
+        @Override
+        public int accept(Method method) {
+            if(method.getParameterCount() == 0 && ("finalize".equals(method.getName()) || "clone".equals(method.getName()))) {
+                return NO_OVERRIDE;
+            }
+            return INTERCEPT;
+        }
+
+        // 所有代理共用一个实例，cglib 以 equals/hashCode 判断能否复用代理类
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LazyResolutionCallbackFilter;
+        }
+
+        @Override
+        public int hashCode() {
+            return LazyResolutionCallbackFilter.class.hashCode();
+        }
+    }
+
+    private static final class LazyResolutionInterceptor implements MethodInterceptor {
+
+        private final Supplier<Object> resolver;
+
+        @Nullable
+        private volatile Object target;
+
+
+        LazyResolutionInterceptor(Supplier<Object> resolver) {
+            super();
+            this.resolver = resolver;
+        }
+
+        @Override
+        public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+            return methodProxy.invoke(getTarget(), args);
+        }
+
+        private Object getTarget() {
+            Object target = this.target;
+            if(target == null) {
+                target = resolver.get();
+                if(target == null) {
+                    throw new BeanCreationException("Lazy resolution of dependency returned null");
+                }
+                this.target = target;
+            }
+            return target;
+        }
+    }
+}
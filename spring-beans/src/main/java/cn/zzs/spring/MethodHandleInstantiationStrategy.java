@@ -0,0 +1,191 @@
+package cn.zzs.spring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.CglibSubclassingInstantiationStrategy;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 使用 MethodHandle 调用构造方法的实例化策略，替代 BeanUtils.instantiateClass 中的反射调用。
+ * <p>需要方法注入（lookup-method、replaced-method）的 bean 仍然交给 CglibSubclassingInstantiationStrategy 处理。
+ * <p>和 SimpleInstantiationStrategy 一样，把无参构造方法记录到 beanDefinition 的 resolvedConstructorOrFactoryMethod 中，
+ * 之后创建同一个 bean 时不再查找构造方法，createBeanInstance 也可以直接走已解析的分支。这个字段不是 public 的，只能通过反射访问。
+ * @author zzs
+ * @date 2026年10月18日 下午9:18:52
+ */
+public class MethodHandleInstantiationStrategy extends CglibSubclassingInstantiationStrategy {
+
+    /** RootBeanDefinition.constructorArgumentLock 和 resolvedConstructorOrFactoryMethod，无法访问时为 null，不缓存构造方法 */
+    @Nullable
+    private static final Field CONSTRUCTOR_ARGUMENT_LOCK = findField("constructorArgumentLock");
+
+    @Nullable
+    private static final MethodHandle RESOLVED_CONSTRUCTOR_GETTER;
+
+    @Nullable
+    private static final MethodHandle RESOLVED_CONSTRUCTOR_SETTER;
+
+    static {
+        Field resolvedConstructor = findField("resolvedConstructorOrFactoryMethod");
+        MethodHandle getter = null;
+        MethodHandle setter = null;
+        if(resolvedConstructor != null) {
+            try {
+                getter = MethodHandles.lookup().unreflectGetter(resolvedConstructor);
+                setter = MethodHandles.lookup().unreflectSetter(resolvedConstructor);
+            } catch(IllegalAccessException e) {
+                getter = null;
+                setter = null;
+            }
+        }
+        RESOLVED_CONSTRUCTOR_GETTER = getter;
+        RESOLVED_CONSTRUCTOR_SETTER = setter;
+    }
+
+    /** 和 BeanUtils.instantiateClass 一致，基本类型的参数传入 null 时使用默认值 */
+    private static final Map<Class<?>, Object> DEFAULT_TYPE_VALUES;
+
+    static {
+        Map<Class<?>, Object> values = new HashMap<>(16);
+        values.put(boolean.class, false);
+        values.put(byte.class, (byte)0);
+        values.put(short.class, (short)0);
+        values.put(int.class, 0);
+        values.put(long.class, 0L);
+        values.put(float.class, 0F);
+        values.put(double.class, 0D);
+        values.put(char.class, '\0');
+        DEFAULT_TYPE_VALUES = Collections.unmodifiableMap(values);
+    }
+
+    private final ConcurrentMap<Class<?>, BeanMethodHandles> methodHandlesCache = new ConcurrentHashMap<>(256);
+
+    /** 不为空时从多个 beanFactory 共用的缓存中获取 MethodHandle，不再使用 methodHandlesCache */
+    @Nullable
+    private final BeanMetadataCache metadataCache;
+
+
+    public MethodHandleInstantiationStrategy() {
+        this(null);
+    }
+
+    /**
+     * @param metadataCache 多个 beanFactory 共用的元数据缓存，为空时只在当前实例中缓存
+     */
+    public MethodHandleInstantiationStrategy(@Nullable BeanMetadataCache metadataCache) {
+        super();
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * 获取类对应的 MethodHandle
+     * @param beanClass bean类型
+     * @return MethodHandle
+     */
+    public BeanMethodHandles getMethodHandles(Class<?> beanClass) {
+        BeanMetadataCache metadataCache = this.metadataCache;
+        if(metadataCache != null) {
+            return metadataCache.getMethodHandles(beanClass);
+        }
+        return methodHandlesCache.computeIfAbsent(beanClass, BeanMethodHandles::new);
+    }
+
+    @Override
+    public Object instantiate(RootBeanDefinition bd, @Nullable String beanName, BeanFactory owner) {
+        if(bd.hasMethodOverrides()) {
+            return super.instantiate(bd, beanName, owner);
+        }
+        return instantiate(getDefaultConstructor(bd));
+    }
+
+    /**
+     * 和 SimpleInstantiationStrategy 一致，在 beanDefinition 上缓存无参构造方法
+     */
+    private static Constructor<?> getDefaultConstructor(RootBeanDefinition bd) {
+        if(CONSTRUCTOR_ARGUMENT_LOCK == null || RESOLVED_CONSTRUCTOR_GETTER == null || RESOLVED_CONSTRUCTOR_SETTER == null) {
+            return findDefaultConstructor(bd.getBeanClass());
+        }
+        synchronized(ReflectionUtils.getField(CONSTRUCTOR_ARGUMENT_LOCK, bd)) {
+            try {
+                Executable resolved = (Executable)RESOLVED_CONSTRUCTOR_GETTER.invoke(bd);
+                if(resolved instanceof Constructor) {
+                    return (Constructor<?>)resolved;
+                }
+                Constructor<?> constructorToUse = findDefaultConstructor(bd.getBeanClass());
+                RESOLVED_CONSTRUCTOR_SETTER.invoke(bd, (Executable)constructorToUse);
+                return constructorToUse;
+            } catch(RuntimeException | Error e) {
+                throw e;
+            } catch(Throwable e) {
+                throw new IllegalStateException("Could not access resolved constructor of " + bd, e);
+            }
+        }
+    }
+
+    private static Constructor<?> findDefaultConstructor(Class<?> clazz) {
+        if(clazz.isInterface()) {
+            throw new BeanInstantiationException(clazz, "Specified class is an interface");
+        }
+        try {
+            return clazz.getDeclaredConstructor();
+        } catch(Throwable ex) {
+            throw new BeanInstantiationException(clazz, "No default constructor found", ex);
+        }
+    }
+
+    @Override
+    public Object instantiate(RootBeanDefinition bd, @Nullable String beanName, BeanFactory owner, Constructor<?> ctor, Object... args) {
+        if(bd.hasMethodOverrides()) {
+            return super.instantiate(bd, beanName, owner, ctor, args);
+        }
+        return instantiate(ctor, args);
+    }
+
+    private Object instantiate(Constructor<?> ctor, Object... args) {
+        if(Modifier.isAbstract(ctor.getDeclaringClass().getModifiers())) {
+            throw new BeanInstantiationException(ctor, "Is it an abstract class?", null);
+        }
+        Object[] argsToUse = args;
+        Class<?>[] parameterTypes = ctor.getParameterTypes();
+        for(int i = 0; i < args.length && i < parameterTypes.length; i++) {
+            if(args[i] == null && parameterTypes[i].isPrimitive()) {
+                if(argsToUse == args) {
+                    argsToUse = args.clone();
+                }
+                argsToUse[i] = DEFAULT_TYPE_VALUES.get(parameterTypes[i]);
+            }
+        }
+        try {
+            return (Object)getMethodHandles(ctor.getDeclaringClass()).getConstructor(ctor).invokeExact(argsToUse);
+        } catch(Throwable ex) {
+            throw new BeanInstantiationException(ctor, "Constructor threw exception", ex);
+        }
+    }
+
+    @Nullable
+    private static Field findField(String name) {
+        Field field = ReflectionUtils.findField(RootBeanDefinition.class, name);
+        if(field != null) {
+            try {
+                ReflectionUtils.makeAccessible(field);
+            } catch(RuntimeException e) {
+                return null;
+            }
+        }
+        return field;
+    }
+}
@@ -0,0 +1,1710 @@
+package cn.zzs.spring;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyAccessorUtils;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.TypeConverter;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.CannotLoadBeanClassException;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.SmartFactoryBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionValidationException;
+import org.springframework.beans.factory.support.CglibSubclassingInstantiationStrategy;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.FactoryBeanRegistrySupport;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ResolvableType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+import cn.zzs.spring.BeanMethodHandles.PropertySetter;
+import cn.zzs.spring.BeanPostProcessorFilter.ApplicableBeanPostProcessors;
+import cn.zzs.spring.SingletonCreationLocks.SingletonCreationConflictException;
+
+/**
+ * 在 DefaultListableBeanFactory 的基础上增加了一些可选的优化模式，默认全部关闭，需要通过 setter 开启。
+ * <p>1. 类型索引：冻结配置时构建 beanType 到 beanName 的索引，getBean(Class) 不再需要遍历所有 beanDefinition 和判断 primary。
+ * <p>2. 并行预实例化：preInstantiateSingletons 时根据 {@link BeanDependencyGraph} 在 ForkJoinPool 中并行创建相互独立的单例，
+ * 循环依赖中的 bean 仍然在同一个线程中串行创建。并行期间，单例的创建不再使用全局锁，而是按 beanName 加锁。
+ * <p>3. MethodHandle 调用：使用 MethodHandle 调用构造方法、已经完成类型转换的 setter 和初始化方法，替代反射调用。
+ * <p>4. 按 beanName 创建单例：一直按 beanName 加锁创建单例（而不只是在并行预实例化期间），不同 bean 的首次 getBean 不再互相阻塞，
+ * 已经创建完成的单例直接从 singletonObjects 中读取，不加锁。提前暴露的引用只对正在创建它的线程可见，循环依赖仍然可以解决。
+ * 单例 factoryBean 创建对象时也按 beanName 加锁，而不是像父类一样在全局锁中调用 getObject()。
+ * <p>5. 后置处理器过滤：为每个 bean 预先算好实例化、属性装配和初始化各阶段需要调用的后置处理器，
+ * 跳过只使用了接口 default 方法的处理器，以及 {@link SelectiveBeanPostProcessor} 声明不生效的处理器。
+ * <p>6. 耗时记录：通过 {@link BeanCreationInstrumentation} 记录每个 bean 实例化、属性装配、每个后置处理器和初始化的耗时，
+ * 同时发出 JFR 事件。
+ * <p>7. 延迟解析：注入依赖时注入一个代理，第一次调用方法时才创建真正的依赖。可以全局开启，也可以在依赖的 beanDefinition 上设置
+ * {@link #LAZY_RESOLUTION_ATTRIBUTE}。只对还没有创建的单例生效，支持自动装配（byType、byName、构造方法）和 ref 属性。
+ * <p>8. 循环依赖整体创建：根据 {@link BeanDependencyGraph} 提前找出循环依赖，创建其中一个 bean 时，先把整个循环中的 bean 全部实例化并算好
+ * 提前暴露的引用，再依次装配和初始化。装配时获取同一个循环中的 bean 直接返回算好的引用，不再经过三级缓存的逐级查找。
+ * 只处理由非延迟加载的普通单例组成、循环内部只有属性依赖的循环，其他情况仍然按原来的方式创建。
+ * <p>9. 冻结后的 beanDefinition 存储：冻结配置时把所有 beanDefinition 合并好，存入按 int id 访问的 {@link FrozenBeanDefinitionStore}，
+ * 标志、bean 类型、作用域和属性展开到数组中，预实例化和推断构造方法时直接读取。
+ * 之后获取合并的 beanDefinition 不再查 ConcurrentHashMap，也不会在第一次创建 bean 时重新合并。冻结之后注册或移除 beanDefinition 会让存储失效，
+ * 再次冻结配置时才重建。
+ * <p>10. FactoryBean 缓存：FactoryBean 创建的对象类型只从 beanDefinition 的 {@link FactoryBean#OBJECT_TYPE_ATTRIBUTE} 属性、
+ * 泛型（FactoryBean&lt;User&gt;）或者工厂方法的返回类型推断一次，按类型匹配时不会为了调用 getObjectType 而提前创建 factoryBean。
+ * 单例 factoryBean 创建的对象仍然由父类缓存，可以通过 {@link #invalidateFactoryBeanObject(String)} 清除。
+ * <p>11. 共用元数据缓存：构造方法的候选列表、参数名和 MethodHandle 从多个 beanFactory 共用的 {@link BeanMetadataCache} 中获取，
+ * 同一个类只解析一次，适合频繁创建子 beanFactory 的场景。
+ * @author zzs
+ * @date 2026年10月18日 下午6:41:27
+ */
+public class OptimizedListableBeanFactory extends DefaultListableBeanFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    /** RootBeanDefinition.allowCaching，无法访问时按 true 处理 */
+    @Nullable
+    private static final MethodHandle ALLOW_CACHING_GETTER = findFieldGetter(RootBeanDefinition.class, "allowCaching");
+
+    /** FactoryBeanRegistrySupport.factoryBeanObjectCache，单例 factoryBean 创建的对象，无法访问时不能清除 */
+    @Nullable
+    private static final MethodHandle FACTORY_BEAN_OBJECT_CACHE_GETTER = findFieldGetter(FactoryBeanRegistrySupport.class, "factoryBeanObjectCache");
+
+    /** beanDefinition 的这个属性为 true 时，注入这个 bean 的地方都注入延迟解析的代理 */
+    public static final String LAZY_RESOLUTION_ATTRIBUTE = OptimizedListableBeanFactory.class.getName() + ".lazyResolution";
+
+    private boolean typeIndexEnabled = false;
+
+    @Nullable
+    private volatile BeanTypeIndex typeIndex;
+
+    private boolean parallelPreInstantiation = false;
+
+    private int preInstantiationParallelism = 0;
+
+    @Nullable
+    private volatile BeanDependencyGraph dependencyGraph;
+
+    /** 是否按 beanName 加锁创建单例 */
+    private volatile boolean concurrentSingletonCreation = false;
+
+    private final SingletonCreationLocks singletonCreationLocks = new SingletonCreationLocks(getSingletonMutex());
+
+    /** 按 beanName 加锁时，每个线程只能看到自己正在创建的单例，避免拿到其他线程提前暴露的、还没创建完成的 bean */
+    private final ThreadLocal<Set<String>> singletonsCurrentlyInCreationByThread = new ThreadLocal<>();
+
+    @Nullable
+    private MethodHandleInstantiationStrategy methodHandleStrategy;
+
+    @Nullable
+    private volatile BeanMetadataCache metadataCache;
+
+    @Nullable
+    private volatile BeanPostProcessorFilter postProcessorFilter;
+
+    @Nullable
+    private volatile BeanCreationInstrumentation instrumentation;
+
+    /** 只开启了耗时记录、没有开启后置处理器过滤时使用，不按 SelectiveBeanPostProcessor 过滤 */
+    private final BeanPostProcessorFilter instrumentationPostProcessorFilter = new BeanPostProcessorFilter(false);
+
+    private volatile boolean lazyResolution = false;
+
+    /** 设置了 LAZY_RESOLUTION_ATTRIBUTE 的 beanName，注册或移除 beanDefinition 后重新计算 */
+    @Nullable
+    private volatile Set<String> lazyResolutionBeanNames;
+
+    private volatile boolean batchCycleCreation = false;
+
+    /** 整体创建循环依赖时提前算好的引用，代替 singletonFactories 和 earlySingletonObjects，只对创建循环的线程可见 */
+    private final Map<String, EarlyReference> preallocatedEarlyReferences = new ConcurrentHashMap<>(16);
+
+    /** 父类中的这两个字段是私有的，也没有 getter，在 setter 中记录一份 */
+    private boolean allowCircularReferences = true;
+
+    private boolean allowRawInjectionDespiteWrapping = false;
+
+    private boolean frozenDefinitionStoreEnabled = false;
+
+    /** 构建时需要合并 beanDefinition，先置为 null，这期间获取合并的 beanDefinition 走原来的逻辑 */
+    @Nullable
+    private volatile FrozenBeanDefinitionStore frozenDefinitionStore;
+
+    private volatile boolean factoryBeanCaching = false;
+
+    /** factoryBean 的 beanName 到它创建的对象的类型 */
+    private final Map<String, ResolvableType> factoryBeanObjectTypes = new ConcurrentHashMap<>(16);
+
+
+    /**
+     * 设置是否开启类型索引。开启后，在 freezeConfiguration 时构建索引，之后注册或移除 bean 会让索引失效并在下次使用时重建。
+     * @param typeIndexEnabled 是否开启
+     */
+    public void setTypeIndexEnabled(boolean typeIndexEnabled) {
+        this.typeIndexEnabled = typeIndexEnabled;
+        if(!typeIndexEnabled) {
+            this.typeIndex = null;
+        }
+    }
+
+    public boolean isTypeIndexEnabled() {
+        return typeIndexEnabled;
+    }
+
+    /**
+     * 获取当前的类型索引
+     * @return 类型索引，未开启或者还没冻结配置时返回 null
+     */
+    @Nullable
+    public BeanTypeIndex getTypeIndex() {
+        BeanTypeIndex typeIndex = this.typeIndex;
+        if(typeIndex == null && typeIndexEnabled && isConfigurationFrozen()) {
+            typeIndex = BeanTypeIndex.build(this);
+            this.typeIndex = typeIndex;
+        }
+        return typeIndex;
+    }
+
+    /**
+     * 设置是否开启冻结后的 beanDefinition 存储。开启后，在 freezeConfiguration 时构建，之后注册或移除 bean 会让存储失效，
+     * 直到再次调用 freezeConfiguration 才重建，避免逐个注册 bean 时每次都重建整个存储。
+     * @param frozenDefinitionStoreEnabled 是否开启
+     */
+    public void setFrozenDefinitionStoreEnabled(boolean frozenDefinitionStoreEnabled) {
+        this.frozenDefinitionStoreEnabled = frozenDefinitionStoreEnabled;
+        this.frozenDefinitionStore = null;
+        if(frozenDefinitionStoreEnabled && isConfigurationFrozen()) {
+            this.frozenDefinitionStore = FrozenBeanDefinitionStore.build(this);
+        }
+    }
+
+    public boolean isFrozenDefinitionStoreEnabled() {
+        return frozenDefinitionStoreEnabled;
+    }
+
+    /**
+     * 获取冻结后的 beanDefinition 存储
+     * @return 存储，未开启、还没冻结配置或者冻结之后 beanDefinition 有变化时返回 null
+     */
+    @Nullable
+    public FrozenBeanDefinitionStore getFrozenDefinitionStore() {
+        return frozenDefinitionStore;
+    }
+
+    /**
+     * 设置是否并行预实例化单例
+     * @param parallelPreInstantiation 是否开启
+     */
+    public void setParallelPreInstantiation(boolean parallelPreInstantiation) {
+        this.parallelPreInstantiation = parallelPreInstantiation;
+    }
+
+    public boolean isParallelPreInstantiation() {
+        return parallelPreInstantiation;
+    }
+
+    /**
+     * 设置并行预实例化的并行度
+     * @param preInstantiationParallelism 并行度，小于等于 0 时使用 CPU 核数
+     */
+    public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+        this.preInstantiationParallelism = preInstantiationParallelism;
+    }
+
+    public int getPreInstantiationParallelism() {
+        return preInstantiationParallelism;
+    }
+
+    /**
+     * 获取根据当前 beanDefinition 推算出来的依赖图，注册或移除 beanDefinition 后会重新构建
+     * @return 依赖图
+     */
+    public BeanDependencyGraph getDependencyGraph() {
+        BeanDependencyGraph dependencyGraph = this.dependencyGraph;
+        if(dependencyGraph == null) {
+            BeanTypeIndex typeIndex = getTypeIndex();
+            dependencyGraph = BeanDependencyGraph.build(this, typeIndex != null ? typeIndex : BeanTypeIndex.build(this));
+            this.dependencyGraph = dependencyGraph;
+        }
+        return dependencyGraph;
+    }
+
+    /**
+     * 设置是否使用 MethodHandle 调用构造方法、setter 和初始化方法
+     * @param methodHandleInvocation 是否开启
+     */
+    public void setMethodHandleInvocation(boolean methodHandleInvocation) {
+        if(methodHandleInvocation) {
+            this.methodHandleStrategy = new MethodHandleInstantiationStrategy(metadataCache);
+            setInstantiationStrategy(methodHandleStrategy);
+        } else {
+            this.methodHandleStrategy = null;
+            setInstantiationStrategy(new CglibSubclassingInstantiationStrategy());
+        }
+    }
+
+    public boolean isMethodHandleInvocation() {
+        return methodHandleStrategy != null;
+    }
+
+    /**
+     * 设置多个 beanFactory 共用的元数据缓存，一般使用 {@link BeanMetadataCache#getSharedInstance()}。
+     * 设置后参数名也从缓存中获取，会替换当前的 ParameterNameDiscoverer。
+     * @param metadataCache 元数据缓存，为空时关闭
+     */
+    public void setMetadataCache(@Nullable BeanMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+        setParameterNameDiscoverer(metadataCache != null ? metadataCache : new DefaultParameterNameDiscoverer());
+        if(methodHandleStrategy != null) {
+            setMethodHandleInvocation(true);
+        }
+    }
+
+    @Nullable
+    public BeanMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * 设置是否一直按 beanName 加锁创建单例。关闭时只在并行预实例化期间按 beanName 加锁，其他时候使用全局锁。
+     * <p>需要在创建单例之前设置，或者确保设置时没有其他线程正在创建单例。
+     * @param concurrentSingletonCreation 是否开启
+     */
+    public void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+        setConcurrentSingletonCreationInternal(concurrentSingletonCreation);
+    }
+
+    public boolean isConcurrentSingletonCreation() {
+        return concurrentSingletonCreation;
+    }
+
+    /**
+     * 设置是否按 bean 过滤后置处理器
+     * @param postProcessorFiltering 是否开启
+     */
+    public void setPostProcessorFiltering(boolean postProcessorFiltering) {
+        this.postProcessorFilter = postProcessorFiltering ? new BeanPostProcessorFilter(true) : null;
+    }
+
+    public boolean isPostProcessorFiltering() {
+        return postProcessorFilter != null;
+    }
+
+    /**
+     * 设置 bean 创建耗时的记录器
+     * @param instrumentation 记录器，为 null 时不记录
+     */
+    public void setInstrumentation(@Nullable BeanCreationInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @Nullable
+    public BeanCreationInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * 设置是否对所有 lazy-init 的单例依赖延迟解析。关闭时只对设置了 {@link #LAZY_RESOLUTION_ATTRIBUTE} 的 bean 延迟解析。
+     * 非 lazy-init 的单例在 preInstantiateSingletons 时总会创建，延迟解析只会推迟错误的暴露，所以不受这个开关影响
+     * @param lazyResolution 是否开启
+     */
+    public void setLazyResolution(boolean lazyResolution) {
+        this.lazyResolution = lazyResolution;
+    }
+
+    public boolean isLazyResolution() {
+        return lazyResolution;
+    }
+
+    /**
+     * 设置是否开启 FactoryBean 类型缓存，单例 factoryBean 创建的对象不管是否开启都由父类缓存
+     * @param factoryBeanCaching 是否开启
+     */
+    public void setFactoryBeanCaching(boolean factoryBeanCaching) {
+        this.factoryBeanCaching = factoryBeanCaching;
+        if(!factoryBeanCaching) {
+            factoryBeanObjectTypes.clear();
+        }
+    }
+
+    public boolean isFactoryBeanCaching() {
+        return factoryBeanCaching;
+    }
+
+    /**
+     * 清除单例 factoryBean 缓存的对象，下次获取时重新调用 getObject
+     * @param beanName factoryBean 的 beanName，可以带 &amp; 前缀
+     */
+    public void invalidateFactoryBeanObject(String beanName) {
+        String canonicalName = canonicalName(BeanFactoryUtils.transformedBeanName(beanName));
+        synchronized(getSingletonMutex()) {
+            getFactoryBeanObjectCache().remove(canonicalName);
+        }
+    }
+
+    /**
+     * 清除所有单例 factoryBean 缓存的对象
+     */
+    public void invalidateFactoryBeanObjects() {
+        synchronized(getSingletonMutex()) {
+            getFactoryBeanObjectCache().clear();
+        }
+    }
+
+    /**
+     * 父类中的缓存是私有的，只提供了 getCachedObjectForFactoryBean 读取，清除时直接访问字段
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getFactoryBeanObjectCache() {
+        if(FACTORY_BEAN_OBJECT_CACHE_GETTER == null) {
+            throw new IllegalStateException("Cannot access FactoryBeanRegistrySupport.factoryBeanObjectCache");
+        }
+        try {
+            return (Map<String, Object>)FACTORY_BEAN_OBJECT_CACHE_GETTER.invoke(this);
+        } catch(Throwable e) {
+            throw new IllegalStateException("Cannot access FactoryBeanRegistrySupport.factoryBeanObjectCache", e);
+        }
+    }
+
+    /**
+     * 设置是否整体创建循环依赖中的 bean
+     * @param batchCycleCreation 是否开启
+     */
+    public void setBatchCycleCreation(boolean batchCycleCreation) {
+        this.batchCycleCreation = batchCycleCreation;
+    }
+
+    public boolean isBatchCycleCreation() {
+        return batchCycleCreation;
+    }
+
+    @Override
+    public void setAllowCircularReferences(boolean allowCircularReferences) {
+        super.setAllowCircularReferences(allowCircularReferences);
+        this.allowCircularReferences = allowCircularReferences;
+    }
+
+    @Override
+    public void setAllowRawInjectionDespiteWrapping(boolean allowRawInjectionDespiteWrapping) {
+        super.setAllowRawInjectionDespiteWrapping(allowRawInjectionDespiteWrapping);
+        this.allowRawInjectionDespiteWrapping = allowRawInjectionDespiteWrapping;
+    }
+
+    @Override
+    public void freezeConfiguration() {
+        super.freezeConfiguration();
+        // 先构建存储，之后构建类型索引时获取合并的 beanDefinition 就可以使用存储
+        this.frozenDefinitionStore = null;
+        if(frozenDefinitionStoreEnabled) {
+            this.frozenDefinitionStore = FrozenBeanDefinitionStore.build(this);
+        }
+        if(typeIndexEnabled) {
+            this.typeIndex = BeanTypeIndex.build(this);
+        }
+    }
+
+    @Override
+    protected RootBeanDefinition getMergedLocalBeanDefinition(String beanName) throws BeansException {
+        FrozenBeanDefinitionStore frozenDefinitionStore = getFrozenDefinitionStore();
+        if(frozenDefinitionStore != null) {
+            RootBeanDefinition mbd = frozenDefinitionStore.getMergedBeanDefinition(beanName);
+            if(mbd != null) {
+                return mbd;
+            }
+        }
+        return super.getMergedLocalBeanDefinition(beanName);
+    }
+
+    /**
+     * 存储中的 beanDefinition 和父类缓存的是同一个对象，markBeanAsCreated 时不标记过期，
+     * 否则父类中直接合并 beanDefinition 的地方（例如推断 factoryBean 的类型）会重新合并出另一个对象，和存储中的不一致。
+     * 注册或移除 beanDefinition 时存储已经失效，仍然按原来的方式标记过期
+     */
+    @Override
+    protected void clearMergedBeanDefinition(String beanName) {
+        FrozenBeanDefinitionStore frozenDefinitionStore = this.frozenDefinitionStore;
+        if(frozenDefinitionStore != null && frozenDefinitionStore.getId(beanName) >= 0) {
+            return;
+        }
+        super.clearMergedBeanDefinition(beanName);
+    }
+
+    /**
+     * 父类会把还没有创建的 bean 的合并结果标记为过期，存储按重新合并的结果重建
+     */
+    @Override
+    public void clearMetadataCache() {
+        super.clearMetadataCache();
+        FrozenBeanDefinitionStore frozenDefinitionStore = this.frozenDefinitionStore;
+        if(frozenDefinitionStore != null) {
+            this.frozenDefinitionStore = null;
+            this.frozenDefinitionStore = FrozenBeanDefinitionStore.build(this);
+        }
+    }
+
+    @Override
+    public boolean containsBeanDefinition(String beanName) {
+        FrozenBeanDefinitionStore frozenDefinitionStore = getFrozenDefinitionStore();
+        if(frozenDefinitionStore != null && beanName != null) {
+            return frozenDefinitionStore.getId(beanName) >= 0;
+        }
+        return super.containsBeanDefinition(beanName);
+    }
+
+    @Override
+    public int getBeanDefinitionCount() {
+        FrozenBeanDefinitionStore frozenDefinitionStore = getFrozenDefinitionStore();
+        return frozenDefinitionStore != null ? frozenDefinitionStore.size() : super.getBeanDefinitionCount();
+    }
+
+    /**
+     * 开启 FactoryBean 缓存时，不允许为了获取类型而创建 factoryBean，推断出来的类型按 beanName 缓存
+     */
+    @Override
+    protected ResolvableType getTypeForFactoryBean(String beanName, RootBeanDefinition mbd, boolean allowInit) {
+        if(!factoryBeanCaching) {
+            return super.getTypeForFactoryBean(beanName, mbd, allowInit);
+        }
+        ResolvableType objectType = factoryBeanObjectTypes.get(beanName);
+        if(objectType == null) {
+            objectType = resolveFactoryBeanObjectType(beanName, mbd);
+            // 推断不出来时不缓存，之后 factoryBean 创建了就可以直接调用实例的 getObjectType
+            if(objectType.resolve() == null) {
+                return objectType;
+            }
+            factoryBeanObjectTypes.put(beanName, objectType);
+        }
+        return objectType;
+    }
+
+    private ResolvableType resolveFactoryBeanObjectType(String beanName, RootBeanDefinition mbd) {
+        Object attribute = mbd.getAttribute(FactoryBean.OBJECT_TYPE_ATTRIBUTE);
+        if(attribute instanceof ResolvableType) {
+            return (ResolvableType)attribute;
+        }
+        if(attribute instanceof Class) {
+            return ResolvableType.forClass((Class<?>)attribute);
+        }
+        if(attribute instanceof String) {
+            return ResolvableType.forClass(ClassUtils.resolveClassName((String)attribute, getBeanClassLoader()));
+        }
+        if(mbd.getFactoryMethodName() == null && mbd.getInstanceSupplier() == null) {
+            Class<?> beanClass;
+            try {
+                beanClass = resolveBeanClass(mbd, beanName);
+            } catch(CannotLoadBeanClassException ex) {
+                beanClass = null;
+            }
+            if(beanClass != null) {
+                ResolvableType objectType = ResolvableType.forClass(beanClass).as(FactoryBean.class).getGeneric();
+                Class<?> resolved = objectType.resolve();
+                if(resolved != null && resolved != Object.class) {
+                    return objectType;
+                }
+            }
+        }
+        // 工厂方法的返回类型等交给父类推断，但是不允许创建 factoryBean
+        return super.getTypeForFactoryBean(beanName, mbd, false);
+    }
+
+    @Override
+    public <T> T getBean(Class<T> requiredType, @Nullable Object... args) throws BeansException {
+        BeanTypeIndex typeIndex = getTypeIndex();
+        if(typeIndex != null) {
+            String beanName = typeIndex.getResolvedName(requiredType);
+            if(beanName != null) {
+                return getBean(beanName, requiredType, args);
+            }
+        }
+        // 索引中无法确定的情况（没有候选、多个候选且没有唯一的 primary），交给原来的逻辑处理，以保持一样的报错信息
+        return super.getBean(requiredType, args);
+    }
+
+    @Override
+    public void preInstantiateSingletons() throws BeansException {
+        if(!parallelPreInstantiation) {
+            super.preInstantiateSingletons();
+            return;
+        }
+        if(logger.isTraceEnabled()) {
+            logger.trace("Pre-instantiating singletons in parallel in " + this);
+        }
+        BeanDependencyGraph dependencyGraph = getDependencyGraph();
+        ForkJoinPool pool = createPreInstantiationPool();
+        boolean previousConcurrentSingletonCreation = this.concurrentSingletonCreation;
+        setConcurrentSingletonCreationInternal(true);
+        try {
+            // 强连通分量已经按依赖在前排好序，只要在依赖的强连通分量都创建完之后再提交就行
+            int[][] components = dependencyGraph.getComponents();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[components.length];
+            for(int i = 0; i < components.length; i++) {
+                int[] component = components[i];
+                Runnable task = () -> {
+                    for(int id : component) {
+                        preInstantiateSingleton(dependencyGraph.getBeanName(id));
+                    }
+                };
+                List<CompletableFuture<?>> dependencies = new ArrayList<>();
+                Set<Integer> dependencyComponents = new HashSet<>();
+                for(int id : component) {
+                    for(int dependency : dependencyGraph.getDependencies(id)) {
+                        int dependencyComponent = dependencyGraph.getComponentOf(dependency);
+                        if(dependencyComponent != i && dependencyComponents.add(dependencyComponent)) {
+                            dependencies.add(futures[dependencyComponent]);
+                        }
+                    }
+                }
+                futures[i] = dependencies.isEmpty() ? CompletableFuture.runAsync(task, pool)
+                        : CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0])).thenRunAsync(task, pool);
+            }
+            CompletableFuture.allOf(futures).join();
+        } catch(CompletionException e) {
+            Throwable cause = e;
+            while(cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+            setConcurrentSingletonCreationInternal(previousConcurrentSingletonCreation);
+        }
+
+        // Trigger post-initialization callback for all applicable beans...
+        for(String beanName : getBeanDefinitionNames()) {
+            Object singletonInstance = getSingleton(beanName);
+            if(singletonInstance instanceof SmartInitializingSingleton) {
+                ((SmartInitializingSingleton)singletonInstance).afterSingletonsInstantiated();
+            }
+        }
+    }
+
+    /**
+     * 和 DefaultListableBeanFactory.preInstantiateSingletons 中对单个 bean 的处理一致
+     */
+    private void preInstantiateSingleton(String beanName) {
+        FrozenBeanDefinitionStore frozenDefinitionStore = getFrozenDefinitionStore();
+        int id = frozenDefinitionStore == null ? -1 : frozenDefinitionStore.getId(beanName);
+        if(id >= 0 ? !frozenDefinitionStore.isEagerSingleton(id) : !isEagerSingleton(getMergedLocalBeanDefinition(beanName))) {
+            return;
+        }
+        if(isFactoryBean(beanName)) {
+            Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+            if(bean instanceof SmartFactoryBean && ((SmartFactoryBean<?>)bean).isEagerInit()) {
+                getBean(beanName);
+            }
+        } else {
+            getBean(beanName);
+        }
+    }
+
+    private static boolean isEagerSingleton(RootBeanDefinition bd) {
+        return !bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit();
+    }
+
+    private ForkJoinPool createPreInstantiationPool() {
+        int parallelism = preInstantiationParallelism > 0 ? preInstantiationParallelism : Runtime.getRuntime().availableProcessors();
+        ClassLoader beanClassLoader = getBeanClassLoader();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("bean-pre-instantiation-" + thread.getPoolIndex());
+            thread.setContextClassLoader(beanClassLoader);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 切换单例的加锁方式。在全局锁中切换，保证切换时没有线程在使用全局锁创建单例
+     */
+    private void setConcurrentSingletonCreationInternal(boolean concurrentSingletonCreation) {
+        synchronized(getSingletonMutex()) {
+            this.concurrentSingletonCreation = concurrentSingletonCreation;
+        }
+    }
+
+    @Override
+    public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
+        if(!concurrentSingletonCreation) {
+            return super.getSingleton(beanName, singletonFactory);
+        }
+        Object singletonObject = getPublishedSingleton(beanName);
+        if(singletonObject != null) {
+            return singletonObject;
+        }
+        return callWithCreationLock(beanName, () -> createSingleton(beanName, singletonFactory));
+    }
+
+    /**
+     * 父类在全局锁中调用单例 factoryBean 的 getObject()。按 beanName 加锁时，getObject() 中获取其他 bean 会等待那个 bean 的锁，
+     * 而持有那个锁正在创建 bean 的线程需要全局锁才能注册单例，两个线程会互相等待。
+     * 这里改成在 factoryBean 的 beanName 对应的锁中创建对象，加锁顺序始终是先 beanName 的锁、再全局锁，全局锁只用来写缓存
+     */
+    @Override
+    protected Object getObjectFromFactoryBean(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
+        if(!concurrentSingletonCreation || !factory.isSingleton() || !containsSingleton(beanName)) {
+            return super.getObjectFromFactoryBean(factory, beanName, shouldPostProcess);
+        }
+        Object object = getCachedObjectForFactoryBean(beanName);
+        if(object != null) {
+            return object;
+        }
+        return callWithCreationLock(beanName, () -> createFactoryBeanObject(factory, beanName, shouldPostProcess));
+    }
+
+    /**
+     * 和 FactoryBeanRegistrySupport.getObjectFromFactoryBean 中单例的处理一致，只是在 beanName 对应的锁中执行
+     */
+    private Object createFactoryBeanObject(FactoryBean<?> factory, String beanName, boolean shouldPostProcess) {
+        Object object = getCachedObjectForFactoryBean(beanName);
+        if(object != null) {
+            return object;
+        }
+        // 按非单例交给父类调用 getObject()，沿用父类对异常和 null 的处理，不会进入全局锁
+        object = super.getObjectFromFactoryBean(new NonSingletonFactoryBean(factory), beanName, false);
+        // Only post-process and store if not put there already during getObject() call above
+        // (e.g. because of circular reference processing triggered by custom getBean calls)
+        Object alreadyThere = getCachedObjectForFactoryBean(beanName);
+        if(alreadyThere != null) {
+            return alreadyThere;
+        }
+        if(shouldPostProcess) {
+            if(isSingletonCurrentlyInCreation(beanName)) {
+                // Temporarily return non-post-processed object, not storing it yet..
+                return object;
+            }
+            beforeSingletonCreation(beanName);
+            try {
+                object = postProcessObjectFromFactoryBean(object, beanName);
+            } catch(Throwable ex) {
+                throw new BeanCreationException(beanName, "Post-processing of FactoryBean's singleton object failed", ex);
+            } finally {
+                afterSingletonCreation(beanName);
+            }
+        }
+        synchronized(getSingletonMutex()) {
+            if(containsSingleton(beanName)) {
+                getFactoryBeanObjectCache().put(beanName, object);
+            }
+        }
+        return object;
+    }
+
+    /**
+     * 在 beanName 对应的创建锁中执行
+     */
+    private <T> T callWithCreationLock(String beanName, Supplier<T> action) {
+        while(true) {
+            boolean outermost = !singletonCreationLocks.isHoldingAnyLock();
+            singletonCreationLocks.lock(beanName);
+            try {
+                return action.get();
+            } catch(BeansException e) {
+                // 为了避免死锁而放弃创建时，最外层释放所有锁之后重试，这时另一个线程已经可以继续创建
+                if(outermost && (e instanceof SingletonCreationConflictException || e.contains(SingletonCreationConflictException.class))) {
+                    if(logger.isDebugEnabled()) {
+                        logger.debug("Retrying creation of singleton bean '" + beanName + "' after resolving a creation conflict with another thread");
+                    }
+                    continue;
+                }
+                throw e;
+            } finally {
+                singletonCreationLocks.unlock(beanName);
+            }
+        }
+    }
+
+    /**
+     * 和 DefaultSingletonBeanRegistry.getSingleton(String, ObjectFactory) 一致，只是在 beanName 对应的锁中执行
+     */
+    private Object createSingleton(String beanName, ObjectFactory<?> singletonFactory) {
+        Object singletonObject = getPublishedSingleton(beanName);
+        if(singletonObject != null) {
+            return singletonObject;
+        }
+        if(logger.isDebugEnabled()) {
+            logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+        }
+        beforeSingletonCreation(beanName);
+        try {
+            singletonObject = singletonFactory.getObject();
+        } catch(IllegalStateException ex) {
+            // Has the singleton object implicitly appeared in the meantime ->
+            // if yes, proceed with it since the exception indicates that state.
+            singletonObject = getPublishedSingleton(beanName);
+            if(singletonObject == null) {
+                throw ex;
+            }
+            return singletonObject;
+        } finally {
+            afterSingletonCreation(beanName);
+        }
+        addSingleton(beanName, singletonObject);
+        return singletonObject;
+    }
+
+    /**
+     * 获取已经创建完成的单例，不包括提前暴露的引用
+     */
+    @Nullable
+    private Object getPublishedSingleton(String beanName) {
+        return containsSingleton(beanName) ? getSingleton(beanName, false) : null;
+    }
+
+    @Override
+    protected void beforeSingletonCreation(String beanName) {
+        if(!concurrentSingletonCreation) {
+            super.beforeSingletonCreation(beanName);
+            return;
+        }
+        Set<String> inCreation = singletonsCurrentlyInCreationByThread.get();
+        if(inCreation == null) {
+            inCreation = new HashSet<>();
+            singletonsCurrentlyInCreationByThread.set(inCreation);
+        }
+        if(!inCreation.add(beanName)) {
+            throw new BeanCurrentlyInCreationException(beanName);
+        }
+    }
+
+    @Override
+    protected void afterSingletonCreation(String beanName) {
+        Set<String> inCreation = singletonsCurrentlyInCreationByThread.get();
+        if(inCreation == null || !inCreation.remove(beanName)) {
+            super.afterSingletonCreation(beanName);
+        } else if(inCreation.isEmpty()) {
+            // 长期开启时会有大量请求线程经过这里，创建完就清理，避免每个线程都留着一个空集合
+            singletonsCurrentlyInCreationByThread.remove();
+        }
+    }
+
+    /**
+     * 按 beanName 加锁时只判断当前线程，其他线程读取 getSingleton(beanName) 时不会因为别的线程正在创建而进入全局锁
+     */
+    @Override
+    public boolean isSingletonCurrentlyInCreation(String beanName) {
+        Set<String> inCreation = singletonsCurrentlyInCreationByThread.get();
+        if(inCreation != null && inCreation.contains(beanName)) {
+            return true;
+        }
+        return !concurrentSingletonCreation && super.isSingletonCurrentlyInCreation(beanName);
+    }
+
+    /**
+     * 整体创建循环依赖期间，创建循环的线程获取同一个循环中的 bean 时直接返回提前算好的引用。
+     * 其他线程拿到的引用还没有装配和初始化，仍然走父类的逻辑，等待单例创建完成
+     */
+    @Override
+    @Nullable
+    protected Object getSingleton(String beanName, boolean allowEarlyReference) {
+        if(!preallocatedEarlyReferences.isEmpty()) {
+            EarlyReference earlyReference = preallocatedEarlyReferences.get(beanName);
+            if(earlyReference != null && earlyReference.owner == Thread.currentThread()) {
+                return earlyReference.reference;
+            }
+        }
+        return super.getSingleton(beanName, allowEarlyReference);
+    }
+
+    @Override
+    @Nullable
+    public Object resolveDependency(DependencyDescriptor descriptor, @Nullable String requestingBeanName, @Nullable Set<String> autowiredBeanNames,
+            @Nullable TypeConverter typeConverter) throws BeansException {
+        if(isLazyResolutionPossible()) {
+            Object proxy = getLazyResolutionProxy(descriptor, requestingBeanName);
+            if(proxy != null) {
+                return proxy;
+            }
+        }
+        return super.resolveDependency(descriptor, requestingBeanName, autowiredBeanNames, typeConverter);
+    }
+
+    private boolean isLazyResolutionPossible() {
+        return lazyResolution || !getLazyResolutionBeanNames().isEmpty();
+    }
+
+    private Set<String> getLazyResolutionBeanNames() {
+        Set<String> lazyResolutionBeanNames = this.lazyResolutionBeanNames;
+        if(lazyResolutionBeanNames == null) {
+            lazyResolutionBeanNames = new HashSet<>();
+            for(String beanName : getBeanDefinitionNames()) {
+                Object attribute = getBeanDefinition(beanName).getAttribute(LAZY_RESOLUTION_ATTRIBUTE);
+                if(Boolean.TRUE.equals(attribute) || "true".equals(attribute)) {
+                    lazyResolutionBeanNames.add(beanName);
+                }
+            }
+            this.lazyResolutionBeanNames = lazyResolutionBeanNames;
+        }
+        return lazyResolutionBeanNames;
+    }
+
+    /**
+     * 判断依赖是否需要延迟解析：还没有创建的单例，并且设置了 LAZY_RESOLUTION_ATTRIBUTE，或者全局开启并且是 lazy-init
+     */
+    private boolean isLazyResolutionCandidate(String candidateName) {
+        if(!containsBeanDefinition(candidateName) || containsSingleton(candidateName)) {
+            return false;
+        }
+        RootBeanDefinition mbd = getMergedLocalBeanDefinition(candidateName);
+        if(mbd.isAbstract() || !mbd.isSingleton()) {
+            return false;
+        }
+        return (lazyResolution && mbd.isLazyInit()) || getLazyResolutionBeanNames().contains(candidateName);
+    }
+
+    private static boolean isLazyResolutionType(Class<?> type) {
+        return !BeanUtils.isSimpleValueType(type) && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)
+                && Optional.class != type && !ObjectFactory.class.isAssignableFrom(type) && LazyResolutionProxies.isProxyable(type);
+    }
+
+    /**
+     * 自动装配的依赖：所有候选都需要延迟解析时返回代理，第一次调用时再按原来的逻辑解析
+     */
+    @Nullable
+    private Object getLazyResolutionProxy(DependencyDescriptor descriptor, @Nullable String requestingBeanName) {
+        Class<?> type = descriptor.getDependencyType();
+        if(!isLazyResolutionType(type)) {
+            return null;
+        }
+        String[] candidateNames = getBeanNamesForType(type, true, descriptor.isEager());
+        if(candidateNames.length == 0) {
+            return null;
+        }
+        for(String candidateName : candidateNames) {
+            if(!isLazyResolutionCandidate(candidateName)) {
+                return null;
+            }
+        }
+        descriptor.initParameterNameDiscovery(getParameterNameDiscoverer());
+        Object proxy = LazyResolutionProxies.create(type, getBeanClassLoader(), () -> doResolveDependency(descriptor, requestingBeanName, new LinkedHashSet<>(2), null));
+        // 注入代理时就注册依赖关系，保证销毁顺序，解析出的一定是其中一个候选
+        if(proxy != null && requestingBeanName != null) {
+            for(String candidateName : candidateNames) {
+                registerDependentBean(candidateName, requestingBeanName);
+            }
+        }
+        return proxy;
+    }
+
+    /**
+     * ref 属性：引用的 bean 需要延迟解析时，替换成代理。返回新的 PropertyValues，不修改 beanDefinition 中的属性
+     */
+    private PropertyValues replaceLazyReferences(String beanName, BeanWrapper bw, PropertyValues pvs) {
+        if(pvs instanceof MutablePropertyValues && ((MutablePropertyValues)pvs).isConverted()) {
+            return pvs;
+        }
+        MutablePropertyValues replaced = null;
+        for(PropertyValue pv : pvs.getPropertyValues()) {
+            if(!(pv.getValue() instanceof RuntimeBeanReference) || PropertyAccessorUtils.isNestedOrIndexedProperty(pv.getName())) {
+                continue;
+            }
+            RuntimeBeanReference reference = (RuntimeBeanReference)pv.getValue();
+            String refName = reference.getBeanName();
+            Class<?> propertyType = bw.isWritableProperty(pv.getName()) ? bw.getPropertyType(pv.getName()) : null;
+            if(reference.isToParent() || reference.getBeanType() != null || propertyType == null || !isLazyResolutionType(propertyType)
+                    || !isLazyResolutionCandidate(refName)) {
+                continue;
+            }
+            Object proxy = LazyResolutionProxies.create(propertyType, getBeanClassLoader(), () -> getBean(refName));
+            registerDependentBean(refName, beanName);
+            if(replaced == null) {
+                replaced = new MutablePropertyValues(pvs);
+            }
+            replaced.add(pv.getName(), proxy);
+        }
+        return replaced != null ? replaced : pvs;
+    }
+
+    /**
+     * 属性值已经完成类型转换（同一个 beanDefinition 第二次创建 bean 开始）时，直接通过 MethodHandle 调用 setter，
+     * 嵌套属性、索引属性以及需要转换的值仍然交给 BeanWrapper 处理
+     */
+    @Override
+    protected void applyPropertyValues(String beanName, BeanDefinition mbd, BeanWrapper bw, PropertyValues pvs) {
+        if(isLazyResolutionPossible()) {
+            pvs = replaceLazyReferences(beanName, bw, pvs);
+        }
+        MethodHandleInstantiationStrategy methodHandleStrategy = this.methodHandleStrategy;
+        if(methodHandleStrategy == null || !(pvs instanceof MutablePropertyValues) || !((MutablePropertyValues)pvs).isConverted()) {
+            super.applyPropertyValues(beanName, mbd, bw, pvs);
+            return;
+        }
+        List<PropertyValue> propertyValues = ((MutablePropertyValues)pvs).getPropertyValueList();
+        BeanMethodHandles methodHandles = methodHandleStrategy.getMethodHandles(bw.getWrappedClass());
+        PropertySetter[] setters = new PropertySetter[propertyValues.size()];
+        for(int i = 0; i < setters.length; i++) {
+            PropertyValue pv = propertyValues.get(i);
+            PropertySetter setter = PropertyAccessorUtils.isNestedOrIndexedProperty(pv.getName()) ? null : methodHandles.getSetter(pv.getName());
+            if(setter == null || !pv.isConverted() || !setter.isAssignable(pv.getConvertedValue())) {
+                super.applyPropertyValues(beanName, mbd, bw, pvs);
+                return;
+            }
+            setters[i] = setter;
+        }
+        Object bean = bw.getWrappedInstance();
+        for(int i = 0; i < setters.length; i++) {
+            try {
+                setters[i].invoke(bean, propertyValues.get(i).getConvertedValue());
+            } catch(Throwable ex) {
+                throw new BeanCreationException(mbd.getResourceDescription(), beanName,
+                        "Error setting property value '" + propertyValues.get(i).getName() + "'", ex);
+            }
+        }
+    }
+
+    @Override
+    protected void invokeCustomInitMethod(String beanName, Object bean, RootBeanDefinition mbd) throws Throwable {
+        MethodHandleInstantiationStrategy methodHandleStrategy = this.methodHandleStrategy;
+        String initMethodName = mbd.getInitMethodName();
+        MethodHandle initMethod = methodHandleStrategy == null || initMethodName == null ? null
+                : methodHandleStrategy.getMethodHandles(bean.getClass()).getInitMethod(initMethodName, mbd.isNonPublicAccessAllowed());
+        if(initMethod == null) {
+            // 找不到初始化方法时，交给原来的逻辑报错或者忽略
+            super.invokeCustomInitMethod(beanName, bean, mbd);
+            return;
+        }
+        if(logger.isTraceEnabled()) {
+            logger.trace("Invoking init method  '" + initMethodName + "' on bean with name '" + beanName + "'");
+        }
+        initMethod.invokeExact(bean);
+    }
+
+    @Override
+    public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
+        super.addBeanPostProcessor(beanPostProcessor);
+        BeanPostProcessorFilter postProcessorFilter = this.postProcessorFilter;
+        if(postProcessorFilter != null) {
+            postProcessorFilter.clear();
+        }
+        instrumentationPostProcessorFilter.clear();
+    }
+
+    /**
+     * 获取对 bean 生效的后置处理器，没有开启过滤也没有开启耗时记录时返回 null
+     */
+    @Nullable
+    private ApplicableBeanPostProcessors getApplicablePostProcessors(String beanName, Class<?> beanType) {
+        BeanPostProcessorFilter postProcessorFilter = this.postProcessorFilter;
+        if(postProcessorFilter == null) {
+            if(instrumentation == null) {
+                return null;
+            }
+            postProcessorFilter = instrumentationPostProcessorFilter;
+        }
+        return postProcessorFilter.get(beanName, beanType, getBeanPostProcessors(), containsBeanDefinition(beanName));
+    }
+
+    @Override
+    protected Object createBean(String beanName, RootBeanDefinition mbd, @Nullable Object[] args) throws BeanCreationException {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        if(instrumentation == null) {
+            return createBeanOrCycle(beanName, mbd, args);
+        }
+        BeanPhase event = instrumentation.begin(beanName, Phase.CREATE, null);
+        try {
+            return createBeanOrCycle(beanName, mbd, args);
+        } finally {
+            instrumentation.end(event);
+        }
+    }
+
+    private Object createBeanOrCycle(String beanName, RootBeanDefinition mbd, @Nullable Object[] args) {
+        String[] members = batchCycleCreation && args == null ? getCycleMembers(beanName, mbd) : null;
+        if(members != null) {
+            Object bean = createCycle(beanName, mbd, members);
+            if(bean != null) {
+                return bean;
+            }
+        }
+        return super.createBean(beanName, mbd, args);
+    }
+
+    /**
+     * 获取需要和 beanName 一起创建的循环依赖
+     * @return 循环中的所有 beanName（包括 beanName），不在循环中或者不满足整体创建的条件时返回 null
+     */
+    @Nullable
+    private String[] getCycleMembers(String beanName, RootBeanDefinition mbd) {
+        if(!allowCircularReferences || !isCycleMemberDefinition(beanName, mbd)) {
+            return null;
+        }
+        BeanDependencyGraph dependencyGraph = getDependencyGraph();
+        int id = dependencyGraph.getId(beanName);
+        if(id < 0) {
+            return null;
+        }
+        int componentIndex = dependencyGraph.getComponentOf(id);
+        int[] component = dependencyGraph.getComponents()[componentIndex];
+        if(component.length < 2) {
+            return null;
+        }
+        String[] members = new String[component.length];
+        for(int i = 0; i < component.length; i++) {
+            int member = component[i];
+            members[i] = dependencyGraph.getBeanName(member);
+            if(member != id && (containsSingleton(members[i]) || isSingletonCurrentlyInCreation(members[i])
+                    || !isCycleMemberDefinition(members[i], getMergedLocalBeanDefinition(members[i])))) {
+                return null;
+            }
+            // 循环内部有构造参数、dependsOn 等强依赖时，不能先把所有 bean 都实例化
+            int[] dependencies = dependencyGraph.getDependencies(member);
+            boolean[] hardDependencies = dependencyGraph.getHardDependencies(member);
+            for(int j = 0; j < dependencies.length; j++) {
+                if(hardDependencies[j] && dependencyGraph.getComponentOf(dependencies[j]) == componentIndex) {
+                    return null;
+                }
+            }
+        }
+        return members;
+    }
+
+    /**
+     * 只处理非延迟加载的普通单例，这些 bean 在预实例化时总是会被创建，依赖图中多估计的自动装配依赖不会导致多创建 bean
+     */
+    private boolean isCycleMemberDefinition(String beanName, RootBeanDefinition mbd) {
+        return mbd.isSingleton() && !mbd.isAbstract() && !mbd.isLazyInit() && !Boolean.TRUE.equals(mbd.getAttribute(LAZY_RESOLUTION_ATTRIBUTE))
+                && !isFactoryBean(beanName);
+    }
+
+    /**
+     * 整体创建循环依赖中的 bean：先全部实例化并算好提前暴露的引用，再依次装配和初始化，最后一起注册为单例。
+     * beanName 由外层的 getSingleton 注册，其他 bean 在这里完成 getSingleton 中的步骤。
+     * <p>和 AbstractAutowireCapableBeanFactory.doCreateBean 的区别是每个 bean 都会提前算好引用，不管之后是否真的被引用
+     * @return beanName 对应的 bean，其他线程已经创建了循环中的 bean 时返回 null
+     */
+    @Nullable
+    private Object createCycle(String beanName, RootBeanDefinition mbd, String[] members) {
+        List<String> others = new ArrayList<>(members.length - 1);
+        for(String member : members) {
+            if(!member.equals(beanName)) {
+                others.add(member);
+            }
+        }
+        int lockCount = 0;
+        List<String> inCreation = new ArrayList<>(others.size());
+        boolean completed = false;
+        try {
+            if(concurrentSingletonCreation) {
+                for(String member : others) {
+                    singletonCreationLocks.lock(member);
+                    lockCount++;
+                }
+                // 加锁之后再检查一次，其他线程可能已经创建完了
+                for(String member : others) {
+                    if(containsSingleton(member)) {
+                        return null;
+                    }
+                }
+            }
+            if(logger.isDebugEnabled()) {
+                logger.debug("Creating singleton beans " + Arrays.toString(members) + " of a circular reference in one pass");
+            }
+            for(String member : others) {
+                markBeanAsCreated(member);
+                beforeSingletonCreation(member);
+                inCreation.add(member);
+            }
+            CycleMember[] cycleMembers = new CycleMember[members.length];
+            for(int i = 0; i < members.length; i++) {
+                boolean outermost = members[i].equals(beanName);
+                cycleMembers[i] = instantiateCycleMember(members[i], outermost ? mbd : getMergedLocalBeanDefinition(members[i]), outermost);
+            }
+            for(CycleMember cycleMember : cycleMembers) {
+                initializeCycleMember(cycleMember);
+            }
+            Object result = null;
+            for(CycleMember cycleMember : cycleMembers) {
+                if(cycleMember.beanName.equals(beanName)) {
+                    result = cycleMember.exposedObject;
+                } else {
+                    addSingleton(cycleMember.beanName, cycleMember.exposedObject);
+                }
+            }
+            completed = true;
+            return result;
+        } finally {
+            for(String member : members) {
+                preallocatedEarlyReferences.remove(member);
+            }
+            for(String member : inCreation) {
+                afterSingletonCreation(member);
+                if(!completed) {
+                    destroySingleton(member);
+                    cleanupAfterBeanCreationFailure(member);
+                }
+            }
+            for(int i = 0; i < lockCount; i++) {
+                singletonCreationLocks.unlock(others.get(i));
+            }
+        }
+    }
+
+    /**
+     * 实例化并算好提前暴露的引用，对应 createBean 和 doCreateBean 中 populateBean 之前的部分
+     * @param outermost 是否是外层正在获取的 bean，它的 dependsOn 已经在 doGetBean 中处理过了
+     */
+    private CycleMember instantiateCycleMember(String beanName, RootBeanDefinition mbd, boolean outermost) {
+        if(!outermost && mbd.getDependsOn() != null) {
+            // 循环内部的 dependsOn 是强依赖，已经排除了，这里只可能是循环外部的 bean
+            for(String dependsOn : mbd.getDependsOn()) {
+                registerDependentBean(dependsOn, beanName);
+                getBean(dependsOn);
+            }
+        }
+        RootBeanDefinition mbdToUse = mbd;
+        Class<?> resolvedClass = resolveBeanClass(mbd, beanName);
+        if(resolvedClass != null && !mbd.hasBeanClass() && mbd.getBeanClassName() != null) {
+            mbdToUse = new RootBeanDefinition(mbd);
+            mbdToUse.setBeanClass(resolvedClass);
+        }
+        try {
+            mbdToUse.prepareMethodOverrides();
+        } catch(BeanDefinitionValidationException ex) {
+            throw new BeanDefinitionStoreException(mbdToUse.getResourceDescription(), beanName, "Validation of method overrides failed", ex);
+        }
+        CycleMember cycleMember = new CycleMember(beanName, mbdToUse);
+        Object shortcut;
+        try {
+            shortcut = resolveBeforeInstantiation(beanName, mbdToUse);
+        } catch(Throwable ex) {
+            throw new BeanCreationException(mbdToUse.getResourceDescription(), beanName, "BeanPostProcessor before instantiation of bean failed", ex);
+        }
+        if(shortcut != null) {
+            // 后置处理器直接返回了创建好的 bean，不需要装配和初始化
+            cycleMember.exposedObject = shortcut;
+            preallocatedEarlyReferences.put(beanName, new EarlyReference(shortcut));
+            return cycleMember;
+        }
+        BeanWrapper instanceWrapper = createBeanInstance(beanName, mbdToUse, null);
+        Object bean = instanceWrapper.getWrappedInstance();
+        try {
+            applyMergedBeanDefinitionPostProcessors(mbdToUse, instanceWrapper.getWrappedClass(), beanName);
+        } catch(Throwable ex) {
+            throw new BeanCreationException(mbdToUse.getResourceDescription(), beanName, "Post-processing of merged bean definition failed", ex);
+        }
+        cycleMember.instanceWrapper = instanceWrapper;
+        cycleMember.earlyReference = getEarlyBeanReference(beanName, mbdToUse, bean);
+        preallocatedEarlyReferences.put(beanName, new EarlyReference(cycleMember.earlyReference));
+        return cycleMember;
+    }
+
+    /**
+     * 装配和初始化，对应 doCreateBean 中 populateBean 及之后的部分
+     */
+    private void initializeCycleMember(CycleMember cycleMember) {
+        BeanWrapper instanceWrapper = cycleMember.instanceWrapper;
+        if(instanceWrapper == null) {
+            return;
+        }
+        String beanName = cycleMember.beanName;
+        RootBeanDefinition mbd = cycleMember.mbd;
+        Object bean = instanceWrapper.getWrappedInstance();
+        Object exposedObject;
+        try {
+            populateBean(beanName, mbd, instanceWrapper);
+            exposedObject = initializeBean(beanName, bean, mbd);
+        } catch(Throwable ex) {
+            if(ex instanceof BeanCreationException && beanName.equals(((BeanCreationException)ex).getBeanName())) {
+                throw (BeanCreationException)ex;
+            }
+            throw new BeanCreationException(mbd.getResourceDescription(), beanName, "Initialization of bean failed", ex);
+        }
+        if(exposedObject == bean) {
+            exposedObject = cycleMember.earlyReference;
+        } else if(exposedObject != cycleMember.earlyReference && !allowRawInjectionDespiteWrapping && hasDependentBean(beanName)) {
+            String[] dependentBeans = getDependentBeans(beanName);
+            Set<String> actualDependentBeans = new LinkedHashSet<>(dependentBeans.length);
+            for(String dependentBean : dependentBeans) {
+                if(!removeSingletonIfCreatedForTypeCheckOnly(dependentBean)) {
+                    actualDependentBeans.add(dependentBean);
+                }
+            }
+            if(!actualDependentBeans.isEmpty()) {
+                throw new BeanCurrentlyInCreationException(beanName, "Bean with name '" + beanName + "' has been injected into other beans ["
+                        + StringUtils.collectionToCommaDelimitedString(actualDependentBeans)
+                        + "] in its raw version as part of a circular reference, but has eventually been wrapped. "
+                        + "This means that said other beans do not use the final version of the bean.");
+            }
+        }
+        try {
+            registerDisposableBeanIfNecessary(beanName, bean, mbd);
+        } catch(BeanDefinitionValidationException ex) {
+            throw new BeanCreationException(mbd.getResourceDescription(), beanName, "Invalid destruction signature", ex);
+        }
+        cycleMember.exposedObject = exposedObject;
+    }
+
+    /**
+     * 没有后置处理器决定构造方法、并且按构造方法自动装配时，从共用的元数据缓存中获取候选构造方法，
+     * 和 ConstructorResolver 自己获取的候选构造方法一致。
+     */
+    @Override
+    @Nullable
+    protected Constructor<?>[] determineConstructorsFromBeanPostProcessors(@Nullable Class<?> beanClass, String beanName) throws BeansException {
+        Constructor<?>[] ctors = doDetermineConstructorsFromBeanPostProcessors(beanClass, beanName);
+        BeanMetadataCache metadataCache = this.metadataCache;
+        if(ctors != null || metadataCache == null || beanClass == null || !containsBeanDefinition(beanName)) {
+            return ctors;
+        }
+        FrozenBeanDefinitionStore frozenDefinitionStore = getFrozenDefinitionStore();
+        int id = frozenDefinitionStore == null ? -1 : frozenDefinitionStore.getId(beanName);
+        if(id >= 0) {
+            if(frozenDefinitionStore.getResolvedAutowireMode(id) != AUTOWIRE_CONSTRUCTOR || frozenDefinitionStore.getBeanClass(id) != beanClass) {
+                return null;
+            }
+            return metadataCache.getConstructors(beanClass, frozenDefinitionStore.getMergedBeanDefinition(id).isNonPublicAccessAllowed());
+        }
+        RootBeanDefinition mbd = getMergedLocalBeanDefinition(beanName);
+        if(mbd.getResolvedAutowireMode() != AUTOWIRE_CONSTRUCTOR || !mbd.hasBeanClass() || mbd.getBeanClass() != beanClass) {
+            return null;
+        }
+        return metadataCache.getConstructors(beanClass, mbd.isNonPublicAccessAllowed());
+    }
+
+    /**
+     * 开启过滤后只调用对 bean 生效的处理器，和原来的逻辑一样，第一个返回非 null 的结果生效
+     */
+    @Nullable
+    private Constructor<?>[] doDetermineConstructorsFromBeanPostProcessors(@Nullable Class<?> beanClass, String beanName) throws BeansException {
+        ApplicableBeanPostProcessors applicable = beanClass == null ? null : getApplicablePostProcessors(beanName, beanClass);
+        if(applicable == null) {
+            return super.determineConstructorsFromBeanPostProcessors(beanClass, beanName);
+        }
+        for(SmartInstantiationAwareBeanPostProcessor sibp : applicable.determineConstructors) {
+            BeanPhase event = beginPostProcess(beanName, sibp);
+            Constructor<?>[] ctors;
+            try {
+                ctors = sibp.determineCandidateConstructors(beanClass, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+            if(ctors != null) {
+                return ctors;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void applyMergedBeanDefinitionPostProcessors(RootBeanDefinition mbd, Class<?> beanType, String beanName) {
+        ApplicableBeanPostProcessors applicable = getApplicablePostProcessors(beanName, beanType);
+        if(applicable == null) {
+            super.applyMergedBeanDefinitionPostProcessors(mbd, beanType, beanName);
+            return;
+        }
+        for(MergedBeanDefinitionPostProcessor processor : applicable.mergedBeanDefinition) {
+            BeanPhase event = beginPostProcess(beanName, processor);
+            try {
+                processor.postProcessMergedBeanDefinition(mbd, beanType, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+        }
+    }
+
+    @Override
+    protected Object getEarlyBeanReference(String beanName, RootBeanDefinition mbd, Object bean) {
+        ApplicableBeanPostProcessors applicable = mbd.isSynthetic() ? null : getApplicablePostProcessors(beanName, bean.getClass());
+        if(applicable == null) {
+            return super.getEarlyBeanReference(beanName, mbd, bean);
+        }
+        Object exposedObject = bean;
+        for(SmartInstantiationAwareBeanPostProcessor sibp : applicable.earlyReference) {
+            BeanPhase event = beginPostProcess(beanName, sibp);
+            try {
+                exposedObject = sibp.getEarlyBeanReference(exposedObject, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+        }
+        return exposedObject;
+    }
+
+    @Override
+    protected BeanWrapper createBeanInstance(String beanName, RootBeanDefinition mbd, @Nullable Object[] args) {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        if(instrumentation == null) {
+            return super.createBeanInstance(beanName, mbd, args);
+        }
+        BeanPhase event = instrumentation.begin(beanName, Phase.INSTANTIATE, null);
+        try {
+            return super.createBeanInstance(beanName, mbd, args);
+        } finally {
+            instrumentation.end(event);
+        }
+    }
+
+    @Override
+    protected void invokeInitMethods(String beanName, Object bean, @Nullable RootBeanDefinition mbd) throws Throwable {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        if(instrumentation == null) {
+            super.invokeInitMethods(beanName, bean, mbd);
+            return;
+        }
+        BeanPhase event = instrumentation.begin(beanName, Phase.INIT, null);
+        try {
+            super.invokeInitMethods(beanName, bean, mbd);
+        } finally {
+            instrumentation.end(event);
+        }
+    }
+
+    /**
+     * 开始记录单个后置处理器的耗时，没有开启耗时记录时返回 null
+     */
+    @Nullable
+    private BeanPhase beginPostProcess(String beanName, Object processor) {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        return instrumentation == null ? null : instrumentation.begin(beanName, Phase.POST_PROCESS, processor);
+    }
+
+    private void endPostProcess(@Nullable BeanPhase event) {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        if(event != null && instrumentation != null) {
+            instrumentation.end(event);
+        }
+    }
+
+    @Override
+    @Nullable
+    protected Object applyBeanPostProcessorsBeforeInstantiation(Class<?> beanClass, String beanName) {
+        ApplicableBeanPostProcessors applicable = getApplicablePostProcessors(beanName, beanClass);
+        if(applicable == null) {
+            return super.applyBeanPostProcessorsBeforeInstantiation(beanClass, beanName);
+        }
+        for(InstantiationAwareBeanPostProcessor ibp : applicable.beforeInstantiation) {
+            BeanPhase event = beginPostProcess(beanName, ibp);
+            Object result;
+            try {
+                result = ibp.postProcessBeforeInstantiation(beanClass, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+            if(result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName) throws BeansException {
+        ApplicableBeanPostProcessors applicable = getApplicablePostProcessors(beanName, existingBean.getClass());
+        if(applicable == null) {
+            return super.applyBeanPostProcessorsBeforeInitialization(existingBean, beanName);
+        }
+        Object result = existingBean;
+        for(BeanPostProcessor processor : applicable.beforeInitialization) {
+            BeanPhase event = beginPostProcess(beanName, processor);
+            Object current;
+            try {
+                current = processor.postProcessBeforeInitialization(result, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+            if(current == null) {
+                return result;
+            }
+            result = current;
+        }
+        return result;
+    }
+
+    @Override
+    public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName) throws BeansException {
+        ApplicableBeanPostProcessors applicable = getApplicablePostProcessors(beanName, existingBean.getClass());
+        if(applicable == null) {
+            return super.applyBeanPostProcessorsAfterInitialization(existingBean, beanName);
+        }
+        Object result = existingBean;
+        for(BeanPostProcessor processor : applicable.afterInitialization) {
+            BeanPhase event = beginPostProcess(beanName, processor);
+            Object current;
+            try {
+                current = processor.postProcessAfterInitialization(result, beanName);
+            } finally {
+                endPostProcess(event);
+            }
+            if(current == null) {
+                return result;
+            }
+            result = current;
+        }
+        return result;
+    }
+
+    @Override
+    protected void populateBean(String beanName, RootBeanDefinition mbd, @Nullable BeanWrapper bw) {
+        BeanCreationInstrumentation instrumentation = this.instrumentation;
+        if(instrumentation == null) {
+            doPopulateBean(beanName, mbd, bw);
+            return;
+        }
+        BeanPhase event = instrumentation.begin(beanName, Phase.POPULATE, null);
+        try {
+            doPopulateBean(beanName, mbd, bw);
+        } finally {
+            instrumentation.end(event);
+        }
+    }
+
+    /**
+     * 和 AbstractAutowireCapableBeanFactory.populateBean 一致，只是只调用对 bean 生效的后置处理器
+     */
+    private void doPopulateBean(String beanName, RootBeanDefinition mbd, @Nullable BeanWrapper bw) {
+        ApplicableBeanPostProcessors applicable = bw == null || mbd.isSynthetic() ? null : getApplicablePostProcessors(beanName, bw.getWrappedClass());
+        if(applicable == null || applicable.legacyPropertyValues) {
+            // 只重写了已经废弃的 postProcessPropertyValues 的处理器交给原来的逻辑调用
+            super.populateBean(beanName, mbd, bw);
+            return;
+        }
+
+        for(InstantiationAwareBeanPostProcessor ibp : applicable.afterInstantiation) {
+            BeanPhase event = beginPostProcess(beanName, ibp);
+            boolean continueWithPropertyPopulation;
+            try {
+                continueWithPropertyPopulation = ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName);
+            } finally {
+                endPostProcess(event);
+            }
+            if(!continueWithPropertyPopulation) {
+                return;
+            }
+        }
+
+        PropertyValues pvs = (mbd.hasPropertyValues() ? mbd.getPropertyValues() : null);
+
+        int resolvedAutowireMode = mbd.getResolvedAutowireMode();
+        if(resolvedAutowireMode == AUTOWIRE_BY_NAME || resolvedAutowireMode == AUTOWIRE_BY_TYPE) {
+            MutablePropertyValues newPvs = new MutablePropertyValues(pvs);
+            if(resolvedAutowireMode == AUTOWIRE_BY_NAME) {
+                autowireByName(beanName, mbd, bw, newPvs);
+            }
+            if(resolvedAutowireMode == AUTOWIRE_BY_TYPE) {
+                autowireByType(beanName, mbd, bw, newPvs);
+            }
+            pvs = newPvs;
+        }
+
+        boolean needsDepCheck = (mbd.getDependencyCheck() != AbstractBeanDefinition.DEPENDENCY_CHECK_NONE);
+
+        if(applicable.properties.length > 0) {
+            if(pvs == null) {
+                pvs = mbd.getPropertyValues();
+            }
+            for(InstantiationAwareBeanPostProcessor ibp : applicable.properties) {
+                BeanPhase event = beginPostProcess(beanName, ibp);
+                PropertyValues pvsToUse;
+                try {
+                    pvsToUse = ibp.postProcessProperties(pvs, bw.getWrappedInstance(), beanName);
+                } finally {
+                    endPostProcess(event);
+                }
+                // 返回 null 时 Spring 会调用 postProcessPropertyValues，这里的处理器都没有重写它，默认实现原样返回属性
+                if(pvsToUse != null) {
+                    pvs = pvsToUse;
+                }
+            }
+        }
+        if(needsDepCheck) {
+            PropertyDescriptor[] filteredPds = filterPropertyDescriptorsForDependencyCheck(bw, isAllowCaching(mbd));
+            checkDependencies(beanName, mbd, filteredPds, pvs);
+        }
+
+        if(pvs != null) {
+            applyPropertyValues(beanName, mbd, bw, pvs);
+        }
+    }
+
+    /**
+     * 和 AbstractAutowireCapableBeanFactory.populateBean 一样按 mbd.allowCaching 决定是否缓存过滤后的属性描述符
+     */
+    private static boolean isAllowCaching(RootBeanDefinition mbd) {
+        if(ALLOW_CACHING_GETTER == null) {
+            return true;
+        }
+        try {
+            return (boolean)ALLOW_CACHING_GETTER.invokeExact(mbd);
+        } catch(Throwable e) {
+            return true;
+        }
+    }
+
+    @Nullable
+    private static MethodHandle findFieldGetter(Class<?> type, String fieldName) {
+        Field field = ReflectionUtils.findField(type, fieldName);
+        if(field == null) {
+            return null;
+        }
+        try {
+            ReflectionUtils.makeAccessible(field);
+            return MethodHandles.lookup().unreflectGetter(field);
+        } catch(RuntimeException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) throws BeanDefinitionStoreException {
+        // 先让存储失效，父类重置 beanDefinition 时才会把合并结果标记为过期
+        this.frozenDefinitionStore = null;
+        super.registerBeanDefinition(beanName, beanDefinition);
+        this.typeIndex = null;
+        this.dependencyGraph = null;
+        this.lazyResolutionBeanNames = null;
+        factoryBeanObjectTypes.remove(beanName);
+        removeApplicablePostProcessors(beanName);
+    }
+
+    @Override
+    public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+        // 先让存储失效，父类重置 beanDefinition 时才会把合并结果标记为过期
+        this.frozenDefinitionStore = null;
+        super.removeBeanDefinition(beanName);
+        this.typeIndex = null;
+        this.dependencyGraph = null;
+        this.lazyResolutionBeanNames = null;
+        factoryBeanObjectTypes.remove(beanName);
+        removeApplicablePostProcessors(beanName);
+    }
+
+    private void removeApplicablePostProcessors(String beanName) {
+        BeanPostProcessorFilter postProcessorFilter = this.postProcessorFilter;
+        if(postProcessorFilter != null) {
+            postProcessorFilter.remove(beanName);
+        }
+        instrumentationPostProcessorFilter.remove(beanName);
+    }
+
+    @Override
+    public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
+        super.registerSingleton(beanName, singletonObject);
+        this.typeIndex = null;
+    }
+
+    @Override
+    public void destroySingletons() {
+        super.destroySingletons();
+        this.typeIndex = null;
+    }
+
+    @Override
+    public void destroySingleton(String beanName) {
+        super.destroySingleton(beanName);
+        this.typeIndex = null;
+    }
+
+    /**
+     * 整体创建循环依赖时，一个 bean 的创建状态
+     */
+    private static final class CycleMember {
+
+        private final String beanName;
+
+        private final RootBeanDefinition mbd;
+
+        /** 实例化之前的后置处理器直接返回了 bean 时为 null */
+        @Nullable
+        private BeanWrapper instanceWrapper;
+
+        @Nullable
+        private Object earlyReference;
+
+        @Nullable
+        private Object exposedObject;
+
+
+        CycleMember(String beanName, RootBeanDefinition mbd) {
+            super();
+            this.beanName = beanName;
+            this.mbd = mbd;
+        }
+    }
+
+    /**
+     * 把单例 factoryBean 包装成非单例，父类调用 getObject() 时就不会进入全局锁
+     */
+    private static final class NonSingletonFactoryBean implements FactoryBean<Object> {
+
+        private final FactoryBean<?> factory;
+
+
+        NonSingletonFactoryBean(FactoryBean<?> factory) {
+            super();
+            this.factory = factory;
+        }
+
+        @Override
+        @Nullable
+        public Object getObject() throws Exception {
+            return factory.getObject();
+        }
+
+        @Override
+        @Nullable
+        public Class<?> getObjectType() {
+            return factory.getObjectType();
+        }
+
+        @Override
+        public boolean isSingleton() {
+            return false;
+        }
+    }
+
+    /**
+     * 提前算好的引用以及创建它的线程
+     */
+    private static final class EarlyReference {
+
+        private final Thread owner = Thread.currentThread();
+
+        private final Object reference;
+
+
+        EarlyReference(Object reference) {
+            super();
+            this.reference = reference;
+        }
+    }
+}
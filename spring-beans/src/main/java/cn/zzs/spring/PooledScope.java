@@ -0,0 +1,235 @@
+package cn.zzs.spring;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 对象池作用域：和 prototype 一样每次 getBean 都拿到一个只属于调用方的 bean，但用完之后通过 {@link #release(String, Object)} 归还，
+ * 归还时调用重置方法，下次 getBean 时直接复用，不再走实例化、属性装配、后置处理器和初始化的完整流程。
+ * <p>获取时先从当前线程的槽位中取，再从有界的共享队列中取，都没有时才创建；归还时先放回当前线程的槽位，已经有了再放入共享队列，队列满了直接丢弃。
+ * 线程槽位记录了 bean 归还时所属的共享队列，{@link #remove(String)} 移除共享队列后，所有线程槽位中的 bean 都不会再被使用。
+ * <p>借出的 bean 按对象身份记录下来，只有借出且还没有归还的 bean 才能归还，重复归还或者归还不是从当前作用域获取的对象会直接报错，
+ * 避免同一个对象同时被两个调用方拿到。所以获取的 bean 用完之后必须归还，否则会一直被记录。
+ * <p>重置方法通过 beanDefinition 的 {@link #RESET_METHOD_ATTRIBUTE} 属性指定，在归还时调用，没有指定时不重置。
+ * 和 prototype 一样，不支持销毁回调。
+ * <pre>
+ * beanFactory.registerScope(PooledScope.SCOPE_POOLED, new PooledScope(beanFactory, 64));
+ * beanDefinition.setScope(PooledScope.SCOPE_POOLED);
+ * beanDefinition.setAttribute(PooledScope.RESET_METHOD_ATTRIBUTE, "reset");
+ * </pre>
+ * @author zzs
+ * @date 2026年10月19日 上午1:48:12
+ */
+public class PooledScope implements Scope {
+
+    public static final String SCOPE_POOLED = "pooled";
+
+    /** beanDefinition 中指定重置方法的属性名 */
+    public static final String RESET_METHOD_ATTRIBUTE = PooledScope.class.getName() + ".resetMethod";
+
+    /** 没有重置方法时的占位，ConcurrentHashMap 中不能放 null */
+    private static final Method NO_RESET_METHOD = ClassUtils.getMethod(Object.class, "toString");
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    private final int maxIdlePerBean;
+
+    /** 每个线程每个 beanName 一个槽位，不需要同步 */
+    private final ThreadLocal<Map<String, Slot>> threadLocalSlots = ThreadLocal.withInitial(HashMap::new);
+
+    private final ConcurrentMap<String, Queue<Object>> sharedPools = new ConcurrentHashMap<>(16);
+
+    /** beanName 到借出还没有归还的 bean，按对象身份比较 */
+    private final ConcurrentMap<String, Set<Object>> leasedBeans = new ConcurrentHashMap<>(16);
+
+    /** beanName 到重置方法，没有重置方法时为 NO_RESET_METHOD */
+    private final ConcurrentMap<String, Method> resetMethods = new ConcurrentHashMap<>(16);
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder reusedCount = new LongAdder();
+
+    private final LongAdder discardedCount = new LongAdder();
+
+
+    /**
+     * @param beanFactory 用来获取 beanDefinition 中的重置方法
+     * @param maxIdlePerBean 每个 beanName 共享队列的容量
+     */
+    public PooledScope(ConfigurableListableBeanFactory beanFactory, int maxIdlePerBean) {
+        super();
+        Assert.isTrue(maxIdlePerBean > 0, "maxIdlePerBean must be greater than 0");
+        this.beanFactory = beanFactory;
+        this.maxIdlePerBean = maxIdlePerBean;
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        Queue<Object> pool = sharedPools.get(name);
+        Slot slot = threadLocalSlots.get().remove(name);
+        // 槽位中的 bean 归还后共享队列被 remove 过，不再使用
+        Object bean = slot != null && slot.pool == pool ? slot.bean : null;
+        if(bean == null && pool != null) {
+            bean = pool.poll();
+        }
+        if(bean != null) {
+            reusedCount.increment();
+        } else {
+            createdCount.increment();
+            bean = objectFactory.getObject();
+        }
+        getLeasedBeans(name).add(bean);
+        return bean;
+    }
+
+    /**
+     * 归还 bean，调用重置方法后放回池中。归还之后调用方不能再使用这个 bean
+     * @param name beanName
+     * @param bean 通过当前作用域获取的 bean
+     * @throws IllegalStateException bean 不是从当前作用域借出的，或者已经归还过
+     */
+    public void release(String name, Object bean) {
+        Assert.notNull(bean, "Bean must not be null");
+        if(!getLeasedBeans(name).remove(bean)) {
+            throw new IllegalStateException("Bean [" + bean + "] is not leased from scope '" + SCOPE_POOLED + "' under name '" + name
+                    + "', it may have been released already");
+        }
+        Method resetMethod = getResetMethod(name, bean);
+        if(resetMethod != NO_RESET_METHOD) {
+            ReflectionUtils.invokeMethod(resetMethod, bean);
+        }
+        Queue<Object> pool = sharedPools.computeIfAbsent(name, key -> new ArrayBlockingQueue<>(maxIdlePerBean));
+        Map<String, Slot> slots = threadLocalSlots.get();
+        Slot slot = slots.get(name);
+        if(slot == null || slot.pool != pool) {
+            slots.put(name, new Slot(pool, bean));
+            return;
+        }
+        if(!pool.offer(bean)) {
+            discardedCount.increment();
+        }
+    }
+
+    private Set<Object> getLeasedBeans(String name) {
+        Set<Object> leased = leasedBeans.get(name);
+        if(leased == null) {
+            leased = leasedBeans.computeIfAbsent(name, key -> Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>())));
+        }
+        return leased;
+    }
+
+    private Method getResetMethod(String name, Object bean) {
+        Method resetMethod = resetMethods.get(name);
+        if(resetMethod == null) {
+            resetMethod = resetMethods.computeIfAbsent(name, key -> findResetMethod(key, bean.getClass()));
+        }
+        return resetMethod;
+    }
+
+    private Method findResetMethod(String name, Class<?> beanClass) {
+        BeanDefinition beanDefinition = beanFactory.getMergedBeanDefinition(name);
+        Object resetMethodName = beanDefinition.getAttribute(RESET_METHOD_ATTRIBUTE);
+        if(resetMethodName == null) {
+            return NO_RESET_METHOD;
+        }
+        Method resetMethod = ClassUtils.getMethodIfAvailable(beanClass, resetMethodName.toString());
+        if(resetMethod == null) {
+            throw new BeanCreationException(name, "Could not find a no-arg reset method named '" + resetMethodName + "' on bean class [" + beanClass.getName() + "]");
+        }
+        ReflectionUtils.makeAccessible(resetMethod);
+        return resetMethod;
+    }
+
+    /**
+     * 移除池中 beanName 对应的所有空闲 bean。其他线程槽位中的 bean 由对应的线程在下次获取或归还时丢弃，借出的 bean 仍然可以归还
+     * @return 移除的其中一个 bean，没有时返回 null
+     */
+    @Override
+    @Nullable
+    public Object remove(String name) {
+        Queue<Object> pool = sharedPools.remove(name);
+        Slot slot = threadLocalSlots.get().remove(name);
+        Object removed = slot != null && slot.pool == pool ? slot.bean : null;
+        if(pool != null) {
+            Object pooled = pool.poll();
+            if(removed == null) {
+                removed = pooled;
+            }
+        }
+        resetMethods.remove(name);
+        return removed;
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        // 和 prototype 一样，池中的 bean 不执行销毁回调
+    }
+
+    @Override
+    @Nullable
+    public Object resolveContextualObject(String key) {
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public String getConversationId() {
+        return null;
+    }
+
+    /**
+     * 共享队列中空闲 bean 的数量，不包括线程槽位中的 bean
+     */
+    public int getIdleCount(String name) {
+        Queue<Object> pool = sharedPools.get(name);
+        return pool != null ? pool.size() : 0;
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.sum();
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    /**
+     * 线程槽位中的 bean，以及归还时 beanName 对应的共享队列
+     */
+    private static final class Slot {
+
+        final Queue<Object> pool;
+
+        final Object bean;
+
+
+        Slot(Queue<Object> pool, Object bean) {
+            super();
+            this.pool = pool;
+            this.bean = bean;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cn.zzs.spring;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * 声明自己只对部分 bean 生效的后置处理器。
+ * <p>{@link OptimizedListableBeanFactory} 开启后置处理器过滤后，会为每个 beanDefinition 预先算好需要调用的后置处理器，
+ * appliesTo 返回 false 的 bean 在创建过程中不会再调用这个处理器，包括推断构造方法、合并 beanDefinition 的后置处理、提前暴露的引用、
+ * 实例化前后、属性装配以及初始化前后。推断 bean 类型（predictBeanType）和销毁回调不经过过滤，仍然会调用所有处理器。
+ * 没有实现这个接口的处理器对所有 bean 生效。
+ * @author zzs
+ * @date 2026年10月19日 上午2:10:45
+ */
+public interface SelectiveBeanPostProcessor extends BeanPostProcessor {
+
+    /**
+     * 判断是否对某个 bean 生效，同一个 beanDefinition 只会判断一次，结果会被缓存
+     * @param beanType bean 的类型（不包括 cglib 生成的子类）
+     * @param beanName beanName
+     * @return 是否生效
+     */
+    boolean appliesTo(Class<?> beanType, String beanName);
+}
@@ -0,0 +1,156 @@
+package cn.zzs.spring;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
+
+/**
+ * 按 beanName 加锁的单例创建锁，用来替代 DefaultSingletonBeanRegistry 中创建单例时的全局锁，不同的单例可以在不同的线程中同时创建。
+ * <p>当前线程没有持有任何创建锁时，直接阻塞等待，这种情况不可能出现死锁。
+ * <p>当前线程已经持有其他创建锁（即在创建依赖的 bean）时，一边等待一边检测死锁：
+ * 如果 A 线程持有 a 等待 b，而 B 线程持有 b 等待 a，则由线程 id 最大的那个线程抛出 {@link SingletonCreationConflictException}，
+ * 放弃已经持有的锁，之后由最外层重试。
+ * <p>创建单例的过程中还会用到 DefaultSingletonBeanRegistry 的全局锁，例如注册单例和提前暴露的引用，这时线程阻塞在 synchronized 上，
+ * 不会出现在等待创建锁的记录中。所以持有全局锁的线程等待创建锁时也会检测死锁：持有创建锁的线程正阻塞在全局锁上时，
+ * 只能由当前线程放弃，释放全局锁。
+ * @author zzs
+ * @date 2026年10月18日 下午7:26:40
+ */
+final class SingletonCreationLocks {
+
+    private static final long DEADLOCK_CHECK_INTERVAL_MILLIS = 10;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /** DefaultSingletonBeanRegistry 的全局锁 */
+    private final Object singletonMutex;
+
+    private final ConcurrentMap<String, ReentrantLock> locks = new ConcurrentHashMap<>(256);
+
+    /** beanName 到持有创建锁的线程 */
+    private final ConcurrentMap<String, Thread> owners = new ConcurrentHashMap<>(64);
+
+    /** 线程到正在等待的 beanName */
+    private final ConcurrentMap<Thread, String> waiting = new ConcurrentHashMap<>(64);
+
+    /** 当前线程持有的创建锁数量 */
+    private final ThreadLocal<int[]> holdCount = ThreadLocal.withInitial(() -> new int[1]);
+
+
+    SingletonCreationLocks(Object singletonMutex) {
+        super();
+        this.singletonMutex = singletonMutex;
+    }
+
+    /**
+     * 获取 beanName 对应的创建锁
+     * @param beanName beanName
+     * @throws SingletonCreationConflictException 检测到死锁，并且当前线程被选中放弃
+     */
+    void lock(String beanName) {
+        ReentrantLock lock = locks.computeIfAbsent(beanName, key -> new ReentrantLock());
+        Thread currentThread = Thread.currentThread();
+        int[] count = holdCount.get();
+        // 持有全局锁时不能直接阻塞，持有创建锁的线程可能正在等待全局锁
+        if(count[0] == 0 && !Thread.holdsLock(singletonMutex) || lock.isHeldByCurrentThread()) {
+            lock.lock();
+        } else {
+            waiting.put(currentThread, beanName);
+            try {
+                while(!lock.tryLock(DEADLOCK_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if(shouldYield(currentThread, beanName)) {
+                        throw new SingletonCreationConflictException(beanName);
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BeanCreationNotAllowedException(beanName, "Interrupted while waiting for singleton creation lock");
+            } finally {
+                waiting.remove(currentThread);
+            }
+        }
+        owners.put(beanName, currentThread);
+        count[0]++;
+    }
+
+    /**
+     * 释放 beanName 对应的创建锁
+     * @param beanName beanName
+     */
+    void unlock(String beanName) {
+        ReentrantLock lock = locks.get(beanName);
+        if(lock.getHoldCount() == 1) {
+            owners.remove(beanName, Thread.currentThread());
+        }
+        holdCount.get()[0]--;
+        lock.unlock();
+    }
+
+    /**
+     * 当前线程是否持有创建锁
+     */
+    boolean isHoldingAnyLock() {
+        return holdCount.get()[0] > 0;
+    }
+
+    /**
+     * 沿着“等待的 beanName -> 持有锁的线程 -> 该线程等待的 beanName”查找，回到当前线程说明出现了死锁，
+     * 这时只让环中线程 id 最大的线程放弃，避免所有线程同时放弃再同时重试。
+     * 查到的线程阻塞在当前线程持有的全局锁上时，也是死锁
+     */
+    private boolean shouldYield(Thread currentThread, String beanName) {
+        Set<Thread> cycle = new HashSet<>();
+        String wanted = beanName;
+        while(true) {
+            Thread owner = owners.get(wanted);
+            if(owner == null || !cycle.add(owner)) {
+                return false;
+            }
+            if(owner == currentThread) {
+                break;
+            }
+            wanted = waiting.get(owner);
+            if(wanted == null) {
+                // 阻塞在全局锁上的线程没法放弃，全局锁在当前线程手里时由当前线程放弃
+                return Thread.holdsLock(singletonMutex) && isBlockedOnSingletonMutex(owner);
+            }
+        }
+        for(Thread thread : cycle) {
+            if(thread.getId() > currentThread.getId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBlockedOnSingletonMutex(Thread thread) {
+        if(thread.getState() != Thread.State.BLOCKED) {
+            return false;
+        }
+        ThreadInfo threadInfo = THREAD_MX_BEAN.getThreadInfo(thread.getId());
+        LockInfo lockInfo = threadInfo == null ? null : threadInfo.getLockInfo();
+        return lockInfo != null && lockInfo.getIdentityHashCode() == System.identityHashCode(singletonMutex);
+    }
+
+    /**
+     * 检测到死锁时抛出，表示当前线程需要放弃已经持有的创建锁，并在最外层重新获取 bean
+     */
+    static class SingletonCreationConflictException extends BeanCurrentlyInCreationException {
+
+        private static final long serialVersionUID = 1L;
+
+        SingletonCreationConflictException(String beanName) {
+            super(beanName, "Singleton bean '" + beanName + "' is being created by another thread that waits for this thread, giving up to avoid a deadlock");
+        }
+    }
+}
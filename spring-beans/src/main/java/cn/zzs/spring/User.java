@@ -3,8 +3,13 @@ package cn.zzs.spring;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class User {
     
+    private static final Logger LOGGER = LoggerFactory.getLogger(User.class);
+    
     private String name;
     
     private Integer age;
@@ -17,19 +22,26 @@ public class User {
     
     public User() {
         super();
-        System.err.println("主流程：User对象实例化中。。-->\n\t||\n\t\\/");
+        LOGGER.debug("主流程：User对象实例化中。。-->\n\t||\n\t\\/");
     }
     
     public User(String name, Integer age) {
         super();
-        System.err.println("主流程：User对象实例化中。。-->\n\t||\n\t\\/");
+        LOGGER.debug("主流程：User对象实例化中。。-->\n\t||\n\t\\/");
         this.name = name;
         this.age = age;
     }
     
     
     public void init() {
-        System.err.println("主流程：User对象初始化中。。-->\n\t||\n\t\\/");
+        LOGGER.debug("主流程：User对象初始化中。。-->\n\t||\n\t\\/");
+    }
+    
+    /**
+     * 放回对象池之前重置：只清空使用过程中修改的爱好，name、age、address 是装配时注入的，保持不变
+     */
+    public void reset() {
+        hobbies.clear();
     }
     
     
@@ -40,7 +52,7 @@ public class User {
     
     
     public void setName(String name) {
-        System.err.println("主流程：User对象属性name装配中。。-->\n\t||\n\t\\/");
+        LOGGER.debug("主流程：User对象属性name装配中。。-->\n\t||\n\t\\/");
         this.name = name;
     }
     
@@ -53,7 +65,7 @@ public class User {
     
     
     public void setAge(Integer age) {
-        System.err.println("主流程：User对象属性age装配中。。-->\n\t||\n\t\\/");
+        LOGGER.debug("主流程：User对象属性age装配中。。-->\n\t||\n\t\\/");
         this.age = age;
     }
 
@@ -0,0 +1,36 @@
+package cn.zzs.spring;
+
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+
+/**
+ * 注册 user、address、userService、userDao，用于生成 beanDefinition 快照
+ * @author zzs
+ * @date 2026年10月18日 下午10:02:36
+ */
+public class UserBeanDefinitionRegistrar implements BeanDefinitionRegistrar {
+
+    @Override
+    public void registerBeanDefinitions(BeanDefinitionRegistry registry) {
+        // 注册user，属性值为字符串，需要转换成属性的类型，address 属性按类型自动装配
+        AbstractBeanDefinition userBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyValue("name", "zzs001")
+                .addPropertyValue("age", "18")
+                .setInitMethodName("init")
+                .setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE)
+                .getBeanDefinition();
+        registry.registerBeanDefinition("user", userBeanDefinition);
+        AbstractBeanDefinition addressBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(Address.class)
+                .addPropertyValue("name", "home")
+                .addPropertyValue("region", "shenzhen")
+                .getBeanDefinition();
+        registry.registerBeanDefinition("address", addressBeanDefinition);
+
+        // 注册userService，构造方法自动装配
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        registry.registerBeanDefinition("userService", userServiceBeanDefinition);
+        registry.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+    }
+}
@@ -1,17 +1,21 @@
 package cn.zzs.spring;
 
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class UserDao implements IUserDao {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDao.class);
+    
     private UserService userService;
     
     public UserDao() {
         super();
-        System.err.println("UserDao构造方法被调用 --> ");
+        LOGGER.debug("UserDao构造方法被调用 --> ");
     }
     
     public void save(User user) {
-        System.err.println("Dao save user：" + user);
+        LOGGER.debug("Dao save user：{}", user);
     }
 
     
@@ -21,7 +25,7 @@ public class UserDao implements IUserDao {
 
     
     public void setUserService(UserService userService) {
-        System.err.println("UserDao装配属性userService --> ");
+        LOGGER.debug("UserDao装配属性userService --> ");
         this.userService = userService;
     }
     
@@ -1,22 +1,27 @@
 package cn.zzs.spring;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class UserService implements IUserService {
     
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    
     private UserDao userDao;
     
     public UserService(UserDao userDao) {
         super();
         this.userDao = userDao;
-        System.err.println("UserService1有参构造方法被调用 --> ");
+        LOGGER.debug("UserService1有参构造方法被调用 --> ");
     }
     
     public UserService() {
         super();
-        System.err.println("UserService1无参构造方法被调用 --> ");
+        LOGGER.debug("UserService1无参构造方法被调用 --> ");
     }
     
     public void init() {
-        System.err.println("UserService1的init方法被调用 --> ");
+        LOGGER.debug("UserService1的init方法被调用 --> ");
     }
     
     
@@ -25,7 +30,7 @@ public class UserService implements IUserService {
     }
     
     public void setUserDao(UserDao userDao) {
-        System.err.println("UserService1装配属性userDao --> ");
+        LOGGER.debug("UserService1装配属性userDao --> ");
         this.userDao = userDao;
     }
     
@@ -34,7 +39,7 @@ public class UserService implements IUserService {
     }
     
     public void save(User user) {
-        System.err.println("UserService1 save user：" + user);
+        LOGGER.debug("UserService1 save user：{}", user);
         userDao.save(user);
     }
 
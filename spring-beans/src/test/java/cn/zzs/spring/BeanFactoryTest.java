@@ -2,6 +2,14 @@ package cn.zzs.spring;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -9,6 +17,7 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.PropertyValues;
 import org.springframework.beans.TypeConverterSupport;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.BeanNotOfRequiredTypeException;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -139,6 +148,46 @@ public class BeanFactoryTest {
         Assert.assertNotNull(bean);
     }
 
+    /**
+     * ClassPairTypeConverter 按照 (源类型, 目标类型) 精确匹配转换器，开启后没有注册转换器、也无法转换的 JavaBean 之间自动复制同名属性。
+     * @author zzs
+     * @date 2026年10月19日 上午2:39:50 void
+     */
+    @Test
+    public void testClassPairTypeConverter() {
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        // 注册类型转换器
+        ClassPairTypeConverter typeConverter = new ClassPairTypeConverter();
+        typeConverter.addConverter(UserVO.class, User.class, userVO -> new User(userVO.getName(), userVO.getAge()));
+        beanFactory.setTypeConverter(typeConverter);
+
+        BeanDefinition rootBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyValue("name", "zzs001")
+                .addPropertyValue("age", 18)
+                .getBeanDefinition();
+        beanFactory.registerBeanDefinition("user", rootBeanDefinition);
+
+        // 默认不复制同名属性
+        try {
+            beanFactory.getBean("user", UserVO.class);
+            Assert.fail();
+        } catch(BeanNotOfRequiredTypeException e) {
+            assertEquals(UserVO.class, e.getRequiredType());
+        }
+
+        // 开启后，User转UserVO不需要注册，原来的逻辑转换失败后自动复制同名属性
+        typeConverter.setFieldCopyFallback(true);
+        UserVO userVO = beanFactory.getBean("user", UserVO.class);
+        assertEquals("zzs001", userVO.getName());
+        assertEquals(Integer.valueOf(18), userVO.getAge());
+
+        // 注册的转换器
+        assertEquals(new User("zzs001", 18), typeConverter.convertIfNecessary(userVO, User.class));
+        // 其他类型仍然走原来的逻辑
+        assertEquals(Integer.valueOf(18), typeConverter.convertIfNecessary("18", Integer.class));
+    }
+
     /**
      * 当出现多个同类型的bean时，如果使用类型获取，会报错NoUniqueBeanDefinitionException。可以通过以下方法解决（1优先于2）：
      * <p>1. 设置BeanDefinition对象为isPrimary。不适用于registerSingleton的情况
@@ -341,4 +390,81 @@ public class BeanFactoryTest {
         assertNotNull(userDao.getUserService());
     }
 
+    /**
+     * pooled 作用域的 bean 用完之后归还，归还时调用 beanDefinition 中指定的重置方法，
+     * 下次获取时直接复用，不再实例化、属性装配和初始化。重复归还或者归还不是借出的对象会报错。
+     * @author zzs
+     * @date 2026年10月19日 上午1:48:12 void
+     */
+    @Test
+    public void testPooledScope() {
+        // 创建beanFactory
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PooledScope pooledScope = new PooledScope(beanFactory, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        beanFactory.registerScope(PooledScope.SCOPE_POOLED, pooledScope);
+
+        // 定义一个beanDefinition，指定作用域和重置方法
+        AbstractBeanDefinition userBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyValue("name", "zzs001")
+                .addPropertyValue("age", 18)
+                .setInitMethodName("init")
+                .setScope(PooledScope.SCOPE_POOLED)
+                .getBeanDefinition();
+        userBeanDefinition.setAttribute(PooledScope.RESET_METHOD_ATTRIBUTE, "reset");
+        beanFactory.registerBeanDefinition("user", userBeanDefinition);
+
+        // 第一次获取，走完整的创建流程
+        User user = (User)beanFactory.getBean("user");
+        user.getHobbies().add("music");
+        Address address = user.getAddress();
+
+        // 归还后再获取，拿到的是重置过的同一个对象
+        pooledScope.release("user", user);
+        User user2 = (User)beanFactory.getBean("user");
+        assertSame(user, user2);
+        assertEquals(new User("zzs001", 18), user2);
+        assertTrue(user2.getHobbies().isEmpty());
+        assertSame(address, user2.getAddress());
+
+        // 没有归还时，获取的是新对象
+        User user3 = (User)beanFactory.getBean("user");
+        assertNotSame(user2, user3);
+
+        // 线程槽位和共享队列各放一个，多出来的丢弃
+        User extraUser = (User)beanFactory.getBean("user");
+        pooledScope.release("user", user2);
+        pooledScope.release("user", user3);
+        pooledScope.release("user", extraUser);
+        assertEquals(1, pooledScope.getIdleCount("user"));
+        assertEquals(1, pooledScope.getDiscardedCount());
+        assertEquals(3, pooledScope.getCreatedCount());
+        assertEquals(1, pooledScope.getReusedCount());
+
+        // 重复归还，或者归还不是从作用域中借出的对象，直接报错，不会放入池中
+        try {
+            pooledScope.release("user", user3);
+            fail();
+        } catch(IllegalStateException e) {
+            assertTrue(e.getMessage().contains("'user'"));
+        }
+        try {
+            pooledScope.release("user", new User("zzs001", 18));
+            fail();
+        } catch(IllegalStateException e) {
+            assertTrue(e.getMessage().contains("'user'"));
+        }
+        assertEquals(1, pooledScope.getIdleCount("user"));
+        assertEquals(1, pooledScope.getDiscardedCount());
+
+        // 其他线程归还到自己槽位中的 bean，在 remove 之后也不会再被使用
+        User user4 = CompletableFuture.supplyAsync(() -> {
+            User pooled = (User)beanFactory.getBean("user");
+            pooledScope.release("user", pooled);
+            return pooled;
+        }, executor).join();
+        pooledScope.remove("user");
+        assertNotSame(user4, CompletableFuture.supplyAsync(() -> beanFactory.getBean("user"), executor).join());
+        executor.shutdown();
+    }
 }
@@ -0,0 +1,1212 @@
+package cn.zzs.spring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
+import org.springframework.beans.factory.SmartFactoryBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.SmartInstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import cn.zzs.spring.BeanCreationInstrumentation.BeanTimings;
+import cn.zzs.spring.BeanCreationInstrumentation.Phase;
+import cn.zzs.spring.BeanPostProcessorFilter.ApplicableBeanPostProcessors;
+
+/**
+ * 测试OptimizedListableBeanFactory
+ * @author zzs
+ * @date 2026年10月18日 下午6:52:08
+ */
+public class OptimizedListableBeanFactoryTest {
+
+    /**
+     * 开启类型索引后，冻结配置时会构建 beanType 到 beanName 的索引，父类和接口也会被索引。
+     * 通过 beanType 获取 bean 时，先从索引中拿到唯一的候选或者 primary 的候选，拿不到的再走原来的逻辑。
+     * @author zzs
+     * @date 2026年10月18日 下午6:52:08 void
+     */
+    @Test
+    public void testTypeIndex() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setTypeIndexEnabled(true);
+
+        // 注册bean
+        BeanDefinition rootBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition();
+        rootBeanDefinition.setPrimary(true); // 设置bean优先
+        beanFactory.registerBeanDefinition("user", rootBeanDefinition);
+        beanFactory.registerSingleton("user2", new User("zzs002", 19));
+        beanFactory.registerBeanDefinition("userService", BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition());
+        beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+
+        // 冻结配置前不使用索引
+        assertNull(beanFactory.getTypeIndex());
+        beanFactory.freezeConfiguration();
+
+        BeanTypeIndex typeIndex = beanFactory.getTypeIndex();
+        assertNotNull(typeIndex);
+        assertArrayEquals(new String[]{"user", "user2"}, typeIndex.getCandidateNames(User.class));
+        assertEquals("user", typeIndex.getResolvedName(User.class));
+        assertEquals("userService", typeIndex.getResolvedName(IUserService.class));
+        assertEquals("userDao", typeIndex.getResolvedName(IUserDao.class));
+
+        // 获取bean--通过beanType
+        assertSame(beanFactory.getBean("user"), beanFactory.getBean(User.class));
+        assertSame(beanFactory.getBean("userService"), beanFactory.getBean(IUserService.class));
+
+        // 注册新的bean后，索引会重建
+        beanFactory.registerSingleton("userFactoryBean", new UserFactoryBean());
+        assertEquals("&userFactoryBean", beanFactory.getTypeIndex().getResolvedName(UserFactoryBean.class));
+        assertSame(beanFactory.getBean("&userFactoryBean"), beanFactory.getBean(UserFactoryBean.class));
+
+        // 和getBeanNamesForType一致，factoryBean本身只在getObject()返回的对象类型不匹配时才会被索引
+        assertArrayEquals(beanFactory.getBeanNamesForType(Object.class), beanFactory.getTypeIndex().getCandidateNames(Object.class));
+        assertArrayEquals(beanFactory.getBeanNamesForType(FactoryBean.class), beanFactory.getTypeIndex().getCandidateNames(FactoryBean.class));
+
+        // 构建索引时不会为了获取类型而创建factoryBean
+        beanFactory.registerBeanDefinition("lazyFactoryBean", BeanDefinitionBuilder.rootBeanDefinition(UserFactoryBean.class).getBeanDefinition());
+        assertArrayEquals(new String[]{"&lazyFactoryBean", "&userFactoryBean"}, beanFactory.getTypeIndex().getCandidateNames(UserFactoryBean.class));
+        assertFalse(beanFactory.containsSingleton("lazyFactoryBean"));
+    }
+
+    /**
+     * 索引无法确定唯一 bean 时，和 DefaultListableBeanFactory 一样报错 NoUniqueBeanDefinitionException
+     * @author zzs
+     * @date 2026年10月18日 下午6:52:08 void
+     */
+    @Test(expected = NoUniqueBeanDefinitionException.class)
+    public void testTypeIndexNoUnique() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setTypeIndexEnabled(true);
+
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition());
+        beanFactory.registerSingleton("user2", new User("zzs002", 19));
+        beanFactory.freezeConfiguration();
+
+        assertNull(beanFactory.getTypeIndex().getResolvedName(User.class));
+        beanFactory.getBean(User.class);
+    }
+
+    /**
+     * 没有声明泛型的 factoryBean 不创建就推断不出类型，索引不直接确定 beanName，
+     * 和 DefaultListableBeanFactory 一样创建 factoryBean 之后发现有两个 User，报错 NoUniqueBeanDefinitionException
+     * @author zzs
+     * @date 2026年10月19日 下午2:10:36 void
+     */
+    @Test
+    public void testTypeIndexUnresolvedFactoryBean() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setTypeIndexEnabled(true);
+
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition());
+        beanFactory.registerBeanDefinition("rawUser", BeanDefinitionBuilder.rootBeanDefinition(RawUserFactoryBean.class).getBeanDefinition());
+        beanFactory.freezeConfiguration();
+
+        BeanTypeIndex typeIndex = beanFactory.getTypeIndex();
+        assertArrayEquals(new String[]{"rawUser"}, typeIndex.getUnresolvedNames());
+        assertArrayEquals(new String[]{"user"}, typeIndex.getCandidateNames(User.class));
+        assertNull(typeIndex.getResolvedName(User.class));
+        try {
+            beanFactory.getBean(User.class);
+            fail();
+        } catch(NoUniqueBeanDefinitionException e) {
+            assertEquals(2, e.getNumberOfBeansFound());
+        }
+    }
+
+    /**
+     * 依赖图根据 beanDefinition 推算：userService 通过构造方法自动装配 userDao，是强依赖；
+     * userDao 通过属性引用 userService，是属性依赖，两者构成循环依赖。
+     * @author zzs
+     * @date 2026年10月18日 下午8:31:45 void
+     */
+    @Test
+    public void testDependencyGraph() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.getPropertyValues().add("userService", new RuntimeBeanReference("userService"));
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition());
+
+        BeanDependencyGraph dependencyGraph = beanFactory.getDependencyGraph();
+        assertEquals(Collections.singletonList("userDao"), dependencyGraph.getDependencies("userService"));
+        assertTrue(dependencyGraph.isHardDependency("userService", "userDao"));
+        assertEquals(Collections.singletonList("userService"), dependencyGraph.getDependencies("userDao"));
+        assertTrue(!dependencyGraph.isHardDependency("userDao", "userService"));
+        assertEquals(Collections.singletonList(Arrays.asList("userService", "userDao")), dependencyGraph.getCycles());
+        assertTrue(!dependencyGraph.isInCycle("user"));
+    }
+
+    /**
+     * 开启并行预实例化后，相互独立的单例在 ForkJoinPool 中并行创建，依赖总是先于使用它的 bean 创建，
+     * 循环依赖（这里 userService 和 userDao 通过属性相互引用）在同一个线程中串行创建。
+     * @author zzs
+     * @date 2026年10月18日 下午8:31:45 void
+     */
+    @Test
+    public void testParallelPreInstantiation() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setParallelPreInstantiation(true);
+        beanFactory.setPreInstantiationParallelism(4);
+
+        // 相互独立的userService和userDao
+        int count = 50;
+        for(int i = 0; i < count; i++) {
+            AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+            userServiceBeanDefinition.getPropertyValues().add("userDao", new RuntimeBeanReference("userDao" + i));
+            beanFactory.registerBeanDefinition("userService" + i, userServiceBeanDefinition);
+            beanFactory.registerBeanDefinition("userDao" + i, BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+        }
+
+        // 循环依赖的userService和userDao
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.getPropertyValues().add("userDao", new RuntimeBeanReference("userDao"));
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.getPropertyValues().add("userService", new RuntimeBeanReference("userService"));
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+
+        beanFactory.preInstantiateSingletons();
+
+        assertEquals(count * 2 + 2, beanFactory.getSingletonCount());
+        for(int i = 0; i < count; i++) {
+            UserService userService = (UserService)beanFactory.getBean("userService" + i);
+            assertSame(beanFactory.getBean("userDao" + i), userService.getUserDao());
+        }
+        UserService userService = (UserService)beanFactory.getBean("userService");
+        UserDao userDao = (UserDao)beanFactory.getBean("userDao");
+        assertSame(userDao, userService.getUserDao());
+        assertSame(userService, userDao.getUserService());
+    }
+
+    /**
+     * 并行预实例化时，factoryBean 的 getObject() 中获取另一个线程正在创建的 bean，不会因为全局锁死锁
+     * @author zzs
+     * @date 2026年10月19日 下午4:05:31 void
+     */
+    @Test
+    public void testParallelPreInstantiationWithFactoryBean() throws Exception {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setParallelPreInstantiation(true);
+        beanFactory.setPreInstantiationParallelism(2);
+
+        CountDownLatch userCreating = new CountDownLatch(1);
+        CountDownLatch inGetObject = new CountDownLatch(1);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.genericBeanDefinition(User.class, () -> {
+            userCreating.countDown();
+            try {
+                inGetObject.await();
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new User("zzs001", 18);
+        }).getBeanDefinition());
+        // 依赖图中看不出 getObject() 里的 getBean，两个 bean 会被并行创建
+        beanFactory.registerBeanDefinition("userHolder", BeanDefinitionBuilder.genericBeanDefinition(SmartFactoryBean.class, () -> new SmartFactoryBean<User[]>() {
+
+            @Override
+            public User[] getObject() throws Exception {
+                userCreating.await();
+                inGetObject.countDown();
+                return new User[]{beanFactory.getBean("user", User.class)};
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return User[].class;
+            }
+
+            @Override
+            public boolean isEagerInit() {
+                return true;
+            }
+        }).getBeanDefinition());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(beanFactory::preInstantiateSingletons).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame(beanFactory.getBean("user"), ((User[])beanFactory.getBean("userHolder"))[0]);
+    }
+
+    /**
+     * 持有全局锁的线程等待创建锁，而持有这个创建锁的线程阻塞在全局锁上时，由持有全局锁的线程放弃
+     * @author zzs
+     * @date 2026年10月19日 下午4:05:31 void
+     */
+    @Test
+    public void testSingletonCreationLocksWithMutex() throws Exception {
+        Object mutex = new Object();
+        SingletonCreationLocks locks = new SingletonCreationLocks(mutex);
+        CountDownLatch userLocked = new CountDownLatch(1);
+        CountDownLatch mutexLocked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(() -> {
+                locks.lock("user");
+                try {
+                    userLocked.countDown();
+                    mutexLocked.await();
+                    synchronized(mutex) {
+                        return null;
+                    }
+                } finally {
+                    locks.unlock("user");
+                }
+            });
+            synchronized(mutex) {
+                mutexLocked.countDown();
+                userLocked.await();
+                try {
+                    locks.lock("user");
+                    fail();
+                } catch(SingletonCreationLocks.SingletonCreationConflictException e) {
+                    assertFalse(locks.isHoldingAnyLock());
+                }
+            }
+            future.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 开启 MethodHandle 调用后，构造方法、setter 和初始化方法都通过 MethodHandle 调用。
+     * 原型 bean 第二次创建时属性值已经完成类型转换，直接调用 setter。
+     * @author zzs
+     * @date 2026年10月18日 下午9:42:16 void
+     */
+    @Test
+    public void testMethodHandleInvocation() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setMethodHandleInvocation(true);
+
+        AbstractBeanDefinition userBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .setScope(BeanDefinition.SCOPE_PROTOTYPE)
+                .addPropertyValue("name", "zzs001")
+                .addPropertyValue("age", "18")
+                .setInitMethodName("init")
+                .getBeanDefinition();
+        beanFactory.registerBeanDefinition("user", userBeanDefinition);
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+
+        User user1 = (User)beanFactory.getBean("user");
+        User user2 = (User)beanFactory.getBean("user");
+        assertTrue(user1 != user2);
+        assertEquals(new User("zzs001", 18), user1);
+        assertEquals(new User("zzs001", 18), user2);
+
+        UserService userService = beanFactory.getBean(UserService.class);
+        assertSame(beanFactory.getBean("userDao"), userService.getUserDao());
+
+        // 和SimpleInstantiationStrategy一样，无参构造方法缓存在beanDefinition上
+        Field resolvedConstructor = ReflectionUtils.findField(RootBeanDefinition.class, "resolvedConstructorOrFactoryMethod");
+        ReflectionUtils.makeAccessible(resolvedConstructor);
+        assertEquals(ClassUtils.getConstructorIfAvailable(User.class),
+                ReflectionUtils.getField(resolvedConstructor, beanFactory.getMergedBeanDefinition("user")));
+
+        // 和BeanUtils.instantiateClass一样，基本类型的参数传入null时使用默认值
+        AtomicInteger counter = (AtomicInteger)new MethodHandleInstantiationStrategy().instantiate(new RootBeanDefinition(AtomicInteger.class), "counter",
+                beanFactory, ClassUtils.getConstructorIfAvailable(AtomicInteger.class, int.class), (Object)null);
+        assertEquals(0, counter.get());
+    }
+
+    /**
+     * 构建时生成 beanDefinition 快照，启动时通过内存映射加载：
+     * 构造方法已经推断好，通过 instanceSupplier 创建；byType 自动装配的属性已经改成引用；字符串属性值已经转换成属性类型。
+     * synthetic、enforceInitMethod、enforceDestroyMethod 等标记位也会保存下来。
+     * @author zzs
+     * @date 2026年10月18日 下午10:31:27 void
+     */
+    @Test
+    public void testBeanDefinitionSnapshot() throws IOException {
+        DefaultListableBeanFactory sourceBeanFactory = new DefaultListableBeanFactory();
+        new UserBeanDefinitionRegistrar().registerBeanDefinitions(sourceBeanFactory);
+        AbstractBeanDefinition sourceAddressBeanDefinition = (AbstractBeanDefinition)sourceBeanFactory.getBeanDefinition("address");
+        sourceAddressBeanDefinition.setSynthetic(true);
+        sourceAddressBeanDefinition.setEnforceInitMethod(false);
+        sourceAddressBeanDefinition.setEnforceDestroyMethod(false);
+        Path file = Files.createTempFile("bean-definitions", ".snapshot");
+        try {
+            assertEquals(4, BeanDefinitionSnapshot.write(sourceBeanFactory, file));
+
+            OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+            assertEquals(4, BeanDefinitionSnapshot.load(file, beanFactory));
+
+            AbstractBeanDefinition addressBeanDefinition = (AbstractBeanDefinition)beanFactory.getBeanDefinition("address");
+            assertTrue(addressBeanDefinition.isSynthetic());
+            assertFalse(addressBeanDefinition.isEnforceInitMethod());
+            assertFalse(addressBeanDefinition.isEnforceDestroyMethod());
+
+            RootBeanDefinition userBeanDefinition = (RootBeanDefinition)beanFactory.getBeanDefinition("user");
+            assertNotNull(userBeanDefinition.getInstanceSupplier());
+            assertEquals(AbstractBeanDefinition.AUTOWIRE_NO, userBeanDefinition.getAutowireMode());
+            assertEquals(18, userBeanDefinition.getPropertyValues().get("age"));
+            assertEquals(new RuntimeBeanReference("address"), userBeanDefinition.getPropertyValues().get("address"));
+            assertFalse(userBeanDefinition.isSynthetic());
+            assertTrue(userBeanDefinition.isEnforceInitMethod());
+            assertTrue(userBeanDefinition.isEnforceDestroyMethod());
+
+            User user = (User)beanFactory.getBean("user");
+            assertEquals("zzs001", user.getName());
+            assertEquals(Integer.valueOf(18), user.getAge());
+            assertSame(beanFactory.getBean("address"), user.getAddress());
+
+            UserService userService = (UserService)beanFactory.getBean("userService");
+            assertSame(beanFactory.getBean("userDao"), userService.getUserDao());
+            assertArrayEquals(new String[]{"userService"}, beanFactory.getDependentBeans("userDao"));
+        } finally {
+            Files.delete(file);
+        }
+
+        // 快照不能保存attribute，生成时直接报错
+        DefaultListableBeanFactory attributeBeanFactory = new DefaultListableBeanFactory();
+        new UserBeanDefinitionRegistrar().registerBeanDefinitions(attributeBeanFactory);
+        attributeBeanFactory.getBeanDefinition("address").setAttribute("region", "shenzhen");
+        try {
+            BeanDefinitionSnapshot.write(attributeBeanFactory, file);
+            fail();
+        } catch(IllegalStateException e) {
+            assertTrue(e.getMessage().contains("'address'"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * 启动时classpath中有同一个registrar生成的快照就加载快照，否则调用registrar注册
+     * @author zzs
+     * @date 2026年10月19日 下午2:10:37 void
+     */
+    @Test
+    public void testLoadDefaultSnapshot() throws Exception {
+        Path dir = Files.createTempDirectory("bean-definitions");
+        Path file = dir.resolve(BeanDefinitionSnapshot.DEFAULT_LOCATION);
+        Files.createDirectories(file.getParent());
+        DefaultListableBeanFactory sourceBeanFactory = new DefaultListableBeanFactory();
+        new UserBeanDefinitionRegistrar().registerBeanDefinitions(sourceBeanFactory);
+        BeanDefinitionSnapshot.write(sourceBeanFactory, file, UserBeanDefinitionRegistrar.class.getName());
+        // 优先使用临时目录中的快照，不使用target/classes中通过-Psnapshot生成的快照
+        try(URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader()) {
+
+            @Override
+            public URL getResource(String name) {
+                URL url = findResource(name);
+                return url != null ? url : super.getResource(name);
+            }
+        }) {
+            OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+            beanFactory.setBeanClassLoader(classLoader);
+            assertTrue(BeanDefinitionSnapshot.loadOrRegister(new UserBeanDefinitionRegistrar(), beanFactory));
+            assertNotNull(((RootBeanDefinition)beanFactory.getBeanDefinition("userService")).getInstanceSupplier());
+            assertEquals("zzs001", ((User)beanFactory.getBean("user")).getName());
+
+            // 其他registrar生成的快照不会加载
+            OptimizedListableBeanFactory beanFactory2 = new OptimizedListableBeanFactory();
+            beanFactory2.setBeanClassLoader(classLoader);
+            assertFalse(BeanDefinitionSnapshot.loadOrRegister(registry -> registry.registerBeanDefinition("address",
+                    BeanDefinitionBuilder.rootBeanDefinition(Address.class).getBeanDefinition()), beanFactory2));
+            assertArrayEquals(new String[]{"address"}, beanFactory2.getBeanDefinitionNames());
+        } finally {
+            Files.delete(file);
+            Files.delete(file.getParent());
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * 开启按 beanName 创建单例后，多个线程同时首次获取同一个单例，只会创建一次；
+     * 循环依赖的 bean 在创建线程中仍然能拿到提前暴露的引用。
+     * @author zzs
+     * @date 2026年10月19日 上午1:21:36 void
+     */
+    @Test
+    public void testConcurrentSingletonCreation() throws Exception {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setConcurrentSingletonCreation(true);
+
+        beanFactory.registerSingleton("user", new User("zzs001", 18));
+        // 和BeanFactoryTest.testCircularReference一样的循环依赖
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE);
+        userServiceBeanDefinition.setLazyInit(true);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setScope(ConfigurableBeanFactory.SCOPE_PROTOTYPE);
+        userDaoBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+
+        int threads = 16;
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object[]>> futures = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                futures.add(executor.submit((Callable<Object[]>)() -> {
+                    startSignal.await();
+                    return new Object[]{beanFactory.getBean("user"), beanFactory.getBean("userService")};
+                }));
+            }
+            startSignal.countDown();
+
+            User user = (User)beanFactory.getBean("user");
+            UserService userService = (UserService)beanFactory.getBean("userService");
+            for(Future<Object[]> future : futures) {
+                Object[] beans = future.get();
+                assertSame(user, beans[0]);
+                assertSame(userService, beans[1]);
+            }
+            assertNotNull(userService.getUserDao());
+            assertSame(userService, userService.getUserDao().getUserService());
+            UserDao userDao = (UserDao)beanFactory.getBean("userDao");
+            assertSame(userService, userDao.getUserService());
+            assertTrue(beanFactory.isConcurrentSingletonCreation());
+            assertTrue(!beanFactory.isSingletonCurrentlyInCreation("userService"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 按 beanName 创建单例时，factoryBean 的 getObject() 中获取另一个线程正在创建的 bean：
+     * getObject() 不在全局锁中调用，正在创建 bean 的线程注册单例时不会被阻塞，两个线程都能完成
+     * @author zzs
+     * @date 2026年10月19日 下午3:40:12 void
+     */
+    @Test
+    public void testConcurrentFactoryBeanObjectCreation() throws Exception {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setConcurrentSingletonCreation(true);
+
+        CountDownLatch userCreating = new CountDownLatch(1);
+        CountDownLatch inGetObject = new CountDownLatch(1);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.genericBeanDefinition(User.class, () -> {
+            userCreating.countDown();
+            try {
+                inGetObject.await();
+                // 等 getObject() 中的 getBean("user") 开始等待 user 的锁，之后注册单例需要全局锁
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new User("zzs001", 18);
+        }).getBeanDefinition());
+        beanFactory.registerSingleton("userHolder", new FactoryBean<User[]>() {
+
+            @Override
+            public User[] getObject() throws Exception {
+                userCreating.await();
+                inGetObject.countDown();
+                return new User[]{beanFactory.getBean("user", User.class)};
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return User[].class;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> user = executor.submit(() -> beanFactory.getBean("user"));
+            Future<Object> userHolder = executor.submit(() -> beanFactory.getBean("userHolder"));
+            assertSame(user.get(5, TimeUnit.SECONDS), ((User[])userHolder.get(5, TimeUnit.SECONDS))[0]);
+            // 单例 factoryBean 创建的对象仍然由父类缓存
+            assertSame(userHolder.get(), beanFactory.getBean("userHolder"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 开启后置处理器过滤后，只调用对 bean 生效、并且重写了对应阶段方法的后置处理器。
+     * @author zzs
+     * @date 2026年10月19日 上午2:10:45 void
+     */
+    @Test
+    public void testPostProcessorFiltering() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setPostProcessorFiltering(true);
+
+        // 只重写了实例化之后的方法
+        AtomicInteger afterInstantiationCount = new AtomicInteger();
+        InstantiationAwareBeanPostProcessor instantiationProcessor = new InstantiationAwareBeanPostProcessor() {
+
+            public boolean postProcessAfterInstantiation(Object bean, String beanName) throws BeansException {
+                afterInstantiationCount.incrementAndGet();
+                return true;
+            }
+        };
+        beanFactory.addBeanPostProcessor(instantiationProcessor);
+
+        // 只对UserDao生效
+        AtomicInteger userDaoInitializationCount = new AtomicInteger();
+        beanFactory.addBeanPostProcessor(new SelectiveBeanPostProcessor() {
+
+            public boolean appliesTo(Class<?> beanType, String beanName) {
+                return UserDao.class.isAssignableFrom(beanType);
+            }
+
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                assertTrue(bean instanceof UserDao);
+                userDaoInitializationCount.incrementAndGet();
+                return bean;
+            }
+        });
+
+        // 初始化后对所有bean生效
+        AtomicInteger afterInitializationCount = new AtomicInteger();
+        BeanPostProcessor initializationProcessor = new BeanPostProcessor() {
+
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                afterInitializationCount.incrementAndGet();
+                return bean;
+            }
+        };
+        beanFactory.addBeanPostProcessor(initializationProcessor);
+
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .setScope(BeanDefinition.SCOPE_PROTOTYPE)
+                .addPropertyValue("name", "zzs001")
+                .getBeanDefinition());
+        beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+
+        for(int i = 0; i < 3; i++) {
+            assertEquals("zzs001", ((User)beanFactory.getBean("user")).getName());
+        }
+        beanFactory.getBean("userDao");
+        assertEquals(4, afterInstantiationCount.get());
+        assertEquals(1, userDaoInitializationCount.get());
+        assertEquals(4, afterInitializationCount.get());
+
+        // 没有重写的阶段不会被调用
+        ApplicableBeanPostProcessors applicable = new BeanPostProcessorFilter(true).get("user", User.class, beanFactory.getBeanPostProcessors(), false);
+        assertEquals(0, applicable.beforeInstantiation.length);
+        assertArrayEquals(new Object[]{instantiationProcessor}, applicable.afterInstantiation);
+        assertEquals(0, applicable.properties.length);
+        assertEquals(0, applicable.beforeInitialization.length);
+        assertArrayEquals(new Object[]{initializationProcessor}, applicable.afterInitialization);
+
+        // 后置处理器数量不变、但换成了其他对象时重新计算
+        AtomicInteger replacedCount = new AtomicInteger();
+        beanFactory.getBeanPostProcessors().set(beanFactory.getBeanPostProcessors().indexOf(initializationProcessor), new BeanPostProcessor() {
+
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                replacedCount.incrementAndGet();
+                return bean;
+            }
+        });
+        beanFactory.getBean("user");
+        assertEquals(4, afterInitializationCount.get());
+        assertEquals(1, replacedCount.get());
+
+        // 只重写了废弃的postProcessPropertyValues的后置处理器仍然生效
+        beanFactory.addBeanPostProcessor(new InstantiationAwareBeanPostProcessor() {
+
+            @SuppressWarnings("deprecation")
+            public PropertyValues postProcessPropertyValues(PropertyValues pvs, PropertyDescriptor[] pds, Object bean, String beanName) throws BeansException {
+                return new MutablePropertyValues(pvs).add("name", "zzs002");
+            }
+        });
+        assertEquals("zzs002", ((User)beanFactory.getBean("user")).getName());
+    }
+
+    /**
+     * 开启后置处理器过滤后，推断构造方法、合并 beanDefinition 的后置处理和提前暴露的引用同样只调用对 bean 生效的处理器。
+     * @author zzs
+     * @date 2026年10月19日 上午2:10:45 void
+     */
+    @Test
+    public void testPostProcessorFilteringCreationHooks() {
+        // 只对UserService生效，记录每个阶段调用时的beanName
+        class UserServiceProcessor implements SelectiveBeanPostProcessor, SmartInstantiationAwareBeanPostProcessor, MergedBeanDefinitionPostProcessor {
+
+            final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+            public boolean appliesTo(Class<?> beanType, String beanName) {
+                return UserService.class.isAssignableFrom(beanType);
+            }
+
+            public Constructor<?>[] determineCandidateConstructors(Class<?> beanClass, String beanName) throws BeansException {
+                calls.add("determineConstructors:" + beanName);
+                return null;
+            }
+
+            public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+                calls.add("mergedBeanDefinition:" + beanName);
+            }
+
+            public Object getEarlyBeanReference(Object bean, String beanName) throws BeansException {
+                calls.add("earlyReference:" + beanName);
+                return bean;
+            }
+        }
+
+        // userService和userDao循环依赖，先获取的bean会提前暴露引用
+        for(String firstBeanName : new String[]{"userDao", "userService"}) {
+            OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+            beanFactory.setPostProcessorFiltering(true);
+            UserServiceProcessor processor = new UserServiceProcessor();
+            beanFactory.addBeanPostProcessor(processor);
+            beanFactory.registerBeanDefinition("userService", BeanDefinitionBuilder.rootBeanDefinition(UserService.class)
+                    .addPropertyReference("userDao", "userDao")
+                    .getBeanDefinition());
+            beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class)
+                    .addPropertyReference("userService", "userService")
+                    .getBeanDefinition());
+            beanFactory.getBean(firstBeanName);
+
+            if("userDao".equals(firstBeanName)) {
+                // userDao的提前暴露引用不会调用这个处理器
+                assertEquals(Arrays.asList("determineConstructors:userService", "mergedBeanDefinition:userService"), processor.calls);
+            } else {
+                assertEquals(Arrays.asList("determineConstructors:userService", "mergedBeanDefinition:userService", "earlyReference:userService"),
+                        processor.calls);
+            }
+
+            BeanPostProcessorFilter postProcessorFilter = new BeanPostProcessorFilter(true);
+            ApplicableBeanPostProcessors userDaoApplicable = postProcessorFilter.get("userDao", UserDao.class, beanFactory.getBeanPostProcessors(), true);
+            assertEquals(0, userDaoApplicable.determineConstructors.length);
+            assertEquals(0, userDaoApplicable.mergedBeanDefinition.length);
+            assertEquals(0, userDaoApplicable.earlyReference.length);
+            ApplicableBeanPostProcessors userServiceApplicable = postProcessorFilter.get("userService", UserService.class, beanFactory.getBeanPostProcessors(), true);
+            assertArrayEquals(new Object[]{processor}, userServiceApplicable.determineConstructors);
+            assertArrayEquals(new Object[]{processor}, userServiceApplicable.mergedBeanDefinition);
+            assertArrayEquals(new Object[]{processor}, userServiceApplicable.earlyReference);
+        }
+    }
+
+    /**
+     * 设置耗时记录器后，记录每个 bean 实例化、属性装配、每个后置处理器和初始化的耗时，同时发出事件（运行环境支持时为 JFR 事件），最后导出启动报告。
+     * 后置处理器抛出异常时，开始的事件同样会结束。
+     * @author zzs
+     * @date 2026年10月19日 上午3:05:21 void
+     */
+    @Test
+    public void testInstrumentation() throws IOException {
+        // 有jdk.jfr时发出JFR事件
+        assertTrue(BeanPhaseEvents.load() instanceof JfrBeanPhaseEvents);
+
+        // 记录发出的事件
+        List<String> begunEvents = Collections.synchronizedList(new ArrayList<>());
+        List<String> endedEvents = Collections.synchronizedList(new ArrayList<>());
+        BeanCreationInstrumentation instrumentation = new BeanCreationInstrumentation(new BeanPhaseEvents() {
+
+            public Object begin(String beanName, Phase phase, String postProcessor) {
+                String event = beanName + ":" + phase + ":" + postProcessor;
+                begunEvents.add(event);
+                return event;
+            }
+
+            public void end(Object event) {
+                endedEvents.add((String)event);
+            }
+        });
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setInstrumentation(instrumentation);
+        BeanPostProcessor initializationProcessor = new BeanPostProcessor() {
+
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                return bean;
+            }
+        };
+        beanFactory.addBeanPostProcessor(initializationProcessor);
+
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class)
+                .addPropertyReference("userDao", "userDao")
+                .setInitMethodName("init")
+                .getBeanDefinition();
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+
+        beanFactory.preInstantiateSingletons();
+
+        // userDao在userService属性装配时创建，自身耗时不包括userDao的创建
+        BeanTimings userService = instrumentation.getBeanTimings("userService");
+        BeanTimings userDao = instrumentation.getBeanTimings("userDao");
+        assertEquals(1, userService.getCount());
+        assertEquals(1, userDao.getCount());
+        assertTrue(userService.getPopulateNanos() >= userDao.getTotalNanos());
+        assertEquals(userService.getTotalNanos() - userDao.getTotalNanos(), userService.getSelfNanos());
+        assertTrue(userService.getInitNanos() > 0);
+        assertEquals(Collections.singleton(initializationProcessor.getClass().getName()), userService.getPostProcessorNanos().keySet());
+
+        assertTrue(endedEvents.contains("userService:INIT:null"));
+        assertTrue(endedEvents.contains("userService:POST_PROCESS:" + initializationProcessor.getClass().getName()));
+        assertEquals(begunEvents.size(), endedEvents.size());
+
+        StringWriter report = new StringWriter();
+        instrumentation.writeReport(report);
+        String[] lines = report.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("beanName,count,totalMillis,selfMillis"));
+
+        // 后置处理器抛出异常
+        beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                throw new IllegalStateException("failed");
+            }
+        });
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition());
+        try {
+            beanFactory.getBean("user");
+            fail();
+        } catch(BeanCreationException e) {
+            assertEquals("failed", e.getMostSpecificCause().getMessage());
+        }
+        assertEquals(begunEvents.size(), endedEvents.size());
+    }
+
+    /**
+     * userDao 设置了延迟解析后，userService 创建时注入的是代理，第一次调用 userDao 的方法时才创建 userDao，
+     * 多个线程同时第一次调用拿到的也是同一个 userDao。依赖关系在注入代理时就已经注册。
+     * @author zzs
+     * @date 2026年10月19日 上午3:41:08 void
+     */
+    @Test
+    public void testLazyResolution() throws Exception {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+
+        // 构造方法自动装配
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setAttribute(OptimizedListableBeanFactory.LAZY_RESOLUTION_ATTRIBUTE, true);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+
+        UserService userService = (UserService)beanFactory.getBean("userService");
+        UserDao userDao = userService.getUserDao();
+        assertTrue(LazyResolutionProxies.isLazyResolutionProxy(userDao));
+        assertFalse(beanFactory.containsSingleton("userDao"));
+        assertArrayEquals(new String[]{"userService"}, beanFactory.getDependentBeans("userDao"));
+
+        int threads = 8;
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<UserService>> futures = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    userDao.save(new User("zzs001", 18));
+                    return userDao.getUserService();
+                }));
+            }
+            startSignal.countDown();
+            for(Future<UserService> future : futures) {
+                assertNull(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame(beanFactory.getBean("userDao"), LazyResolutionProxies.getResolvedTarget(userDao));
+        assertArrayEquals(new String[]{"userService"}, beanFactory.getDependentBeans("userDao"));
+    }
+
+    /**
+     * 全局开启延迟解析后，依赖 lazy-init 的 bean 时，ref 属性和 byType 自动装配都注入代理，循环依赖也不再需要提前暴露的引用。
+     * 依赖非 lazy-init 的 bean 时仍然直接注入。
+     * @author zzs
+     * @date 2026年10月19日 上午3:41:08 void
+     */
+    @Test
+    public void testGlobalLazyResolution() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setLazyResolution(true);
+
+        beanFactory.registerBeanDefinition("userService", BeanDefinitionBuilder.rootBeanDefinition(UserService.class)
+                .addPropertyReference("userDao", "userDao")
+                .getBeanDefinition());
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE);
+        userDaoBeanDefinition.setLazyInit(true);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyReference("address", "address")
+                .getBeanDefinition());
+        beanFactory.registerBeanDefinition("address", BeanDefinitionBuilder.rootBeanDefinition(Address.class).getBeanDefinition());
+
+        UserService userService = (UserService)beanFactory.getBean("userService");
+        assertTrue(LazyResolutionProxies.isLazyResolutionProxy(userService.getUserDao()));
+        assertFalse(beanFactory.containsSingleton("userDao"));
+        assertFalse(LazyResolutionProxies.isLazyResolutionProxy(((User)beanFactory.getBean("user")).getAddress()));
+
+        // userService已经创建，userDao注入的是userService本身
+        UserService injectedUserService = userService.getUserDao().getUserService();
+        assertSame(userService, injectedUserService);
+        assertSame(beanFactory.getBean("userDao"), LazyResolutionProxies.getResolvedTarget(userService.getUserDao()));
+    }
+
+    /**
+     * 开启循环依赖整体创建后，userService 和 userDao 在第一次获取其中一个时一起创建：先全部实例化并算好提前暴露的引用，再依次装配。
+     * 循环内部有构造方法注入时不满足整体创建的条件，仍然按原来的方式创建，只有被提前引用的 bean 才会计算提前暴露的引用。
+     * @author zzs
+     * @date 2026年10月19日 上午4:12:36 void
+     */
+    @Test
+    public void testBatchCycleCreation() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setBatchCycleCreation(true);
+        List<String> earlyReferences = Collections.synchronizedList(new ArrayList<>());
+        beanFactory.addBeanPostProcessor(new SmartInstantiationAwareBeanPostProcessor() {
+
+            @Override
+            public Object getEarlyBeanReference(Object bean, String beanName) throws BeansException {
+                earlyReferences.add(beanName);
+                return bean;
+            }
+        });
+
+        // userService和userDao通过属性相互引用
+        beanFactory.registerBeanDefinition("userService", BeanDefinitionBuilder.rootBeanDefinition(UserService.class)
+                .addPropertyReference("userDao", "userDao")
+                .getBeanDefinition());
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_BY_TYPE);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition());
+
+        UserDao userDao = (UserDao)beanFactory.getBean("userDao");
+        assertTrue(beanFactory.containsSingleton("userService"));
+        assertEquals(Arrays.asList("userService", "userDao"), earlyReferences);
+        UserService userService = (UserService)beanFactory.getBean("userService");
+        assertSame(userDao, userService.getUserDao());
+        assertSame(userService, userDao.getUserService());
+        assertArrayEquals(new String[]{"userService"}, beanFactory.getDependentBeans("userDao"));
+        assertArrayEquals(new String[]{"userDao"}, beanFactory.getDependentBeans("userService"));
+        assertFalse(beanFactory.isSingletonCurrentlyInCreation("userService"));
+
+        // userService通过构造方法注入userDao
+        OptimizedListableBeanFactory constructorBeanFactory = new OptimizedListableBeanFactory();
+        constructorBeanFactory.setBatchCycleCreation(true);
+        earlyReferences.clear();
+        constructorBeanFactory.addBeanPostProcessor(beanFactory.getBeanPostProcessors().get(0));
+        constructorBeanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class)
+                .addPropertyReference("userService", "userService")
+                .getBeanDefinition());
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        constructorBeanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+
+        constructorBeanFactory.preInstantiateSingletons();
+        assertEquals(Collections.singletonList("userDao"), earlyReferences);
+        userService = (UserService)constructorBeanFactory.getBean("userService");
+        assertSame(constructorBeanFactory.getBean("userDao"), userService.getUserDao());
+        assertSame(userService, userService.getUserDao().getUserService());
+
+        // 按beanName加锁时，提前算好的引用只对创建循环的线程可见，其他线程拿不到还没有初始化的userService
+        OptimizedListableBeanFactory concurrentBeanFactory = new OptimizedListableBeanFactory();
+        concurrentBeanFactory.setBatchCycleCreation(true);
+        concurrentBeanFactory.setConcurrentSingletonCreation(true);
+        List<Object> seenByOtherThread = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        concurrentBeanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if("userDao".equals(beanName)) {
+                    try {
+                        seenByOtherThread.add(String.valueOf(executorService.submit(() -> concurrentBeanFactory.getSingleton("userService")).get()));
+                    } catch(Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    // 当前线程仍然拿到提前算好的引用
+                    seenByOtherThread.add(concurrentBeanFactory.getSingleton("userService"));
+                }
+                return bean;
+            }
+        });
+        concurrentBeanFactory.registerBeanDefinition("userService", BeanDefinitionBuilder.rootBeanDefinition(UserService.class)
+                .addPropertyReference("userDao", "userDao")
+                .getBeanDefinition());
+        concurrentBeanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+        try {
+            userService = (UserService)concurrentBeanFactory.getBean("userService");
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(Arrays.asList("null", userService), seenByOtherThread);
+    }
+
+    /**
+     * 开启冻结后的 beanDefinition 存储后，冻结配置时所有 beanDefinition 合并好并按 id 存放，属性值平铺存放。
+     * 第一次创建 bean 时不再重新合并，父类中的合并结果也保持同一个对象。之后注册新的 beanDefinition 会让存储失效，再次冻结配置时重建。
+     * @author zzs
+     * @date 2026年10月19日 上午4:40:17 void
+     */
+    @Test
+    public void testFrozenDefinitionStore() {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setFrozenDefinitionStoreEnabled(true);
+
+        // user继承抽象的父beanDefinition中的属性
+        AbstractBeanDefinition parentBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyValue("name", "zzs001")
+                .setAbstract(true)
+                .getBeanDefinition();
+        beanFactory.registerBeanDefinition("parentUser", parentBeanDefinition);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.childBeanDefinition("parentUser")
+                .addPropertyValue("age", new TypedStringValue("18", Integer.class))
+                .getBeanDefinition());
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setLazyInit(true);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+        assertNull(beanFactory.getFrozenDefinitionStore());
+
+        beanFactory.freezeConfiguration();
+        FrozenBeanDefinitionStore store = beanFactory.getFrozenDefinitionStore();
+        assertNotNull(store);
+        assertEquals(3, store.size());
+        int userId = store.getId("user");
+        assertEquals("user", store.getBeanName(userId));
+        assertEquals(-1, store.getId("address"));
+        assertTrue(store.isEagerSingleton(userId));
+        assertFalse(store.isEagerSingleton(store.getId("parentUser")));
+        assertFalse(store.isEagerSingleton(store.getId("userDao")));
+        assertArrayEquals(new String[]{"name", "age"}, store.getPropertyNames(userId));
+        assertEquals(2, store.getPropertyCount(userId));
+        assertEquals(0, store.getPropertyCount(store.getId("userDao")));
+        assertEquals("zzs001", store.getPropertyValue("user", "name"));
+        assertNull(store.getPropertyValue("user", "address"));
+        assertEquals(User.class, store.getBeanClass(userId));
+        assertEquals(BeanDefinition.SCOPE_SINGLETON, store.getScope(userId));
+        assertEquals(AbstractBeanDefinition.AUTOWIRE_NO, store.getResolvedAutowireMode(userId));
+        TypedStringValue age = (TypedStringValue)store.getPropertyValue("user", "age");
+        assertEquals("18", age.getValue());
+        assertEquals(Integer.class, age.getTargetType());
+
+        // 创建bean之后合并的beanDefinition不变
+        BeanDefinition mergedBeanDefinition = beanFactory.getMergedBeanDefinition("user");
+        assertSame(store.getMergedBeanDefinition(userId), mergedBeanDefinition);
+        User user = (User)beanFactory.getBean("user");
+        assertEquals("zzs001", user.getName());
+        assertEquals(Integer.valueOf(18), user.getAge());
+        assertSame(mergedBeanDefinition, beanFactory.getMergedBeanDefinition("user"));
+        // 父类中直接合并beanDefinition时拿到的也是同一个对象
+        Method getMergedBeanDefinition = ReflectionUtils.findMethod(AbstractBeanFactory.class, "getMergedBeanDefinition", String.class, BeanDefinition.class);
+        ReflectionUtils.makeAccessible(getMergedBeanDefinition);
+        assertSame(mergedBeanDefinition, ReflectionUtils.invokeMethod(getMergedBeanDefinition, beanFactory, "user", beanFactory.getBeanDefinition("user")));
+        assertTrue(beanFactory.containsBeanDefinition("userDao"));
+        assertFalse(beanFactory.containsBeanDefinition("address"));
+
+        // 注册新的beanDefinition后失效，再次冻结配置时重建
+        beanFactory.registerBeanDefinition("address", BeanDefinitionBuilder.rootBeanDefinition(Address.class).getBeanDefinition());
+        assertNull(beanFactory.getFrozenDefinitionStore());
+        assertEquals(4, beanFactory.getBeanDefinitionCount());
+        assertTrue(beanFactory.containsBeanDefinition("address"));
+        beanFactory.freezeConfiguration();
+        assertNotSame(store, beanFactory.getFrozenDefinitionStore());
+        assertEquals(4, beanFactory.getFrozenDefinitionStore().size());
+    }
+
+    /**
+     * 开启 FactoryBean 缓存后，按类型匹配时从泛型或者 beanDefinition 的属性推断 factoryBean 创建的对象类型，不会提前创建 factoryBean。
+     * 单例 factoryBean 创建的对象会被缓存，清除后重新调用 getObject。
+     * @author zzs
+     * @date 2026年10月19日 上午5:06:43 void
+     */
+    @Test
+    public void testFactoryBeanCaching() {
+        // 默认情况下，按类型匹配时会创建factoryBean来调用getObjectType
+        DefaultListableBeanFactory defaultBeanFactory = new DefaultListableBeanFactory();
+        defaultBeanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(CountingUserFactoryBean.class).getBeanDefinition());
+        CountingUserFactoryBean.INSTANCES.set(0);
+        assertArrayEquals(new String[]{"user"}, defaultBeanFactory.getBeanNamesForType(User.class));
+        assertEquals(1, CountingUserFactoryBean.INSTANCES.get());
+
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setFactoryBeanCaching(true);
+        // 从泛型推断
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(CountingUserFactoryBean.class).getBeanDefinition());
+        // 从beanDefinition的属性推断
+        AbstractBeanDefinition rawFactoryBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(CountingRawFactoryBean.class).getBeanDefinition();
+        rawFactoryBeanDefinition.setAttribute(FactoryBean.OBJECT_TYPE_ATTRIBUTE, UserVO.class);
+        beanFactory.registerBeanDefinition("userVO", rawFactoryBeanDefinition);
+
+        CountingUserFactoryBean.INSTANCES.set(0);
+        assertArrayEquals(new String[]{"user"}, beanFactory.getBeanNamesForType(User.class));
+        assertArrayEquals(new String[]{"userVO"}, beanFactory.getBeanNamesForType(UserVO.class));
+        assertTrue(beanFactory.isTypeMatch("user", User.class));
+        assertEquals(User.class, beanFactory.getType("user"));
+        assertEquals(0, CountingUserFactoryBean.INSTANCES.get());
+        assertFalse(beanFactory.containsSingleton("user"));
+
+        // 单例factoryBean创建的对象被缓存
+        User user = beanFactory.getBean(User.class);
+        assertEquals(1, CountingUserFactoryBean.INSTANCES.get());
+        assertSame(user, beanFactory.getBean("user"));
+        assertTrue(beanFactory.getBean("&user") instanceof CountingUserFactoryBean);
+        assertTrue(beanFactory.getBean("userVO") instanceof UserVO);
+
+        // 清除之后重新调用getObject，factoryBean本身不会重新创建
+        beanFactory.invalidateFactoryBeanObject("&user");
+        User newUser = beanFactory.getBean(User.class);
+        assertNotSame(user, newUser);
+        assertSame(newUser, beanFactory.getBean("user"));
+        assertEquals(1, CountingUserFactoryBean.INSTANCES.get());
+        beanFactory.invalidateFactoryBeanObjects();
+        assertNotSame(newUser, beanFactory.getBean("user"));
+    }
+
+    /**
+     * 多个 beanFactory 共用元数据缓存：第一个 beanFactory 解析过的类，第二个 beanFactory 直接从缓存中获取，
+     * 超过最大数量时淘汰最早加入的类，也可以按类加载器淘汰。
+     * @author zzs
+     * @date 2026年10月19日 上午5:52:36 void
+     */
+    @Test
+    public void testSharedMetadataCache() throws Exception {
+        BeanMetadataCache metadataCache = new BeanMetadataCache(16);
+        OptimizedListableBeanFactory beanFactory1 = createTenantBeanFactory(metadataCache);
+        UserService userService1 = beanFactory1.getBean(UserService.class);
+        assertSame(beanFactory1.getBean("userDao"), userService1.getUserDao());
+        assertEquals(new User("zzs001", 18), beanFactory1.getBean("user"));
+        long misses = metadataCache.getMissCount();
+        int size = metadataCache.size();
+        assertTrue(misses > 0);
+
+        // 第二个beanFactory不再解析同样的类
+        OptimizedListableBeanFactory beanFactory2 = createTenantBeanFactory(metadataCache);
+        UserService userService2 = beanFactory2.getBean(UserService.class);
+        assertNotSame(userService1, userService2);
+        assertSame(beanFactory2.getBean("userDao"), userService2.getUserDao());
+        assertEquals(new User("zzs001", 18), beanFactory2.getBean("user"));
+        assertEquals(misses, metadataCache.getMissCount());
+        assertEquals(size, metadataCache.size());
+        assertSame(metadataCache.getMethodHandles(User.class), metadataCache.getMethodHandles(User.class));
+        assertArrayEquals(new String[]{"name", "age"}, metadataCache.getParameterNames(User.class.getConstructor(String.class, Integer.class)));
+
+        // 超过最大数量时淘汰最早加入的类
+        BeanMetadataCache smallCache = new BeanMetadataCache(1);
+        BeanMethodHandles userMethodHandles = smallCache.getMethodHandles(User.class);
+        smallCache.getMethodHandles(UserDao.class);
+        assertEquals(1, smallCache.size());
+        assertEquals(1, smallCache.getEvictionCount());
+        assertNotSame(userMethodHandles, smallCache.getMethodHandles(User.class));
+
+        // 按类加载器淘汰
+        metadataCache.evict(User.class.getClassLoader());
+        assertEquals(0, metadataCache.size());
+    }
+
+    private OptimizedListableBeanFactory createTenantBeanFactory(BeanMetadataCache metadataCache) {
+        OptimizedListableBeanFactory beanFactory = new OptimizedListableBeanFactory();
+        beanFactory.setMethodHandleInvocation(true);
+        beanFactory.setMetadataCache(metadataCache);
+        beanFactory.registerBeanDefinition("user", BeanDefinitionBuilder.rootBeanDefinition(User.class)
+                .addPropertyValue("name", "zzs001")
+                .addPropertyValue("age", "18")
+                .setInitMethodName("init")
+                .getBeanDefinition());
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        beanFactory.registerBeanDefinition("userDao", BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition());
+        return beanFactory;
+    }
+
+    /**
+     * 记录创建次数的 factoryBean，模拟创建时就会打开连接的 factoryBean
+     */
+    public static class CountingUserFactoryBean extends UserFactoryBean {
+
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public CountingUserFactoryBean() {
+            super();
+            INSTANCES.incrementAndGet();
+        }
+    }
+
+    /**
+     * 没有声明泛型的 factoryBean，创建之后才知道对象类型是 User
+     */
+    @SuppressWarnings("rawtypes")
+    public static class RawUserFactoryBean implements FactoryBean {
+
+        @Override
+        public Object getObject() {
+            return new User("zzs002", 19);
+        }
+
+        @Override
+        public Class<?> getObjectType() {
+            return User.class;
+        }
+    }
+
+    /**
+     * 泛型中没有声明对象类型的 factoryBean
+     */
+    public static class CountingRawFactoryBean implements FactoryBean<Object> {
+
+        @Override
+        public Object getObject() {
+            return new UserVO();
+        }
+
+        @Override
+        public Class<?> getObjectType() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package cn.zzs.spring;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.TypeConverterSupport;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.lang.Nullable;
+
+/**
+ * 对 BeanFactoryTest 中的几种获取 bean 的方式进行压测，测量吞吐量以及每次操作分配的内存（需要 GCProfiler）。
+ * <p>参数 scope 控制 user、userFactoryBean、userService、userDao 的作用域，beanCount 控制 beanFactory 中注册的 beanDefinition 总数，
+ * 多出来的部分使用 Address 填充，用来观察 beanDefinition 数量对各种获取方式的影响。
+ * typeIndex 为 true 时使用开启了类型索引并冻结配置的 OptimizedListableBeanFactory，
+ * methodHandleInvocation 为 true 时使用 MethodHandle 调用构造方法、setter 和初始化方法的 OptimizedListableBeanFactory。
+ * <p>运行方式：先在 spring-beans 目录执行 mvn install，再在本目录执行 mvn package，最后 java -jar target/benchmarks.jar -prof gc，
+ * 或者直接运行本类的 main 方法。
+ * @author zzs
+ * @date 2026年10月18日 下午6:12:35
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanFactoryBenchmark {
+
+    @Param({BeanDefinition.SCOPE_SINGLETON, BeanDefinition.SCOPE_PROTOTYPE})
+    private String scope;
+
+    @Param({"10", "1000", "100000"})
+    private int beanCount;
+
+    @Param({"false", "true"})
+    private boolean typeIndex;
+
+    @Param({"false", "true"})
+    private boolean methodHandleInvocation;
+
+    private DefaultListableBeanFactory beanFactory;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if(typeIndex || methodHandleInvocation) {
+            OptimizedListableBeanFactory optimizedBeanFactory = new OptimizedListableBeanFactory();
+            optimizedBeanFactory.setTypeIndexEnabled(typeIndex);
+            optimizedBeanFactory.setMethodHandleInvocation(methodHandleInvocation);
+            beanFactory = optimizedBeanFactory;
+        } else {
+            beanFactory = new DefaultListableBeanFactory();
+        }
+        // 注册类型转换器，同 BeanFactoryTest.testTypeConverter
+        beanFactory.setTypeConverter(new UserVOTypeConverter());
+
+        // 注册user，设置为 primary，这样通过 beanType 获取时不会和 userFactoryBean 冲突，同 BeanFactoryTest.testPrimary
+        AbstractBeanDefinition userBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(User.class).getBeanDefinition();
+        userBeanDefinition.getPropertyValues().add("name", "zzs001");
+        userBeanDefinition.getPropertyValues().add("age", 18);
+        userBeanDefinition.setPrimary(true);
+        userBeanDefinition.setScope(scope);
+        beanFactory.registerBeanDefinition("user", userBeanDefinition);
+
+        // 注册factoryBean，同 BeanFactoryTest.testFactoryBean
+        AbstractBeanDefinition userFactoryBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserFactoryBean.class).getBeanDefinition();
+        userFactoryBeanDefinition.setScope(scope);
+        beanFactory.registerBeanDefinition("userFactoryBean", userFactoryBeanDefinition);
+
+        // 注册userService和userDao，构造方法自动装配，同 BeanFactoryTest.testAutowire
+        AbstractBeanDefinition userServiceBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserService.class).getBeanDefinition();
+        userServiceBeanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        userServiceBeanDefinition.setScope(scope);
+        beanFactory.registerBeanDefinition("userService", userServiceBeanDefinition);
+        AbstractBeanDefinition userDaoBeanDefinition = BeanDefinitionBuilder.rootBeanDefinition(UserDao.class).getBeanDefinition();
+        userDaoBeanDefinition.setScope(scope);
+        beanFactory.registerBeanDefinition("userDao", userDaoBeanDefinition);
+
+        // 填充其他的beanDefinition
+        for(int i = beanFactory.getBeanDefinitionCount(); i < beanCount; i++) {
+            beanFactory.registerBeanDefinition("address" + i, BeanDefinitionBuilder.rootBeanDefinition(Address.class).getBeanDefinition());
+        }
+        if(typeIndex) {
+            beanFactory.freezeConfiguration();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        beanFactory.destroySingletons();
+    }
+
+    /**
+     * 获取bean--通过beanName
+     */
+    @Benchmark
+    public Object getBeanByName() {
+        return beanFactory.getBean("user");
+    }
+
+    /**
+     * 获取bean--通过beanType
+     */
+    @Benchmark
+    public User getBeanByType() {
+        return beanFactory.getBean(User.class);
+    }
+
+    /**
+     * 获取bean--通过beanName+beanType的方式，需要经过 TypeConverter 转换
+     */
+    @Benchmark
+    public UserVO getBeanByNameAndConvert() {
+        return beanFactory.getBean("user", UserVO.class);
+    }
+
+    /**
+     * 获取bean--通过&+FactoryBeanName的方式
+     */
+    @Benchmark
+    public Object getFactoryBean() {
+        return beanFactory.getBean("&userFactoryBean");
+    }
+
+    /**
+     * 获取bean--构造方法自动装配userDao
+     */
+    @Benchmark
+    public Object getAutowiredBean() {
+        return beanFactory.getBean("userService");
+    }
+
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BeanFactoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 将 User 转换为 UserVO 的类型转换器，同 BeanFactoryTest.testTypeConverter
+     */
+    static class UserVOTypeConverter extends TypeConverterSupport {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T convertIfNecessary(@Nullable Object value, @Nullable Class<T> requiredType, @Nullable TypeDescriptor typeDescriptor) throws TypeMismatchException {
+
+            if(UserVO.class == requiredType && value instanceof User) {
+                User user = (User)value;
+                UserVO userVO = new UserVO();
+                userVO.setName(user.getName());
+                userVO.setAge(user.getAge());
+                return (T)userVO;
+            }
+            return null;
+        }
+    }
+}
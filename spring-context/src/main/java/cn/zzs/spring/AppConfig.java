@@ -0,0 +1,18 @@
+package cn.zzs.spring;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+/**
+ * 扫描 cn.zzs.spring 包下的组件。编译时 spring-context-indexer 已经生成了 META-INF/spring.components，
+ * 扫描时直接从索引中读取，不会遍历 classpath。
+ * @author zzs
+ * @date 2026年10月19日 上午6:25:10
+ */
+@Configuration
+@ComponentScan
+@EnableAspectJAutoProxy
+public class AppConfig {
+
+}
@@ -0,0 +1,451 @@
+package cn.zzs.spring;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * 在 SimpleApplicationEventMulticaster 的基础上增加了两项优化：
+ * <p>1. 事件类型缓存：发布没有指定类型的事件时，按事件的类缓存解析好的 ResolvableType，不再每次通过 ResolvableType.forInstance 解析。
+ * 匹配的监听器仍然由父类按事件类型和事件源类型缓存，非单例的监听器 bean 等情况和 Spring 的处理一致。
+ * <p>2. 批量投递：{@link BatchingApplicationListener} 的事件先放入这个监听器自己的有界缓冲区，由有界线程池中的任务按批取出，
+ * 合并之后调用 {@link BatchingApplicationListener#onApplicationEvents(List)}。同一个监听器同时只有一个线程在投递，
+ * 投递时不持有缓冲区的锁，发布事件的线程不会被正在执行的监听器阻塞。
+ * 缓冲区满了或者线程池拒绝任务时，由发布事件的线程直接投递，事件不会丢失。
+ * 缓冲区投递完之后空闲时就移除，下次收到事件时再创建，非单例的监听器 bean 不会一直占用缓冲区。
+ * 移除监听器时一起丢弃它的缓冲区，还没有投递的事件不再投递给它。
+ * 其他监听器仍然按 SimpleApplicationEventMulticaster 的方式投递。
+ * <p>在 ApplicationContext 中使用时，注册为名称为 applicationEventMulticaster 的 bean，关闭时会投递完缓冲区中剩余的事件。
+ * @author zzs
+ * @date 2026年10月19日 上午7:10:52
+ */
+public class BatchingApplicationEventMulticaster extends SimpleApplicationEventMulticaster implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingApplicationEventMulticaster.class);
+
+    /** 每批最多的事件数量 */
+    private int maxBatchSize = 256;
+
+    /** 每个监听器的缓冲区大小 */
+    private int bufferCapacity = 8192;
+
+    @Nullable
+    private Executor batchExecutor;
+
+    /** 没有设置 batchExecutor 时创建，关闭时一起关闭 */
+    @Nullable
+    private ThreadPoolExecutor defaultBatchExecutor;
+
+    /** 事件的类到它的类型，不阻止类被卸载 */
+    private final Map<Class<?>, ResolvableType> eventTypeCache = new ConcurrentReferenceHashMap<>(64);
+
+    private final ConcurrentMap<BatchingApplicationListener<?>, ListenerBuffer> buffers = new ConcurrentHashMap<>(16);
+
+
+    public BatchingApplicationEventMulticaster() {
+        super();
+    }
+
+    public BatchingApplicationEventMulticaster(BeanFactory beanFactory) {
+        this();
+        setBeanFactory(beanFactory);
+    }
+
+    /**
+     * 设置每批最多的事件数量
+     * @param maxBatchSize 默认 256
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than 0");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * 设置每个监听器的缓冲区大小，只对之后第一次收到事件的监听器生效
+     * @param bufferCapacity 默认 8192
+     */
+    public void setBufferCapacity(int bufferCapacity) {
+        Assert.isTrue(bufferCapacity > 0, "Buffer capacity must be greater than 0");
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * 设置按批投递使用的线程池，应该是有界的，拒绝任务时由发布事件的线程投递。
+     * 不设置时使用一个单线程、任务队列有界的线程池。
+     * @param batchExecutor 线程池
+     */
+    public void setBatchExecutor(@Nullable Executor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    /**
+     * 父类每次都通过 ResolvableType.forInstance 解析事件类型，这里按事件的类缓存
+     */
+    @Override
+    public void multicastEvent(ApplicationEvent event) {
+        multicastEvent(event, resolveEventType(event));
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+        Executor executor = getTaskExecutor();
+        ResolvableType type = eventType != null ? eventType : resolveEventType(event);
+        for(ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+            if(listener instanceof BatchingApplicationListener) {
+                BatchingApplicationListener<?> batchingListener = (BatchingApplicationListener<?>)listener;
+                while(!getBuffer(batchingListener).add(event)) {
+                    // 缓冲区空闲时被移除了，重新获取
+                }
+            } else if(executor != null) {
+                executor.execute(() -> invokeListener(listener, event));
+            } else {
+                invokeListener(listener, event);
+            }
+        }
+    }
+
+    /**
+     * 移除监听器时丢弃它的缓冲区，正在投递的一批事件投递完当前这一小批后停止
+     */
+    @Override
+    public void removeApplicationListener(ApplicationListener<?> listener) {
+        super.removeApplicationListener(listener);
+        ListenerBuffer buffer = buffers.remove(listener);
+        if(buffer != null) {
+            buffer.discard();
+        }
+    }
+
+    @Override
+    public void removeAllListeners() {
+        super.removeAllListeners();
+        for(ListenerBuffer buffer : buffers.values()) {
+            buffers.remove(buffer.listener, buffer);
+            buffer.discard();
+        }
+    }
+
+    /**
+     * 当前缓冲区的数量
+     */
+    int getBufferCount() {
+        return buffers.size();
+    }
+
+    /**
+     * 在当前线程中投递所有缓冲区中的事件
+     */
+    public void flush() {
+        for(ListenerBuffer buffer : buffers.values()) {
+            buffer.drain();
+        }
+    }
+
+    /**
+     * 投递剩余的事件，关闭默认的线程池
+     */
+    @Override
+    public void destroy() {
+        flush();
+        ThreadPoolExecutor defaultBatchExecutor = this.defaultBatchExecutor;
+        if(defaultBatchExecutor != null) {
+            defaultBatchExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 和 ResolvableType.forInstance 一致：事件自己提供类型时使用它提供的类型（例如 PayloadApplicationEvent），否则使用事件的类
+     */
+    private ResolvableType resolveEventType(ApplicationEvent event) {
+        if(event instanceof ResolvableTypeProvider) {
+            ResolvableType eventType = ((ResolvableTypeProvider)event).getResolvableType();
+            if(eventType != null) {
+                return eventType;
+            }
+        }
+        Class<?> eventClass = event.getClass();
+        ResolvableType eventType = eventTypeCache.get(eventClass);
+        if(eventType == null) {
+            eventType = ResolvableType.forClass(eventClass);
+            eventTypeCache.put(eventClass, eventType);
+        }
+        return eventType;
+    }
+
+    private ListenerBuffer getBuffer(BatchingApplicationListener<?> listener) {
+        ListenerBuffer buffer = buffers.get(listener);
+        if(buffer == null) {
+            buffer = buffers.computeIfAbsent(listener, ListenerBuffer::new);
+        }
+        return buffer;
+    }
+
+    private Executor getBatchExecutor() {
+        Executor batchExecutor = this.batchExecutor;
+        if(batchExecutor != null) {
+            return batchExecutor;
+        }
+        synchronized(this) {
+            if(defaultBatchExecutor == null) {
+                AtomicInteger threadNumber = new AtomicInteger();
+                defaultBatchExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024), runnable -> {
+                    Thread thread = new Thread(runnable, "event-batch-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return defaultBatchExecutor;
+        }
+    }
+
+    /**
+     * 一个按批接收事件的监听器的缓冲区。事件在锁内放入和整体取出，投递在锁外进行，通过 deliveringThread 保证同时只有一个线程投递。
+     * <p>空闲（没有事件、没有在投递、没有提交投递任务）时从 buffers 中移除并标记为 retired，之后不再接收事件，
+     * 发布事件的线程重新获取缓冲区，所以同一个监听器同时只有一个可以接收事件的缓冲区。
+     */
+    private final class ListenerBuffer implements Runnable {
+
+        private static final int OFFERED = 0;
+
+        private static final int FULL = 1;
+
+        private static final int RETIRED = 2;
+
+        private final BatchingApplicationListener<?> listener;
+
+        private final int capacity;
+
+        /** 以下字段只在持有 this 的锁时访问 */
+        private List<ApplicationEvent> events = new ArrayList<>();
+
+        @Nullable
+        private Thread deliveringThread;
+
+        /** 空闲时已经被移除 */
+        private boolean retired;
+
+        /** 监听器已经被移除，丢弃所有事件 */
+        private volatile boolean discarded;
+
+        /** 是否已经提交了投递任务 */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+
+        ListenerBuffer(BatchingApplicationListener<?> listener) {
+            super();
+            this.listener = listener;
+            this.capacity = bufferCapacity;
+        }
+
+        /**
+         * 放入一个事件
+         * @return 缓冲区已经空闲被移除时返回 false，需要重新获取缓冲区
+         */
+        boolean add(ApplicationEvent event) {
+            int result;
+            while((result = offer(event)) == FULL) {
+                // 缓冲区满了，由发布事件的线程投递
+                drain();
+            }
+            if(result == RETIRED) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        /**
+         * @return 放入或者丢弃时返回 OFFERED，已经空闲被移除时返回 RETIRED，缓冲区满了时返回 FULL
+         */
+        private synchronized int offer(ApplicationEvent event) {
+            if(discarded) {
+                return OFFERED;
+            }
+            if(retired) {
+                return RETIRED;
+            }
+            // 监听器在投递时又发布了事件，或者等待投递时被中断，不再等待，超出容量也放入缓冲区
+            if(events.size() < capacity || deliveringThread == Thread.currentThread() || Thread.currentThread().isInterrupted()) {
+                events.add(event);
+                return OFFERED;
+            }
+            return FULL;
+        }
+
+        /**
+         * 丢弃还没有投递的事件，之后收到的事件也直接丢弃
+         */
+        synchronized void discard() {
+            discarded = true;
+            retired = true;
+            events = new ArrayList<>();
+        }
+
+        /**
+         * 空闲时从 buffers 中移除
+         */
+        private void retireIfIdle() {
+            synchronized(this) {
+                if(retired || !events.isEmpty() || deliveringThread != null || scheduled.get()) {
+                    return;
+                }
+                retired = true;
+            }
+            buffers.remove(listener, this);
+        }
+
+        private synchronized boolean isEmpty() {
+            return events.isEmpty();
+        }
+
+        private void schedule() {
+            if(isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                getBatchExecutor().execute(this);
+            } catch(RejectedExecutionException e) {
+                scheduled.set(false);
+                drain();
+                retireIfIdle();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                drain();
+            } finally {
+                scheduled.set(false);
+            }
+            // 投递完成和重置标记之间加入的事件
+            schedule();
+            retireIfIdle();
+        }
+
+        /**
+         * 投递缓冲区中所有的事件。其他线程正在投递时等待它完成，当前线程正在投递时（监听器中调用）直接返回
+         */
+        void drain() {
+            List<ApplicationEvent> batch;
+            while((batch = takeAll()) != null) {
+                try {
+                    for(int from = 0; from < batch.size() && !discarded; from += maxBatchSize) {
+                        deliver(batch.subList(from, Math.min(from + maxBatchSize, batch.size())));
+                    }
+                } finally {
+                    synchronized(this) {
+                        deliveringThread = null;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 取出缓冲区中所有的事件，并标记当前线程正在投递
+         * @return 事件，没有事件、当前线程已经在投递或者等待时被中断时返回 null
+         */
+        @Nullable
+        private synchronized List<ApplicationEvent> takeAll() {
+            Thread currentThread = Thread.currentThread();
+            while(deliveringThread != null) {
+                if(deliveringThread == currentThread) {
+                    return null;
+                }
+                try {
+                    wait();
+                } catch(InterruptedException e) {
+                    currentThread.interrupt();
+                    return null;
+                }
+            }
+            if(events.isEmpty()) {
+                return null;
+            }
+            List<ApplicationEvent> batch = events;
+            events = new ArrayList<>();
+            deliveringThread = currentThread;
+            return batch;
+        }
+
+        /**
+         * 合并之后投递一批事件
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void deliver(List<ApplicationEvent> batch) {
+            BatchingApplicationListener rawListener = listener;
+            List<ApplicationEvent> coalesced = coalesce(rawListener, batch);
+            ErrorHandler errorHandler = getErrorHandler();
+            try {
+                rawListener.onApplicationEvents(coalesced);
+            } catch(Throwable ex) {
+                if(errorHandler != null) {
+                    errorHandler.handleError(ex);
+                } else {
+                    LOGGER.error("Failed to deliver {} events to listener {}", coalesced.size(), listener, ex);
+                }
+            }
+        }
+
+        /**
+         * 同一批中 key 相同的事件只保留最后一个，放在最后一次出现的位置
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private List<ApplicationEvent> coalesce(BatchingApplicationListener rawListener, List<ApplicationEvent> batch) {
+            Map<Object, ApplicationEvent> coalesced = null;
+            for(int i = 0; i < batch.size(); i++) {
+                ApplicationEvent event = batch.get(i);
+                Object key = rawListener.getCoalescingKey(event);
+                if(coalesced == null) {
+                    if(key == null) {
+                        continue;
+                    }
+                    // 第一次遇到需要合并的事件，之前的事件都不需要合并
+                    coalesced = new LinkedHashMap<>(batch.size() * 2);
+                    for(int j = 0; j < i; j++) {
+                        coalesced.put(new Object(), batch.get(j));
+                    }
+                }
+                if(key == null) {
+                    key = new Object();
+                }
+                coalesced.remove(key);
+                coalesced.put(key, event);
+            }
+            return coalesced == null ? new ArrayList<>(batch) : new ArrayList<>(coalesced.values());
+        }
+    }
+}
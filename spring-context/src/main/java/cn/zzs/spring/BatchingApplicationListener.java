@@ -0,0 +1,43 @@
+package cn.zzs.spring;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.Nullable;
+
+/**
+ * 按批接收事件的监听器。通过 {@link BatchingApplicationEventMulticaster} 发布时，事件先放入这个监听器自己的缓冲区，
+ * 再在后台线程中按批调用 {@link #onApplicationEvents(List)}，同一个监听器不会被并发调用，收到的事件保持发布的顺序。
+ * <p>{@link #getCoalescingKey(ApplicationEvent)} 返回不为空的 key 时，同一批中 key 相同的事件只保留最后一个。
+ * @author zzs
+ * @date 2026年10月19日 上午7:02:14
+ * @param <E> 事件类型
+ */
+public interface BatchingApplicationListener<E extends ApplicationEvent> extends ApplicationListener<E> {
+
+    /**
+     * 处理一批事件
+     * @param events 事件，至少有一个
+     */
+    void onApplicationEvents(List<E> events);
+
+    /**
+     * 获取合并事件的 key
+     * @param event 事件
+     * @return key，为空时不合并
+     */
+    @Nullable
+    default Object getCoalescingKey(E event) {
+        return null;
+    }
+
+    /**
+     * 不经过 {@link BatchingApplicationEventMulticaster} 发布时，按只有一个事件的批次处理
+     */
+    @Override
+    default void onApplicationEvent(E event) {
+        onApplicationEvents(Collections.singletonList(event));
+    }
+}
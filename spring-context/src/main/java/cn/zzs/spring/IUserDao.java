@@ -0,0 +1,5 @@
+package cn.zzs.spring;
+
+public interface IUserDao {
+    void save(User user);
+}
@@ -0,0 +1,20 @@
+package cn.zzs.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class UserDao implements IUserDao {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDao.class);
+    
+    public UserDao() {
+        super();
+        LOGGER.debug("UserDao构造方法被调用 --> ");
+    }
+    
+    public void save(User user) {
+        LOGGER.debug("Dao save user：{}", user);
+    }
+}
@@ -0,0 +1,25 @@
+package cn.zzs.spring;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 保存用户后发布的审计事件
+ * @author zzs
+ * @date 2026年10月19日 上午7:04:36
+ */
+public class UserSavedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final User user;
+
+
+    public UserSavedEvent(Object source, User user) {
+        super(source);
+        this.user = user;
+    }
+
+    public User getUser() {
+        return user;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.zzs.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.stereotype.Service;
+
+@Service
+public class UserService implements IUserService, ApplicationEventPublisherAware {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+    
+    private final IUserDao userDao;
+    
+    private ApplicationEventPublisher eventPublisher;
+    
+    public UserService(IUserDao userDao) {
+        super();
+        this.userDao = userDao;
+        LOGGER.debug("UserService有参构造方法被调用 --> ");
+    }
+    
+    public IUserDao getUserDao() {
+        return userDao;
+    }
+    
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+    
+    public User get(String id) {
+        return new User("zzs001", 18);
+    }
+    
+    public void save(User user) {
+        LOGGER.debug("UserService save user：{}", user);
+        userDao.save(user);
+        if(eventPublisher != null) {
+            eventPublisher.publishEvent(new UserSavedEvent(this, user));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cn.zzs.spring;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.annotation.Pointcut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class UserServiceAspect {
+    
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserServiceAspect.class);
+    
+    public static final String POINTCUT_EXPRESSION = "execution(* cn.zzs.spring.UserService+.*(..))";
+    
+    private final AtomicInteger invocations = new AtomicInteger();
+    
+    @Pointcut(POINTCUT_EXPRESSION)
+    public void genericPointCut() {
+
+    }
+    
+    @Before(value = "genericPointCut()")
+    public void printRequest(JoinPoint joinPoint) {
+        invocations.incrementAndGet();
+        if(LOGGER.isInfoEnabled()) {
+            LOGGER.info("call {}_{} with args:{}", 
+                    joinPoint.getSignature().getDeclaringType().getSimpleName(), 
+                    joinPoint.getSignature().getName(), 
+                    joinPoint.getArgs());
+        }
+    }
+    
+    public int getInvocations() {
+        return invocations.get();
+    }
+}
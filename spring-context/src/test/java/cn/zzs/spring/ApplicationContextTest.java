@@ -0,0 +1,346 @@
+package cn.zzs.spring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * 测试ApplicationContext
+ * @author zzs
+ * @date 2026年10月19日 上午6:31:52
+ */
+public class ApplicationContextTest {
+
+    /**
+     * 编译时 spring-context-indexer 生成了 META-INF/spring.components，@Service、@Repository、@Configuration 以及
+     * 标注了 @Component 的切面都以 Component 作为 stereotype 记录在索引中。
+     * @author zzs
+     * @date 2026年10月19日 上午6:33:08 void
+     */
+    @Test
+    public void testComponentIndex() {
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+        assertNotNull(index);
+
+        Set<String> candidateTypes = index.getCandidateTypes("cn.zzs.spring", Component.class.getName());
+        assertEquals(new HashSet<>(Arrays.asList(AppConfig.class.getName(), UserService.class.getName(), UserDao.class.getName(),
+                UserServiceAspect.class.getName())), candidateTypes);
+        assertFalse(candidateTypes.contains(User.class.getName()));
+    }
+
+    /**
+     * 存在索引时，组件扫描直接从索引中获取候选组件，不会按 classpath*:cn/zzs/spring/**&#47;*.class 遍历和读取 class 文件。
+     * @author zzs
+     * @date 2026年10月19日 上午6:38:41 void
+     */
+    @Test
+    public void testScanFromIndex() throws Exception {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        // 一旦按class文件扫描就失败
+        context.setResourceLoader(new PathMatchingResourcePatternResolver() {
+
+            @Override
+            public Resource[] getResources(String locationPattern) throws IOException {
+                if(locationPattern.endsWith(".class")) {
+                    throw new IllegalStateException("Classpath scanning is not expected: " + locationPattern);
+                }
+                return super.getResources(locationPattern);
+            }
+        });
+        context.register(AppConfig.class);
+        context.refresh();
+        try {
+            // 切面从索引中注册，userService被代理
+            IUserService userService = context.getBean(IUserService.class);
+            assertTrue(AopUtils.isAopProxy(userService));
+            UserService target = (UserService)((Advised)userService).getTargetSource().getTarget();
+            assertSame(context.getBean(IUserDao.class), target.getUserDao());
+
+            UserServiceAspect aspect = context.getBean(UserServiceAspect.class);
+            userService.save(userService.get("1"));
+            assertEquals(2, aspect.getInvocations());
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 按批接收事件的监听器通过有界线程池收到按批投递的事件，每批不超过 maxBatchSize，顺序和发布的顺序一致；
+     * 普通的监听器仍然同步地逐个收到事件，添加监听器之后立即生效。监听器正在处理一批事件时，发布事件的线程不会被阻塞。
+     * @author zzs
+     * @date 2026年10月19日 上午7:35:18 void
+     */
+    @Test
+    public void testBatchingEventMulticaster() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("auditListener", BeanDefinitionBuilder.rootBeanDefinition(AuditListener.class).getBeanDefinition());
+        beanFactory.registerBeanDefinition("countingListener", BeanDefinitionBuilder.rootBeanDefinition(CountingListener.class).getBeanDefinition());
+
+        BatchingApplicationEventMulticaster multicaster = new BatchingApplicationEventMulticaster(beanFactory);
+        multicaster.setMaxBatchSize(100);
+        multicaster.addApplicationListenerBean("auditListener");
+        multicaster.addApplicationListenerBean("countingListener");
+
+        UserService userService = new UserService(new UserDao());
+        for(int i = 0; i < 1000; i++) {
+            multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs" + i, i)));
+        }
+        multicaster.flush();
+
+        AuditListener auditListener = beanFactory.getBean(AuditListener.class);
+        List<UserSavedEvent> received = new ArrayList<>();
+        for(List<UserSavedEvent> batch : auditListener.getBatches()) {
+            assertTrue(batch.size() <= 100);
+            received.addAll(batch);
+        }
+        assertEquals(1000, received.size());
+        for(int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), received.get(i).getUser().getAge());
+        }
+        assertEquals(1000, beanFactory.getBean(CountingListener.class).getCount());
+
+        // 添加监听器后重新查找
+        CountingListener addedListener = new CountingListener();
+        multicaster.addApplicationListener(addedListener);
+        multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 18)));
+        assertEquals(1, addedListener.getCount());
+        multicaster.destroy();
+
+        // 监听器处理第一批事件时被阻塞，发布事件的线程仍然可以放入缓冲区
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AuditListener blockingListener = new AuditListener() {
+
+            @Override
+            public void onApplicationEvents(List<UserSavedEvent> events) {
+                super.onApplicationEvents(events);
+                delivering.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        BatchingApplicationEventMulticaster blockingMulticaster = new BatchingApplicationEventMulticaster();
+        blockingMulticaster.setBatchExecutor(executorService);
+        blockingMulticaster.addApplicationListener(blockingListener);
+        try {
+            blockingMulticaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 0)));
+            assertTrue(delivering.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Void> publishing = CompletableFuture.runAsync(() -> {
+                for(int i = 1; i < 10; i++) {
+                    blockingMulticaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", i)));
+                }
+            });
+            publishing.get(5, TimeUnit.SECONDS);
+            assertEquals(1, blockingListener.getBatches().size());
+        } finally {
+            release.countDown();
+        }
+        blockingMulticaster.flush();
+        executorService.shutdown();
+        received.clear();
+        for(List<UserSavedEvent> batch : blockingListener.getBatches()) {
+            received.addAll(batch);
+        }
+        assertEquals(10, received.size());
+        for(int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), received.get(i).getUser().getAge());
+        }
+    }
+
+    /**
+     * 同一批中合并 key 相同的事件，只保留最后一个。投递任务提交到线程池后，在任务执行之前发布的事件都在同一批中。
+     * @author zzs
+     * @date 2026年10月19日 上午7:41:03 void
+     */
+    @Test
+    public void testCoalescingEvents() {
+        List<Runnable> tasks = new ArrayList<>();
+        BatchingApplicationEventMulticaster multicaster = new BatchingApplicationEventMulticaster();
+        multicaster.setBatchExecutor(tasks::add);
+        AuditListener auditListener = new AuditListener();
+        auditListener.setCoalescing(true);
+        multicaster.addApplicationListener(auditListener);
+
+        UserService userService = new UserService(new UserDao());
+        String[] names = {"zzs001", "zzs002", "zzs001", "zzs003", "zzs002", "zzs001"};
+        for(int i = 0; i < names.length; i++) {
+            multicaster.multicastEvent(new UserSavedEvent(userService, new User(names[i], i)));
+        }
+        assertEquals(1, tasks.size());
+        assertTrue(auditListener.getBatches().isEmpty());
+
+        tasks.get(0).run();
+        assertEquals(1, auditListener.getBatches().size());
+        List<UserSavedEvent> batch = auditListener.getBatches().get(0);
+        assertEquals(3, batch.size());
+        assertEquals(new User("zzs003", 3).toString(), batch.get(0).getUser().toString());
+        assertEquals(new User("zzs002", 4).toString(), batch.get(1).getUser().toString());
+        assertEquals(new User("zzs001", 5).toString(), batch.get(2).getUser().toString());
+    }
+
+    /**
+     * 缓冲区投递完之后被移除，非单例的监听器 bean 不会一直占用缓冲区。移除监听器时丢弃它的缓冲区，还没有投递的事件不再投递给它。
+     * @author zzs
+     * @date 2026年10月19日 上午7:44:12 void
+     */
+    @Test
+    public void testBatchingListenerRemoval() {
+        List<Runnable> tasks = new ArrayList<>();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("auditListener", BeanDefinitionBuilder.rootBeanDefinition(AuditListener.class)
+                .setScope(BeanDefinition.SCOPE_PROTOTYPE)
+                .getBeanDefinition());
+        BatchingApplicationEventMulticaster multicaster = new BatchingApplicationEventMulticaster(beanFactory);
+        multicaster.setBatchExecutor(tasks::add);
+        multicaster.addApplicationListenerBean("auditListener");
+
+        // 每次发布事件都获取到一个新的监听器，投递完之后缓冲区都被移除
+        UserService userService = new UserService(new UserDao());
+        for(int i = 0; i < 5; i++) {
+            multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", i)));
+        }
+        assertEquals(5, multicaster.getBufferCount());
+        tasks.forEach(Runnable::run);
+        tasks.clear();
+        assertEquals(0, multicaster.getBufferCount());
+        multicaster.removeAllListeners();
+
+        // 空闲时移除的缓冲区在下次收到事件时重新创建
+        AuditListener auditListener = new AuditListener();
+        multicaster.addApplicationListener(auditListener);
+        multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 0)));
+        tasks.remove(0).run();
+        multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 1)));
+        assertEquals(1, multicaster.getBufferCount());
+        tasks.remove(0).run();
+        assertEquals(2, auditListener.getBatches().size());
+
+        // 移除监听器后，已经放入缓冲区的事件不再投递
+        multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 2)));
+        multicaster.removeApplicationListener(auditListener);
+        assertEquals(0, multicaster.getBufferCount());
+        tasks.remove(0).run();
+        multicaster.flush();
+        assertEquals(2, auditListener.getBatches().size());
+
+        // 移除所有监听器时同样丢弃
+        AuditListener otherListener = new AuditListener();
+        multicaster.addApplicationListener(otherListener);
+        multicaster.multicastEvent(new UserSavedEvent(userService, new User("zzs", 3)));
+        multicaster.removeAllListeners();
+        assertEquals(0, multicaster.getBufferCount());
+        tasks.forEach(Runnable::run);
+        multicaster.flush();
+        assertTrue(otherListener.getBatches().isEmpty());
+    }
+
+    /**
+     * 在 ApplicationContext 中注册名称为 applicationEventMulticaster 的 bean，UserService 保存用户时发布的审计事件按批投递，
+     * 关闭 ApplicationContext 时投递完剩余的事件。
+     * @author zzs
+     * @date 2026年10月19日 上午7:46:27 void
+     */
+    @Test
+    public void testContextEventMulticaster() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME, BatchingApplicationEventMulticaster.class);
+        context.registerBean(AuditListener.class);
+        context.register(AppConfig.class);
+        context.refresh();
+
+        IUserService userService = context.getBean(IUserService.class);
+        for(int i = 0; i < 10; i++) {
+            userService.save(new User("zzs" + i, i));
+        }
+        AuditListener auditListener = context.getBean(AuditListener.class);
+        context.close();
+
+        int received = 0;
+        for(List<UserSavedEvent> batch : auditListener.getBatches()) {
+            received += batch.size();
+        }
+        assertEquals(10, received);
+    }
+
+    /**
+     * 按批接收审计事件的监听器
+     */
+    public static class AuditListener implements BatchingApplicationListener<UserSavedEvent> {
+
+        private final List<List<UserSavedEvent>> batches = new CopyOnWriteArrayList<>();
+
+        private boolean coalescing;
+
+
+        @Override
+        public void onApplicationEvents(List<UserSavedEvent> events) {
+            batches.add(new ArrayList<>(events));
+        }
+
+        @Override
+        public Object getCoalescingKey(UserSavedEvent event) {
+            return coalescing ? event.getUser().getName() : null;
+        }
+
+        public void setCoalescing(boolean coalescing) {
+            this.coalescing = coalescing;
+        }
+
+        public List<List<UserSavedEvent>> getBatches() {
+            return batches;
+        }
+    }
+
+    /**
+     * 逐个接收事件的监听器
+     */
+    public static class CountingListener implements ApplicationListener<UserSavedEvent> {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public void onApplicationEvent(UserSavedEvent event) {
+            count.incrementAndGet();
+        }
+
+        public int getCount() {
+            return count.get();
+        }
+    }
+}